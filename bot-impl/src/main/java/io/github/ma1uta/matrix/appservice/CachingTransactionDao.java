@@ -0,0 +1,337 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.appservice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transaction dao which answers the most {@link #exist(String)} checks from the memory.
+ * <br>
+ * The recently saved transactions are kept in the bounded LRU set with the expiration, because the homeserver retries
+ * the transaction within seconds. The saves are batched and written to the delegate asynchronously, the pending
+ * transactions are also answered from the memory.
+ * <br>
+ * The optional Bloom filter answers {@code false} for the transactions which have never been saved without the delegate
+ * call. It should be enabled only when the delegate contains no transactions other than the saved through this dao or
+ * passed to the {@link #preload(Collection)}, otherwise the transactions processed before the restart could be processed again.
+ * <br>
+ * The pending transactions are lost if the process crashes before the flush, so the homeserver retry of such transaction
+ * is processed again. Use the zero flush interval to write the transactions through.
+ *
+ * @param <T> The transaction class.
+ */
+public class CachingTransactionDao<T extends Transaction> implements TransactionDao<T>, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingTransactionDao.class);
+
+    private static final int DEFAULT_CAPACITY = 10_000;
+
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(10L);
+
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1L);
+
+    private static final int TIMEOUT = 10;
+
+    private static final float LOAD_FACTOR = 0.75F;
+
+    private final TransactionDao<T> delegate;
+
+    private final int capacity;
+
+    private final long ttl;
+
+    private final Map<String, Long> recent;
+
+    private final Map<String, T> pending = new ConcurrentHashMap<>();
+
+    private final BloomFilter bloomFilter;
+
+    private final ScheduledExecutorService flusher;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder negatives = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public CachingTransactionDao(TransactionDao<T> delegate) {
+        this(delegate, DEFAULT_CAPACITY, DEFAULT_TTL, DEFAULT_FLUSH_INTERVAL, 0);
+    }
+
+    /**
+     * Create the dao.
+     *
+     * @param delegate           The dao which stores the transactions.
+     * @param capacity           The maximum count of the recent transactions in the memory.
+     * @param ttl                The time to keep the recent transaction in the memory.
+     * @param flushInterval      The interval of the batched saves, the zero interval to write the transactions through.
+     * @param expectedInsertions The expected count of the transactions in the Bloom filter, {@code 0} to disable the filter.
+     */
+    public CachingTransactionDao(TransactionDao<T> delegate, int capacity, Duration ttl, Duration flushInterval, int expectedInsertions) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive.");
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.ttl = ttl.toNanos();
+        this.recent = new LinkedHashMap<>(capacity, LOAD_FACTOR, true);
+        this.bloomFilter = expectedInsertions > 0 ? new BloomFilter(expectedInsertions) : null;
+        if (flushInterval.isZero() || flushInterval.isNegative()) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "transaction-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Provides the count of the checks answered by the recent transactions.
+     *
+     * @return The count of the hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Provides the count of the checks answered by the Bloom filter.
+     *
+     * @return The count of the negative answers.
+     */
+    public long getNegatives() {
+        return negatives.sum();
+    }
+
+    /**
+     * Provides the count of the checks passed to the delegate.
+     *
+     * @return The count of the misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Provides the count of the transactions waiting for the flush.
+     *
+     * @return The count of the pending transactions.
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Add the transactions which have already been saved in the delegate to the Bloom filter.
+     *
+     * @param txnIds The transaction ids.
+     */
+    public void preload(Collection<String> txnIds) {
+        if (bloomFilter != null) {
+            txnIds.forEach(bloomFilter::add);
+        }
+    }
+
+    @Override
+    public void save(T transaction) {
+        remember(transaction.getId());
+        if (bloomFilter != null) {
+            bloomFilter.add(transaction.getId());
+        }
+        if (flusher == null) {
+            delegate.save(transaction);
+        } else {
+            pending.put(transaction.getId(), transaction);
+        }
+    }
+
+    @Override
+    public boolean exist(String txnId) {
+        if (isRecent(txnId) || pending.containsKey(txnId)) {
+            hits.increment();
+            return true;
+        }
+        if (bloomFilter != null && !bloomFilter.mightContain(txnId)) {
+            negatives.increment();
+            return false;
+        }
+        misses.increment();
+        boolean exist = delegate.exist(txnId);
+        if (exist) {
+            remember(txnId);
+        }
+        return exist;
+    }
+
+    /**
+     * Write the pending transactions to the delegate.
+     */
+    public synchronized void flush() {
+        List<T> batch = new ArrayList<>(pending.values());
+        for (T transaction : batch) {
+            try {
+                delegate.save(transaction);
+            } catch (Exception e) {
+                // the failed and the rest transactions are kept pending to retry them with the next flush.
+                LOGGER.error(String.format("Cannot save the transaction \"%s\", it will be retried.", transaction.getId()), e);
+                break;
+            }
+            pending.remove(transaction.getId(), transaction);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(TIMEOUT, TimeUnit.SECONDS);
+        }
+        flush();
+    }
+
+    private void remember(String txnId) {
+        long now = System.nanoTime();
+        synchronized (recent) {
+            recent.put(txnId, now);
+            if (recent.size() > capacity) {
+                Iterator<Map.Entry<String, Long>> iterator = recent.entrySet().iterator();
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean isRecent(String txnId) {
+        long now = System.nanoTime();
+        synchronized (recent) {
+            Long saved = recent.get(txnId);
+            if (saved == null) {
+                return false;
+            }
+            if (now - saved > ttl) {
+                recent.remove(txnId);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Bloom filter of the transaction ids with the 1% false positive probability.
+     * <br>
+     * The probes are derived from two independent 64-bit hashes of the UTF-8 bytes of the id (the double hashing),
+     * so the ids with the colliding {@link String#hashCode()} don't share the probes.
+     */
+    private static final class BloomFilter {
+
+        private static final double FALSE_POSITIVE = 0.01D;
+
+        private static final int LONG_SHIFT = 6;
+
+        private static final int LONG_MASK = Long.SIZE - 1;
+
+        private static final int BYTE_MASK = 0xFF;
+
+        private static final long FIRST_SEED = 0xCBF29CE484222325L;
+
+        private static final long SECOND_SEED = 0x9E3779B97F4A7C15L;
+
+        private static final long FIRST_PRIME = 0x100000001B3L;
+
+        private static final long SECOND_PRIME = 0xBF58476D1CE4E5B9L;
+
+        private static final long MIX_FIRST = 0xFF51AFD7ED558CCDL;
+
+        private static final long MIX_SECOND = 0xC4CEB9FE1A85EC53L;
+
+        private static final int MIX_SHIFT = 33;
+
+        private final AtomicLongArray bits;
+
+        private final long size;
+
+        private final int hashes;
+
+        private BloomFilter(int expectedInsertions) {
+            double ln2 = Math.log(2.0D);
+            long optimal = (long) Math.ceil(-expectedInsertions * Math.log(FALSE_POSITIVE) / (ln2 * ln2));
+            this.bits = new AtomicLongArray((int) ((optimal + LONG_MASK) >>> LONG_SHIFT));
+            this.size = (long) bits.length() << LONG_SHIFT;
+            this.hashes = Math.max(1, (int) Math.round((double) size / expectedInsertions * ln2));
+        }
+
+        void add(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            long hash1 = hash(bytes, FIRST_SEED, FIRST_PRIME);
+            long hash2 = hash(bytes, SECOND_SEED, SECOND_PRIME) | 1L;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, size);
+                int index = (int) (bit >>> LONG_SHIFT);
+                long mask = 1L << (bit & LONG_MASK);
+                long current = bits.get(index);
+                while ((current & mask) == 0 && !bits.compareAndSet(index, current, current | mask)) {
+                    current = bits.get(index);
+                }
+            }
+        }
+
+        boolean mightContain(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            long hash1 = hash(bytes, FIRST_SEED, FIRST_PRIME);
+            long hash2 = hash(bytes, SECOND_SEED, SECOND_PRIME) | 1L;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, size);
+                if ((bits.get((int) (bit >>> LONG_SHIFT)) & (1L << (bit & LONG_MASK))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a over the bytes with the own seed and prime, finished with the MurmurHash3 64-bit mix.
+        private static long hash(byte[] bytes, long seed, long prime) {
+            long hash = seed;
+            for (byte value : bytes) {
+                hash = (hash ^ (value & BYTE_MASK)) * prime;
+            }
+            hash ^= hash >>> MIX_SHIFT;
+            hash *= MIX_FIRST;
+            hash ^= hash >>> MIX_SHIFT;
+            hash *= MIX_SECOND;
+            return hash ^ (hash >>> MIX_SHIFT);
+        }
+    }
+}
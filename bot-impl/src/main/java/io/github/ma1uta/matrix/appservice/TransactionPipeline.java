@@ -0,0 +1,214 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.appservice;
+
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.RoomEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * Pipeline of the application service transactions.
+ * <br>
+ * The events of the transaction are partitioned by the room onto the striped single-thread executors, so the events of the
+ * different rooms are processed in parallel while the events of the one room are processed in order, also across
+ * the transactions. The transaction is completed when all its partitions are processed.
+ * <br>
+ * The events without the room are processed on the first stripe. The failed event is logged and doesn't stop the processing
+ * of the next events.
+ * <br>
+ * The handler is called concurrently for the events of the different rooms, also when these events are routed to the same bot.
+ * The homeserver retries the transaction which wasn't acknowledged in time, the retry of the transaction which is still
+ * in flight gets the future of the first submission instead of processing the events twice.
+ */
+public class TransactionPipeline implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionPipeline.class);
+
+    private static final int TIMEOUT = 10;
+
+    private final BiPredicate<String, Event> handler;
+
+    private final ExecutorService[] stripes;
+
+    private final LongAdder processed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    public TransactionPipeline(BiPredicate<String, Event> handler) {
+        this(handler, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TransactionPipeline(BiPredicate<String, Event> handler, int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripes count should be positive.");
+        }
+        this.handler = handler;
+        this.stripes = new ExecutorService[stripes];
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "transaction-pipeline-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Provides the count of the processed events.
+     *
+     * @return The count of the events which have been accepted by the handler.
+     */
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    /**
+     * Provides the count of the failed events.
+     *
+     * @return The count of the events which handler has thrown an exception.
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Process the events of the transaction.
+     *
+     * @param events The events of the transaction.
+     * @return The future which is completed when all events are processed.
+     */
+    public CompletableFuture<Void> submit(List<Event> events) {
+        List<List<Event>> partitions = new ArrayList<>(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            partitions.add(null);
+        }
+        for (Event event : events) {
+            int stripe = stripe(roomId(event));
+            List<Event> partition = partitions.get(stripe);
+            if (partition == null) {
+                partition = new ArrayList<>();
+                partitions.set(stripe, partition);
+            }
+            partition.add(event);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            List<Event> partition = partitions.get(i);
+            if (partition != null) {
+                futures.add(CompletableFuture.runAsync(() -> process(partition), stripes[i]));
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Process the transaction once.
+     * <br>
+     * The transaction which already exists is skipped, the transaction which is being processed returns the future of the
+     * processing. Otherwise the transaction is saved with the processed time when all events are processed, so the transaction
+     * is acknowledged only after the processing.
+     *
+     * @param transaction The transaction.
+     * @param events      The events of the transaction.
+     * @param dao         The transaction dao.
+     * @param <T>         The transaction class.
+     * @return The future which is completed when the transaction is saved.
+     */
+    public <T extends Transaction> CompletableFuture<Void> submit(T transaction, List<Event> events, TransactionDao<T> dao) {
+        String txnId = transaction.getId();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CompletableFuture<Void> current = inFlight.putIfAbsent(txnId, result);
+        if (current != null) {
+            LOGGER.debug("Transaction {} is being processed.", txnId);
+            return current;
+        }
+        try {
+            if (dao.exist(txnId)) {
+                LOGGER.debug("Transaction {} has already been processed.", txnId);
+                inFlight.remove(txnId, result);
+                result.complete(null);
+                return result;
+            }
+            submit(events).thenRun(() -> {
+                transaction.setProcessed(LocalDateTime.now());
+                dao.save(transaction);
+            }).whenComplete((ignored, error) -> {
+                // the transaction is saved before it leaves the in-flight map, so the next retry finds it in the dao.
+                inFlight.remove(txnId, result);
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(txnId, result);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+        for (ExecutorService stripe : stripes) {
+            if (!stripe.awaitTermination(TIMEOUT, TimeUnit.SECONDS)) {
+                stripe.shutdownNow();
+            }
+        }
+    }
+
+    private void process(List<Event> partition) {
+        for (Event event : partition) {
+            try {
+                if (handler.test(roomId(event), event)) {
+                    processed.increment();
+                }
+            } catch (Exception e) {
+                failed.increment();
+                LOGGER.error("Cannot process the event.", e);
+            }
+        }
+    }
+
+    private int stripe(String roomId) {
+        return roomId == null ? 0 : (roomId.hashCode() & Integer.MAX_VALUE) % stripes.length;
+    }
+
+    private static String roomId(Event event) {
+        return event instanceof RoomEvent ? ((RoomEvent<?>) event).getRoomId() : null;
+    }
+}
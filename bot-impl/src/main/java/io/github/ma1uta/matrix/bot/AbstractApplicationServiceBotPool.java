@@ -16,16 +16,17 @@
 
 package io.github.ma1uta.matrix.bot;
 
+import io.github.ma1uta.matrix.appservice.Transaction;
+import io.github.ma1uta.matrix.appservice.TransactionDao;
+import io.github.ma1uta.matrix.appservice.TransactionPipeline;
 import io.github.ma1uta.matrix.event.Event;
 import io.github.ma1uta.matrix.event.RoomEvent;
 import io.github.ma1uta.matrix.event.RoomMember;
-import io.github.ma1uta.matrix.event.content.RoomMemberContent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Bot service.
@@ -42,6 +43,10 @@ public abstract class AbstractApplicationServiceBotPool<C extends BotConfig, D e
 
     private final String appToken;
 
+    private final RoomBotIndex roomIndex = new RoomBotIndex();
+
+    private volatile TransactionPipeline pipeline;
+
     public AbstractApplicationServiceBotPool(String displayName, String appToken, S service,
                                              List<Class<? extends Command<C, D, S, E>>> commandClasses) {
         super(displayName, service, commandClasses);
@@ -52,51 +57,44 @@ public abstract class AbstractApplicationServiceBotPool<C extends BotConfig, D e
         return appToken;
     }
 
+    public RoomBotIndex getRoomIndex() {
+        return roomIndex;
+    }
+
     /**
      * Send an one event to the bot.
+     * <br>
+     * The bot is found in the {@link RoomBotIndex}, the membership events update the index before the routing, so the invited
+     * bot receives the invite and the bot which left the room doesn't receive the events of this room.
      *
      * @param roomId room id.
      * @param event  event.
      * @return {@code true} if event was processed, else {@code false}.
      */
     public boolean send(String roomId, Event event) {
-        LOGGER.debug("Receive event in the room: {0}", roomId);
-        Optional<ApplicationServiceBot<C, D, S, E>> bot = getBotMap().entrySet().stream()
-            .filter(entry -> {
-                Context<C, D, S, E> context = entry.getValue().getContext();
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Bot \"{}\"", context.getConfig().getUserId());
-                }
-                List<String> joinedRooms;
-                try {
-                    joinedRooms = context.getMatrixClient().room().joinedRooms().getJoinedRooms();
-                } catch (Exception e) {
-                    LOGGER.error("Cannot retrieve joined rooms.", e);
-                    return false;
-                }
-                if (LOGGER.isDebugEnabled()) {
-                    joinedRooms.forEach(joinedRoom -> LOGGER.debug("Room: {}", joinedRoom));
-                }
-                if (joinedRooms.contains(roomId)) {
-                    return true;
-                }
-                if (event instanceof RoomMember) {
-                    RoomMember roomMember = (RoomMember) event;
-                    String stateKey = roomMember.getStateKey();
-                    String membership = roomMember.getContent().getMembership();
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("Membership: {}", membership);
-                        LOGGER.debug("Event type: {}", event.getType());
-                        LOGGER.debug("State key: {}", stateKey);
-                    }
-                    return context.getConfig().getUserId().equals(stateKey) && RoomMemberContent.INVITE.equals(membership);
-                }
-                return false;
-            }).map(Map.Entry::getValue).findFirst();
+        LOGGER.debug("Receive event in the room: {}", roomId);
+        if (event instanceof RoomMember) {
+            RoomMember roomMember = (RoomMember) event;
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Membership: {}", roomMember.getContent() != null ? roomMember.getContent().getMembership() : null);
+                LOGGER.debug("State key: {}", roomMember.getStateKey());
+            }
+            if (getBotMap().containsKey(roomMember.getStateKey())) {
+                roomIndex.update(roomId, roomMember);
+            }
+        }
+
+        ApplicationServiceBot<C, D, S, E> bot = null;
+        for (String userId : roomIndex.find(roomId)) {
+            bot = getBotMap().get(userId);
+            if (bot != null) {
+                break;
+            }
+        }
 
-        if (bot.isPresent() && event instanceof RoomEvent) {
-            LOGGER.debug("Bot \"{}\" is found.", bot.get().getContext().getConfig().getUserId());
-            bot.get().send((RoomEvent) event);
+        if (bot != null && event instanceof RoomEvent) {
+            LOGGER.debug("Bot \"{}\" is found.", bot.getContext().getConfig().getUserId());
+            bot.send((RoomEvent) event);
             return true;
         } else {
             LOGGER.debug("Bot didn't found.");
@@ -104,6 +102,56 @@ public abstract class AbstractApplicationServiceBotPool<C extends BotConfig, D e
         }
     }
 
+    /**
+     * Provides the pipeline of the transactions which sends the events to the bots.
+     *
+     * @return The transaction pipeline.
+     */
+    public TransactionPipeline getPipeline() {
+        if (pipeline == null) {
+            synchronized (this) {
+                if (pipeline == null) {
+                    pipeline = new TransactionPipeline(this::send);
+                }
+            }
+        }
+        return pipeline;
+    }
+
+    /**
+     * Send the events of the transaction to the bots.
+     * <br>
+     * The events of the different rooms are processed in parallel, the events of the one room are processed in order.
+     * The bot which is a member of several rooms receives the events of these rooms concurrently, see {@link ApplicationServiceBot}.
+     * The retry of the transaction which is being processed completes together with the first submission.
+     *
+     * @param transaction The transaction.
+     * @param events      The events of the transaction.
+     * @param dao         The transaction dao.
+     * @param <T>         The transaction class.
+     * @return The future which is completed when the transaction is processed and saved.
+     */
+    public <T extends Transaction> CompletableFuture<Void> sendTransaction(T transaction, List<Event> events, TransactionDao<T> dao) {
+        return getPipeline().submit(transaction, events, dao);
+    }
+
+    /**
+     * Rebuild the room index of the bot from the joined rooms.
+     *
+     * @param bot The bot.
+     */
+    public void reindex(ApplicationServiceBot<C, D, S, E> bot) {
+        Context<C, D, S, E> context = bot.getContext();
+        String userId = context.getConfig().getUserId();
+        try {
+            List<String> joinedRooms = context.getMatrixClient().room().joinedRooms().getJoinedRooms();
+            roomIndex.removeBot(userId);
+            roomIndex.addAll(joinedRooms, userId);
+        } catch (Exception e) {
+            LOGGER.error(String.format("Cannot retrieve joined rooms of the bot \"%s\".", userId), e);
+        }
+    }
+
     @Override
     protected ApplicationServiceBot<C, D, S, E> createBotInstance(C config) {
         return new ApplicationServiceBot<>(getAppToken(), true, config, getService(), getCommandClasses());
@@ -115,5 +163,19 @@ public abstract class AbstractApplicationServiceBotPool<C extends BotConfig, D e
             bot.newState();
         }
         bot.init();
+        String userId = bot.getContext().getConfig().getUserId();
+        bot.getContext().addShutdownListener(() -> {
+            roomIndex.removeBot(userId);
+            return null;
+        });
+        reindex(bot);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        TransactionPipeline current = pipeline;
+        if (current != null) {
+            current.close();
+        }
     }
 }
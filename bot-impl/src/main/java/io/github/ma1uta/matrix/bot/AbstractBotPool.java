@@ -19,9 +19,9 @@ package io.github.ma1uta.matrix.bot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Bot service.
@@ -43,7 +43,7 @@ public abstract class AbstractBotPool<C extends BotConfig, D extends BotDao<C>,
 
     private final List<Class<? extends Command<C, D, S, E>>> commandClasses;
 
-    private Map<String, B> botMap = new HashMap<>();
+    private final Map<String, B> botMap = new ConcurrentHashMap<>();
 
     public AbstractBotPool(String displayName, S service, List<Class<? extends Command<C, D, S, E>>> commandClasses) {
         this.service = service;
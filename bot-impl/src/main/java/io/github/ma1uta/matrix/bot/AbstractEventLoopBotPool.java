@@ -0,0 +1,165 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bot service which multiplexes all bots on the asynchronous sync.
+ * <br>
+ * Unlike the {@link AbstractStandaloneBotPool} which runs each bot on its own thread, this pool drives the state machines of
+ * all bots from the completions of the sync requests. The bot actions and the commands run on the bounded command executor,
+ * the small scheduler handles the retries, so the count of the bots is limited by the memory rather than the threads.
+ * <br>
+ * The asynchronous requests run on the executor of the matrix client, the long-polling sync doesn't hold a thread only
+ * if the REST client engine supports the non-blocking requests.
+ *
+ * @param <C> bot configuration.
+ * @param <D> bot dao.
+ * @param <S> bot service.
+ * @param <E> extra data.
+ */
+public abstract class AbstractEventLoopBotPool<C extends BotConfig, D extends BotDao<C>, S extends PersistentService<D>, E> extends
+    AbstractBotPool<C, D, S, E, StandaloneBot<C, D, S, E>> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractEventLoopBotPool.class);
+
+    private static final int TIMEOUT = 10;
+
+    private static final int SCHEDULER_THREADS = 1;
+
+    private static final int QUEUE_PER_THREAD = 64;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ExecutorService commandExecutor;
+
+    private final AtomicInteger activeBots = new AtomicInteger();
+
+    private final Set<EventLoopBotDriver<C, D, S, E>> drivers = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running = true;
+
+    public AbstractEventLoopBotPool(String displayName, S service, List<Class<? extends Command<C, D, S, E>>> commandClasses) {
+        this(displayName, service, commandClasses, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public AbstractEventLoopBotPool(String displayName, S service, List<Class<? extends Command<C, D, S, E>>> commandClasses,
+                                    int commandThreads) {
+        super(displayName, service, commandClasses);
+        this.scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREADS, threadFactory(displayName + "-scheduler-"));
+        // the caller runs the rejected tasks, so the completions slow down when the commands can't keep up.
+        this.commandExecutor = new ThreadPoolExecutor(commandThreads, commandThreads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(commandThreads * QUEUE_PER_THREAD), threadFactory(displayName + "-command-"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    public ExecutorService getCommandExecutor() {
+        return commandExecutor;
+    }
+
+    /**
+     * Provides the count of the running bots.
+     *
+     * @return The count of the bots.
+     */
+    public int getActiveBots() {
+        return activeBots.get();
+    }
+
+    @Override
+    protected StandaloneBot<C, D, S, E> createBotInstance(C config) {
+        return new StandaloneBot<>(true, config, getService(), getCommandClasses());
+    }
+
+    @Override
+    protected void submitBot(StandaloneBot<C, D, S, E> bot) {
+        activeBots.incrementAndGet();
+        AtomicReference<EventLoopBotDriver<C, D, S, E>> driver = new AtomicReference<>();
+        driver.set(new EventLoopBotDriver<>(bot, scheduler, commandExecutor, () -> running, () -> finished(driver.get())));
+        drivers.add(driver.get());
+        driver.get().start();
+    }
+
+    private void finished(EventLoopBotDriver<C, D, S, E> driver) {
+        drivers.remove(driver);
+        synchronized (activeBots) {
+            activeBots.decrementAndGet();
+            activeBots.notifyAll();
+        }
+    }
+
+    /**
+     * Stop pool.
+     * <br>
+     * The pending sync requests and retries are cancelled, then the pool waits until all bots have flushed their state and
+     * notified the shutdown listeners. The executors are shut down only after that, so the completions of the bots aren't
+     * discarded.
+     *
+     * @throws InterruptedException when cannot stop bot's thread.
+     */
+    @Override
+    public void stop() throws InterruptedException {
+        running = false;
+        drivers.forEach(EventLoopBotDriver::stop);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+        synchronized (activeBots) {
+            long remaining = deadline - System.nanoTime();
+            while (activeBots.get() > 0 && remaining > 0L) {
+                TimeUnit.NANOSECONDS.timedWait(activeBots, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+        }
+        if (activeBots.get() > 0) {
+            LOGGER.warn("{} bots are still active", activeBots.get());
+        }
+        scheduler.shutdown();
+        commandExecutor.shutdown();
+        if (!commandExecutor.awaitTermination(TIMEOUT, TimeUnit.SECONDS)) {
+            LOGGER.warn("Command executor isn't terminated");
+            commandExecutor.shutdownNow();
+        }
+        scheduler.shutdownNow();
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
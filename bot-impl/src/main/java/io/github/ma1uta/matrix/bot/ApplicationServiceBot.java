@@ -31,6 +31,11 @@ import java.util.function.Supplier;
 
 /**
  * Matrix bot client.
+ * <br>
+ * The events of the one room are sent to the bot in order, but the events of the different rooms are sent concurrently
+ * from the threads of the {@link io.github.ma1uta.matrix.appservice.TransactionPipeline}. The bot config is changed only
+ * within the {@link Context#runInTransaction} which is serialized per bot, the commands which keep own state across the rooms
+ * must be thread-safe.
  *
  * @param <C> bot configuration.
  * @param <D> bot dao.
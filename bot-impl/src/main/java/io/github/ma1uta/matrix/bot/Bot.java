@@ -34,12 +34,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
@@ -66,6 +68,8 @@ public class Bot<C extends BotConfig, D extends BotDao<C>, S extends PersistentS
 
     private final Set<String> skipTimelineRooms = new HashSet<>();
 
+    private final List<CommandMonitor> commandMonitors = CommandMonitorsHolder.MONITORS;
+
     public Bot(String asToken, boolean exitOnEmptyRooms, C config, S service,
                List<Class<? extends Command<C, D, S, E>>> commandsClasses) {
         this.context = init(asToken, config, service);
@@ -368,10 +372,57 @@ public class Bot<C extends BotConfig, D extends BotDao<C>, S extends PersistentS
         }
         if (command != null) {
             LOGGER.debug("invoke command: {}", command.getClass());
-            return command.invoke(getContext(), roomId, event, argument);
+            return invokeCommand(command, roomId, event, argument);
         } else {
             getContext().getMatrixClient().event().sendNotice(roomId, "Unknown command: " + commandName);
             return false;
         }
     }
+
+    private boolean invokeCommand(Command<C, D, S, E> command, String roomId, RoomEvent event, String argument) {
+        List<CommandMonitor.Trace> traces = null;
+        for (CommandMonitor monitor : commandMonitors) {
+            if (monitor.isEnabled()) {
+                if (traces == null) {
+                    traces = new ArrayList<>(commandMonitors.size());
+                }
+                traces.add(monitor.start(command.name(), roomId));
+            }
+        }
+        if (traces == null) {
+            return command.invoke(getContext(), roomId, event, argument);
+        }
+
+        boolean invoked = false;
+        Throwable error = null;
+        try {
+            invoked = command.invoke(getContext(), roomId, event, argument);
+            return invoked;
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            for (CommandMonitor.Trace trace : traces) {
+                trace.finish(invoked, error);
+            }
+        }
+    }
+
+    /**
+     * Command monitors shared by all bots. The classpath is scanned once on the first access.
+     */
+    private static final class CommandMonitorsHolder {
+
+        private static final List<CommandMonitor> MONITORS;
+
+        static {
+            List<CommandMonitor> monitors = new ArrayList<>();
+            ServiceLoader.load(CommandMonitor.class).iterator().forEachRemaining(monitors::add);
+            MONITORS = Collections.unmodifiableList(monitors);
+        }
+
+        private CommandMonitorsHolder() {
+            // singleton.
+        }
+    }
 }
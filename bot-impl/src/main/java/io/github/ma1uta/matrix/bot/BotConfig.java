@@ -23,7 +23,9 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Transient;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -123,11 +125,20 @@ public class BotConfig {
      */
     private ReceiptPolicy receiptPolicy;
 
+    @Transient
+    private transient boolean dirty;
+
+    @Transient
+    private transient boolean nextBatchDirty;
+
     public Long getId() {
         return id;
     }
 
     public void setId(Long id) {
+        if (!Objects.equals(this.id, id)) {
+            markDirty();
+        }
         this.id = id;
     }
 
@@ -136,6 +147,9 @@ public class BotConfig {
     }
 
     public void setUserId(String userId) {
+        if (!Objects.equals(this.userId, userId)) {
+            markDirty();
+        }
         this.userId = userId;
     }
 
@@ -144,6 +158,9 @@ public class BotConfig {
     }
 
     public void setPassword(char[] password) {
+        if (!Arrays.equals(this.password, password)) {
+            markDirty();
+        }
         this.password = password;
     }
 
@@ -152,6 +169,9 @@ public class BotConfig {
     }
 
     public void setDeviceId(String deviceId) {
+        if (!Objects.equals(this.deviceId, deviceId)) {
+            markDirty();
+        }
         this.deviceId = deviceId;
     }
 
@@ -160,6 +180,9 @@ public class BotConfig {
     }
 
     public void setDisplayName(String displayName) {
+        if (!Objects.equals(this.displayName, displayName)) {
+            markDirty();
+        }
         this.displayName = displayName;
     }
 
@@ -168,6 +191,9 @@ public class BotConfig {
     }
 
     public void setFilterId(String filterId) {
+        if (!Objects.equals(this.filterId, filterId)) {
+            markDirty();
+        }
         this.filterId = filterId;
     }
 
@@ -176,6 +202,9 @@ public class BotConfig {
     }
 
     public void setNextBatch(String nextBatch) {
+        if (!Objects.equals(this.nextBatch, nextBatch)) {
+            this.nextBatchDirty = true;
+        }
         this.nextBatch = nextBatch;
     }
 
@@ -184,6 +213,9 @@ public class BotConfig {
     }
 
     public void setState(BotState state) {
+        if (!Objects.equals(this.state, state)) {
+            markDirty();
+        }
         this.state = state;
     }
 
@@ -192,6 +224,9 @@ public class BotConfig {
     }
 
     public void setOwner(String owner) {
+        if (!Objects.equals(this.owner, owner)) {
+            markDirty();
+        }
         this.owner = owner;
     }
 
@@ -200,6 +235,9 @@ public class BotConfig {
     }
 
     public void setPolicy(AccessPolicy policy) {
+        if (!Objects.equals(this.policy, policy)) {
+            markDirty();
+        }
         this.policy = policy;
     }
 
@@ -208,6 +246,9 @@ public class BotConfig {
     }
 
     public void setTimeout(Long timeout) {
+        if (!Objects.equals(this.timeout, timeout)) {
+            markDirty();
+        }
         this.timeout = timeout;
     }
 
@@ -216,6 +257,9 @@ public class BotConfig {
     }
 
     public void setPrefix(String prefix) {
+        if (!Objects.equals(this.prefix, prefix)) {
+            markDirty();
+        }
         this.prefix = prefix;
     }
 
@@ -224,6 +268,9 @@ public class BotConfig {
     }
 
     public void setDefaultCommand(String defaultCommand) {
+        if (!Objects.equals(this.defaultCommand, defaultCommand)) {
+            markDirty();
+        }
         this.defaultCommand = defaultCommand;
     }
 
@@ -232,6 +279,9 @@ public class BotConfig {
     }
 
     public void setSkipInitialSync(Boolean skipInitialSync) {
+        if (!Objects.equals(this.skipInitialSync, skipInitialSync)) {
+            markDirty();
+        }
         this.skipInitialSync = skipInitialSync;
     }
 
@@ -240,9 +290,57 @@ public class BotConfig {
     }
 
     public void setReceiptPolicy(ReceiptPolicy receiptPolicy) {
+        if (!Objects.equals(this.receiptPolicy, receiptPolicy)) {
+            markDirty();
+        }
         this.receiptPolicy = receiptPolicy;
     }
 
+    /**
+     * Whether the setters track the changes of the config, so the config is saved only when it has been changed.
+     * <br>
+     * Disabled by default because the subclasses can declare own persistent fields. Subclasses which call the
+     * {@link #markDirty()} in the setters of their fields should override this method to return {@code true}.
+     *
+     * @return {@code true} if the changes are tracked, else {@code false} to save the config after each transaction.
+     */
+    public boolean isDirtyTracking() {
+        return false;
+    }
+
+    /**
+     * Whether the config has been changed since the last save, excluding the {@link #getNextBatch()}.
+     *
+     * @return {@code true} if the config should be saved, else {@code false}.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Whether the next batch has been changed since the last save.
+     *
+     * @return {@code true} if the next batch should be saved, else {@code false}.
+     */
+    public boolean isNextBatchDirty() {
+        return nextBatchDirty;
+    }
+
+    /**
+     * Mark the config as changed.
+     */
+    protected void markDirty() {
+        this.dirty = true;
+    }
+
+    /**
+     * Reset the change flags after the save.
+     */
+    public void clearDirty() {
+        this.dirty = false;
+        this.nextBatchDirty = false;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -16,6 +16,7 @@
 
 package io.github.ma1uta.matrix.bot;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -47,6 +48,23 @@ public interface BotDao<C extends BotConfig> {
      */
     C save(C data);
 
+    /**
+     * Save the data of the several bots with the one call.
+     * <br>
+     * The default implementation saves each bot with the {@link #save(BotConfig)}, the implementations can use the batch
+     * statements instead.
+     *
+     * @param data bots' data.
+     * @return saved entities in the same order.
+     */
+    default List<C> saveAll(List<C> data) {
+        List<C> saved = new ArrayList<>(data.size());
+        for (C config : data) {
+            saved.add(save(config));
+        }
+        return saved;
+    }
+
     /**
      * Delete bot's data.
      *
@@ -0,0 +1,57 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.bot;
+
+/**
+ * Monitor of the bot command invocations.
+ * <br>
+ * Monitors are discovered with the {@link java.util.ServiceLoader}.
+ */
+public interface CommandMonitor {
+
+    /**
+     * Whether the monitor is enabled. Disabled monitors aren't invoked.
+     *
+     * @return {@code true} if enabled, else {@code false}.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Start to trace the command invocation.
+     *
+     * @param command The command name.
+     * @param roomId  The room id.
+     * @return The trace of the invocation.
+     */
+    Trace start(String command, String roomId);
+
+    /**
+     * Trace of the one command invocation.
+     */
+    interface Trace {
+
+        /**
+         * Finish the command invocation.
+         *
+         * @param invoked {@code true} if the command was invoked, else {@code false}.
+         * @param error   The error or {@code null} if the command completed normally.
+         */
+        void finish(boolean invoked, Throwable error);
+    }
+}
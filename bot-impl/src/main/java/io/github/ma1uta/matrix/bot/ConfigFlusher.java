@@ -0,0 +1,145 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.bot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind of the bot's next batch.
+ * <br>
+ * The contexts with the changed next batch are collected and saved periodically, so the sync iterations don't write
+ * the config each time. The interval in milliseconds is set with the {@link #INTERVAL} system property, the write-behind
+ * is disabled by default and the next batch is saved synchronously. After the crash the bot receives again the events
+ * of the last interval.
+ * <br>
+ * The configs of the bots with the same service are saved with the one {@link BotDao#saveAll(List)} call in the one
+ * transaction. The context which is busy with its own transaction is left for the next flush. The shared flusher saves
+ * the pending configs on the JVM shutdown too.
+ */
+final class ConfigFlusher {
+
+    /**
+     * Flush interval property.
+     */
+    static final String INTERVAL = "jmsdk.bot.config.flush.interval";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigFlusher.class);
+
+    private static volatile ConfigFlusher instance;
+
+    private final long interval;
+
+    private final Set<Context<?, ?, ?, ?>> pending = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService scheduler;
+
+    ConfigFlusher(long interval) {
+        this.interval = interval;
+        if (interval > 0L) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "bot-config-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * The shared flusher.
+     *
+     * @return The flusher with the interval from the {@link #INTERVAL} system property.
+     */
+    static ConfigFlusher getInstance() {
+        if (instance == null) {
+            synchronized (ConfigFlusher.class) {
+                if (instance == null) {
+                    ConfigFlusher flusher = new ConfigFlusher(Long.getLong(INTERVAL, 0L));
+                    if (flusher.isEnabled()) {
+                        Runtime.getRuntime().addShutdownHook(new Thread(flusher::close, "bot-config-flusher-shutdown"));
+                    }
+                    instance = flusher;
+                }
+            }
+        }
+        return instance;
+    }
+
+    boolean isEnabled() {
+        return interval > 0L;
+    }
+
+    void schedule(Context<?, ?, ?, ?> context) {
+        pending.add(context);
+    }
+
+    void cancel(Context<?, ?, ?, ?> context) {
+        pending.remove(context);
+    }
+
+    /**
+     * Stop the periodic flush and save the pending configs.
+     */
+    void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(interval, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Save the pending configs.
+     */
+    void flush() {
+        Map<PersistentService<?>, List<Context<?, ?, ?, ?>>> batches = new HashMap<>();
+        for (Context<?, ?, ?, ?> context : new ArrayList<>(pending)) {
+            pending.remove(context);
+            batches.computeIfAbsent(context.getService(), key -> new ArrayList<>()).add(context);
+        }
+        for (Map.Entry<PersistentService<?>, List<Context<?, ?, ?, ?>>> batch : batches.entrySet()) {
+            try {
+                pending.addAll(flush(batch.getKey(), batch.getValue()));
+            } catch (Exception e) {
+                LOGGER.error(String.format("Cannot save the configs of %d bots.", batch.getValue().size()), e);
+                pending.addAll(batch.getValue());
+            }
+        }
+    }
+
+    @SuppressWarnings( {"unchecked", "rawtypes"})
+    private static List<Context<?, ?, ?, ?>> flush(PersistentService service, List contexts) {
+        return Context.flushAll(service, contexts);
+    }
+}
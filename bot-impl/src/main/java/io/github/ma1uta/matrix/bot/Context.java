@@ -20,8 +20,10 @@ import io.github.ma1uta.matrix.client.MatrixClient;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -34,7 +36,7 @@ import java.util.function.Supplier;
  */
 public class Context<C extends BotConfig, D extends BotDao<C>, S extends PersistentService<D>, E> {
 
-    private final Object monitor = new Object();
+    private final ReentrantLock lock = new ReentrantLock();
 
     private final MatrixClient matrixClient;
 
@@ -92,11 +94,14 @@ public class Context<C extends BotConfig, D extends BotDao<C>, S extends Persist
      * @param action action.
      */
     public void runInTransaction(BiConsumer<Context<C, D, S, E>, D> action) {
-        synchronized (monitor) {
+        lock.lock();
+        try {
             getService().invoke(dao -> {
                 action.accept(this, dao);
-                setConfig(dao.save(getConfig()));
+                save(dao);
             });
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -108,12 +113,124 @@ public class Context<C extends BotConfig, D extends BotDao<C>, S extends Persist
      * @return result.
      */
     public <R> R runInTransaction(BiFunction<Context<C, D, S, E>, D, R> action) {
-        synchronized (monitor) {
+        lock.lock();
+        try {
             return getService().invoke(dao -> {
                 R result = action.apply(this, dao);
-                setConfig(dao.save(getConfig()));
+                save(dao);
                 return result;
             });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Update the next batch.
+     * <br>
+     * The next batch is saved by the next transaction or the periodic flush when the write-behind is enabled
+     * with the {@code jmsdk.bot.config.flush.interval} system property, otherwise it is saved immediately.
+     *
+     * @param nextBatch The next batch.
+     */
+    public void updateNextBatch(String nextBatch) {
+        ConfigFlusher flusher = ConfigFlusher.getInstance();
+        if (!flusher.isEnabled()) {
+            runInTransaction((context, dao) -> {
+                context.getConfig().setNextBatch(nextBatch);
+            });
+            return;
+        }
+        lock.lock();
+        try {
+            getConfig().setNextBatch(nextBatch);
+        } finally {
+            lock.unlock();
+        }
+        flusher.schedule(this);
+    }
+
+    /**
+     * Save the config if it has the pending changes.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            C current = getConfig();
+            if (current.isNextBatchDirty() || current.isDirty()) {
+                getService().invoke(dao -> {
+                    save(dao);
+                });
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Save the pending changes of the contexts with the one batch in the one transaction.
+     * <br>
+     * The locks of the contexts are held during the save, so the bot can't change or save the same config concurrently.
+     * The flush doesn't wait for the busy contexts: the context which is locked by the running transaction is skipped and
+     * returned to the caller to be flushed later.
+     *
+     * @param service  The service of the contexts.
+     * @param contexts The contexts.
+     * @param <C>      bot configuration.
+     * @param <D>      bot dao.
+     * @return The skipped busy contexts.
+     */
+    static <C extends BotConfig, D extends BotDao<C>> List<Context<C, D, ?, ?>> flushAll(PersistentService<D> service,
+                                                                                      List<? extends Context<C, D, ?, ?>> contexts) {
+        List<Context<C, D, ?, ?>> locked = new ArrayList<>(contexts.size());
+        List<Context<C, D, ?, ?>> busy = new ArrayList<>();
+        for (Context<C, D, ?, ?> context : contexts) {
+            if (context.lock.tryLock()) {
+                locked.add(context);
+            } else {
+                busy.add(context);
+            }
+        }
+        try {
+            List<Context<C, D, ?, ?>> changed = new ArrayList<>(locked.size());
+            List<C> configs = new ArrayList<>(locked.size());
+            for (Context<C, D, ?, ?> context : locked) {
+                C current = context.getConfig();
+                if (current.isNextBatchDirty() || current.isDirty()) {
+                    changed.add(context);
+                    configs.add(current);
+                }
+            }
+            if (!configs.isEmpty()) {
+                Function<D, List<C>> batch = dao -> dao.saveAll(configs);
+                List<C> saved = service.invoke(batch);
+                for (int i = 0; i < changed.size(); i++) {
+                    configs.get(i).clearDirty();
+                    C savedConfig = saved != null && i < saved.size() ? saved.get(i) : null;
+                    if (savedConfig != null) {
+                        savedConfig.clearDirty();
+                        changed.get(i).setConfig(savedConfig);
+                    }
+                }
+            }
+        } finally {
+            for (Context<C, D, ?, ?> context : locked) {
+                context.lock.unlock();
+            }
+        }
+        return busy;
+    }
+
+    private void save(D dao) {
+        C current = getConfig();
+        if (!current.isDirtyTracking() || current.isDirty() || current.isNextBatchDirty()) {
+            C saved = dao.save(current);
+            current.clearDirty();
+            if (saved != null) {
+                saved.clearDirty();
+            }
+            setConfig(saved);
+            ConfigFlusher.getInstance().cancel(this);
         }
     }
 
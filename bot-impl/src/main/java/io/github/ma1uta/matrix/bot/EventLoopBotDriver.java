@@ -0,0 +1,292 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.bot;
+
+import io.github.ma1uta.matrix.client.methods.async.RoomAsyncMethods;
+import io.github.ma1uta.matrix.client.methods.async.SyncAsyncMethods;
+import io.github.ma1uta.matrix.client.model.room.JoinedRoomsResponse;
+import io.github.ma1uta.matrix.client.model.sync.SyncResponse;
+import io.github.ma1uta.matrix.client.sync.SyncStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Drives the state machine of the one {@link StandaloneBot} with the asynchronous sync.
+ * <br>
+ * The steps of the bot are chained: the sync request is sent with the {@link SyncAsyncMethods}, the response is handled
+ * on the command executor and then the next request is sent, so the bot doesn't occupy any thread while it waits for the events
+ * and the steps of the one bot never run concurrently. The joined rooms of the bot in the joined state are requested with the
+ * {@link RoomAsyncMethods} too. Failed steps are retried by the scheduler with the exponential backoff.
+ * <br>
+ * {@link #stop()} cancels the pending request or retry, so the bot finishes without waiting for the long-polling sync.
+ *
+ * @param <C> bot configuration.
+ * @param <D> bot dao.
+ * @param <S> bot service.
+ * @param <E> extra data.
+ */
+final class EventLoopBotDriver<C extends BotConfig, D extends BotDao<C>, S extends PersistentService<D>, E> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventLoopBotDriver.class);
+
+    private static final long INITIAL_RETRY_DELAY = 1000L;
+
+    private static final long MAX_RETRY_DELAY = 60_000L;
+
+    private final StandaloneBot<C, D, S, E> bot;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Executor commandExecutor;
+
+    private final BooleanSupplier running;
+
+    private final Runnable finished;
+
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private volatile Future<?> pending;
+
+    private long retryDelay = INITIAL_RETRY_DELAY;
+
+    private boolean initialSync = true;
+
+    EventLoopBotDriver(StandaloneBot<C, D, S, E> bot, ScheduledExecutorService scheduler, Executor commandExecutor,
+                       BooleanSupplier running, Runnable finished) {
+        this.bot = bot;
+        this.scheduler = scheduler;
+        this.commandExecutor = commandExecutor;
+        this.running = running;
+        this.finished = finished;
+    }
+
+    /**
+     * Login and start the state machine.
+     */
+    void start() {
+        commandExecutor.execute(() -> {
+            try {
+                bot.init();
+            } catch (Exception e) {
+                LOGGER.error("Unable to initialize the bot: " + userId(), e);
+                finish();
+                return;
+            }
+            next();
+        });
+    }
+
+    /**
+     * Cancel the pending request or retry.
+     * <br>
+     * The cancelled request completes the step with the error, the bot sees that the pool isn't running and finishes.
+     * The cancelled retry finishes the bot on the command executor.
+     */
+    void stop() {
+        cancel(pending);
+    }
+
+    private void cancel(Future<?> future) {
+        if (future == null || !future.cancel(true)) {
+            return;
+        }
+        if (!(future instanceof CompletableFuture)) {
+            commandExecutor.execute(this::finish);
+        }
+    }
+
+    /**
+     * Remember the pending request or retry.
+     * <br>
+     * The pool can be stopped after the running flag has been checked but before the future is remembered, then
+     * the {@link #stop()} misses the future. So the flag is checked again and the future is cancelled if the pool is stopped.
+     *
+     * @param future The pending request or retry.
+     */
+    private void track(Future<?> future) {
+        pending = future;
+        if (!running.getAsBoolean()) {
+            cancel(future);
+        }
+    }
+
+    private void next() {
+        if (!running.getAsBoolean()) {
+            finish();
+            return;
+        }
+        BotState state = bot.getContext().getConfig().getState();
+        switch (state) {
+            case NEW:
+                commandExecutor.execute(() -> step(bot::newState));
+                break;
+            case REGISTERED:
+            case JOINED:
+                sync();
+                break;
+            case DELETED:
+                commandExecutor.execute(() -> step(bot::deletedState));
+                break;
+            default:
+                LOGGER.error("Unknown state: " + state);
+                finish();
+        }
+    }
+
+    private void step(Supplier<LoopState> action) {
+        LoopState loopState;
+        try {
+            loopState = action.get();
+        } catch (Exception e) {
+            LOGGER.error("Exception: ", e);
+            retry(this::next);
+            return;
+        }
+        completed(loopState);
+    }
+
+    private void completed(LoopState loopState) {
+        retryDelay = INITIAL_RETRY_DELAY;
+        if (LoopState.EXIT.equals(loopState)) {
+            finish();
+        } else {
+            next();
+        }
+    }
+
+    private void sync() {
+        C config = bot.getContext().getConfig();
+        boolean initial = initialSync;
+        SyncStatistics statistics = bot.getSyncMonitors().newStatistics();
+        long start = System.nanoTime();
+        CompletableFuture<SyncResponse> request = bot.getContext().getMatrixClient().syncAsync()
+            .sync(config.getFilterId(), config.getNextBatch(), false, null, initial ? null : config.getTimeout());
+        track(request);
+        request.whenCompleteAsync((sync, error) -> {
+            if (error != null) {
+                LOGGER.error("Unable to sync the bot: " + userId(), error);
+                retry(this::next);
+                return;
+            }
+            if (statistics != null) {
+                statistics.setRequestTime(System.nanoTime() - start);
+                statistics.setNextBatch(sync.getNextBatch());
+                statistics.collect(sync);
+            }
+            initialSync = false;
+            if (initial && config.getNextBatch() == null && Boolean.TRUE.equals(config.getSkipInitialSync())) {
+                saveNextBatch(sync);
+                next();
+            } else if (BotState.JOINED.equals(config.getState())) {
+                joinedIteration(sync, statistics);
+            } else {
+                step(() -> iteration(sync, statistics, () -> bot.registeredIteration(sync)));
+            }
+        }, commandExecutor);
+    }
+
+    private void joinedIteration(SyncResponse sync, SyncStatistics statistics) {
+        joinedRooms()
+            .thenApplyAsync(before -> iteration(sync, statistics, () -> bot.joinedIteration(sync, before.getJoinedRooms())),
+                commandExecutor)
+            .thenCompose(loopState -> joinedRooms()
+                .thenApplyAsync(after -> bot.checkJoinedRooms(loopState, after.getJoinedRooms()), commandExecutor))
+            .whenCompleteAsync((loopState, error) -> {
+                if (error != null) {
+                    LOGGER.error("Exception: ", error);
+                    retry(this::next);
+                } else {
+                    if (LoopState.NEXT_STATE.equals(loopState)) {
+                        initialSync = true;
+                    }
+                    completed(loopState);
+                }
+            }, commandExecutor);
+    }
+
+    private CompletableFuture<JoinedRoomsResponse> joinedRooms() {
+        CompletableFuture<JoinedRoomsResponse> request = bot.getContext().getMatrixClient().roomAsync().joinedRooms();
+        track(request);
+        return request;
+    }
+
+    private LoopState iteration(SyncResponse sync, SyncStatistics statistics, Supplier<LoopState> action) {
+        long start = System.nanoTime();
+        LoopState loopState;
+        try {
+            loopState = action.get();
+        } finally {
+            if (statistics != null) {
+                statistics.setListenerTime(System.nanoTime() - start);
+                bot.getSyncMonitors().iteration(statistics);
+            }
+        }
+        saveNextBatch(sync);
+        if (LoopState.NEXT_STATE.equals(loopState)) {
+            initialSync = true;
+        }
+        return loopState;
+    }
+
+    private void saveNextBatch(SyncResponse sync) {
+        bot.getContext().updateNextBatch(sync.getNextBatch());
+    }
+
+    private void retry(Runnable action) {
+        if (!running.getAsBoolean()) {
+            finish();
+            return;
+        }
+        long delay = retryDelay;
+        retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+        try {
+            track(scheduler.schedule(() -> commandExecutor.execute(action), delay, TimeUnit.MILLISECONDS));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Unable to schedule the retry of the bot: {}, the pool is stopped", userId());
+            finish();
+        }
+    }
+
+    private void finish() {
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            try {
+                bot.getContext().flush();
+            } finally {
+                bot.getContext().getShutdownListeners().forEach(Supplier::get);
+            }
+        } finally {
+            finished.run();
+        }
+    }
+
+    private String userId() {
+        return bot.getContext().getConfig().getUserId();
+    }
+}
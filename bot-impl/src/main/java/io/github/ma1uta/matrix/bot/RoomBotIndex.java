@@ -0,0 +1,151 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.bot;
+
+import io.github.ma1uta.matrix.event.RoomMember;
+import io.github.ma1uta.matrix.event.content.RoomMemberContent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent index of the rooms to the bots which are members of these rooms.
+ * <br>
+ * The bot is a member of the room when it has joined or has been invited to the room.
+ * <br>
+ * The sets are changed only inside the {@code compute} functions of the maps, so the concurrent removal of the last bot of the room
+ * can't drop the set which another thread has just added a bot to.
+ */
+public class RoomBotIndex {
+
+    private final Map<String, Set<String>> botsByRoom = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> roomsByBot = new ConcurrentHashMap<>();
+
+    /**
+     * Add the bot to the room.
+     *
+     * @param roomId The room id.
+     * @param userId The bot's user id.
+     */
+    public void add(String roomId, String userId) {
+        botsByRoom.compute(roomId, (key, bots) -> {
+            Set<String> set = bots == null ? ConcurrentHashMap.newKeySet() : bots;
+            set.add(userId);
+            return set;
+        });
+        roomsByBot.compute(userId, (key, rooms) -> {
+            Set<String> set = rooms == null ? ConcurrentHashMap.newKeySet() : rooms;
+            set.add(roomId);
+            return set;
+        });
+    }
+
+    /**
+     * Add the bot to the rooms.
+     *
+     * @param roomIds The room ids.
+     * @param userId  The bot's user id.
+     */
+    public void addAll(Collection<String> roomIds, String userId) {
+        roomIds.forEach(roomId -> add(roomId, userId));
+    }
+
+    /**
+     * Remove the bot from the room.
+     *
+     * @param roomId The room id.
+     * @param userId The bot's user id.
+     */
+    public void remove(String roomId, String userId) {
+        botsByRoom.computeIfPresent(roomId, (key, bots) -> {
+            bots.remove(userId);
+            return bots.isEmpty() ? null : bots;
+        });
+        roomsByBot.computeIfPresent(userId, (key, rooms) -> {
+            rooms.remove(roomId);
+            return rooms.isEmpty() ? null : rooms;
+        });
+    }
+
+    /**
+     * Remove the bot from all rooms.
+     *
+     * @param userId The bot's user id.
+     */
+    public void removeBot(String userId) {
+        Set<String> rooms = roomsByBot.remove(userId);
+        if (rooms != null) {
+            rooms.forEach(roomId -> botsByRoom.computeIfPresent(roomId, (key, bots) -> {
+                bots.remove(userId);
+                return bots.isEmpty() ? null : bots;
+            }));
+        }
+    }
+
+    /**
+     * Update the index with the membership event.
+     *
+     * @param roomId The room id.
+     * @param event  The membership event.
+     */
+    public void update(String roomId, RoomMember event) {
+        String userId = event.getStateKey();
+        if (roomId == null || userId == null || event.getContent() == null) {
+            return;
+        }
+        String membership = event.getContent().getMembership();
+        if (RoomMemberContent.JOIN.equals(membership) || RoomMemberContent.INVITE.equals(membership)) {
+            add(roomId, userId);
+        } else if (RoomMemberContent.LEAVE.equals(membership) || RoomMemberContent.BAN.equals(membership)) {
+            remove(roomId, userId);
+        }
+    }
+
+    /**
+     * Find the bots which are members of the room.
+     *
+     * @param roomId The room id.
+     * @return The bot's user ids.
+     */
+    public Set<String> find(String roomId) {
+        Set<String> bots = botsByRoom.get(roomId);
+        return bots == null ? Collections.emptySet() : Collections.unmodifiableSet(bots);
+    }
+
+    /**
+     * Find the rooms of the bot.
+     *
+     * @param userId The bot's user id.
+     * @return The room ids.
+     */
+    public Set<String> rooms(String userId) {
+        Set<String> rooms = roomsByBot.get(userId);
+        return rooms == null ? Collections.emptySet() : Collections.unmodifiableSet(rooms);
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        botsByRoom.clear();
+        roomsByBot.clear();
+    }
+}
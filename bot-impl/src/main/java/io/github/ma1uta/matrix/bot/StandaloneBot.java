@@ -17,11 +17,15 @@
 package io.github.ma1uta.matrix.bot;
 
 import io.github.ma1uta.matrix.client.MatrixClient;
+import io.github.ma1uta.matrix.client.methods.blocked.SyncMethods;
 import io.github.ma1uta.matrix.client.model.sync.InvitedRoom;
 import io.github.ma1uta.matrix.client.model.sync.JoinedRoom;
 import io.github.ma1uta.matrix.client.model.sync.LeftRoom;
 import io.github.ma1uta.matrix.client.model.sync.Rooms;
 import io.github.ma1uta.matrix.client.model.sync.SyncResponse;
+import io.github.ma1uta.matrix.client.sync.SyncMonitor;
+import io.github.ma1uta.matrix.client.sync.SyncMonitors;
+import io.github.ma1uta.matrix.client.sync.SyncStatistics;
 import io.github.ma1uta.matrix.event.Event;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,11 +49,35 @@ public class StandaloneBot<C extends BotConfig, D extends BotDao<C>, S extends P
 
     private static final Logger LOGGER = LoggerFactory.getLogger(StandaloneBot.class);
 
+    private final SyncMonitors syncMonitors = new SyncMonitors();
+
     public StandaloneBot(boolean exitOnEmptyRooms, C config, S service,
                          List<Class<? extends Command<C, D, S, E>>> commandsClasses) {
         super(null, exitOnEmptyRooms, config, service, commandsClasses);
     }
 
+    /**
+     * Add the monitor of the sync iterations.
+     *
+     * @param monitor The monitor.
+     */
+    public void addSyncMonitor(SyncMonitor monitor) {
+        syncMonitors.add(monitor);
+    }
+
+    /**
+     * Remove the monitor of the sync iterations.
+     *
+     * @param monitor The monitor.
+     */
+    public void removeSyncMonitor(SyncMonitor monitor) {
+        syncMonitors.remove(monitor);
+    }
+
+    protected SyncMonitors getSyncMonitors() {
+        return syncMonitors;
+    }
+
     @Override
     public void run() {
         try {
@@ -79,7 +107,11 @@ public class StandaloneBot<C extends BotConfig, D extends BotDao<C>, S extends P
             LOGGER.error("Exception:", e);
             throw e;
         } finally {
-            getContext().getShutdownListeners().forEach(Supplier::get);
+            try {
+                getContext().flush();
+            } finally {
+                getContext().getShutdownListeners().forEach(Supplier::get);
+            }
         }
     }
 
@@ -91,25 +123,32 @@ public class StandaloneBot<C extends BotConfig, D extends BotDao<C>, S extends P
      */
     protected LoopState loop(Function<SyncResponse, LoopState> loopAction) {
         C config = getContext().getConfig();
-        MatrixClient matrixClient = getContext().getMatrixClient();
-        SyncResponse sync = matrixClient.sync().sync(config.getFilterId(), config.getNextBatch(), false, null, null);
+        SyncStatistics statistics = syncMonitors.newStatistics();
+        SyncResponse sync = sync(config.getNextBatch(), null, statistics);
 
         String initialBatch = sync.getNextBatch();
         if (config.getNextBatch() == null && config.getSkipInitialSync() != null && config.getSkipInitialSync()) {
-            getContext().runInTransaction((context, dao) -> {
-                context.getConfig().setNextBatch(initialBatch);
-            });
-            sync = matrixClient.sync().sync(config.getFilterId(), initialBatch, false, null, config.getTimeout());
+            getContext().updateNextBatch(initialBatch);
+            statistics = syncMonitors.newStatistics();
+            sync = sync(initialBatch, config.getTimeout(), statistics);
         }
 
         while (true) {
             try {
-                LoopState nextState = loopAction.apply(sync);
+                long start = System.nanoTime();
+                LoopState nextState;
+                try {
+                    nextState = loopAction.apply(sync);
+                } finally {
+                    if (statistics != null) {
+                        statistics.setListenerTime(System.nanoTime() - start);
+                        syncMonitors.iteration(statistics);
+                        statistics = null;
+                    }
+                }
 
                 String nextBatch = sync.getNextBatch();
-                getContext().runInTransaction((context, dao) -> {
-                    context.getConfig().setNextBatch(nextBatch);
-                });
+                getContext().updateNextBatch(nextBatch);
 
                 if (LoopState.NEXT_STATE.equals(nextState)) {
                     return LoopState.NEXT_STATE;
@@ -119,27 +158,45 @@ public class StandaloneBot<C extends BotConfig, D extends BotDao<C>, S extends P
                     return LoopState.EXIT;
                 }
 
-                sync = matrixClient.sync().sync(config.getFilterId(), nextBatch, false, null, config.getTimeout());
+                statistics = syncMonitors.newStatistics();
+                sync = sync(nextBatch, config.getTimeout(), statistics);
             } catch (Exception e) {
                 LOGGER.error("Exception: ", e);
             }
         }
     }
 
+    private SyncResponse sync(String since, Long timeout, SyncStatistics statistics) {
+        String filterId = getContext().getConfig().getFilterId();
+        SyncMethods syncMethods = getContext().getMatrixClient().sync();
+        if (statistics == null) {
+            return syncMethods.sync(filterId, since, false, null, timeout);
+        }
+        return syncMethods.sync(filterId, since, false, null, timeout, statistics);
+    }
+
     /**
      * Waiting to join.
      *
      * @return next loop state.
      */
     protected LoopState registeredState() {
-        return loop(sync -> {
-            Map<String, InvitedRoom> invite = sync.getRooms().getInvite();
-            Map<String, List<Event>> eventMap = new HashMap<>();
-            for (Map.Entry<String, InvitedRoom> entry : invite.entrySet()) {
-                eventMap.put(entry.getKey(), entry.getValue().getInviteState().getEvents());
-            }
-            return registeredState(eventMap);
-        });
+        return loop(this::registeredIteration);
+    }
+
+    /**
+     * Handle the sync response in the registered state.
+     *
+     * @param sync The sync response.
+     * @return next loop state.
+     */
+    protected LoopState registeredIteration(SyncResponse sync) {
+        Map<String, InvitedRoom> invite = sync.getRooms().getInvite();
+        Map<String, List<Event>> eventMap = new HashMap<>();
+        for (Map.Entry<String, InvitedRoom> entry : invite.entrySet()) {
+            eventMap.put(entry.getKey(), entry.getValue().getInviteState().getEvents());
+        }
+        return registeredState(eventMap);
     }
 
     /**
@@ -148,44 +205,76 @@ public class StandaloneBot<C extends BotConfig, D extends BotDao<C>, S extends P
      * @return next loop state.
      */
     protected LoopState joinedState() {
-        return loop(sync -> {
-            Rooms rooms = sync.getRooms();
-
-            MatrixClient matrixClient = getContext().getMatrixClient();
-            List<String> joinedRooms = matrixClient.room().joinedRooms().getJoinedRooms();
-            for (Map.Entry<String, LeftRoom> roomEntry : rooms.getLeave().entrySet()) {
-                String leftRoom = roomEntry.getKey();
-                if (joinedRooms.contains(leftRoom)) {
-                    matrixClient.room().leave(leftRoom);
-                }
-            }
+        return loop(this::joinedIteration);
+    }
 
-            LoopState nextState = LoopState.RUN;
-            for (Map.Entry<String, JoinedRoom> joinedRoomEntry : rooms.getJoin().entrySet()) {
-                LoopState state = processJoinedRoom(joinedRoomEntry.getKey(), joinedRoomEntry.getValue().getTimeline().getEvents());
-                switch (state) {
-                    case EXIT:
-                        nextState = LoopState.EXIT;
-                        break;
-                    case NEXT_STATE:
-                        if (!LoopState.EXIT.equals(nextState)) {
-                            nextState = LoopState.NEXT_STATE;
-                        }
-                        break;
-                    case RUN:
-                    default:
-                        // nothing to do
-                        break;
-                }
+    /**
+     * Handle the sync response in the joined state.
+     *
+     * @param sync The sync response.
+     * @return next loop state.
+     */
+    protected LoopState joinedIteration(SyncResponse sync) {
+        MatrixClient matrixClient = getContext().getMatrixClient();
+        LoopState nextState = joinedIteration(sync, matrixClient.room().joinedRooms().getJoinedRooms());
+        return checkJoinedRooms(nextState, matrixClient.room().joinedRooms().getJoinedRooms());
+    }
+
+    /**
+     * Handle the sync response in the joined state with the already fetched joined rooms.
+     * <br>
+     * The joined rooms are requested by the caller, so the event loop fetches them asynchronously.
+     *
+     * @param sync        The sync response.
+     * @param joinedRooms The rooms joined before the iteration.
+     * @return next loop state.
+     */
+    protected LoopState joinedIteration(SyncResponse sync, List<String> joinedRooms) {
+        Rooms rooms = sync.getRooms();
+
+        MatrixClient matrixClient = getContext().getMatrixClient();
+        for (Map.Entry<String, LeftRoom> roomEntry : rooms.getLeave().entrySet()) {
+            String leftRoom = roomEntry.getKey();
+            if (joinedRooms.contains(leftRoom)) {
+                matrixClient.room().leave(leftRoom);
             }
+        }
 
-            if (getContext().getMatrixClient().room().joinedRooms().getJoinedRooms().isEmpty()) {
-                getContext().runInTransaction((context, dao) -> {
-                    context.getConfig().setState(isExitOnEmptyRooms() ? BotState.DELETED : BotState.REGISTERED);
-                });
-                return LoopState.NEXT_STATE;
+        LoopState nextState = LoopState.RUN;
+        for (Map.Entry<String, JoinedRoom> joinedRoomEntry : rooms.getJoin().entrySet()) {
+            LoopState state = processJoinedRoom(joinedRoomEntry.getKey(), joinedRoomEntry.getValue().getTimeline().getEvents());
+            switch (state) {
+                case EXIT:
+                    nextState = LoopState.EXIT;
+                    break;
+                case NEXT_STATE:
+                    if (!LoopState.EXIT.equals(nextState)) {
+                        nextState = LoopState.NEXT_STATE;
+                    }
+                    break;
+                case RUN:
+                default:
+                    // nothing to do
+                    break;
             }
-            return nextState;
-        });
+        }
+        return nextState;
+    }
+
+    /**
+     * Move the bot to the next state when it has left all rooms.
+     *
+     * @param nextState   The state returned by the iteration.
+     * @param joinedRooms The rooms joined after the iteration.
+     * @return next loop state.
+     */
+    protected LoopState checkJoinedRooms(LoopState nextState, List<String> joinedRooms) {
+        if (joinedRooms.isEmpty()) {
+            getContext().runInTransaction((context, dao) -> {
+                context.getConfig().setState(isExitOnEmptyRooms() ? BotState.DELETED : BotState.REGISTERED);
+            });
+            return LoopState.NEXT_STATE;
+        }
+        return nextState;
     }
 }
@@ -1,4 +1,6 @@
 module matrix.bot {
+    uses io.github.ma1uta.matrix.bot.CommandMonitor;
+
     exports io.github.ma1uta.matrix.appservice;
     exports io.github.ma1uta.matrix.bot;
     exports io.github.ma1uta.matrix.bot.command;
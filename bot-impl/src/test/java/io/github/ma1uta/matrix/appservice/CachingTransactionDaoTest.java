@@ -0,0 +1,184 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.appservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CachingTransactionDaoTest {
+
+    private static final Duration HOUR = Duration.ofHours(1L);
+
+    @Test
+    public void leastRecentlyUsed() throws Exception {
+        CountingDao delegate = new CountingDao();
+        try (CachingTransactionDao<Transaction> dao = new CachingTransactionDao<>(delegate, 2, HOUR, Duration.ZERO, 0)) {
+            dao.save(transaction("a"));
+            dao.save(transaction("b"));
+            assertTrue(dao.exist("a"));
+            dao.save(transaction("c"));
+
+            assertEquals(3, delegate.saved.size(), "The zero flush interval must write the transactions through");
+            assertTrue(dao.exist("a"));
+            assertTrue(dao.exist("c"));
+            assertEquals(3, dao.getHits());
+            assertEquals(0, delegate.checks.get());
+
+            assertTrue(dao.exist("b"), "The evicted transaction must be checked in the delegate");
+            assertEquals(1, dao.getMisses());
+            assertEquals(1, delegate.checks.get());
+        }
+    }
+
+    @Test
+    public void expiration() throws Exception {
+        CountingDao delegate = new CountingDao();
+        try (CachingTransactionDao<Transaction> dao = new CachingTransactionDao<>(delegate, 10, Duration.ofNanos(1L), Duration.ZERO, 0)) {
+            dao.save(transaction("a"));
+            long saved = System.nanoTime();
+            while (System.nanoTime() - saved <= 1L) {
+                Thread.onSpinWait();
+            }
+
+            assertTrue(dao.exist("a"));
+            assertEquals(0, dao.getHits());
+            assertEquals(1, dao.getMisses(), "The expired transaction must be checked in the delegate");
+        }
+    }
+
+    @Test
+    public void bloomFilter() throws Exception {
+        CountingDao delegate = new CountingDao();
+        delegate.saved.put("old", transaction("old"));
+        try (CachingTransactionDao<Transaction> dao = new CachingTransactionDao<>(delegate, 10, HOUR, Duration.ZERO, 1000)) {
+            dao.preload(Arrays.asList("old"));
+            for (int i = 0; i < 1000; i++) {
+                dao.save(transaction("txn" + i));
+            }
+
+            assertTrue(dao.exist("old"), "The preloaded transaction must pass the filter");
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(dao.exist("txn" + i), "The saved transaction must pass the filter");
+            }
+
+            int checks = delegate.checks.get();
+            int unknown = 10_000;
+            for (int i = 0; i < unknown; i++) {
+                assertFalse(dao.exist("unknown" + i));
+            }
+            int falsePositives = delegate.checks.get() - checks;
+            assertTrue(falsePositives < unknown * 2 / 100, "False positives: " + falsePositives);
+            assertEquals(unknown - falsePositives, dao.getNegatives());
+        }
+    }
+
+    @Test
+    public void bloomFilterWithCollidingHashCodes() throws Exception {
+        CountingDao delegate = new CountingDao();
+        try (CachingTransactionDao<Transaction> dao = new CachingTransactionDao<>(delegate, 10, HOUR, Duration.ZERO, 1000)) {
+            // "Aa" and "BB" have the same String.hashCode().
+            dao.save(transaction("Aa"));
+
+            assertFalse(dao.exist("BB"));
+            assertEquals(1, dao.getNegatives(), "The colliding hash code must not share the probes");
+            assertEquals(0, delegate.checks.get());
+        }
+    }
+
+    @Test
+    public void flushRetry() throws Exception {
+        CountingDao delegate = new CountingDao();
+        try (CachingTransactionDao<Transaction> dao = new CachingTransactionDao<>(delegate, 10, HOUR, HOUR, 0)) {
+            dao.save(transaction("a"));
+            dao.save(transaction("b"));
+            assertEquals(2, dao.getPending());
+            assertTrue(delegate.saved.isEmpty(), "The transactions must be written behind");
+
+            delegate.failures.set(1);
+            dao.flush();
+            assertEquals(1, delegate.failed.size());
+            assertTrue(delegate.saved.isEmpty());
+            assertEquals(2, dao.getPending(), "The failed and the rest transactions must be kept pending");
+            assertTrue(dao.exist("a"));
+            assertTrue(dao.exist("b"));
+
+            dao.flush();
+            assertEquals(0, dao.getPending());
+            assertEquals(2, delegate.saved.size());
+        }
+    }
+
+    @Test
+    public void closeDrainsPending() throws Exception {
+        CountingDao delegate = new CountingDao();
+        CachingTransactionDao<Transaction> dao = new CachingTransactionDao<>(delegate, 10, HOUR, HOUR, 0);
+        dao.save(transaction("a"));
+        dao.save(transaction("b"));
+
+        dao.close();
+
+        assertEquals(0, dao.getPending());
+        assertEquals(2, delegate.saved.size());
+    }
+
+    private static Transaction transaction(String id) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        return transaction;
+    }
+
+    /**
+     * The dao which counts the checks and fails the requested count of the saves.
+     */
+    static final class CountingDao implements TransactionDao<Transaction> {
+
+        private final Map<String, Transaction> saved = new ConcurrentHashMap<>();
+
+        private final List<String> failed = new ArrayList<>();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private final AtomicInteger checks = new AtomicInteger();
+
+        @Override
+        public void save(Transaction transaction) {
+            if (failures.getAndDecrement() > 0) {
+                failed.add(transaction.getId());
+                throw new IllegalStateException("Unable to save the transaction");
+            }
+            saved.put(transaction.getId(), transaction);
+        }
+
+        @Override
+        public boolean exist(String txnId) {
+            checks.incrementAndGet();
+            return saved.containsKey(txnId);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.appservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.RoomMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TransactionPipelineTest {
+
+    private static final long TIMEOUT = 5L;
+
+    @Test
+    public void duplicateInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger handled = new AtomicInteger();
+        MemoryTransactionDao dao = new MemoryTransactionDao();
+        try (TransactionPipeline pipeline = new TransactionPipeline((roomId, event) -> {
+            handled.incrementAndGet();
+            try {
+                return release.await(TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }, 2)) {
+            List<Event> events = Arrays.asList(event("!a:example.org", "$1"), event("!b:example.org", "$2"));
+
+            CompletableFuture<Void> first = pipeline.submit(transaction("txn1"), events, dao);
+            CompletableFuture<Void> retry = pipeline.submit(transaction("txn1"), events, dao);
+
+            assertSame(first, retry, "The retry of the transaction in flight must wait for the first submission");
+            assertFalse(first.isDone());
+
+            release.countDown();
+            first.get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(2, handled.get());
+            assertEquals(Collections.singleton("txn1"), dao.saved.keySet());
+
+            CompletableFuture<Void> late = pipeline.submit(transaction("txn1"), events, dao);
+            late.get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(2, handled.get(), "The saved transaction must not be processed again");
+            assertEquals(2, pipeline.getProcessed());
+        }
+    }
+
+    @Test
+    public void failedTransactionCanBeRetried() throws Exception {
+        MemoryTransactionDao dao = new MemoryTransactionDao();
+        dao.failures.set(1);
+        AtomicInteger handled = new AtomicInteger();
+        try (TransactionPipeline pipeline = new TransactionPipeline((roomId, event) -> handled.incrementAndGet() > 0, 2)) {
+            List<Event> events = Collections.singletonList(event("!a:example.org", "$1"));
+
+            CompletableFuture<Void> failed = pipeline.submit(transaction("txn1"), events, dao);
+            assertTrue(failed.handle((ignored, error) -> error != null).get(TIMEOUT, TimeUnit.SECONDS));
+
+            pipeline.submit(transaction("txn1"), events, dao).get(TIMEOUT, TimeUnit.SECONDS);
+            assertEquals(2, handled.get(), "The transaction which wasn't saved must be processed on the retry");
+            assertEquals(Collections.singleton("txn1"), dao.saved.keySet());
+        }
+    }
+
+    @Test
+    public void roomOrder() throws Exception {
+        Map<String, List<String>> order = new ConcurrentHashMap<>();
+        MemoryTransactionDao dao = new MemoryTransactionDao();
+        try (TransactionPipeline pipeline = new TransactionPipeline((roomId, event) -> {
+            order.computeIfAbsent(roomId, key -> Collections.synchronizedList(new ArrayList<>()))
+                .add(((RoomMessage) event).getEventId());
+            return true;
+        }, 4)) {
+            List<String> rooms = Arrays.asList("!a:example.org", "!b:example.org", "!c:example.org");
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int txn = 0; txn < 50; txn++) {
+                List<Event> events = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                    String roomId = rooms.get(i % rooms.size());
+                    events.add(event(roomId, roomId + "/" + (txn * 10 + i)));
+                }
+                futures.add(pipeline.submit(transaction("txn" + txn), events, dao));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(TIMEOUT, TimeUnit.SECONDS);
+
+            for (String roomId : rooms) {
+                List<String> expected = new ArrayList<>();
+                for (int txn = 0; txn < 50; txn++) {
+                    for (int i = 0; i < 10; i++) {
+                        if (rooms.get(i % rooms.size()).equals(roomId)) {
+                            expected.add(roomId + "/" + (txn * 10 + i));
+                        }
+                    }
+                }
+                assertEquals(expected, order.get(roomId), "The events of the room " + roomId + " must keep the order");
+            }
+            assertEquals(500, pipeline.getProcessed());
+        }
+    }
+
+    private static Transaction transaction(String id) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        return transaction;
+    }
+
+    private static Event event(String roomId, String eventId) {
+        RoomMessage message = new RoomMessage();
+        message.setRoomId(roomId);
+        message.setEventId(eventId);
+        return message;
+    }
+
+    /**
+     * The dao which keeps the transactions in the memory.
+     */
+    static final class MemoryTransactionDao implements TransactionDao<Transaction> {
+
+        private final Map<String, Transaction> saved = new ConcurrentHashMap<>();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public void save(Transaction transaction) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Unable to save the transaction");
+            }
+            saved.put(transaction.getId(), transaction);
+        }
+
+        @Override
+        public boolean exist(String txnId) {
+            return saved.containsKey(txnId);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.bot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.ma1uta.matrix.client.StandaloneClient;
+import io.github.ma1uta.matrix.client.methods.async.RoomAsyncMethods;
+import io.github.ma1uta.matrix.client.methods.async.SyncAsyncMethods;
+import io.github.ma1uta.matrix.client.model.room.JoinedRoomsResponse;
+import io.github.ma1uta.matrix.client.model.sync.SyncResponse;
+import io.github.ma1uta.matrix.support.jackson.JacksonDeserializer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class AbstractEventLoopBotPoolTest {
+
+    private static final long TIMEOUT = 5L;
+
+    private static final String USER_ID = "@bot:example.org";
+
+    private final List<BotConfig> saved = Collections.synchronizedList(new ArrayList<>());
+
+    private TestPool pool;
+
+    @BeforeEach
+    public void before() {
+        pool = new TestPool(new PersistentService<>(new MemoryDao(saved)));
+    }
+
+    @AfterEach
+    public void after() throws InterruptedException {
+        pool.stop();
+    }
+
+    @Test
+    public void start() throws Exception {
+        pool.startNewBot("bot");
+        FakeClient client = pool.client();
+
+        Request<SyncResponse> initial = client.syncs.poll(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull(initial, "The bot must send the initial sync");
+        assertNull(initial.since);
+        assertNull(initial.timeout, "The initial sync must not wait for the events");
+        assertEquals(1, pool.getActiveBots());
+
+        initial.future.complete(sync("s1"));
+        joinedRooms(client, "!room:example.org");
+        joinedRooms(client, "!room:example.org");
+
+        Request<SyncResponse> next = client.syncs.poll(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull(next, "The bot must send the next sync after the iteration");
+        assertEquals("s1", next.since);
+        assertEquals("s1", pool.getBotMap().get(USER_ID).getContext().getConfig().getNextBatch());
+    }
+
+    @Test
+    public void stop() throws Exception {
+        pool.startNewBot("bot");
+        FakeClient client = pool.client();
+        Request<SyncResponse> pending = client.syncs.poll(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull(pending);
+
+        long start = System.nanoTime();
+        pool.stop();
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(TIMEOUT), "The pending sync must be cancelled");
+        assertTrue(pending.future.isCancelled());
+        assertEquals(0, pool.getActiveBots());
+        assertTrue(pool.getBotMap().isEmpty(), "The shutdown listeners must be notified");
+        assertTrue(pool.getCommandExecutor().isShutdown());
+        assertNull(client.syncs.poll(), "The stopped bot must not sync");
+    }
+
+    @Test
+    public void stopWaitsForTheFlush() throws Exception {
+        pool.startNewBot("bot");
+        FakeClient client = pool.client();
+        Request<SyncResponse> pending = client.syncs.poll(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull(pending);
+        BotConfig config = pool.getBotMap().get(USER_ID).getContext().getConfig();
+        config.setDisplayName("renamed");
+        saved.clear();
+
+        pool.stop();
+
+        assertEquals(1, saved.size(), "The dirty config must be flushed before the executors are stopped");
+        assertEquals("renamed", saved.get(0).getDisplayName());
+    }
+
+    @Test
+    public void retry() throws Exception {
+        pool.startNewBot("bot");
+        FakeClient client = pool.client();
+        Request<SyncResponse> failed = client.syncs.poll(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull(failed);
+
+        failed.future.completeExceptionally(new IOException("connection reset"));
+
+        Request<SyncResponse> retried = client.syncs.poll(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull(retried, "The failed sync must be retried");
+        assertNull(retried.since);
+        assertEquals(1, pool.getActiveBots());
+    }
+
+    @Test
+    public void stopCancelsRetry() throws Exception {
+        pool.startNewBot("bot");
+        FakeClient client = pool.client();
+        Request<SyncResponse> failed = client.syncs.poll(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull(failed);
+
+        failed.future.completeExceptionally(new IOException("connection reset"));
+        pool.stop();
+
+        assertEquals(0, pool.getActiveBots());
+        assertTrue(pool.getBotMap().isEmpty());
+        assertNull(client.syncs.poll(), "The cancelled retry must not sync");
+    }
+
+    @Test
+    public void stopWhileSyncIsIssued() throws Exception {
+        Thread stopper = new Thread(() -> {
+            try {
+                pool.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CountDownLatch issued = new CountDownLatch(1);
+        pool.syncHook = () -> {
+            pool.syncHook = () -> {
+            };
+            stopper.start();
+            awaitWaiting(stopper);
+            issued.countDown();
+        };
+
+        pool.startNewBot("bot");
+        assertTrue(issued.await(TIMEOUT, TimeUnit.SECONDS), "The pool must be stopped while the sync is issued");
+        Request<SyncResponse> request = pool.client().syncs.poll(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull(request);
+        stopper.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+
+        assertFalse(stopper.isAlive(), "The sync issued during the stop must be cancelled");
+        assertTrue(request.future.isCancelled());
+        assertEquals(0, pool.getActiveBots());
+        assertTrue(pool.getBotMap().isEmpty(), "The shutdown listeners must be notified");
+    }
+
+    private static void awaitWaiting(Thread thread) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void joinedRooms(FakeClient client, String... rooms) throws Exception {
+        Request<JoinedRoomsResponse> request = client.joinedRooms.poll(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull(request, "The bot must request the joined rooms");
+        StringBuilder json = new StringBuilder("{\"joined_rooms\":[");
+        for (int i = 0; i < rooms.length; i++) {
+            json.append(i > 0 ? "," : "").append('"').append(rooms[i]).append('"');
+        }
+        request.future.complete(deserialize(json.append("]}").toString(), JoinedRoomsResponse.class));
+    }
+
+    private static SyncResponse sync(String nextBatch) throws IOException {
+        return deserialize("{\"next_batch\":\"" + nextBatch + "\",\"rooms\":{\"join\":{},\"invite\":{},\"leave\":{}}}", SyncResponse.class);
+    }
+
+    private static <T> T deserialize(String json, Class<T> type) throws IOException {
+        return new JacksonDeserializer().deserialize(json.getBytes(StandardCharsets.UTF_8), type);
+    }
+
+    /**
+     * The request which is completed by the test.
+     */
+    static final class Request<T> {
+
+        private final String since;
+
+        private final Long timeout;
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Request(String since, Long timeout) {
+            this.since = since;
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * The client which keeps the requests until the test completes them.
+     */
+    static final class FakeClient extends StandaloneClient {
+
+        private static final RestClientBuilder BUILDER = (RestClientBuilder) Proxy.newProxyInstance(
+            FakeClient.class.getClassLoader(), new Class<?>[] {RestClientBuilder.class}, (proxy, method, args) -> null);
+
+        private final BlockingQueue<Request<SyncResponse>> syncs = new LinkedBlockingQueue<>();
+
+        private final BlockingQueue<Request<JoinedRoomsResponse>> joinedRooms = new LinkedBlockingQueue<>();
+
+        private volatile Runnable syncHook = () -> {
+        };
+
+        FakeClient() {
+            super("example.org");
+        }
+
+        @Override
+        public SyncAsyncMethods syncAsync() {
+            return new SyncAsyncMethods(BUILDER) {
+                @Override
+                public CompletableFuture<SyncResponse> sync(String filter, String since, boolean fullState, String presence,
+                                                            Long timeout) {
+                    Request<SyncResponse> request = new Request<>(since, timeout);
+                    syncs.add(request);
+                    syncHook.run();
+                    return request.future;
+                }
+            };
+        }
+
+        @Override
+        public RoomAsyncMethods roomAsync() {
+            return new RoomAsyncMethods(BUILDER) {
+                @Override
+                public CompletableFuture<JoinedRoomsResponse> joinedRooms() {
+                    Request<JoinedRoomsResponse> request = new Request<>(null, null);
+                    joinedRooms.add(request);
+                    return request.future;
+                }
+            };
+        }
+    }
+
+    /**
+     * The bot which works with the fake client and doesn't login.
+     */
+    static final class TestBot extends StandaloneBot<BotConfig, MemoryDao, PersistentService<MemoryDao>, Object> {
+
+        TestBot(BotConfig config, PersistentService<MemoryDao> service) {
+            super(true, config, service, Collections.emptyList());
+        }
+
+        @Override
+        protected Context<BotConfig, MemoryDao, PersistentService<MemoryDao>, Object> init(String asToken, BotConfig config,
+                                                                                         PersistentService<MemoryDao> service) {
+            Context<BotConfig, MemoryDao, PersistentService<MemoryDao>, Object> context = new Context<>(new FakeClient(), service, this);
+            context.setConfig(config);
+            return context;
+        }
+
+        @Override
+        public void init() {
+        }
+    }
+
+    /**
+     * The pool of the joined test bots.
+     */
+    static final class TestPool extends AbstractEventLoopBotPool<BotConfig, MemoryDao, PersistentService<MemoryDao>, Object> {
+
+        private volatile TestBot bot;
+
+        private volatile Runnable syncHook = () -> {
+        };
+
+        TestPool(PersistentService<MemoryDao> service) {
+            super("test", service, Collections.emptyList(), 2);
+        }
+
+        FakeClient client() {
+            return (FakeClient) bot.getContext().getMatrixClient();
+        }
+
+        @Override
+        protected BotConfig createConfig(String username) {
+            BotConfig config = new BotConfig();
+            config.setUserId("@" + username + ":example.org");
+            config.setDisplayName(username);
+            config.setState(BotState.JOINED);
+            return config;
+        }
+
+        @Override
+        protected void initializeBot(Bot<BotConfig, MemoryDao, PersistentService<MemoryDao>, Object> bot) {
+        }
+
+        @Override
+        protected StandaloneBot<BotConfig, MemoryDao, PersistentService<MemoryDao>, Object> createBotInstance(BotConfig config) {
+            bot = new TestBot(config, getService());
+            client().syncHook = () -> syncHook.run();
+            return bot;
+        }
+    }
+
+    /**
+     * The dao which keeps the saved configs.
+     */
+    static final class MemoryDao implements BotDao<BotConfig> {
+
+        private final List<BotConfig> saved;
+
+        MemoryDao(List<BotConfig> saved) {
+            this.saved = saved;
+        }
+
+        @Override
+        public List<BotConfig> findAll() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean user(String userId) {
+            return false;
+        }
+
+        @Override
+        public BotConfig save(BotConfig data) {
+            saved.add(data);
+            return data;
+        }
+
+        @Override
+        public void delete(BotConfig data) {
+        }
+    }
+}
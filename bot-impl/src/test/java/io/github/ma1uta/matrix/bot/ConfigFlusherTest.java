@@ -0,0 +1,216 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.bot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class ConfigFlusherTest {
+
+    private static final long TIMEOUT = 5L;
+
+    private static final long INTERVAL = 10L;
+
+    private final BatchDao dao = new BatchDao();
+
+    private final PersistentService<BatchDao> service = new PersistentService<>(dao);
+
+    @Test
+    public void dirtyTracking() {
+        ConfigFlusher flusher = new ConfigFlusher(0L);
+        Context<TrackingConfig, BatchDao, PersistentService<BatchDao>, Object> changed = context(service, "s1");
+        Context<TrackingConfig, BatchDao, PersistentService<BatchDao>, Object> clean = context(service, null);
+        flusher.schedule(changed);
+        flusher.schedule(clean);
+
+        flusher.flush();
+
+        assertEquals(1, dao.batches.size());
+        assertEquals(Collections.singletonList(changed.getConfig()), dao.batches.get(0), "The clean config must not be saved");
+        assertFalse(changed.getConfig().isNextBatchDirty());
+
+        flusher.flush();
+
+        assertEquals(1, dao.batches.size(), "The saved config must not be saved again");
+    }
+
+    @Test
+    public void batch() {
+        ConfigFlusher flusher = new ConfigFlusher(0L);
+        Context<TrackingConfig, BatchDao, PersistentService<BatchDao>, Object> first = context(service, "s1");
+        Context<TrackingConfig, BatchDao, PersistentService<BatchDao>, Object> second = context(service, null);
+        second.getConfig().setDisplayName("renamed");
+        flusher.schedule(first);
+        flusher.schedule(second);
+
+        flusher.flush();
+
+        assertEquals(1, dao.batches.size(), "The configs of the same service must be saved with the one call");
+        assertEquals(2, dao.batches.get(0).size());
+        assertTrue(dao.batches.get(0).containsAll(Arrays.asList(first.getConfig(), second.getConfig())));
+    }
+
+    @Test
+    public void failedFlushIsRetried() {
+        ConfigFlusher flusher = new ConfigFlusher(0L);
+        Context<TrackingConfig, BatchDao, PersistentService<BatchDao>, Object> context = context(service, "s1");
+        final TrackingConfig config = context.getConfig();
+        flusher.schedule(context);
+        dao.failures = 1;
+
+        flusher.flush();
+
+        assertTrue(dao.batches.isEmpty());
+        assertTrue(config.isNextBatchDirty(), "The config must stay dirty after the failed save");
+
+        flusher.flush();
+
+        assertEquals(Collections.singletonList(config), dao.batches.get(0));
+        assertSame(config, context.getConfig());
+        assertFalse(config.isNextBatchDirty());
+    }
+
+    @Test
+    public void busyContextIsSkipped() throws InterruptedException {
+        ConfigFlusher flusher = new ConfigFlusher(0L);
+        Context<TrackingConfig, BatchDao, PersistentService<BatchDao>, Object> context = context(service, "s1");
+        flusher.schedule(context);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread bot = new Thread(() -> context.runInTransaction((ctx, dao) -> {
+            started.countDown();
+            try {
+                release.await(TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        bot.start();
+        assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+
+        flusher.flush();
+
+        assertTrue(dao.batches.isEmpty(), "The config must not be saved during the transaction of the bot");
+        release.countDown();
+        bot.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+        assertEquals(1, dao.batches.size(), "The config must be saved by the transaction of the bot");
+
+        flusher.flush();
+
+        assertEquals(1, dao.batches.size(), "The saved config must not be saved again");
+    }
+
+    @Test
+    public void flushOnInterval() throws InterruptedException {
+        ConfigFlusher flusher = new ConfigFlusher(INTERVAL);
+        try {
+            Context<TrackingConfig, BatchDao, PersistentService<BatchDao>, Object> context = context(service, "s1");
+            flusher.schedule(context);
+
+            assertTrue(dao.saved.await(TIMEOUT, TimeUnit.SECONDS), "The pending config must be saved by the periodic flush");
+            assertEquals(Collections.singletonList(context.getConfig()), dao.batches.get(0));
+        } finally {
+            flusher.close();
+        }
+    }
+
+    @Test
+    public void flushOnShutdown() {
+        ConfigFlusher flusher = new ConfigFlusher(TimeUnit.HOURS.toMillis(1L));
+        Context<TrackingConfig, BatchDao, PersistentService<BatchDao>, Object> context = context(service, "s1");
+        flusher.schedule(context);
+
+        flusher.close();
+
+        assertEquals(1, dao.batches.size(), "The pending config must be saved on the shutdown");
+        assertEquals("s1", dao.batches.get(0).get(0).getNextBatch());
+    }
+
+    private static Context<TrackingConfig, BatchDao, PersistentService<BatchDao>, Object> context(
+        PersistentService<BatchDao> service, String nextBatch) {
+        Context<TrackingConfig, BatchDao, PersistentService<BatchDao>, Object> context = new Context<>(null, service, null);
+        TrackingConfig config = new TrackingConfig();
+        config.setNextBatch(nextBatch);
+        context.setConfig(config);
+        return context;
+    }
+
+    /**
+     * The config with the tracked changes.
+     */
+    static final class TrackingConfig extends BotConfig {
+
+        @Override
+        public boolean isDirtyTracking() {
+            return true;
+        }
+    }
+
+    /**
+     * The dao which records the batches.
+     */
+    static final class BatchDao implements BotDao<TrackingConfig> {
+
+        private final List<List<TrackingConfig>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        private final CountDownLatch saved = new CountDownLatch(1);
+
+        private volatile int failures;
+
+        @Override
+        public List<TrackingConfig> findAll() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean user(String userId) {
+            return false;
+        }
+
+        @Override
+        public TrackingConfig save(TrackingConfig data) {
+            return saveAll(Collections.singletonList(data)).get(0);
+        }
+
+        @Override
+        public List<TrackingConfig> saveAll(List<TrackingConfig> data) {
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("Database is unavailable");
+            }
+            batches.add(new ArrayList<>(data));
+            saved.countDown();
+            return data;
+        }
+
+        @Override
+        public void delete(TrackingConfig data) {
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.bot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.RoomMember;
+import io.github.ma1uta.matrix.support.jackson.JacksonDeserializer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class RoomBotIndexTest {
+
+    private static final String ROOM = "!room:example.org";
+
+    private static final String OTHER_ROOM = "!other:example.org";
+
+    private static final String BOT = "@bot:example.org";
+
+    private static final String OTHER_BOT = "@other:example.org";
+
+    @Test
+    public void addAndRemove() {
+        RoomBotIndex index = new RoomBotIndex();
+        index.addAll(Arrays.asList(ROOM, OTHER_ROOM), BOT);
+        index.add(ROOM, OTHER_BOT);
+
+        assertEquals(new HashSet<>(Arrays.asList(BOT, OTHER_BOT)), index.find(ROOM));
+        assertEquals(Collections.singleton(BOT), index.find(OTHER_ROOM));
+        assertEquals(new HashSet<>(Arrays.asList(ROOM, OTHER_ROOM)), index.rooms(BOT));
+
+        index.remove(ROOM, BOT);
+        assertEquals(Collections.singleton(OTHER_BOT), index.find(ROOM));
+        assertEquals(Collections.singleton(OTHER_ROOM), index.rooms(BOT));
+
+        index.removeBot(BOT);
+        assertTrue(index.find(OTHER_ROOM).isEmpty());
+        assertTrue(index.rooms(BOT).isEmpty());
+        assertEquals(Collections.singleton(OTHER_BOT), index.find(ROOM));
+    }
+
+    @Test
+    public void membership() throws IOException {
+        RoomBotIndex index = new RoomBotIndex();
+
+        index.update(ROOM, member(BOT, "invite"));
+        assertEquals(Collections.singleton(BOT), index.find(ROOM), "The invited bot must receive the events of the room");
+
+        index.update(ROOM, member(BOT, "join"));
+        index.update(ROOM, member(OTHER_BOT, "join"));
+        assertEquals(new HashSet<>(Arrays.asList(BOT, OTHER_BOT)), index.find(ROOM));
+
+        index.update(ROOM, member(BOT, "leave"));
+        assertEquals(Collections.singleton(OTHER_BOT), index.find(ROOM));
+
+        index.update(ROOM, member(OTHER_BOT, "ban"));
+        assertTrue(index.find(ROOM).isEmpty());
+
+        index.update(ROOM, member(BOT, "knock"));
+        assertTrue(index.find(ROOM).isEmpty(), "Other memberships must not route the events");
+    }
+
+    @Test
+    public void concurrentAddAndRemove() throws Exception {
+        RoomBotIndex index = new RoomBotIndex();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 10_000; i++) {
+                index.add(ROOM, OTHER_BOT);
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> add = executor.submit(() -> {
+                    start.await();
+                    index.add(ROOM, BOT);
+                    return null;
+                });
+                Future<?> remove = executor.submit(() -> {
+                    start.await();
+                    index.remove(ROOM, OTHER_BOT);
+                    return null;
+                });
+                start.countDown();
+                add.get(1, TimeUnit.SECONDS);
+                remove.get(1, TimeUnit.SECONDS);
+
+                Set<String> bots = index.find(ROOM);
+                assertEquals(Collections.singleton(BOT), bots, "The added bot is lost at the iteration " + i);
+                index.remove(ROOM, BOT);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static RoomMember member(String userId, String membership) throws IOException {
+        String json = "{\"type\":\"m.room.member\",\"event_id\":\"$1\",\"room_id\":\"" + ROOM + "\",\"sender\":\"" + userId
+            + "\",\"state_key\":\"" + userId + "\",\"origin_server_ts\":1,\"content\":{\"membership\":\"" + membership + "\"}}";
+        return (RoomMember) new JacksonDeserializer().deserialize(json.getBytes(StandardCharsets.UTF_8), Event.class);
+    }
+}
@@ -116,11 +116,13 @@ public abstract class AbstractHomeServerResolver {
                 ((HttpsURLConnection) connection).setHostnameVerifier(homeserver.getOptionalHostnameVerifier().get());
             }
             try (InputStream inputStream = connection.getInputStream()) {
-                byte[] content = inputStream.readAllBytes();
                 if (LOGGER.isTraceEnabled()) {
+                    byte[] content = inputStream.readAllBytes();
                     LOGGER.trace("Content from {}: {}", version, new String(content, StandardCharsets.UTF_8));
+                    response = deserializer.deserialize(content, VersionsResponse.class);
+                } else {
+                    response = deserializer.deserialize(inputStream, VersionsResponse.class);
                 }
-                response = deserializer.deserialize(content, VersionsResponse.class);
             }
             if (LOGGER.isTraceEnabled()) {
                 StringBuilder sb = new StringBuilder("Server: ").append(homeserver.getUrl()).append("\nVersions:\n");
@@ -253,11 +255,13 @@ public abstract class AbstractHomeServerResolver {
         try {
             String wellKnownUrl = homeserverUrl + "/.well-known/matrix/client";
             try (InputStream inputStream = new URL(wellKnownUrl).openStream()) {
-                byte[] content = inputStream.readAllBytes();
                 if (LOGGER.isTraceEnabled()) {
+                    byte[] content = inputStream.readAllBytes();
                     LOGGER.trace("Content from {}: {}", wellKnownUrl, new String(content, StandardCharsets.UTF_8));
+                    response = deserializer.deserialize(content, ServerDiscoveryResponse.class);
+                } else {
+                    response = deserializer.deserialize(inputStream, ServerDiscoveryResponse.class);
                 }
-                response = deserializer.deserialize(content, ServerDiscoveryResponse.class);
             }
         } catch (MatrixException e) {
             LOGGER.trace("Unable to connect to homeserver " + homeserverUrl, e);
@@ -20,8 +20,10 @@ import io.github.ma1uta.matrix.client.filter.AuthorizationFilter;
 import io.github.ma1uta.matrix.client.filter.ContentTypeFilter;
 import io.github.ma1uta.matrix.client.filter.ErrorFilter;
 import io.github.ma1uta.matrix.client.filter.LoggingFilter;
+import io.github.ma1uta.matrix.client.media.UploadBodyWriter;
 import io.github.ma1uta.matrix.client.methods.async.AccountAsyncMethods;
 import io.github.ma1uta.matrix.client.methods.async.AdminAsyncMethods;
+import io.github.ma1uta.matrix.client.methods.async.BulkAsyncMethods;
 import io.github.ma1uta.matrix.client.methods.async.CapabilityAsyncMethods;
 import io.github.ma1uta.matrix.client.methods.async.ClientConfigAsyncMethods;
 import io.github.ma1uta.matrix.client.methods.async.ContentAsyncMethods;
@@ -150,6 +152,7 @@ public abstract class MatrixClient implements Closeable {
             .register(new LoggingFilter())
             .register(authorizationFilter)
             .register(new ContentTypeFilter())
+            .register(new UploadBodyWriter())
             .baseUrl(getHomeserverUrl());
         if (hostnameVerifier != null) {
             builder.hostnameVerifier(hostnameVerifier);
@@ -224,6 +227,19 @@ public abstract class MatrixClient implements Closeable {
         return getMethod(AdminMethods.class, () -> new AdminMethods(getClientBuilder()));
     }
 
+    /**
+     * Bulk methods.
+     *
+     * @return bulk methods.
+     */
+    public BulkAsyncMethods bulkAsync() {
+        ProfileAsyncMethods profileMethods = profileAsync();
+        RoomAsyncMethods roomMethods = roomAsync();
+        EventAsyncMethods eventMethods = eventAsync();
+        return getMethod(BulkAsyncMethods.class,
+            () -> new BulkAsyncMethods(profileMethods, roomMethods, eventMethods, getExecutorService()));
+    }
+
     /**
      * Client config methods.
      *
@@ -0,0 +1,83 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.export;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Per-room pagination checkpoints.
+ * <br>
+ * The checkpoint of the room is the token of the next page. It is replaced atomically after the page was written. When the room
+ * is exported completely the checkpoint is replaced with the done marker.
+ */
+class ExportCheckpoints {
+
+    private static final String TOKEN_SUFFIX = ".token";
+
+    private static final String DONE_SUFFIX = ".done";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    ExportCheckpoints(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    boolean isDone(String roomId) {
+        return Files.exists(file(roomId, DONE_SUFFIX));
+    }
+
+    Optional<String> token(String roomId) throws IOException {
+        Path file = file(roomId, TOKEN_SUFFIX);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    void save(String roomId, String token) throws IOException {
+        Path temp = file(roomId, TEMP_SUFFIX);
+        Files.writeString(temp, token, StandardCharsets.UTF_8);
+        Files.move(temp, file(roomId, TOKEN_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void done(String roomId) throws IOException {
+        Files.write(file(roomId, DONE_SUFFIX), new byte[0]);
+        Files.deleteIfExists(file(roomId, TOKEN_SUFFIX));
+    }
+
+    private Path file(String roomId, String suffix) {
+        return directory.resolve(encode(roomId) + suffix);
+    }
+
+    /**
+     * Encode the room id to use it in the file names.
+     *
+     * @param roomId The room id.
+     * @return The URL-safe base64 of the room id without padding.
+     */
+    static String encode(String roomId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(roomId.getBytes(StandardCharsets.UTF_8));
+    }
+}
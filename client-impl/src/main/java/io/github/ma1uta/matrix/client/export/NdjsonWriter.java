@@ -0,0 +1,136 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Writer of the NDJSON files with rotation by size.
+ * <br>
+ * Files are named {@code <prefix>-<index>.ndjson}, the index starts from {@code 000000}. A new writer never appends to the existing
+ * files, it starts the next index. The file is created on the first written page. All elements of the one page are written to the
+ * same file.
+ */
+class NdjsonWriter implements Closeable {
+
+    private static final String EXTENSION = ".ndjson";
+
+    private static final String FILE_NAME_FORMAT = "%s-%06d" + EXTENSION;
+
+    private final Path directory;
+
+    private final String prefix;
+
+    private final long maxFileSize;
+
+    private final ByteBuffer newLine = ByteBuffer.wrap(new byte[] {'\n'}).asReadOnlyBuffer();
+
+    private FileChannel channel;
+
+    private int index;
+
+    private long written;
+
+    NdjsonWriter(Path directory, String prefix, long maxFileSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.prefix = prefix;
+        this.maxFileSize = maxFileSize;
+        this.index = lastIndex();
+    }
+
+    private int lastIndex() throws IOException {
+        Pattern pattern = Pattern.compile(Pattern.quote(prefix) + "-(\\d+)" + Pattern.quote(EXTENSION));
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> pattern.matcher(file.getFileName().toString()))
+                .filter(Matcher::matches)
+                .mapToInt(matcher -> Integer.parseInt(matcher.group(1)))
+                .max()
+                .orElse(-1);
+        }
+    }
+
+    /**
+     * Write elements of the page, one element per line.
+     *
+     * @param page The page.
+     * @throws IOException when unable to write.
+     */
+    synchronized void write(RawPage page) throws IOException {
+        if (page.size() == 0) {
+            return;
+        }
+        long pageSize = page.size();
+        for (int i = 0; i < page.size(); i++) {
+            pageSize += page.length(i);
+        }
+        if (channel == null || (written > 0 && written + pageSize > maxFileSize)) {
+            rotate();
+        }
+        byte[] source = page.getSource();
+        for (int i = 0; i < page.size(); i++) {
+            writeFully(ByteBuffer.wrap(source, page.start(i), page.length(i)));
+            writeFully(newLine.duplicate());
+        }
+        written += pageSize;
+    }
+
+    /**
+     * Flush written data to the storage.
+     *
+     * @throws IOException when unable to flush.
+     */
+    synchronized void flush() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+        }
+        index++;
+        Path file = directory.resolve(String.format(FILE_NAME_FORMAT, prefix, index));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        written = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.export;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Raw page of the /messages endpoint.
+ * <br>
+ * Holds the positions of the chunk elements in the source JSON and the end token. The elements aren't decoded or copied.
+ * <br>
+ * The page is scanned byte by byte without a JSON provider, so the exporter works with any configured serializer. Only the
+ * boundaries of the values are found, the elements are validated by the consumer which decodes them.
+ */
+final class RawPage {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final int HEX_RADIX = 16;
+
+    private static final int UNICODE_ESCAPE_LENGTH = 4;
+
+    private final byte[] source;
+
+    private int[] starts = new int[INITIAL_CAPACITY];
+
+    private int[] ends = new int[INITIAL_CAPACITY];
+
+    private int size;
+
+    private String end;
+
+    private int pos;
+
+    private RawPage(byte[] source) {
+        this.source = source;
+    }
+
+    /**
+     * Parse the page.
+     *
+     * @param source The JSON of the page.
+     * @return The raw page.
+     * @throws IOException when the JSON is malformed.
+     */
+    static RawPage parse(byte[] source) throws IOException {
+        RawPage page = new RawPage(source);
+        page.parseObject();
+        return page;
+    }
+
+    byte[] getSource() {
+        return source;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int start(int index) {
+        return starts[index];
+    }
+
+    int length(int index) {
+        return ends[index] - starts[index];
+    }
+
+    String getEnd() {
+        return end;
+    }
+
+    private void parseObject() throws IOException {
+        skipWhitespaces();
+        expect('{');
+        skipWhitespaces();
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+        while (true) {
+            skipWhitespaces();
+            final String key = readString();
+            skipWhitespaces();
+            expect(':');
+            skipWhitespaces();
+            if ("chunk".equals(key) && peek() == '[') {
+                parseChunk();
+            } else if ("end".equals(key) && peek() == '"') {
+                end = readString();
+            } else {
+                skipValue();
+            }
+            skipWhitespaces();
+            byte next = next();
+            if (next == '}') {
+                return;
+            }
+            if (next != ',') {
+                throw error();
+            }
+        }
+    }
+
+    private void parseChunk() throws IOException {
+        expect('[');
+        skipWhitespaces();
+        if (peek() == ']') {
+            pos++;
+            return;
+        }
+        while (true) {
+            skipWhitespaces();
+            int start = pos;
+            skipValue();
+            add(start, pos);
+            skipWhitespaces();
+            byte next = next();
+            if (next == ']') {
+                return;
+            }
+            if (next != ',') {
+                throw error();
+            }
+        }
+    }
+
+    private void add(int start, int finish) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = finish;
+        size++;
+    }
+
+    private void skipValue() throws IOException {
+        byte current = peek();
+        if (current == '"') {
+            skipString();
+        } else if (current == '{' || current == '[') {
+            int depth = 1;
+            pos++;
+            while (depth > 0) {
+                current = peek();
+                if (current == '"') {
+                    skipString();
+                } else {
+                    if (current == '{' || current == '[') {
+                        depth++;
+                    } else if (current == '}' || current == ']') {
+                        depth--;
+                    }
+                    pos++;
+                }
+            }
+        } else {
+            int start = pos;
+            while (pos < source.length && !isDelimiter(source[pos])) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error();
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        expect('"');
+        while (true) {
+            byte current = next();
+            if (current == '\\') {
+                next();
+            } else if (current == '"') {
+                return;
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        int start = pos + 1;
+        skipString();
+        String value = new String(source, start, pos - 1 - start, StandardCharsets.UTF_8);
+        return value.indexOf('\\') < 0 ? value : unescape(value);
+    }
+
+    private String unescape(String value) throws IOException {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char current = value.charAt(i);
+            if (current != '\\') {
+                builder.append(current);
+                continue;
+            }
+            char escaped = value.charAt(++i);
+            switch (escaped) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    if (i + UNICODE_ESCAPE_LENGTH >= value.length()) {
+                        throw error();
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(value.substring(i + 1, i + 1 + UNICODE_ESCAPE_LENGTH), HEX_RADIX));
+                    } catch (NumberFormatException e) {
+                        throw error();
+                    }
+                    i += UNICODE_ESCAPE_LENGTH;
+                    break;
+                default:
+                    builder.append(escaped);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isDelimiter(byte value) {
+        return value == ',' || value == '}' || value == ']' || isWhitespace(value);
+    }
+
+    private static boolean isWhitespace(byte value) {
+        return value == ' ' || value == '\t' || value == '\n' || value == '\r';
+    }
+
+    private void skipWhitespaces() {
+        while (pos < source.length && isWhitespace(source[pos])) {
+            pos++;
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        if (next() != expected) {
+            throw error();
+        }
+    }
+
+    private byte peek() throws IOException {
+        if (pos >= source.length) {
+            throw error();
+        }
+        return source[pos];
+    }
+
+    private byte next() throws IOException {
+        byte current = peek();
+        pos++;
+        return current;
+    }
+
+    private IOException error() {
+        return new IOException("Malformed page JSON at position " + pos);
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.export;
+
+import io.github.ma1uta.matrix.client.methods.async.BulkAsyncMethods;
+import io.github.ma1uta.matrix.client.methods.async.BulkResult;
+import io.github.ma1uta.matrix.client.methods.async.EventAsyncMethods;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Exporter of the room history to the NDJSON files.
+ * <br>
+ * Rooms are paginated concurrently, each event is written as the raw JSON from the homeserver response, one event per line.
+ * Each room is written to its own files {@code <prefix>-<room>-<index>.ndjson}, where {@code <room>} is the URL-safe base64
+ * of the room id, so the events of the room are never interleaved with other rooms and the files of the resumed export follow
+ * the files of the interrupted one. Only one page per room is held in the memory.
+ * <br>
+ * After each page the token of the next page is saved to the checkpoint of the room, so the interrupted export continues from
+ * the last saved page. The page written before the crash but without the saved checkpoint will be exported again.
+ */
+public class RoomHistoryExporter implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomHistoryExporter.class);
+
+    private final EventAsyncMethods eventMethods;
+
+    private final BulkAsyncMethods bulkMethods;
+
+    private final Map<String, NdjsonWriter> writers = new ConcurrentHashMap<>();
+
+    private final Path output;
+
+    private final String prefix;
+
+    private final long maxFileSize;
+
+    private final ExportCheckpoints checkpoints;
+
+    private final String dir;
+
+    private final Integer limit;
+
+    private final String filter;
+
+    private final boolean durable;
+
+    protected RoomHistoryExporter(Builder builder) throws IOException {
+        this.eventMethods = Objects.requireNonNull(builder.eventMethods, "Event methods must be specified.");
+        this.bulkMethods = Objects.requireNonNull(builder.bulkMethods, "Bulk methods must be specified.")
+            .withLimits(builder.concurrency, builder.maxRetries);
+        this.output = Objects.requireNonNull(builder.output, "Output directory must be specified.");
+        this.prefix = builder.prefix;
+        this.maxFileSize = builder.maxFileSize;
+        this.checkpoints = new ExportCheckpoints(builder.checkpoints != null ? builder.checkpoints : builder.output.resolve("checkpoints"));
+        this.dir = builder.dir;
+        this.limit = builder.limit;
+        this.filter = builder.filter;
+        this.durable = builder.durable;
+    }
+
+    /**
+     * Export rooms.
+     * <br>
+     * Rooms which are already exported completely are skipped. Rooms with the saved checkpoint continue from the checkpoint.
+     *
+     * @param rooms      Map of the room id to the token to start pagination from, for example, the prev_batch of the room timeline.
+     * @param onComplete The callback which is invoked for each room when the room export completes. May be {@code null}.
+     * @return The count of the exported events of each room.
+     */
+    public CompletableFuture<List<BulkResult<String, Long>>> export(Map<String, String> rooms,
+                                                                    Consumer<BulkResult<String, Long>> onComplete) {
+        Objects.requireNonNull(rooms, "Rooms must be specified.");
+
+        return bulkMethods.execute(rooms.keySet(), roomId -> exportRoom(roomId, rooms.get(roomId)), onComplete);
+    }
+
+    /**
+     * Export the one room.
+     *
+     * @param roomId The room id.
+     * @param from   The token to start pagination from if the room doesn't have the checkpoint.
+     * @return The count of the exported events.
+     */
+    public CompletableFuture<Long> exportRoom(String roomId, String from) {
+        try {
+            if (checkpoints.isDone(roomId)) {
+                LOGGER.debug("Room {} is already exported", roomId);
+                return CompletableFuture.completedFuture(0L);
+            }
+            String token = checkpoints.token(roomId).orElse(from);
+            Objects.requireNonNull(token, "From cannot be empty.");
+            NdjsonWriter writer = new NdjsonWriter(output, prefix + "-" + ExportCheckpoints.encode(roomId), maxFileSize);
+            if (writers.putIfAbsent(roomId, writer) != null) {
+                throw new IllegalStateException("Room " + roomId + " is already being exported");
+            }
+            return exportPage(writer, roomId, token, 0L).whenComplete((count, error) -> {
+                writers.remove(roomId, writer);
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    LOGGER.error("Unable to close the export of the room " + roomId, e);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<Long> exportPage(NdjsonWriter writer, String roomId, String token, long count) {
+        return eventMethods.rawMessages(roomId, token, null, dir, limit, filter).thenCompose(json -> {
+            long total;
+            String end;
+            try {
+                RawPage page = RawPage.parse(json);
+                writer.write(page);
+                total = count + page.size();
+                end = page.getEnd();
+                if (page.size() == 0 || end == null || end.equals(token)) {
+                    flush(writer);
+                    checkpoints.done(roomId);
+                    LOGGER.debug("Room {} is exported, {} events", roomId, total);
+                    return CompletableFuture.completedFuture(total);
+                }
+                flush(writer);
+                checkpoints.save(roomId, end);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            return exportPage(writer, roomId, end, total);
+        });
+    }
+
+    private void flush(NdjsonWriter writer) throws IOException {
+        if (durable) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Close the files of the rooms which are being exported. The unfinished rooms continue from their checkpoints on the next export.
+     *
+     * @throws IOException when unable to close the files.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (NdjsonWriter writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        writers.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Create a new builder.
+     *
+     * @return The new builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Exporter builder.
+     */
+    public static class Builder {
+
+        private static final long DEFAULT_MAX_FILE_SIZE = 256L * 1024 * 1024;
+
+        private static final int DEFAULT_LIMIT = 100;
+
+        private static final int DEFAULT_CONCURRENCY = 4;
+
+        private EventAsyncMethods eventMethods;
+
+        private BulkAsyncMethods bulkMethods;
+
+        private Path output;
+
+        private Path checkpoints;
+
+        private String prefix = "history";
+
+        private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+
+        private String dir = "b";
+
+        private Integer limit = DEFAULT_LIMIT;
+
+        private String filter;
+
+        private int concurrency = DEFAULT_CONCURRENCY;
+
+        private int maxRetries = BulkAsyncMethods.DEFAULT_MAX_RETRIES;
+
+        private boolean durable = true;
+
+        /**
+         * Use the methods of the client.
+         *
+         * @param eventMethods The event methods, {@code MatrixClient.eventAsync()}.
+         * @param bulkMethods  The bulk methods, {@code MatrixClient.bulkAsync()}.
+         * @return This builder.
+         */
+        public Builder methods(EventAsyncMethods eventMethods, BulkAsyncMethods bulkMethods) {
+            this.eventMethods = eventMethods;
+            this.bulkMethods = bulkMethods;
+            return this;
+        }
+
+        public Builder output(Path output) {
+            this.output = output;
+            return this;
+        }
+
+        public Builder checkpoints(Path checkpoints) {
+            this.checkpoints = checkpoints;
+            return this;
+        }
+
+        public Builder prefix(String prefix) {
+            this.prefix = prefix;
+            return this;
+        }
+
+        public Builder maxFileSize(long maxFileSize) {
+            this.maxFileSize = maxFileSize;
+            return this;
+        }
+
+        public Builder dir(String dir) {
+            this.dir = dir;
+            return this;
+        }
+
+        public Builder limit(Integer limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public Builder filter(String filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        public Builder concurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Flush the written page to the storage before saving the checkpoint.
+         *
+         * @param durable {@code true} to flush each page (default), {@code false} to rely on the operating system.
+         * @return This builder.
+         */
+        public Builder durable(boolean durable) {
+            this.durable = durable;
+            return this;
+        }
+
+        /**
+         * Build the exporter.
+         *
+         * @return The new exporter.
+         * @throws IOException when unable to create the output or checkpoint directory.
+         */
+        public RoomHistoryExporter build() throws IOException {
+            return new RoomHistoryExporter(this);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.client.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The first bytes of the body.
+ * <br>
+ * Only the first {@code limit} bytes are kept, the rest are only counted. The buffer grows with the kept bytes, so the short
+ * body doesn't allocate the whole limit.
+ */
+final class BodyPrefix {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int limit;
+
+    private byte[] buffer = EMPTY;
+
+    private int length;
+
+    private long total;
+
+    BodyPrefix(int limit) {
+        this.limit = Math.max(limit, 0);
+    }
+
+    void append(int value) {
+        total++;
+        if (length < limit) {
+            ensureCapacity(length + 1);
+            buffer[length++] = (byte) value;
+        }
+    }
+
+    void append(byte[] bytes, int offset, int count) {
+        total += count;
+        int kept = Math.min(count, limit - length);
+        if (kept > 0) {
+            ensureCapacity(length + kept);
+            System.arraycopy(bytes, offset, buffer, length, kept);
+            length += kept;
+        }
+    }
+
+    /**
+     * The count of the kept bytes.
+     *
+     * @return The count of the kept bytes.
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * The count of all appended bytes.
+     *
+     * @return The count of all appended bytes.
+     */
+    long total() {
+        return total;
+    }
+
+    boolean isFull() {
+        return length >= limit;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            int grown = Math.max(capacity, Math.max(INITIAL_CAPACITY, buffer.length * 2));
+            buffer = Arrays.copyOf(buffer, Math.min(grown, limit));
+        }
+    }
+}
@@ -48,6 +48,16 @@ public class ErrorFilter implements ClientResponseFilter {
      */
     public static final int RATE_LIMIT_RESPONSE_STATUS = 429;
 
+    /**
+     * Requested range not satisfiable response status.
+     */
+    public static final int RANGE_NOT_SATISFIABLE_RESPONSE_STATUS = 416;
+
+    /**
+     * The length of the response body prefix which is logged when the response can't be decoded.
+     */
+    public static final int LOGGED_BODY_PREFIX_LENGTH = 1024;
+
     @Override
     public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
         int status = responseContext.getStatus();
@@ -56,46 +66,42 @@ public class ErrorFilter implements ClientResponseFilter {
             case HttpURLConnection.HTTP_OK:
                 LOGGER.trace("OK.");
                 break;
+            case HttpURLConnection.HTTP_PARTIAL:
+                LOGGER.trace("Partial content.");
+                break;
             case HttpURLConnection.HTTP_UNAUTHORIZED:
                 throwUserInteractiveException(responseContext);
                 break;
             case RATE_LIMIT_RESPONSE_STATUS:
                 throwRateLimitException(responseContext);
                 return;
+            case RANGE_NOT_SATISFIABLE_RESPONSE_STATUS:
+                LOGGER.debug("Requested range not satisfiable, content range: {}", responseContext.getHeaderString("Content-Range"));
+                throw new MatrixException("Requested range not satisfiable", null, status);
             default:
                 throwException(responseContext, status);
         }
     }
 
     private void throwUserInteractiveException(ClientResponseContext responseContext) throws IOException {
-        byte[] response = responseContext.getEntityStream().readAllBytes();
         try {
-            if (LOGGER.isTraceEnabled()) {
-                LOGGER.error("Response: {}", new String(response, StandardCharsets.UTF_8));
-            }
-            UserInteractiveResponse userInteractiveResponse = getDeserializer().deserialize(response, UserInteractiveResponse.class);
+            UserInteractiveResponse userInteractiveResponse = readResponse(responseContext, UserInteractiveResponse.class);
             LOGGER.error("User-interactive response, session: {}", userInteractiveResponse.getSession());
             throw new MatrixException(String.format("User-interactive response \"%s\"", userInteractiveResponse.getSession()),
                 userInteractiveResponse, HttpsURLConnection.HTTP_UNAUTHORIZED);
         } catch (Exception e) {
-            LOGGER.error("Response: {}", new String(response, StandardCharsets.UTF_8));
             LOGGER.error("Unable to invoke request", e);
             throw (RuntimeException) (e instanceof MatrixException ? e : new RuntimeException(e));
         }
     }
 
     private void throwRateLimitException(ClientResponseContext responseContext) throws IOException {
-        byte[] response = responseContext.getEntityStream().readAllBytes();
         try {
-            if (LOGGER.isTraceEnabled()) {
-                LOGGER.error("Response: {}", new String(response, StandardCharsets.UTF_8));
-            }
-            RateLimitedErrorResponse rateLimitedResponse = getDeserializer().deserialize(response, RateLimitedErrorResponse.class);
+            RateLimitedErrorResponse rateLimitedResponse = readResponse(responseContext, RateLimitedErrorResponse.class);
             LOGGER.error("Rate limited response, error code: '{}', error: '{}', retry after {} milliseconds",
                 rateLimitedResponse.getErrcode(), rateLimitedResponse.getError(), rateLimitedResponse.getRetryAfterMs());
             throw new MatrixException(rateLimitedResponse.getError(), rateLimitedResponse, RATE_LIMIT_RESPONSE_STATUS);
         } catch (Exception e) {
-            LOGGER.error("Response: {}", new String(response, StandardCharsets.UTF_8));
             LOGGER.error("Unable to invoke request", e);
             throw (RuntimeException) (e instanceof MatrixException ? e : new RuntimeException(e));
         }
@@ -107,21 +113,46 @@ public class ErrorFilter implements ClientResponseFilter {
             LOGGER.error(message);
             throw new RuntimeException(message);
         }
-        byte[] response = responseContext.getEntityStream().readAllBytes();
         try {
-            if (LOGGER.isTraceEnabled()) {
-                LOGGER.error("Response: {}", new String(response, StandardCharsets.UTF_8));
-            }
-            ErrorResponse errorResponse = getDeserializer().deserialize(response, ErrorResponse.class);
+            ErrorResponse errorResponse = readResponse(responseContext, ErrorResponse.class);
             LOGGER.error("Error response, error code: '{}', error: '{}'", errorResponse.getErrcode(), errorResponse.getError());
             throw new MatrixException(errorResponse.getError(), errorResponse, status);
         } catch (Exception e) {
-            LOGGER.error("Response: {}", new String(response, StandardCharsets.UTF_8));
             LOGGER.error("Unable to invoke request", e);
             throw (RuntimeException) (e instanceof MatrixException ? e : new RuntimeException(e));
         }
     }
 
+    private <T> T readResponse(ClientResponseContext responseContext, Class<T> clazz) throws IOException {
+        if (LOGGER.isTraceEnabled()) {
+            byte[] response = responseContext.getEntityStream().readAllBytes();
+            LOGGER.trace("Response: {}", new String(response, StandardCharsets.UTF_8));
+            try {
+                return getDeserializer().deserialize(response, clazz);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Unable to decode response: {}",
+                    new String(response, 0, Math.min(response.length, LOGGED_BODY_PREFIX_LENGTH), StandardCharsets.UTF_8));
+                throw e;
+            }
+        }
+        PrefixInputStream body = new PrefixInputStream(responseContext.getEntityStream(), LOGGED_BODY_PREFIX_LENGTH);
+        try {
+            return getDeserializer().deserialize(body, clazz);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Unable to decode response: {}", readPrefix(body));
+            throw e;
+        }
+    }
+
+    private String readPrefix(PrefixInputStream body) {
+        try {
+            return body.readPrefix();
+        } catch (IOException e) {
+            LOGGER.trace("Unable to read the response prefix", e);
+            return body.prefix().toString();
+        }
+    }
+
     private Deserializer getDeserializer() {
         if (deserializer == null) {
             synchronized (this) {
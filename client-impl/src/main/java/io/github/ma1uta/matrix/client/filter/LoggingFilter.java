@@ -21,14 +21,15 @@ import static javax.ws.rs.core.HttpHeaders.AUTHORIZATION;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import javax.ws.rs.client.ClientRequestContext;
 import javax.ws.rs.client.ClientRequestFilter;
 import javax.ws.rs.client.ClientResponseContext;
@@ -37,6 +38,10 @@ import javax.ws.rs.core.MediaType;
 
 /**
  * Logging client filter.
+ * <br>
+ * Headers are logged for every request when debug is enabled. Bodies are captured while they are streamed, only the first
+ * {@link #BODY_LIMIT} bytes are kept, only every {@link #BODY_SAMPLE}-th request is captured and only requests matching
+ * the body filter.
  */
 public class LoggingFilter implements ClientRequestFilter, ClientResponseFilter {
 
@@ -52,6 +57,54 @@ public class LoggingFilter implements ClientRequestFilter, ClientResponseFilter
      */
     public static final int BEARER_PREFIX_LENGTH = BEARER_PREFIX.length();
 
+    /**
+     * Option to set the maximum count of the logged body bytes.
+     */
+    public static final String BODY_LIMIT = "jmsdk.logging.body.limit";
+
+    /**
+     * Option to log bodies only of the every N-th request.
+     */
+    public static final String BODY_SAMPLE = "jmsdk.logging.body.sample";
+
+    /**
+     * Default maximum count of the logged body bytes.
+     */
+    public static final int DEFAULT_BODY_LIMIT = 4096;
+
+    private static final String BODY_CAPTURE_PROPERTY = LoggingFilter.class.getName() + ".capture";
+
+    private static final String MEDIA_PATH = "/_matrix/media/r0";
+
+    private final int bodyLimit;
+
+    private final int bodySample;
+
+    private final Predicate<ClientRequestContext> bodyFilter;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * Create the filter with the body limit and the sampling from the {@link #BODY_LIMIT} and the {@link #BODY_SAMPLE} system
+     * properties. The bodies of all requests are captured.
+     */
+    public LoggingFilter() {
+        this(Integer.getInteger(BODY_LIMIT, DEFAULT_BODY_LIMIT), Integer.getInteger(BODY_SAMPLE, 1), request -> true);
+    }
+
+    /**
+     * Create the filter.
+     *
+     * @param bodyLimit  The maximum count of the logged bytes of each body, {@code 0} disables the body logging.
+     * @param bodySample The bodies are logged only of the every {@code bodySample}-th request, {@code 1} to log all of them.
+     * @param bodyFilter The filter of the requests whose bodies are logged.
+     */
+    public LoggingFilter(int bodyLimit, int bodySample, Predicate<ClientRequestContext> bodyFilter) {
+        this.bodyLimit = Math.max(bodyLimit, 0);
+        this.bodySample = Math.max(bodySample, 1);
+        this.bodyFilter = Objects.requireNonNull(bodyFilter, "Body filter must be specified.");
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -71,11 +124,14 @@ public class LoggingFilter implements ClientRequestFilter, ClientResponseFilter
             }
             builder.append("\n");
         }
-        if (MediaType.APPLICATION_JSON_TYPE.equals(requestContext.getMediaType())) {
-            requestContext.setEntityStream(new LoggingStream(requestContext.getEntityStream()));
-        }
         builder.append("------------- End Request -------------\n");
         LOGGER.debug(builder.toString());
+
+        boolean capture = shouldCapture(requestContext);
+        requestContext.setProperty(BODY_CAPTURE_PROPERTY, capture);
+        if (capture && requestContext.hasEntity() && MediaType.APPLICATION_JSON_TYPE.isCompatible(requestContext.getMediaType())) {
+            requestContext.setEntityStream(new LoggingOutputStream(requestContext.getEntityStream(), bodyLimit));
+        }
     }
 
     /**
@@ -98,14 +154,28 @@ public class LoggingFilter implements ClientRequestFilter, ClientResponseFilter
         }
         builder.append("------------- End Response -------------\n");
         LOGGER.debug(builder.toString());
-        if (requestContext.getUri().toString().contains("/_matrix/media/r0")) {
+        if (!Boolean.TRUE.equals(requestContext.getProperty(BODY_CAPTURE_PROPERTY))) {
             return;
         }
-        if (MediaType.APPLICATION_JSON_TYPE.equals(responseContext.getMediaType())) {
-            byte[] content = responseContext.getEntityStream().readAllBytes();
-            LOGGER.debug("Body:\n" + new String(content, StandardCharsets.UTF_8));
-            responseContext.setEntityStream(new ByteArrayInputStream(content));
+        if (responseContext.hasEntity() && MediaType.APPLICATION_JSON_TYPE.isCompatible(responseContext.getMediaType())) {
+            responseContext.setEntityStream(new LoggingInputStream(responseContext.getEntityStream(), bodyLimit));
+        }
+    }
+
+    /**
+     * Decide whether the body of the request and the response should be logged.
+     *
+     * @param requestContext The request.
+     * @return {@code true} to capture the body, else {@code false}.
+     */
+    protected boolean shouldCapture(ClientRequestContext requestContext) {
+        if (bodyLimit == 0 || requestContext.getUri().toString().contains(MEDIA_PATH)) {
+            return false;
+        }
+        if (counter.getAndIncrement() % bodySample != 0) {
+            return false;
         }
+        return bodyFilter.test(requestContext);
     }
 
     private String maskValue(String name, String value) {
@@ -115,24 +185,72 @@ public class LoggingFilter implements ClientRequestFilter, ClientResponseFilter
         return value;
     }
 
-    static class LoggingStream extends FilterOutputStream {
+    private static void logBody(String prefix, BodyPrefix body) {
+        if (body.total() == 0) {
+            return;
+        }
+        StringBuilder builder = new StringBuilder(prefix).append(" body:\n").append(body);
+        if (body.total() > body.length()) {
+            builder.append("\n... (").append(body.total() - body.length()).append(" more bytes)");
+        }
+        LOGGER.debug(builder.toString());
+    }
+
+    /**
+     * Output stream which copies the first bytes of the request body and logs them once on close.
+     */
+    static class LoggingOutputStream extends FilterOutputStream {
+
+        private final BodyPrefix body;
 
-        private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        private boolean logged;
 
-        LoggingStream(OutputStream inner) {
+        LoggingOutputStream(OutputStream inner, int limit) {
             super(inner);
+            this.body = new BodyPrefix(limit);
         }
 
         @Override
-        public void write(final int i) throws IOException {
-            baos.write(i);
+        public void write(int i) throws IOException {
             out.write(i);
+            body.append(i);
         }
 
         @Override
         public void write(byte[] b, int off, int len) throws IOException {
-            super.write(b, off, len);
-            LOGGER.debug("Body:\n" + baos.toString(StandardCharsets.UTF_8.name()));
+            out.write(b, off, len);
+            body.append(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!logged) {
+                    logged = true;
+                    logBody("Request", body);
+                }
+            }
+        }
+
+        BodyPrefix prefix() {
+            return body;
+        }
+    }
+
+    /**
+     * Input stream which copies the first bytes of the response body and logs them once at the end of the stream or on close.
+     */
+    static class LoggingInputStream extends PrefixInputStream {
+
+        LoggingInputStream(InputStream inner, int limit) {
+            super(inner, limit);
+        }
+
+        @Override
+        protected void end() {
+            logBody("Response", prefix());
         }
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.client.filter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The input stream which keeps the first bytes it has read.
+ * <br>
+ * Subclasses can override {@link #end()} which is invoked once at the end of the stream or on close.
+ */
+class PrefixInputStream extends FilterInputStream {
+
+    private static final int CHUNK = 1024;
+
+    private final BodyPrefix prefix;
+
+    private boolean ended;
+
+    PrefixInputStream(InputStream in, int limit) {
+        super(in);
+        this.prefix = new BodyPrefix(limit);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = in.read();
+        if (read == -1) {
+            finish();
+        } else {
+            prefix.append(read);
+        }
+        return read;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read == -1) {
+            finish();
+        } else {
+            prefix.append(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * The kept bytes.
+     *
+     * @return The kept bytes.
+     */
+    BodyPrefix prefix() {
+        return prefix;
+    }
+
+    /**
+     * Read the rest of the prefix if the consumer stopped before it.
+     *
+     * @return The kept bytes as the string.
+     * @throws IOException when the stream can't be read.
+     */
+    String readPrefix() throws IOException {
+        byte[] rest = new byte[CHUNK];
+        while (!ended && !prefix.isFull() && read(rest, 0, rest.length) != -1) {
+            // the bytes are kept by the read method.
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * Invoked once when the stream has been read to the end or closed.
+     */
+    protected void end() {
+    }
+
+    private void finish() {
+        if (!ended) {
+            ended = true;
+            end();
+        }
+    }
+}
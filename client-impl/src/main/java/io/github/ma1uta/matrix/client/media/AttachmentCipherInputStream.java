@@ -0,0 +1,161 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.media;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import javax.crypto.Cipher;
+
+/**
+ * The stream which encrypts or decrypts the source stream in the fixed-size chunks and hashes the ciphertext.
+ * <br>
+ * When the expected hash is specified it is verified at the end of the stream.
+ */
+class AttachmentCipherInputStream extends FilterInputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private final Cipher cipher;
+
+    private final MessageDigest digest;
+
+    private final boolean encrypt;
+
+    private final byte[] expectedHash;
+
+    private final byte[] input = new byte[CHUNK_SIZE];
+
+    private final byte[] output;
+
+    private int position;
+
+    private int limit;
+
+    private boolean finished;
+
+    private byte[] hash;
+
+    AttachmentCipherInputStream(InputStream source, Cipher cipher, MessageDigest digest, boolean encrypt, byte[] expectedHash) {
+        super(source);
+        this.cipher = cipher;
+        this.digest = digest;
+        this.encrypt = encrypt;
+        this.expectedHash = expectedHash;
+        this.output = new byte[cipher.getOutputSize(CHUNK_SIZE)];
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & BYTE_MASK;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (position == limit) {
+            if (finished) {
+                return -1;
+            }
+            fill();
+        }
+        int count = Math.min(length, limit - position);
+        System.arraycopy(output, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = 0;
+        byte[] buffer = new byte[(int) Math.min(CHUNK_SIZE, Math.max(count, 0))];
+        while (skipped < count) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, count - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * The hash of the ciphertext, available at the end of the stream.
+     *
+     * @return The SHA-256 of the ciphertext or {@code null} if the stream isn't read completely.
+     */
+    byte[] getHash() {
+        return hash;
+    }
+
+    private void fill() throws IOException {
+        int read = in.read(input, 0, input.length);
+        int produced;
+        try {
+            if (read == -1) {
+                produced = cipher.doFinal(output, 0);
+            } else {
+                if (!encrypt) {
+                    digest.update(input, 0, read);
+                }
+                produced = cipher.update(input, 0, read, output, 0);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Unable to process the attachment", e);
+        }
+        if (encrypt) {
+            digest.update(output, 0, produced);
+        }
+        position = 0;
+        limit = produced;
+        if (read == -1) {
+            finish();
+        }
+    }
+
+    private void finish() throws IOException {
+        finished = true;
+        hash = digest.digest();
+        if (!encrypt && expectedHash != null && !MessageDigest.isEqual(expectedHash, hash)) {
+            Arrays.fill(output, (byte) 0);
+            limit = 0;
+            throw new IOException(String.format("Attachment hash mismatch, expected %s, actual %s",
+                Base64.getEncoder().withoutPadding().encodeToString(expectedHash),
+                Base64.getEncoder().withoutPadding().encodeToString(hash)));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.media;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The media stored in the {@link MediaCache}.
+ * <br>
+ * The file may be evicted from the cache at any time, so open it right after it was returned from the cache.
+ * The opened channel, stream or mapped buffer stays valid after eviction on the file systems which allow
+ * to remove opened files.
+ */
+public final class CachedMedia {
+
+    private final String key;
+
+    private final Path path;
+
+    private final long size;
+
+    private final String contentType;
+
+    private final String filename;
+
+    CachedMedia(String key, Path path, long size, String contentType, String filename) {
+        this.key = key;
+        this.path = path;
+        this.size = size;
+        this.contentType = contentType;
+        this.filename = filename;
+    }
+
+    /**
+     * The cache key, the content URI with the thumbnail parameters if any.
+     *
+     * @return The cache key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Open the cached file.
+     *
+     * @return The read-only file channel.
+     * @throws IOException when the file was evicted or cannot be opened.
+     */
+    public FileChannel open() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /**
+     * Map the cached file into memory.
+     *
+     * @return The read-only mapped buffer.
+     * @throws IOException when the file was evicted or cannot be mapped.
+     */
+    public MappedByteBuffer map() throws IOException {
+        try (FileChannel channel = open()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Open the cached file as the stream.
+     *
+     * @return The input stream.
+     * @throws IOException when the file was evicted or cannot be opened.
+     */
+    public InputStream newInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.media;
+
+import io.github.ma1uta.matrix.client.methods.async.ContentAsyncMethods;
+import io.github.ma1uta.matrix.client.model.content.ContentUri;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Upload de-duplication by the SHA-256 of the content.
+ * <br>
+ * Keeps the persistent index of the content hash to the content URI. Buffers are hashed before the upload and the upload is
+ * skipped when the same content was already uploaded. Files are read once: the file which size doesn't match any uploaded
+ * content can't be a duplicate, so it is hashed while being uploaded, the file with the known size is hashed before the upload
+ * on the I/O executor.
+ * Streams can't be hashed in advance, so they are hashed while being uploaded and only the next upload of the same content
+ * is skipped.
+ * <br>
+ * The content URI of the first upload is reused, so the duplicates get the file name and content type of the first upload.
+ * <br>
+ * The index is an append-only file with one "hash mxc-uri size" line per upload, it is loaded on start. Malformed lines are
+ * skipped.
+ */
+public class DedupUploader implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DedupUploader.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String MXC_PREFIX = "mxc://";
+
+    // hash, content URI and size.
+    private static final int INDEX_FIELDS = 3;
+
+    private final ContentAsyncMethods contentMethods;
+
+    private final Executor executor;
+
+    private final FileChannel index;
+
+    private final Map<String, String> uris = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<ContentUri>> pending = new ConcurrentHashMap<>();
+
+    private final Set<Long> sizes = ConcurrentHashMap.newKeySet();
+
+    private final Map<Long, CompletableFuture<ContentUri>> streaming = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder uploads = new LongAdder();
+
+    public DedupUploader(ContentAsyncMethods contentMethods, Path indexFile) throws IOException {
+        this(contentMethods, indexFile, null);
+    }
+
+    public DedupUploader(ContentAsyncMethods contentMethods, Path indexFile, Executor executor) throws IOException {
+        this.contentMethods = Objects.requireNonNull(contentMethods, "Content methods must be specified.");
+        this.executor = executor != null ? executor : MediaExecutors.io();
+        Objects.requireNonNull(indexFile, "Index file must be specified.");
+        load(indexFile);
+        this.index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Upload the file unless the same content was already uploaded.
+     *
+     * @param path        The file.
+     * @param filename    The name of the file being uploaded.
+     * @param contentType Mime-type.
+     * @param progress    The progress listener. May be {@code null}. Isn't invoked when the upload is skipped.
+     * @return The MXC URI to the uploaded content.
+     */
+    public CompletableFuture<ContentUri> upload(Path path, String filename, String contentType, UploadProgress progress) {
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (sizes.contains(size)) {
+            return CompletableFuture.supplyAsync(() -> hash(path), executor)
+                .thenCompose(hash -> uploadOnce(hash, size, () -> contentMethods.upload(path, filename, contentType, progress)));
+        }
+
+        CompletableFuture<ContentUri> created = new CompletableFuture<>();
+        CompletableFuture<ContentUri> existing = streaming.putIfAbsent(size, created);
+        if (existing != null) {
+            // The content of the same size is being uploaded, check the index again when it completes.
+            return existing.handle((uri, error) -> size)
+                .thenCompose(ignored -> upload(path, filename, contentType, progress));
+        }
+
+        uploads.increment();
+        MessageDigest digest = Digests.sha256();
+        CompletableFuture<ContentUri> uploading;
+        try {
+            uploading = contentMethods.upload(path, filename, contentType, progress, digest);
+        } catch (RuntimeException e) {
+            uploading = CompletableFuture.failedFuture(e);
+        }
+        uploading.whenComplete((result, error) -> {
+            if (error == null) {
+                save(Digests.hex(digest.digest()), result.getContentUri(), size);
+            }
+            streaming.remove(size, created);
+            if (error != null) {
+                created.completeExceptionally(error);
+            } else {
+                created.complete(result);
+            }
+        });
+        return created.copy();
+    }
+
+    /**
+     * Upload the remaining bytes of the buffer unless the same content was already uploaded.
+     *
+     * @param buffer      The content. The position of the buffer isn't changed.
+     * @param filename    The name of the file being uploaded.
+     * @param contentType Mime-type.
+     * @param progress    The progress listener. May be {@code null}. Isn't invoked when the upload is skipped.
+     * @return The MXC URI to the uploaded content.
+     */
+    public CompletableFuture<ContentUri> upload(ByteBuffer buffer, String filename, String contentType, UploadProgress progress) {
+        MessageDigest digest = Digests.sha256();
+        digest.update(buffer.duplicate());
+        return uploadOnce(Digests.hex(digest.digest()), buffer.remaining(),
+            () -> contentMethods.upload(buffer, filename, contentType, progress));
+    }
+
+    /**
+     * Upload the stream and remember its hash.
+     * <br>
+     * The stream is always uploaded, the later uploads of the same content as a file or a buffer are skipped.
+     *
+     * @param inputStream The content.
+     * @param filename    The name of the file being uploaded.
+     * @param contentType Mime-type.
+     * @return The MXC URI to the uploaded content.
+     */
+    public CompletableFuture<ContentUri> upload(InputStream inputStream, String filename, String contentType) {
+        CountingDigestInputStream digestStream = new CountingDigestInputStream(inputStream, Digests.sha256());
+        uploads.increment();
+        return contentMethods.upload(digestStream, filename, contentType).thenApply(uri -> {
+            save(Digests.hex(digestStream.getMessageDigest().digest()), uri.getContentUri(), digestStream.getCount());
+            return uri;
+        });
+    }
+
+    /**
+     * Find the content URI of the uploaded content.
+     *
+     * @param hash The hex SHA-256 of the content.
+     * @return The content URI if the content was uploaded.
+     */
+    public Optional<String> find(String hash) {
+        return Optional.ofNullable(uris.get(hash));
+    }
+
+    /**
+     * The count of the skipped uploads.
+     *
+     * @return The count of the uploads which were found in the index.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getUploads() {
+        return uploads.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        index.close();
+    }
+
+    private CompletableFuture<ContentUri> uploadOnce(String hash, long size, Supplier<CompletableFuture<ContentUri>> uploader) {
+        String uri = uris.get(hash);
+        if (uri != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(contentUri(uri));
+        }
+
+        CompletableFuture<ContentUri> created = new CompletableFuture<>();
+        CompletableFuture<ContentUri> existing = pending.putIfAbsent(hash, created);
+        if (existing != null) {
+            hits.increment();
+            return existing.copy();
+        }
+
+        uploads.increment();
+        CompletableFuture<ContentUri> uploading;
+        try {
+            uploading = uploader.get();
+        } catch (RuntimeException e) {
+            uploading = CompletableFuture.failedFuture(e);
+        }
+        uploading.whenComplete((result, error) -> {
+            if (error != null) {
+                pending.remove(hash, created);
+                created.completeExceptionally(error);
+            } else {
+                save(hash, result.getContentUri(), size);
+                pending.remove(hash, created);
+                created.complete(result);
+            }
+        });
+        return created.copy();
+    }
+
+    private void save(String hash, String uri, long size) {
+        if (uri == null) {
+            return;
+        }
+        sizes.add(size);
+        if (uri.equals(uris.put(hash, uri))) {
+            return;
+        }
+        ByteBuffer line = StandardCharsets.UTF_8.encode(hash + " " + uri + " " + size + "\n");
+        try {
+            synchronized (index) {
+                while (line.hasRemaining()) {
+                    index.write(line);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save the upload " + uri, e);
+        }
+    }
+
+    private void load(Path indexFile) throws IOException {
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        int malformed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                long size = parts.length == INDEX_FIELDS ? parseSize(parts[2]) : -1L;
+                if (size < 0 || parts[0].isEmpty() || !parts[1].startsWith(MXC_PREFIX)) {
+                    malformed++;
+                    continue;
+                }
+                uris.put(parts[0], parts[1]);
+                sizes.add(size);
+            }
+        }
+        if (malformed > 0) {
+            LOGGER.warn("Skipped {} malformed lines of the upload index {}", malformed, indexFile);
+        }
+        LOGGER.debug("Loaded {} uploads", uris.size());
+    }
+
+    private static ContentUri contentUri(String uri) {
+        ContentUri contentUri = new ContentUri();
+        contentUri.setContentUri(uri);
+        return contentUri;
+    }
+
+    private static long parseSize(String size) {
+        try {
+            return Long.parseLong(size);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static String hash(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MessageDigest digest = Digests.sha256();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return Digests.hex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to hash " + path, e);
+        }
+    }
+
+    /**
+     * Digest stream which counts the read bytes.
+     */
+    private static final class CountingDigestInputStream extends DigestInputStream {
+
+        private long count;
+
+        private CountingDigestInputStream(InputStream stream, MessageDigest digest) {
+            super(stream, digest);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
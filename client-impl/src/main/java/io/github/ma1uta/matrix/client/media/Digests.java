@@ -0,0 +1,64 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.media;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 helpers of the media.
+ */
+final class Digests {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final int HALF_BYTE_SHIFT = 4;
+
+    private static final int HALF_BYTE_MASK = 0x0F;
+
+    private Digests() {
+        // singleton.
+    }
+
+    /**
+     * Create a new SHA-256 digest.
+     *
+     * @return The new digest.
+     */
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 isn't supported", e);
+        }
+    }
+
+    /**
+     * Format the digest as the lower-case hex string.
+     *
+     * @param digest The digest.
+     * @return The hex string.
+     */
+    static String hex(byte[] digest) {
+        char[] chars = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            chars[i * 2] = HEX[(digest[i] >> HALF_BYTE_SHIFT) & HALF_BYTE_MASK];
+            chars[i * 2 + 1] = HEX[digest[i] & HALF_BYTE_MASK];
+        }
+        return new String(chars);
+    }
+}
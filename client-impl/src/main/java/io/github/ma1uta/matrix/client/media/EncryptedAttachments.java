@@ -0,0 +1,259 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.media;
+
+import io.github.ma1uta.matrix.client.methods.async.ContentAsyncMethods;
+import io.github.ma1uta.matrix.event.nested.EncryptedFile;
+import io.github.ma1uta.matrix.event.nested.JWK;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypted attachments (AES-256-CTR with the SHA-256 of the ciphertext) of the encrypted rooms.
+ * <br>
+ * Attachments are encrypted and decrypted as streams in the fixed-size chunks and the hash is computed as the data flows,
+ * so the memory usage doesn't depend on the file size.
+ */
+public class EncryptedAttachments {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EncryptedAttachments.class);
+
+    /**
+     * The algorithm of the attachment key.
+     */
+    public static final String ALGORITHM = "A256CTR";
+
+    /**
+     * The version of the encrypted file.
+     */
+    public static final String VERSION = "v2";
+
+    /**
+     * The hash of the ciphertext.
+     */
+    public static final String SHA256 = "sha256";
+
+    private static final String TRANSFORMATION = "AES/CTR/NoPadding";
+
+    private static final int KEY_SIZE = 32;
+
+    private static final int IV_SIZE = 16;
+
+    private static final int IV_RANDOM_SIZE = 8;
+
+    private static final String CONTENT_TYPE = "application/octet-stream";
+
+    private final ContentAsyncMethods contentMethods;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public EncryptedAttachments(ContentAsyncMethods contentMethods) {
+        this.contentMethods = Objects.requireNonNull(contentMethods, "Content methods must be specified.");
+    }
+
+    /**
+     * Encrypt and upload the attachment.
+     * <br>
+     * The stream is closed after the upload. The file name and the content type aren't sent to the server,
+     * put them to the event content instead.
+     *
+     * @param inputStream The plain content.
+     * @return The encrypted file to put to the event content.
+     */
+    public CompletableFuture<EncryptedFile> upload(InputStream inputStream) {
+        Objects.requireNonNull(inputStream, "InputStream cannot be empty.");
+
+        byte[] key = new byte[KEY_SIZE];
+        random.nextBytes(key);
+        byte[] iv = new byte[IV_SIZE];
+        random.nextBytes(iv);
+        Arrays.fill(iv, IV_RANDOM_SIZE, IV_SIZE, (byte) 0);
+
+        AttachmentCipherInputStream encrypted = new AttachmentCipherInputStream(inputStream, cipher(Cipher.ENCRYPT_MODE, key, iv),
+            Digests.sha256(), true, null);
+        return contentMethods.upload(encrypted, null, CONTENT_TYPE).handle((uri, error) -> {
+            closeQuietly(encrypted);
+            if (error != null) {
+                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            }
+            if (encrypted.getHash() == null) {
+                throw new IllegalStateException("The attachment wasn't uploaded completely");
+            }
+            return encryptedFile(uri.getContentUri(), key, iv, encrypted.getHash());
+        });
+    }
+
+    /**
+     * Encrypt and upload the file.
+     *
+     * @param path The file.
+     * @return The encrypted file to put to the event content.
+     */
+    public CompletableFuture<EncryptedFile> upload(Path path) {
+        try {
+            return upload(Files.newInputStream(path));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Download and decrypt the attachment.
+     * <br>
+     * The hash is verified at the end of the stream: the last read throws the {@link IOException} when the hash doesn't match,
+     * so the data isn't trusted until the stream was read completely. Use the {@link #download(EncryptedFile, Boolean, Path)}
+     * to get only the verified content.
+     *
+     * @param file        The encrypted file from the event content.
+     * @param allowRemote Indicates to the server that it should not attempt to fetch the media if it is deemed remote.
+     * @return The decrypted content.
+     */
+    public CompletableFuture<InputStream> download(EncryptedFile file, Boolean allowRemote) {
+        Cipher cipher;
+        byte[] expectedHash;
+        try {
+            cipher = cipher(Cipher.DECRYPT_MODE, key(file), decode(file.getIv()));
+            expectedHash = expectedHash(file);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return contentMethods.download(file.getUrl(), allowRemote)
+            .thenApply(content -> new AttachmentCipherInputStream(content.getInputStream(), cipher, Digests.sha256(), false, expectedHash));
+    }
+
+    /**
+     * Download, decrypt and verify the attachment to the file.
+     * <br>
+     * The content is written to the temporary file which is moved to the target only after the hash was verified.
+     *
+     * @param file        The encrypted file from the event content.
+     * @param allowRemote Indicates to the server that it should not attempt to fetch the media if it is deemed remote.
+     * @param target      The target file.
+     * @return The target file.
+     */
+    public CompletableFuture<Path> download(EncryptedFile file, Boolean allowRemote, Path target) {
+        Objects.requireNonNull(target, "Target cannot be empty.");
+
+        return download(file, allowRemote).thenApply(inputStream -> {
+            Path directory = target.toAbsolutePath().getParent();
+            Path temp = null;
+            try (InputStream input = inputStream) {
+                temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+                Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return target;
+            } catch (IOException e) {
+                deleteQuietly(temp);
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static EncryptedFile encryptedFile(String url, byte[] key, byte[] iv, byte[] hash) {
+        JWK jwk = new JWK();
+        jwk.setKey("oct");
+        jwk.setKeyOpts(Arrays.asList("encrypt", "decrypt"));
+        jwk.setAlg(ALGORITHM);
+        jwk.setEncodedKey(Base64.getUrlEncoder().withoutPadding().encodeToString(key));
+        jwk.setExt(true);
+
+        EncryptedFile file = new EncryptedFile();
+        file.setUrl(url);
+        file.setKey(jwk);
+        file.setIv(Base64.getEncoder().withoutPadding().encodeToString(iv));
+        Map<String, String> hashes = new HashMap<>();
+        hashes.put(SHA256, Base64.getEncoder().withoutPadding().encodeToString(hash));
+        file.setHashes(hashes);
+        file.setVersion(VERSION);
+        return file;
+    }
+
+    private static byte[] key(EncryptedFile file) {
+        Objects.requireNonNull(file, "File cannot be empty.");
+        JWK jwk = Objects.requireNonNull(file.getKey(), "Key cannot be empty.");
+        if (jwk.getAlg() != null && !ALGORITHM.equals(jwk.getAlg())) {
+            throw new IllegalArgumentException("Unsupported algorithm: " + jwk.getAlg());
+        }
+        byte[] key = Base64.getUrlDecoder().decode(Objects.requireNonNull(jwk.getEncodedKey(), "Key cannot be empty."));
+        if (key.length != KEY_SIZE) {
+            throw new IllegalArgumentException("Invalid key length: " + key.length);
+        }
+        return key;
+    }
+
+    private static byte[] expectedHash(EncryptedFile file) {
+        String hash = file.getHashes() != null ? file.getHashes().get(SHA256) : null;
+        if (hash == null) {
+            throw new IllegalArgumentException("The encrypted file doesn't have the sha256 hash");
+        }
+        return decode(hash);
+    }
+
+    private static byte[] decode(String value) {
+        Objects.requireNonNull(value, "Value cannot be empty.");
+        // unpadded base64, some clients use the url-safe alphabet.
+        return Base64.getDecoder().decode(value.replace('-', '+').replace('_', '/'));
+    }
+
+    private static Cipher cipher(int mode, byte[] key, byte[] iv) {
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(mode, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-CTR isn't supported", e);
+        }
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to close the attachment stream", e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to delete " + path, e);
+        }
+    }
+}
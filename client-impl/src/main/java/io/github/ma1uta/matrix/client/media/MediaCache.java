@@ -0,0 +1,476 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.media;
+
+import io.github.ma1uta.matrix.client.ContentUriModel;
+import io.github.ma1uta.matrix.client.methods.async.ContentAsyncMethods;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Bounded LRU disk cache of the downloaded media and thumbnails.
+ * <br>
+ * Media are keyed by the content URI (and the thumbnail size and method) and stored in the files named by the SHA-256 of the key.
+ * Each file is written to a temporary file and then atomically moved, so readers never see a partial file. Concurrent misses of the same
+ * key share one download. The cache is restored from the directory on start.
+ * <br>
+ * When the cache exceeds the limits the least recently used media are removed, except the media which has just been stored.
+ * <br>
+ * The downloaded content is written to the disk on the {@link Builder#executor(Executor)}, not on the HTTP completion thread.
+ */
+public class MediaCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MediaCache.class);
+
+    private static final String DATA_SUFFIX = ".bin";
+
+    private static final String META_SUFFIX = ".meta";
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final String KEY = "key";
+
+    private static final String SIZE = "size";
+
+    private static final String CONTENT_TYPE = "contentType";
+
+    private static final String FILENAME = "filename";
+
+    private final ContentAsyncMethods contentMethods;
+
+    private final Path directory;
+
+    private final long maxSize;
+
+    private final int maxEntries;
+
+    private final Executor executor;
+
+    private final LinkedHashMap<String, CachedMedia> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<String, CompletableFuture<CachedMedia>> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private long size;
+
+    protected MediaCache(Builder builder) throws IOException {
+        this.contentMethods = Objects.requireNonNull(builder.contentMethods, "Content methods must be specified.");
+        this.directory = Objects.requireNonNull(builder.directory, "Directory must be specified.");
+        this.maxSize = builder.maxSize;
+        this.maxEntries = builder.maxEntries;
+        this.executor = builder.executor != null ? builder.executor : MediaExecutors.io();
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * Download the content.
+     *
+     * @param contentUri  The content URI.
+     * @param allowRemote Indicates to the server that it should not attempt to fetch the media if it is deemed remote.
+     * @return The cached media.
+     */
+    public CompletableFuture<CachedMedia> download(String contentUri, Boolean allowRemote) {
+        String key = ContentUriModel.valueOf(contentUri).toString();
+        return get(key, () -> contentMethods.download(contentUri, allowRemote)
+            .thenApplyAsync(content -> store(key, content.getInputStream(), content.getContentType(), content.getFilename()),
+                executor));
+    }
+
+    /**
+     * Download the content with the given file name.
+     * <br>
+     * The file name doesn't change the content, so the media is shared with the {@link #download(String, Boolean)}.
+     *
+     * @param contentUri  The content URI.
+     * @param filename    The file name to give in the Content-Disposition.
+     * @param allowRemote Indicates to the server that it should not attempt to fetch the media if it is deemed remote.
+     * @return The cached media.
+     */
+    public CompletableFuture<CachedMedia> downloadFile(String contentUri, String filename, Boolean allowRemote) {
+        String key = ContentUriModel.valueOf(contentUri).toString();
+        return get(key, () -> contentMethods.downloadFile(contentUri, filename, allowRemote)
+            .thenApplyAsync(content -> store(key, content.getInputStream(), content.getContentType(), content.getFilename()),
+                executor));
+    }
+
+    /**
+     * Download the thumbnail.
+     *
+     * @param contentUri  The content URI.
+     * @param width       The desired width of the thumbnail.
+     * @param height      The desired height of the thumbnail.
+     * @param method      The desired resizing method. One of: ["crop", "scale"].
+     * @param allowRemote Indicates to the server that it should not attempt to fetch the media if it is deemed remote.
+     * @return The cached thumbnail.
+     */
+    public CompletableFuture<CachedMedia> thumbnail(String contentUri, Long width, Long height, String method, Boolean allowRemote) {
+        String key = String.format("%s#thumbnail/%sx%s/%s", ContentUriModel.valueOf(contentUri), width, height, method);
+        return get(key, () -> contentMethods.thumbnail(contentUri, width, height, method, allowRemote)
+            .thenApplyAsync(thumbnail -> store(key, thumbnail.getInputStream(), thumbnail.getContentType(), null), executor));
+    }
+
+    /**
+     * Remove the media from the cache.
+     *
+     * @param key The cache key.
+     */
+    public void invalidate(String key) {
+        CachedMedia media;
+        synchronized (entries) {
+            media = entries.remove(key);
+            if (media != null) {
+                size -= media.getSize();
+            }
+        }
+        if (media != null) {
+            delete(media);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * The count of the misses which were joined to the download in progress.
+     *
+     * @return The count of the coalesced misses.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * The total size of the cached files.
+     *
+     * @return The size in bytes.
+     */
+    public long getSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    /**
+     * The count of the cached media.
+     *
+     * @return The count of the entries.
+     */
+    public int getEntries() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private CompletableFuture<CachedMedia> get(String key, Supplier<CompletableFuture<CachedMedia>> loader) {
+        CachedMedia cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<CachedMedia> created = new CompletableFuture<>();
+        CompletableFuture<CachedMedia> existing = pending.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+
+        cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            pending.remove(key, created);
+            created.complete(cached);
+            return created.copy();
+        }
+
+        misses.increment();
+        CompletableFuture<CachedMedia> loading;
+        try {
+            loading = loader.get();
+        } catch (RuntimeException e) {
+            loading = CompletableFuture.failedFuture(e);
+        }
+        loading.whenComplete((media, error) -> {
+            pending.remove(key, created);
+            if (error != null) {
+                created.completeExceptionally(error);
+            } else {
+                created.complete(media);
+            }
+        });
+        return created.copy();
+    }
+
+    private CachedMedia lookup(String key) {
+        CachedMedia media;
+        synchronized (entries) {
+            media = entries.get(key);
+        }
+        if (media != null && !Files.exists(media.getPath())) {
+            LOGGER.warn("Cached file {} of {} was removed", media.getPath(), key);
+            invalidate(key);
+            return null;
+        }
+        return media;
+    }
+
+    private CachedMedia store(String key, InputStream inputStream, String contentType, String filename) {
+        String name = hash(key);
+        Path data = directory.resolve(name + DATA_SUFFIX);
+        Path meta = directory.resolve(name + META_SUFFIX);
+        Path dataTmp = null;
+        Path metaTmp = null;
+        try (InputStream input = inputStream) {
+            dataTmp = Files.createTempFile(directory, name, TMP_SUFFIX);
+            long length = Files.copy(input, dataTmp, StandardCopyOption.REPLACE_EXISTING);
+
+            Properties properties = new Properties();
+            properties.setProperty(KEY, key);
+            properties.setProperty(SIZE, Long.toString(length));
+            if (contentType != null) {
+                properties.setProperty(CONTENT_TYPE, contentType);
+            }
+            if (filename != null) {
+                properties.setProperty(FILENAME, filename);
+            }
+            metaTmp = Files.createTempFile(directory, name, TMP_SUFFIX);
+            try (OutputStream output = Files.newOutputStream(metaTmp)) {
+                properties.store(output, null);
+            }
+
+            Files.move(dataTmp, data, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(metaTmp, meta, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            CachedMedia media = new CachedMedia(key, data, length, contentType, filename);
+            put(media);
+            return media;
+        } catch (IOException e) {
+            deleteQuietly(dataTmp);
+            deleteQuietly(metaTmp);
+            throw new CompletionException(new UncheckedIOException("Unable to cache the media " + key, e));
+        }
+    }
+
+    private void put(CachedMedia media) {
+        List<CachedMedia> evicted = new ArrayList<>();
+        synchronized (entries) {
+            CachedMedia previous = entries.put(media.getKey(), media);
+            if (previous != null) {
+                size -= previous.getSize();
+            }
+            size += media.getSize();
+            Iterator<CachedMedia> iterator = entries.values().iterator();
+            while ((size > maxSize || entries.size() > maxEntries) && iterator.hasNext()) {
+                CachedMedia eldest = iterator.next();
+                if (eldest == media) {
+                    break;
+                }
+                iterator.remove();
+                size -= eldest.getSize();
+                evicted.add(eldest);
+            }
+        }
+        for (CachedMedia eldest : evicted) {
+            evictions.increment();
+            delete(eldest);
+        }
+    }
+
+    private void load() throws IOException {
+        List<Path> metas = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TMP_SUFFIX)) {
+                    deleteQuietly(file);
+                } else if (name.endsWith(META_SUFFIX)) {
+                    metas.add(file);
+                } else if (name.endsWith(DATA_SUFFIX)
+                    && !Files.exists(directory.resolve(name.substring(0, name.length() - DATA_SUFFIX.length()) + META_SUFFIX))) {
+                    deleteQuietly(file);
+                }
+            });
+        }
+        metas.sort(Comparator.comparing(MediaCache::lastModified));
+        for (Path meta : metas) {
+            String name = meta.getFileName().toString();
+            Path data = directory.resolve(name.substring(0, name.length() - META_SUFFIX.length()) + DATA_SUFFIX);
+            Properties properties = new Properties();
+            try (InputStream input = Files.newInputStream(meta)) {
+                properties.load(input);
+            }
+            String key = properties.getProperty(KEY);
+            String length = properties.getProperty(SIZE);
+            if (key == null || length == null || !Files.exists(data) || Files.size(data) != Long.parseLong(length)) {
+                LOGGER.warn("Remove the broken cache entry {}", meta);
+                deleteQuietly(data);
+                deleteQuietly(meta);
+                continue;
+            }
+            put(new CachedMedia(key, data, Long.parseLong(length), properties.getProperty(CONTENT_TYPE), properties.getProperty(FILENAME)));
+        }
+        LOGGER.debug("Loaded {} cached media, {} bytes", getEntries(), getSize());
+    }
+
+    private void delete(CachedMedia media) {
+        Path data = media.getPath();
+        String name = data.getFileName().toString();
+        deleteQuietly(directory.resolve(name.substring(0, name.length() - DATA_SUFFIX.length()) + META_SUFFIX));
+        deleteQuietly(data);
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to delete " + path, e);
+        }
+    }
+
+    private static String hash(String key) {
+        return Digests.hex(Digests.sha256().digest(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Create a new builder.
+     *
+     * @return The new builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Cache builder.
+     */
+    public static class Builder {
+
+        private static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+        private static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+        private ContentAsyncMethods contentMethods;
+
+        private Path directory;
+
+        private long maxSize = DEFAULT_MAX_SIZE;
+
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+        private Executor executor;
+
+        /**
+         * Download media with the content methods.
+         *
+         * @param contentMethods The content methods, {@code MatrixClient.contentAsync()}.
+         * @return This builder.
+         */
+        public Builder methods(ContentAsyncMethods contentMethods) {
+            this.contentMethods = contentMethods;
+            return this;
+        }
+
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public Builder maxSize(long maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Write the downloaded content to the disk with the executor.
+         *
+         * @param executor The I/O executor, the shared daemon pool of the media helpers by default.
+         * @return This builder.
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Build the cache and load the cached media from the directory.
+         *
+         * @return The new cache.
+         * @throws IOException when unable to create or read the directory.
+         */
+        public MediaCache build() throws IOException {
+            return new MediaCache(this);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.client.media;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The default executor of the blocking file I/O of the media helpers.
+ * <br>
+ * The reads and writes of the files are moved from the HTTP completion threads and the caller's threads to the shared pool of
+ * the daemon threads. The pool is created on the first use.
+ */
+final class MediaExecutors {
+
+    private MediaExecutors() {
+        // singleton.
+    }
+
+    /**
+     * The shared I/O executor.
+     *
+     * @return The executor.
+     */
+    static Executor io() {
+        return Holder.IO;
+    }
+
+    /**
+     * Lazy holder of the pool.
+     */
+    private static final class Holder {
+
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        private static final ExecutorService IO = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "jmsdk-media-io-" + SEQUENCE.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
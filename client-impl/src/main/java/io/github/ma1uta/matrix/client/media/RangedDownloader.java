@@ -0,0 +1,282 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.media;
+
+import io.github.ma1uta.matrix.client.ContentUriModel;
+import io.github.ma1uta.matrix.client.filter.ErrorFilter;
+import io.github.ma1uta.matrix.client.methods.async.ContentAsyncMethods;
+import io.github.ma1uta.matrix.impl.exception.MatrixException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.ws.rs.core.Response;
+
+/**
+ * Downloads the content to the file by several byte ranges concurrently.
+ * <br>
+ * The first range is used as the probe: when the server answers with 206 and the total length, the file is pre-sized and
+ * the rest of the content is split into the ranges which are requested as soon as the probe headers arrive, so they are
+ * downloaded concurrently with the probe body which is written on the I/O executor. All parts are written with the positional
+ * writes.
+ * When the server answers with 200 the whole content is written from the single stream. When the server doesn't return
+ * the content range or the range isn't satisfiable (for example, the content is empty) the content is downloaded without
+ * the range.
+ */
+public class RangedDownloader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RangedDownloader.class);
+
+    /**
+     * Default count of the concurrent ranges.
+     */
+    public static final int DEFAULT_PARTS = 4;
+
+    /**
+     * Default min size of the range.
+     */
+    public static final long DEFAULT_MIN_PART_SIZE = 4L * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String CONTENT_RANGE = "Content-Range";
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes\\s+(?<start>\\d+)-(?<end>\\d+)/(?<total>\\d+|\\*)");
+
+    private final ContentAsyncMethods contentMethods;
+
+    private final int parts;
+
+    private final long minPartSize;
+
+    private final Executor executor;
+
+    public RangedDownloader(ContentAsyncMethods contentMethods) {
+        this(contentMethods, DEFAULT_PARTS, DEFAULT_MIN_PART_SIZE);
+    }
+
+    public RangedDownloader(ContentAsyncMethods contentMethods, int parts, long minPartSize) {
+        this(contentMethods, parts, minPartSize, null);
+    }
+
+    public RangedDownloader(ContentAsyncMethods contentMethods, int parts, long minPartSize, Executor executor) {
+        this.contentMethods = Objects.requireNonNull(contentMethods, "Content methods must be specified.");
+        if (parts < 1 || minPartSize < 1) {
+            throw new IllegalArgumentException("Parts and min part size must be positive.");
+        }
+        this.parts = parts;
+        this.minPartSize = minPartSize;
+        this.executor = executor != null ? executor : MediaExecutors.io();
+    }
+
+    /**
+     * Download the content to the file.
+     * <br>
+     * The existing file is overwritten. The file is removed when the download fails.
+     *
+     * @param contentUri  The content URI.
+     * @param allowRemote Indicates to the server that it should not attempt to fetch the media if it is deemed remote.
+     * @param target      The target file.
+     * @return The target file.
+     */
+    public CompletableFuture<Path> download(String contentUri, Boolean allowRemote, Path target) {
+        Objects.requireNonNull(target, "Target cannot be empty.");
+        ContentUriModel uri = ContentUriModel.valueOf(contentUri);
+
+        return contentMethods.downloadRange(uri.getServer(), uri.getMediaId(), allowRemote, 0, minPartSize - 1).handle((probe, error) -> {
+            if (error == null) {
+                return probe;
+            }
+            MatrixException matrixException = MatrixException.find(error);
+            if (matrixException != null
+                && Objects.equals(matrixException.getStatus(), ErrorFilter.RANGE_NOT_SATISFIABLE_RESPONSE_STATUS)) {
+                return null;
+            }
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+        }).thenCompose(probe -> {
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException e) {
+                if (probe != null) {
+                    probe.close();
+                }
+                throw new CompletionException(e);
+            }
+            CompletableFuture<Void> result;
+            try {
+                result = download(uri, allowRemote, probe, channel);
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            return result.handle((ignored, error) -> {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to close " + target, e);
+                }
+                if (error != null) {
+                    deleteQuietly(target);
+                    throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                }
+                return target;
+            });
+        });
+    }
+
+    private CompletableFuture<Void> download(ContentUriModel uri, Boolean allowRemote, Response probe, FileChannel channel) {
+        if (probe == null) {
+            LOGGER.debug("Range of {} isn't satisfiable, download it as the single stream", uri);
+            return downloadWhole(uri, allowRemote, channel);
+        }
+        if (probe.getStatus() != HttpURLConnection.HTTP_PARTIAL) {
+            LOGGER.debug("Ranges aren't supported, download {} as the single stream", uri);
+            return CompletableFuture.runAsync(() -> write(probe, channel, 0, -1), executor);
+        }
+
+        Range range = Range.parse(probe.getHeaderString(CONTENT_RANGE));
+        if (range == null || range.start != 0 || range.total < 0) {
+            probe.close();
+            LOGGER.debug("Unknown content range of {}, download it as the single stream", uri);
+            return downloadWhole(uri, allowRemote, channel);
+        }
+
+        long total = range.total;
+        try {
+            if (total > 0) {
+                channel.write(ByteBuffer.allocate(1), total - 1);
+            }
+        } catch (IOException e) {
+            probe.close();
+            throw new UncheckedIOException(e);
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        long remaining = total - range.end - 1;
+        if (remaining > 0) {
+            long partSize = Math.max(minPartSize, (remaining + parts - 1) / parts);
+            for (long start = range.end + 1; start < total; start += partSize) {
+                futures.add(downloadPart(uri, allowRemote, channel, start, Math.min(start + partSize, total) - 1));
+            }
+        }
+        LOGGER.debug("Download {} bytes of {} in {} ranges", total, uri, futures.size() + 1);
+
+        // The rest ranges are already requested, the probe body is written concurrently with them.
+        futures.add(CompletableFuture.runAsync(() -> write(probe, channel, 0, range.end + 1), executor));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    private CompletableFuture<Void> downloadPart(ContentUriModel uri, Boolean allowRemote, FileChannel channel, long from, long to) {
+        return contentMethods.downloadRange(uri.getServer(), uri.getMediaId(), allowRemote, from, to).thenAccept(response -> {
+            Range part = Range.parse(response.getHeaderString(CONTENT_RANGE));
+            if (response.getStatus() != HttpURLConnection.HTTP_PARTIAL || part == null || part.start != from || part.end != to) {
+                response.close();
+                throw new IllegalStateException(String.format("Unexpected response to the range %d-%d of %s", from, to, uri));
+            }
+            write(response, channel, from, to - from + 1);
+        });
+    }
+
+    private CompletableFuture<Void> downloadWhole(ContentUriModel uri, Boolean allowRemote, FileChannel channel) {
+        return contentMethods.download(uri.getServer(), uri.getMediaId(), allowRemote)
+            .thenAccept(content -> write(content.getInputStream(), channel, 0, -1));
+    }
+
+    private static void write(Response response, FileChannel channel, long position, long length) {
+        try {
+            write(response.readEntity(InputStream.class), channel, position, length);
+        } finally {
+            response.close();
+        }
+    }
+
+    private static void write(InputStream inputStream, FileChannel channel, long position, long length) {
+        try (InputStream input = inputStream) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long written = 0;
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    written += channel.write(chunk, position + written);
+                }
+            }
+            if (length >= 0 && written != length) {
+                throw new EOFException(String.format("Expected %d bytes at %d, received %d", length, position, written));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to delete " + path, e);
+        }
+    }
+
+    /**
+     * Parsed Content-Range header.
+     */
+    private static final class Range {
+
+        private final long start;
+
+        private final long end;
+
+        private final long total;
+
+        private Range(long start, long end, long total) {
+            this.start = start;
+            this.end = end;
+            this.total = total;
+        }
+
+        private static Range parse(String header) {
+            if (header == null) {
+                return null;
+            }
+            Matcher matcher = RANGE_PATTERN.matcher(header.trim());
+            if (!matcher.matches()) {
+                return null;
+            }
+            String total = matcher.group("total");
+            return new Range(Long.parseLong(matcher.group("start")), Long.parseLong(matcher.group("end")),
+                "*".equals(total) ? -1L : Long.parseLong(total));
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.media;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Objects;
+
+/**
+ * The upload body with the known length.
+ * <br>
+ * The body is read by the position, so it can be written several times (for example, when the upload is retried).
+ * The file channel is read with the {@link FileChannel#transferTo(long, long, WritableByteChannel)}, the heap buffer is written
+ * without copying.
+ */
+public final class UploadBody implements Closeable {
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer;
+
+    private final long position;
+
+    private final long length;
+
+    private final boolean closeChannel;
+
+    private final UploadProgress progress;
+
+    private final MessageDigest digest;
+
+    private UploadBody(FileChannel channel, ByteBuffer buffer, long position, long length, boolean closeChannel,
+                       UploadProgress progress, MessageDigest digest) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.position = position;
+        this.length = length;
+        this.closeChannel = closeChannel;
+        this.progress = progress;
+        this.digest = digest;
+    }
+
+    /**
+     * Upload the file.
+     * <br>
+     * The file is opened immediately and closed with the body.
+     *
+     * @param path The file to upload.
+     * @return The upload body.
+     * @throws IOException when unable to open the file.
+     */
+    public static UploadBody of(Path path) throws IOException {
+        Objects.requireNonNull(path, "Path cannot be empty.");
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new UploadBody(channel, null, 0, channel.size(), true, null, null);
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Upload the region of the file channel. The channel is not closed with the body.
+     *
+     * @param channel  The file channel.
+     * @param position The start position of the region.
+     * @param length   The length of the region.
+     * @return The upload body.
+     */
+    public static UploadBody of(FileChannel channel, long position, long length) {
+        Objects.requireNonNull(channel, "Channel cannot be empty.");
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException("Position and length must not be negative.");
+        }
+
+        return new UploadBody(channel, null, position, length, false, null, null);
+    }
+
+    /**
+     * Upload the rest of the file channel, from the current position to the end. The channel is not closed with the body.
+     *
+     * @param channel The file channel.
+     * @return The upload body.
+     * @throws IOException when unable to read the channel size.
+     */
+    public static UploadBody of(FileChannel channel) throws IOException {
+        Objects.requireNonNull(channel, "Channel cannot be empty.");
+
+        long start = channel.position();
+        return of(channel, start, channel.size() - start);
+    }
+
+    /**
+     * Upload the remaining bytes of the buffer. The position of the buffer isn't changed.
+     *
+     * @param buffer The buffer.
+     * @return The upload body.
+     */
+    public static UploadBody of(ByteBuffer buffer) {
+        Objects.requireNonNull(buffer, "Buffer cannot be empty.");
+
+        ByteBuffer content = buffer.slice();
+        return new UploadBody(null, content, 0, content.remaining(), false, null, null);
+    }
+
+    /**
+     * Create the body with the progress listener.
+     *
+     * @param listener The progress listener.
+     * @return The new body with the same content.
+     */
+    public UploadBody withProgress(UploadProgress listener) {
+        return new UploadBody(channel, buffer, position, length, closeChannel, listener, digest);
+    }
+
+    /**
+     * Create the body which updates the digest with the written bytes, so the content is hashed without the separate read.
+     * <br>
+     * The digest is reset on each write, after the write it contains the whole content.
+     *
+     * @param contentDigest The digest.
+     * @return The new body with the same content.
+     */
+    public UploadBody withDigest(MessageDigest contentDigest) {
+        return new UploadBody(channel, buffer, position, length, closeChannel, progress, contentDigest);
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Write the body.
+     *
+     * @param outputStream The output stream.
+     * @throws IOException when unable to read the content or write the stream.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        OutputStream target = outputStream;
+        if (digest != null) {
+            digest.reset();
+            target = new DigestOutputStream(outputStream, digest);
+        }
+        if (buffer != null) {
+            writeBuffer(target);
+        } else {
+            writeChannel(target);
+        }
+        target.flush();
+    }
+
+    private void writeBuffer(OutputStream outputStream) throws IOException {
+        ByteBuffer content = buffer.duplicate();
+        byte[] chunk = content.hasArray() ? null : new byte[(int) Math.min(CHUNK_SIZE, length)];
+        long written = 0;
+        while (written < length) {
+            int count = (int) Math.min(CHUNK_SIZE, length - written);
+            if (chunk == null) {
+                outputStream.write(content.array(), content.arrayOffset() + (int) written, count);
+            } else {
+                content.get(chunk, 0, count);
+                outputStream.write(chunk, 0, count);
+            }
+            written += count;
+            progress(written);
+        }
+    }
+
+    private void writeChannel(OutputStream outputStream) throws IOException {
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        long written = 0;
+        while (written < length) {
+            long count = channel.transferTo(position + written, Math.min(CHUNK_SIZE, length - written), target);
+            if (count <= 0) {
+                throw new EOFException(String.format("The file is shorter than expected: %d of %d bytes", written, length));
+            }
+            written += count;
+            progress(written);
+        }
+    }
+
+    private void progress(long written) {
+        if (progress != null) {
+            progress.progress(written, length);
+        }
+    }
+
+    /**
+     * Close the file opened by the {@link #of(Path)}.
+     *
+     * @throws IOException when unable to close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closeChannel) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.media;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Writer of the {@link UploadBody}.
+ * <br>
+ * Sets the Content-Length header from the body length before the body is written, so the transport sends the fixed-length
+ * body instead of the chunked or buffered one. The deprecated {@link MessageBodyWriter#getSize} is ignored by JAX-RS 2.x
+ * implementations and is reported only for the older ones.
+ */
+@Provider
+public class UploadBodyWriter implements MessageBodyWriter<UploadBody> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return UploadBody.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(UploadBody uploadBody, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return uploadBody.getLength();
+    }
+
+    @Override
+    public void writeTo(UploadBody uploadBody, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, uploadBody.getLength());
+        uploadBody.writeTo(entityStream);
+    }
+}
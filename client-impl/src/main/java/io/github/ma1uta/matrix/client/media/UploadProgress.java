@@ -0,0 +1,34 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.media;
+
+/**
+ * Upload progress listener.
+ */
+@FunctionalInterface
+public interface UploadProgress {
+
+    /**
+     * Invoked after each written chunk of the upload body.
+     * <br>
+     * The listener is invoked on the transport thread, so it should return quickly.
+     *
+     * @param transferred The count of written bytes.
+     * @param total       The length of the upload body.
+     */
+    void progress(long transferred, long total);
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.methods.async;
+
+import io.github.ma1uta.matrix.client.filter.ErrorFilter;
+import io.github.ma1uta.matrix.client.model.profile.Profile;
+import io.github.ma1uta.matrix.client.model.room.InviteRequest;
+import io.github.ma1uta.matrix.common.EmptyResponse;
+import io.github.ma1uta.matrix.common.RateLimitedErrorResponse;
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.impl.exception.MatrixException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bulk methods.
+ * <br>
+ * Run the operation for each item of the collection with the bounded count of the simultaneous requests. When the homeserver
+ * responds with the rate-limited error the whole operation is paused for the requested delay: the item is retried and the
+ * other items are started only after the pause.
+ */
+public class BulkAsyncMethods {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkAsyncMethods.class);
+
+    /**
+     * Option to set the default count of the simultaneous requests.
+     */
+    public static final String CONCURRENCY = "jmsdk.bulk.concurrency";
+
+    /**
+     * Default count of the simultaneous requests.
+     */
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    /**
+     * Default count of the retries of the rate-limited request.
+     */
+    public static final int DEFAULT_MAX_RETRIES = 5;
+
+    /**
+     * Retry delay when the homeserver doesn't specify it.
+     */
+    public static final long DEFAULT_RETRY_DELAY = 1000L;
+
+    private final ProfileAsyncMethods profileMethods;
+
+    private final RoomAsyncMethods roomMethods;
+
+    private final EventAsyncMethods eventMethods;
+
+    private final Executor executor;
+
+    private final int concurrency;
+
+    private final int maxRetries;
+
+    public BulkAsyncMethods(ProfileAsyncMethods profileMethods, RoomAsyncMethods roomMethods, EventAsyncMethods eventMethods,
+                            Executor executor) {
+        this(profileMethods, roomMethods, eventMethods, executor, Integer.getInteger(CONCURRENCY, DEFAULT_CONCURRENCY),
+            DEFAULT_MAX_RETRIES);
+    }
+
+    public BulkAsyncMethods(ProfileAsyncMethods profileMethods, RoomAsyncMethods roomMethods, EventAsyncMethods eventMethods,
+                            Executor executor, int concurrency, int maxRetries) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive.");
+        }
+        this.profileMethods = profileMethods;
+        this.roomMethods = roomMethods;
+        this.eventMethods = eventMethods;
+        this.executor = executor != null ? executor : ForkJoinPool.commonPool();
+        this.concurrency = concurrency;
+        this.maxRetries = Math.max(maxRetries, 0);
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Create bulk methods with the specified limits.
+     *
+     * @param concurrency The maximum count of the simultaneous requests.
+     * @param maxRetries  The maximum count of the retries of the rate-limited request.
+     * @return The new bulk methods.
+     */
+    public BulkAsyncMethods withLimits(int concurrency, int maxRetries) {
+        return new BulkAsyncMethods(profileMethods, roomMethods, eventMethods, executor, concurrency, maxRetries);
+    }
+
+    /**
+     * Fetch profiles of the users.
+     *
+     * @param userIds    The user ids.
+     * @param onComplete The callback which is invoked for each user when the request completes.
+     * @return The results in the order of the user ids.
+     */
+    public CompletableFuture<List<BulkResult<String, Profile>>> profiles(Collection<String> userIds,
+                                                                          Consumer<BulkResult<String, Profile>> onComplete) {
+        return execute(userIds, profileMethods::profile, onComplete);
+    }
+
+    /**
+     * Invite users to the room.
+     *
+     * @param roomId     The room identifier (not alias) to which to invite users.
+     * @param requests   The invite information.
+     * @param onComplete The callback which is invoked for each invite when the request completes.
+     * @return The results in the order of the requests.
+     */
+    public CompletableFuture<List<BulkResult<InviteRequest, EmptyResponse>>> invite(
+        String roomId, Collection<InviteRequest> requests, Consumer<BulkResult<InviteRequest, EmptyResponse>> onComplete) {
+        Objects.requireNonNull(roomId, "RoomId cannot be empty.");
+
+        return execute(requests, request -> roomMethods.invite(roomId, request), onComplete);
+    }
+
+    /**
+     * Get the state events of the rooms.
+     *
+     * @param roomIds    The room ids.
+     * @param onComplete The callback which is invoked for each room when the request completes.
+     * @return The results in the order of the room ids.
+     */
+    public CompletableFuture<List<BulkResult<String, List<Event>>>> roomStates(Collection<String> roomIds,
+                                                                                Consumer<BulkResult<String, List<Event>>> onComplete) {
+        return execute(roomIds, eventMethods::roomState, onComplete);
+    }
+
+    /**
+     * Run the action for each item.
+     * <br>
+     * No more than {@link #getConcurrency()} actions are running at the same time. Failed items don't stop the operation,
+     * errors are returned in the results.
+     *
+     * @param items      The items.
+     * @param action     The action.
+     * @param onComplete The callback which is invoked for each item when the action completes. May be {@code null}.
+     * @param <T>        The item type.
+     * @param <R>        The result type.
+     * @return The results in the order of the items.
+     */
+    public <T, R> CompletableFuture<List<BulkResult<T, R>>> execute(Collection<T> items, Function<T, ? extends CompletionStage<R>> action,
+                                                                   Consumer<BulkResult<T, R>> onComplete) {
+        Objects.requireNonNull(items, "Items cannot be empty.");
+        Objects.requireNonNull(action, "Action cannot be empty.");
+
+        if (items.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        BulkRun<T, R> run = new BulkRun<>(items, action, onComplete);
+        for (int i = 0; i < Math.min(concurrency, items.size()); i++) {
+            run.next();
+        }
+        return run.done;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        MatrixException matrixException = MatrixException.find(error);
+        if (matrixException != null) {
+            return matrixException;
+        }
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * One bulk operation.
+     *
+     * @param <T> The item type.
+     * @param <R> The result type.
+     */
+    private class BulkRun<T, R> {
+
+        private final Iterator<T> iterator;
+
+        private final Function<T, ? extends CompletionStage<R>> action;
+
+        private final Consumer<BulkResult<T, R>> onComplete;
+
+        private final BulkResult<T, R>[] results;
+
+        private final AtomicInteger remaining;
+
+        // the moment in nanos until which the new attempts are delayed after the rate-limited response.
+        private final AtomicLong pausedUntil = new AtomicLong(System.nanoTime());
+
+        private final CompletableFuture<List<BulkResult<T, R>>> done = new CompletableFuture<>();
+
+        private int index = 0;
+
+        @SuppressWarnings("unchecked")
+        BulkRun(Collection<T> items, Function<T, ? extends CompletionStage<R>> action, Consumer<BulkResult<T, R>> onComplete) {
+            this.iterator = new ArrayList<>(items).iterator();
+            this.action = action;
+            this.onComplete = onComplete;
+            this.results = new BulkResult[items.size()];
+            this.remaining = new AtomicInteger(items.size());
+        }
+
+        void next() {
+            T item;
+            int position;
+            synchronized (this) {
+                if (!iterator.hasNext()) {
+                    return;
+                }
+                item = iterator.next();
+                position = index++;
+            }
+            attempt(item, position, 0);
+        }
+
+        private void attempt(T item, int position, int retry) {
+            long pause = pausedUntil.get() - System.nanoTime();
+            if (pause > 0) {
+                CompletableFuture.runAsync(() -> attempt(item, position, retry),
+                    CompletableFuture.delayedExecutor(pause, TimeUnit.NANOSECONDS, executor));
+                return;
+            }
+            CompletableFuture<R> future;
+            try {
+                future = action.apply(item).toCompletableFuture();
+            } catch (Exception e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenCompleteAsync((value, error) -> {
+                if (error != null) {
+                    long delay = retryDelay(error, retry);
+                    if (delay >= 0) {
+                        LOGGER.debug("Rate limited, pause the operation for {} ms", delay);
+                        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                        pausedUntil.accumulateAndGet(deadline, (current, next) -> next - current > 0 ? next : current);
+                        attempt(item, position, retry + 1);
+                        return;
+                    }
+                }
+                complete(position, new BulkResult<>(item, value, error != null ? unwrap(error) : null));
+            }, executor);
+        }
+
+        private long retryDelay(Throwable error, int retry) {
+            if (retry >= maxRetries) {
+                return -1L;
+            }
+            MatrixException matrixException = MatrixException.find(error);
+            if (matrixException == null || !Objects.equals(matrixException.getStatus(), ErrorFilter.RATE_LIMIT_RESPONSE_STATUS)) {
+                return -1L;
+            }
+            if (matrixException.getResponse() instanceof RateLimitedErrorResponse) {
+                Long retryAfter = ((RateLimitedErrorResponse) matrixException.getResponse()).getRetryAfterMs();
+                if (retryAfter != null && retryAfter >= 0) {
+                    return retryAfter;
+                }
+            }
+            return DEFAULT_RETRY_DELAY;
+        }
+
+        private void complete(int position, BulkResult<T, R> result) {
+            results[position] = result;
+            if (onComplete != null) {
+                try {
+                    onComplete.accept(result);
+                } catch (Exception e) {
+                    LOGGER.error("Callback failed", e);
+                }
+            }
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(Arrays.asList(results));
+            } else {
+                next();
+            }
+        }
+    }
+}
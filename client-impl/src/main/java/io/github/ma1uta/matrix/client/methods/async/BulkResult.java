@@ -0,0 +1,59 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.methods.async;
+
+/**
+ * Result of the one item of the bulk operation.
+ *
+ * @param <T> The item type.
+ * @param <R> The result type.
+ */
+public class BulkResult<T, R> {
+
+    private final T item;
+
+    private final R value;
+
+    private final Throwable error;
+
+    public BulkResult(T item, R value, Throwable error) {
+        this.item = item;
+        this.value = value;
+        this.error = error;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    public R getValue() {
+        return value;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Whether the item completed successfully.
+     *
+     * @return {@code true} if the item completed without error, else {@code false}.
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.methods.async;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Limits the count of the concurrently running asynchronous tasks without blocking the caller.
+ * <br>
+ * The task which exceeds the limit is queued and started when one of the running tasks completes.
+ */
+final class ConcurrencyLimiter {
+
+    private final int limit;
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    ConcurrencyLimiter(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive.");
+        }
+        this.limit = limit;
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<? extends CompletionStage<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        pending.add(() -> start(task, result));
+        drain();
+        return result;
+    }
+
+    int getActive() {
+        return active.get();
+    }
+
+    private void drain() {
+        while (!pending.isEmpty()) {
+            int current = active.get();
+            if (current >= limit) {
+                return;
+            }
+            if (active.compareAndSet(current, current + 1)) {
+                Runnable next = pending.poll();
+                if (next == null) {
+                    active.decrementAndGet();
+                } else {
+                    next.run();
+                }
+            }
+        }
+    }
+
+    private <T> void start(Supplier<? extends CompletionStage<T>> task, CompletableFuture<T> result) {
+        CompletionStage<T> stage;
+        try {
+            stage = task.get();
+        } catch (RuntimeException e) {
+            stage = CompletableFuture.failedFuture(e);
+        }
+        stage.whenComplete((value, error) -> {
+            active.decrementAndGet();
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+            drain();
+        });
+    }
+}
@@ -17,12 +17,20 @@
 package io.github.ma1uta.matrix.client.methods.async;
 
 import io.github.ma1uta.matrix.client.ContentUriModel;
+import io.github.ma1uta.matrix.client.media.UploadBody;
+import io.github.ma1uta.matrix.client.media.UploadProgress;
 import io.github.ma1uta.matrix.client.model.content.ContentConfig;
 import io.github.ma1uta.matrix.client.model.content.ContentUri;
 import io.github.ma1uta.matrix.client.rest.async.ContentApi;
 import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
@@ -36,11 +44,29 @@ import javax.ws.rs.core.Response;
  */
 public class ContentAsyncMethods {
 
+    /**
+     * Property name of the max count of the concurrent uploads of the {@link UploadBody}.
+     */
+    public static final String UPLOAD_CONCURRENCY = "jmsdk.upload.concurrency";
+
+    /**
+     * Default max count of the concurrent uploads.
+     */
+    public static final int DEFAULT_UPLOAD_CONCURRENCY = 4;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContentAsyncMethods.class);
+
     private final ContentApi contentApi;
+    private final ConcurrencyLimiter uploadLimiter;
     private static final Pattern CONTENT_DISPOSITION = Pattern.compile("filename=\"?(.*)\"?");
 
     public ContentAsyncMethods(RestClientBuilder restClientBuilder) {
+        this(restClientBuilder, Integer.getInteger(UPLOAD_CONCURRENCY, DEFAULT_UPLOAD_CONCURRENCY));
+    }
+
+    public ContentAsyncMethods(RestClientBuilder restClientBuilder, int uploadConcurrency) {
         this.contentApi = restClientBuilder.build(ContentApi.class);
+        this.uploadLimiter = new ConcurrencyLimiter(uploadConcurrency);
     }
 
     /**
@@ -55,6 +81,86 @@ public class ContentAsyncMethods {
         return contentApi.upload(inputStream, filename, contentType).toCompletableFuture();
     }
 
+    /**
+     * Upload the file to the content repository.
+     * <br>
+     * The file is streamed with the known length and opened only when the upload starts,
+     * so the queued uploads don't hold the file descriptors.
+     *
+     * @param path        The file.
+     * @param filename    The name of the file being uploaded.
+     * @param contentType Mime-type.
+     * @param progress    The progress listener. May be {@code null}.
+     * @return The MXC URI to the uploaded content.
+     */
+    public CompletableFuture<ContentUri> upload(Path path, String filename, String contentType, UploadProgress progress) {
+        return upload(path, filename, contentType, progress, null);
+    }
+
+    /**
+     * Upload the file to the content repository and hash the uploaded bytes.
+     * <br>
+     * The file is read once, the digest is updated while the file is written to the request.
+     *
+     * @param path        The file.
+     * @param filename    The name of the file being uploaded.
+     * @param contentType Mime-type.
+     * @param progress    The progress listener. May be {@code null}.
+     * @param digest      The digest of the uploaded content. May be {@code null}.
+     * @return The MXC URI to the uploaded content.
+     */
+    public CompletableFuture<ContentUri> upload(Path path, String filename, String contentType, UploadProgress progress,
+                                                MessageDigest digest) {
+        Objects.requireNonNull(path, "Path cannot be empty.");
+
+        return uploadLimiter.submit(() -> {
+            UploadBody body;
+            try {
+                body = UploadBody.of(path).withProgress(progress).withDigest(digest);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return contentApi.uploadBody(body, filename, contentType).whenComplete((uri, error) -> {
+                try {
+                    body.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to close the file: " + path, e);
+                }
+            });
+        });
+    }
+
+    /**
+     * Upload the remaining bytes of the buffer to the content repository.
+     *
+     * @param buffer      The content.
+     * @param filename    The name of the file being uploaded.
+     * @param contentType Mime-type.
+     * @param progress    The progress listener. May be {@code null}.
+     * @return The MXC URI to the uploaded content.
+     */
+    public CompletableFuture<ContentUri> upload(ByteBuffer buffer, String filename, String contentType, UploadProgress progress) {
+        return upload(UploadBody.of(buffer), filename, contentType, progress);
+    }
+
+    /**
+     * Upload the body with the known length to the content repository.
+     * <br>
+     * At most {@link #UPLOAD_CONCURRENCY} bodies are uploaded concurrently, the rest are queued. The body isn't closed.
+     *
+     * @param body        The content.
+     * @param filename    The name of the file being uploaded.
+     * @param contentType Mime-type.
+     * @param progress    The progress listener. May be {@code null}.
+     * @return The MXC URI to the uploaded content.
+     */
+    public CompletableFuture<ContentUri> upload(UploadBody body, String filename, String contentType, UploadProgress progress) {
+        Objects.requireNonNull(body, "Body cannot be empty.");
+
+        UploadBody content = progress != null ? body.withProgress(progress) : body;
+        return uploadLimiter.submit(() -> contentApi.uploadBody(content, filename, contentType));
+    }
+
     /**
      * Download content from the content repository.
      *
@@ -87,6 +193,27 @@ public class ContentAsyncMethods {
             .thenApply(ContentAsyncMethods::toContent);
     }
 
+    /**
+     * Download the byte range of the content from the content repository.
+     * <br>
+     * The response has the status 206 with the Content-Range header when the server supports ranges or the status 200 with
+     * the whole content otherwise. The caller must close the response.
+     *
+     * @param serverName  The server name from the mxc:// URI (the authoritory component).
+     * @param mediaId     The media ID from the mxc:// URI (the path component).
+     * @param allowRemote Indicates to the server that it should not attempt to fetch the media if it is deemed remote.
+     *                    This is to prevent routing loops where the server contacts itself. Defaults to true if not provided.
+     * @param from        The first byte of the range.
+     * @param to          The last byte of the range, inclusive.
+     * @return The raw response.
+     */
+    public CompletableFuture<Response> downloadRange(String serverName, String mediaId, Boolean allowRemote, long from, long to) {
+        Objects.requireNonNull(serverName, "ServerName cannot be empty.");
+        Objects.requireNonNull(mediaId, "MediaId cannot be empty.");
+
+        return contentApi.downloadRange(serverName, mediaId, allowRemote, String.format("bytes=%d-%d", from, to)).toCompletableFuture();
+    }
+
     /**
      * Download content from the content repository.
      *
@@ -187,12 +314,12 @@ public class ContentAsyncMethods {
 
     public static Content toContent(Response response) {
         String contentDisposition = response.getHeaderString(HttpHeaders.CONTENT_DISPOSITION);
-        Matcher matcher = CONTENT_DISPOSITION.matcher(contentDisposition);
-        String filename;
-        if (matcher.find()) {
-            filename = matcher.group(1);
-        } else {
-            filename = contentDisposition;
+        String filename = contentDisposition;
+        if (contentDisposition != null) {
+            Matcher matcher = CONTENT_DISPOSITION.matcher(contentDisposition);
+            if (matcher.find()) {
+                filename = matcher.group(1);
+            }
         }
         String contentType = response.getHeaderString(HttpHeaders.CONTENT_TYPE);
         return new Content(response.readEntity(InputStream.class), filename, contentType);
@@ -37,6 +37,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.ServiceLoader;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * EventAsyncMethods api.
@@ -151,6 +152,25 @@ public class EventAsyncMethods {
         return eventApi.messages(roomId, from, to, dir, limit, filter).toCompletableFuture();
     }
 
+    /**
+     * Same as {@link #messages(String, String, String, String, Integer, String)} but returns the raw JSON of the page without decoding.
+     *
+     * @param roomId The room to get events from.
+     * @param from   The token to start returning events from.
+     * @param to     The token to stop returning events at.
+     * @param dir    The direction to return events from.
+     * @param limit  The maximum number of events to return.
+     * @param filter A JSON RoomEventFilter to filter returned events with.
+     * @return The raw JSON of the page.
+     */
+    public CompletableFuture<byte[]> rawMessages(String roomId, String from, String to, String dir, Integer limit, String filter) {
+        Objects.requireNonNull(roomId, "RoomId cannot be empty.");
+        Objects.requireNonNull(from, "From cannot be empty.");
+        Objects.requireNonNull(dir, "Dir cannot be empty.");
+
+        return eventApi.messagesRaw(roomId, from, to, dir, limit, filter).toCompletableFuture();
+    }
+
     /**
      * State events can be sent using this endpoint. These events will be overwritten if (room id), (event type) and (state key) all match.
      *
@@ -281,4 +301,26 @@ public class EventAsyncMethods {
 
         return sendEvent(roomId, RoomMessage.TYPE, payload);
     }
+
+    /**
+     * Stream of the room messages and state events.
+     * <br>
+     * Follows the pagination tokens and fetches the next pages in the background while the current page is consumed.
+     *
+     * @param roomId   The room to get events from.
+     * @param from     The token to start returning events from.
+     * @param dir      The direction to return events from.
+     * @param limit    The maximum number of events to return per page.
+     * @param filter   A JSON RoomEventFilter to filter returned events with.
+     * @param prefetch The maximum count of the pages fetched ahead.
+     * @return The stream of events. Close the stream to stop prefetching if it isn't consumed fully.
+     */
+    public Stream<Event> messagesStream(String roomId, String from, String dir, Integer limit, String filter, int prefetch) {
+        Objects.requireNonNull(roomId, "RoomId cannot be empty.");
+        Objects.requireNonNull(from, "From cannot be empty.");
+        Objects.requireNonNull(dir, "Dir cannot be empty.");
+
+        return PrefetchIterator.stream(from, token -> messages(roomId, token, null, dir, limit, filter), Page::getChunk, Page::getEnd,
+            prefetch);
+    }
 }
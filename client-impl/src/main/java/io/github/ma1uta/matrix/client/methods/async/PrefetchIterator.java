@@ -0,0 +1,221 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.methods.async;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterator over the paginated endpoint.
+ * <br>
+ * Follows the pagination tokens and requests the next pages in the background while the current page is consumed. No more than
+ * {@code prefetch} pages are fetched ahead of the consumer.
+ *
+ * @param <P> The page type.
+ * @param <T> The item type.
+ */
+public class PrefetchIterator<P, T> implements Iterator<T>, AutoCloseable {
+
+    /**
+     * Option to set the default count of the prefetched pages.
+     */
+    public static final String PREFETCH = "jmsdk.pagination.prefetch";
+
+    /**
+     * Default count of the prefetched pages.
+     */
+    public static final int DEFAULT_PREFETCH = 2;
+
+    private static final Object END = new Object();
+
+    private final Function<String, CompletableFuture<P>> fetcher;
+
+    private final Function<P, List<T>> items;
+
+    private final Function<P, String> nextToken;
+
+    private final BlockingQueue<Object> pages = new LinkedBlockingQueue<>();
+
+    private final Object lock = new Object();
+
+    private int credits;
+
+    private String pendingToken;
+
+    private boolean inFlight;
+
+    private volatile boolean closed;
+
+    private boolean finished;
+
+    private Iterator<T> current = Collections.emptyIterator();
+
+    /**
+     * Create a new iterator and request the first page.
+     *
+     * @param from      The token of the first page, may be {@code null}.
+     * @param fetcher   The function to request the page by the token.
+     * @param items     The function to extract items from the page.
+     * @param nextToken The function to extract the token of the next page. The pagination stops when the token is {@code null}.
+     * @param prefetch  The maximum count of the pages fetched ahead.
+     */
+    public PrefetchIterator(String from, Function<String, CompletableFuture<P>> fetcher, Function<P, List<T>> items,
+                            Function<P, String> nextToken, int prefetch) {
+        this.fetcher = Objects.requireNonNull(fetcher, "Fetcher cannot be empty.");
+        this.items = Objects.requireNonNull(items, "Items cannot be empty.");
+        this.nextToken = Objects.requireNonNull(nextToken, "Next token cannot be empty.");
+        this.credits = Math.max(prefetch, 1);
+        fetch(from);
+    }
+
+    /**
+     * Create a new sequential stream over items. Closing the stream stops the prefetching.
+     *
+     * @param from      The token of the first page, may be {@code null}.
+     * @param fetcher   The function to request the page by the token.
+     * @param items     The function to extract items from the page.
+     * @param nextToken The function to extract the token of the next page. The pagination stops when the token is {@code null}.
+     * @param prefetch  The maximum count of the pages fetched ahead.
+     * @param <P>       The page type.
+     * @param <T>       The item type.
+     * @return The stream of the items.
+     */
+    public static <P, T> Stream<T> stream(String from, Function<String, CompletableFuture<P>> fetcher, Function<P, List<T>> items,
+                                          Function<P, String> nextToken, int prefetch) {
+        PrefetchIterator<P, T> iterator = new PrefetchIterator<>(from, fetcher, items, nextToken, prefetch);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(iterator::close);
+    }
+
+    private void fetch(String token) {
+        synchronized (lock) {
+            credits--;
+            inFlight = true;
+        }
+        CompletableFuture<P> future;
+        try {
+            future = fetcher.apply(token);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((page, error) -> {
+            try {
+                receive(token, page, error);
+            } catch (Exception e) {
+                pages.add(new CompletionException(e));
+            }
+        });
+    }
+
+    private void receive(String token, P page, Throwable error) {
+        if (error != null) {
+            pages.add(error instanceof CompletionException ? error : new CompletionException(error));
+            return;
+        }
+        if (page == null) {
+            pages.add(END);
+            return;
+        }
+        String next = nextToken.apply(page);
+        List<T> pageItems = items.apply(page);
+        pages.add(page);
+        if (next == null || next.equals(token) || pageItems == null || pageItems.isEmpty()) {
+            pages.add(END);
+            return;
+        }
+        synchronized (lock) {
+            inFlight = false;
+            pendingToken = next;
+        }
+        fetchNext();
+    }
+
+    private void fetchNext() {
+        String token;
+        synchronized (lock) {
+            if (closed || inFlight || pendingToken == null || credits <= 0) {
+                return;
+            }
+            token = pendingToken;
+            pendingToken = null;
+        }
+        fetch(token);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (finished || closed) {
+                return false;
+            }
+            Object page;
+            try {
+                page = pages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new CompletionException(e);
+            }
+            if (page == END) {
+                finished = true;
+                return false;
+            }
+            if (page instanceof CompletionException) {
+                finished = true;
+                throw (CompletionException) page;
+            }
+            synchronized (lock) {
+                credits++;
+            }
+            fetchNext();
+            List<T> pageItems = items.apply((P) page);
+            current = pageItems == null ? Collections.emptyIterator() : pageItems.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Stop the prefetching and the iteration. The already requested page isn't cancelled. The consumer waiting for the next page
+     * is woken up and sees the end of the iteration.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pages.offer(END);
+    }
+}
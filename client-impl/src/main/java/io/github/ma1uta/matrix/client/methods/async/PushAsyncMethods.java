@@ -16,6 +16,7 @@
 
 package io.github.ma1uta.matrix.client.methods.async;
 
+import io.github.ma1uta.matrix.client.model.push.Notification;
 import io.github.ma1uta.matrix.client.model.push.NotificationResponse;
 import io.github.ma1uta.matrix.client.model.push.PushActions;
 import io.github.ma1uta.matrix.client.model.push.PushEnable;
@@ -31,6 +32,7 @@ import org.eclipse.microprofile.rest.client.RestClientBuilder;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Push methods.
@@ -215,4 +217,20 @@ public class PushAsyncMethods {
 
         return pushApi.setActions(scope, kind, ruleId, request).toCompletableFuture();
     }
+
+    /**
+     * Stream of the notifications.
+     * <br>
+     * Follows the pagination tokens and fetches the next pages in the background while the current page is consumed.
+     *
+     * @param only     Allows basic filtering of events returned. Supply "highlight" to return only events where the notification
+     *                 had the highlight tweak set.
+     * @param limit    Limit on the number of events to return per page.
+     * @param prefetch The maximum count of the pages fetched ahead.
+     * @return The stream of the notifications. Close the stream to stop prefetching if it isn't consumed fully.
+     */
+    public Stream<Notification> notificationsStream(String only, Long limit, int prefetch) {
+        return PrefetchIterator.stream(null, token -> notifications(token, only, limit), NotificationResponse::getNotifications,
+            NotificationResponse::getNextToken, prefetch);
+    }
 }
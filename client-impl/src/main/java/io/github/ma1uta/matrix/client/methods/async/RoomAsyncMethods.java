@@ -22,6 +22,7 @@ import io.github.ma1uta.matrix.client.model.room.JoinRequest;
 import io.github.ma1uta.matrix.client.model.room.JoinedRoomsResponse;
 import io.github.ma1uta.matrix.client.model.room.KickRequest;
 import io.github.ma1uta.matrix.client.model.room.NewVersion;
+import io.github.ma1uta.matrix.client.model.room.PublicRoomsChunk;
 import io.github.ma1uta.matrix.client.model.room.PublicRoomsRequest;
 import io.github.ma1uta.matrix.client.model.room.PublicRoomsResponse;
 import io.github.ma1uta.matrix.client.model.room.ReplacementRoom;
@@ -36,6 +37,7 @@ import org.eclipse.microprofile.rest.client.RestClientBuilder;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Room api.
@@ -298,4 +300,19 @@ public class RoomAsyncMethods {
 
         return roomApi.upgrade(roomId, request).toCompletableFuture();
     }
+
+    /**
+     * Stream of the public rooms on the server.
+     * <br>
+     * Follows the pagination tokens and fetches the next pages in the background while the current page is consumed.
+     *
+     * @param limit    Limit the number of results returned per page.
+     * @param server   The server to fetch the public room lists from. Defaults to the local server.
+     * @param prefetch The maximum count of the pages fetched ahead.
+     * @return The stream of the rooms. Close the stream to stop prefetching if it isn't consumed fully.
+     */
+    public Stream<PublicRoomsChunk> publicRoomsStream(Long limit, String server, int prefetch) {
+        return PrefetchIterator.stream(null, token -> showPublicRooms(limit, token, server), PublicRoomsResponse::getChunk,
+            PublicRoomsResponse::getNextBatch, prefetch);
+    }
 }
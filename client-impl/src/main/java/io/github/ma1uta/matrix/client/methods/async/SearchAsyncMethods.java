@@ -21,8 +21,10 @@ import io.github.ma1uta.matrix.client.model.search.SearchResponse;
 import io.github.ma1uta.matrix.client.rest.async.SearchApi;
 import org.eclipse.microprofile.rest.client.RestClientBuilder;
 
+import java.util.Collections;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Search methods.
@@ -48,4 +50,27 @@ public class SearchAsyncMethods {
 
         return searchApi.search(nextBatch, request).toCompletableFuture();
     }
+
+    /**
+     * Stream of the search result pages.
+     * <br>
+     * Follows the next_batch tokens and fetches the next pages in the background while the current page is consumed.
+     *
+     * @param request  The search request.
+     * @param prefetch The maximum count of the pages fetched ahead.
+     * @return The stream of the search results. Close the stream to stop prefetching if it isn't consumed fully.
+     */
+    public Stream<SearchResponse> searchStream(SearchRequest request, int prefetch) {
+        Objects.requireNonNull(request.getSearchCategories(), "Search categories cannot be empty.");
+
+        return PrefetchIterator.stream(null, token -> search(request, token), Collections::singletonList, SearchAsyncMethods::nextBatch,
+            prefetch);
+    }
+
+    private static String nextBatch(SearchResponse response) {
+        if (response.getSearchCategories() == null || response.getSearchCategories().getRoomEvents() == null) {
+            return null;
+        }
+        return response.getSearchCategories().getRoomEvents().getNextBatch();
+    }
 }
@@ -18,10 +18,17 @@ package io.github.ma1uta.matrix.client.methods.blocked;
 
 import io.github.ma1uta.matrix.client.model.sync.SyncResponse;
 import io.github.ma1uta.matrix.client.rest.blocked.SyncApi;
+import io.github.ma1uta.matrix.client.sync.SyncStatistics;
 import io.github.ma1uta.matrix.common.Page;
 import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.impl.Deserializer;
 import org.eclipse.microprofile.rest.client.RestClientBuilder;
 
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.ServiceLoader;
+import javax.ws.rs.core.Response;
+
 /**
  * Sync method.
  */
@@ -29,10 +36,19 @@ public class SyncMethods {
 
     private final SyncApi syncApi;
 
+    private volatile Deserializer deserializer;
+
     public SyncMethods(RestClientBuilder restClientBuilder) {
         this.syncApi = restClientBuilder.build(SyncApi.class);
     }
 
+    /**
+     * Constructor of the sync methods which don't call the server, for example the replay of the recorded responses.
+     */
+    protected SyncMethods() {
+        this.syncApi = null;
+    }
+
     /**
      * Sync events.
      *
@@ -47,6 +63,56 @@ public class SyncMethods {
         return syncApi.sync(filter, since, fullState, presence, timeout);
     }
 
+    /**
+     * Sync events and collect statistics.
+     * <br>
+     * The body is read fully before decoding, so the request time, the decoding time and the payload size are measured separately.
+     *
+     * @param filter     The filter name.
+     * @param since      The next batch token.
+     * @param fullState  The full state or not.
+     * @param presence   The offline presence or not.
+     * @param timeout    The timeout.
+     * @param statistics The statistics to fill.
+     * @return The sync data.
+     */
+    public SyncResponse sync(String filter, String since, boolean fullState, String presence, Long timeout, SyncStatistics statistics) {
+        long start = System.nanoTime();
+        byte[] body;
+        try (Response response = syncApi.syncResponse(filter, since, fullState, presence, timeout)) {
+            body = response.readEntity(byte[].class);
+        }
+        statistics.setRequestTime(System.nanoTime() - start);
+        return decode(body, statistics);
+    }
+
+    /**
+     * Decode the sync response and collect statistics.
+     *
+     * @param body       The raw response body.
+     * @param statistics The statistics to fill or {@code null}.
+     * @return The sync data.
+     */
+    protected SyncResponse decode(byte[] body, SyncStatistics statistics) {
+        long start = System.nanoTime();
+        SyncResponse syncResponse;
+        try {
+            syncResponse = getDeserializer().deserialize(body, SyncResponse.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to decode the sync response", e);
+        }
+        if (statistics != null) {
+            statistics.setDecodeTime(System.nanoTime() - start);
+            statistics.setPayloadBytes(body.length);
+            if (statistics.isPayloadRequired()) {
+                statistics.setPayload(body);
+            }
+            statistics.setNextBatch(syncResponse.getNextBatch());
+            statistics.collect(syncResponse);
+        }
+        return syncResponse;
+    }
+
     /**
      * This will listen for new events related to a particular room and return them to the caller. This will block until an event is
      * received, or until the timeout is reached.
@@ -60,4 +126,21 @@ public class SyncMethods {
     public Page<Event> events(String from, Long timeout, String roomId) {
         return syncApi.events(from, timeout, roomId);
     }
+
+    private Deserializer getDeserializer() {
+        if (deserializer == null) {
+            synchronized (this) {
+                if (deserializer == null) {
+                    Iterator<Deserializer> iterator = ServiceLoader.load(Deserializer.class).iterator();
+                    if (iterator.hasNext()) {
+                        deserializer = iterator.next();
+                    } else {
+                        throw new IllegalStateException(
+                            "Unable to found the object serializer. Check jackson-support or jsonb-support packages included.");
+                    }
+                }
+            }
+        }
+        return deserializer;
+    }
 }
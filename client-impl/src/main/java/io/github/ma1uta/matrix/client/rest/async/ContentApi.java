@@ -18,6 +18,7 @@ package io.github.ma1uta.matrix.client.rest.async;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
+import io.github.ma1uta.matrix.client.media.UploadBody;
 import io.github.ma1uta.matrix.client.model.content.ContentConfig;
 import io.github.ma1uta.matrix.client.model.content.ContentUri;
 
@@ -79,6 +80,33 @@ public interface ContentApi {
         @HeaderParam("X-Content-Type") String contentType
     );
 
+    /**
+     * Upload some content with the known length to the content repository.
+     * <br>
+     * <b>Rate-limited</b>: Yes.
+     * <br>
+     * <b>Requires auth</b>: Yes.
+     * <br>
+     * Return: {@link ContentUri}.
+     * <b>Required</b>. The MXC URI to the uploaded content.
+     * <p>Status code 200: The MXC URI for the uploaded content.</p>
+     * <p>Status code 429: This request was rate-limited.</p>
+     *
+     * @param body        The file content.
+     * @param filename    The name of the file being uploaded.
+     * @param contentType Mime-type of the content. Uses the non-standard header due some implementations cannot change
+     *                    content type header dynamically.
+     * @return {@link ContentUri}
+     */
+    @POST
+    @Path("/upload")
+    @Consumes(MediaType.WILDCARD)
+    CompletionStage<ContentUri> uploadBody(
+        UploadBody body,
+        @QueryParam("filename") String filename,
+        @HeaderParam("X-Content-Type") String contentType
+    );
+
     /**
      * Download content from the content repository.
      * <br>
@@ -120,6 +148,32 @@ public interface ContentApi {
         @QueryParam("allow_remote") Boolean allowRemote
     );
 
+    /**
+     * Download the byte range of the content from the content repository.
+     * <br>
+     * <b>Rate-limited</b>: Yes.
+     * <br>
+     * Return: {@link InputStream}.
+     * <p>Status code 200: The whole content, the server doesn't support ranges.</p>
+     * <p>Status code 206: The requested range of the content.</p>
+     * <p>Status code 429: This request was rate-limited.</p>
+     *
+     * @param serverName  Required. The server name from the mxc:// URI (the authoritory component).
+     * @param mediaId     Required. The media ID from the mxc:// URI (the path component).
+     * @param allowRemote Indicates to the server that it should not attempt to fetch the media if it is deemed remote.
+     *                    This is to prevent routing loops where the server contacts itself. Defaults to true if not provided.
+     * @param range       The byte range, for example {@code bytes=0-1023}.
+     * @return {@link InputStream}.
+     */
+    @GET
+    @Path("/download/{serverName}/{mediaId}")
+    CompletionStage<Response> downloadRange(
+        @PathParam("serverName") String serverName,
+        @PathParam("mediaId") String mediaId,
+        @QueryParam("allow_remote") Boolean allowRemote,
+        @HeaderParam("Range") String range
+    );
+
     /**
      * Download content from the content repository as a given filename.
      * <br>
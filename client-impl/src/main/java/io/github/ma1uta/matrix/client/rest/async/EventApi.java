@@ -177,6 +177,28 @@ public interface EventApi {
         @QueryParam("filter") String filter
     );
 
+    /**
+     * Same as {@link #messages(String, String, String, String, Integer, String)} but returns the raw JSON of the page.
+     *
+     * @param roomId Required. The room to get events from.
+     * @param from   Required. The token to start returning events from.
+     * @param to     The token to stop returning events at.
+     * @param dir    Required. The direction to return events from. One of: ["b", "f"]
+     * @param limit  The maximum number of events to return. Default: 10.
+     * @param filter A JSON RoomEventFilter to filter returned events with.
+     * @return the raw JSON of the messages and states.
+     */
+    @GET
+    @Path("/{roomId}/messages")
+    CompletionStage<byte[]> messagesRaw(
+        @PathParam("roomId") String roomId,
+        @QueryParam("from") String from,
+        @QueryParam("to") String to,
+        @QueryParam("dir") String dir,
+        @QueryParam("limit") Integer limit,
+        @QueryParam("filter") String filter
+    );
+
     /**
      * State events can be sent using this endpoint. These events will be overwritten if (room id), (event type) and (state key) all match.
      * <br>
@@ -26,6 +26,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 /**
  * To read events, the intended flow of operation is for clients to first call the /sync API without a since parameter.
@@ -82,6 +83,27 @@ public interface SyncApi {
         @QueryParam("timeout") Long timeout
     );
 
+    /**
+     * Same as {@link #sync(String, String, Boolean, String, Long)} but returns the raw response. It allows to read and decode the
+     * body separately, for example, to measure the payload size and the decoding time.
+     *
+     * @param filter      The ID of a filter created using the filter API or a filter JSON object encoded as a string.
+     * @param since       A point in time to continue a sync from.
+     * @param fullState   Controls whether to include the full state for all rooms the user is a member of.
+     * @param setPresence Controls whether the client is automatically marked as online by polling this API.
+     * @param timeout     The maximum time to wait, in milliseconds, before returning this request.
+     * @return The raw response with the {@link SyncResponse} body.
+     */
+    @GET
+    @Path("/sync")
+    Response syncResponse(
+        @QueryParam("filter") String filter,
+        @QueryParam("since") String since,
+        @QueryParam("full_state") Boolean fullState,
+        @QueryParam("set_presence") String setPresence,
+        @QueryParam("timeout") Long timeout
+    );
+
     /**
      * This will listen for new events related to a particular room and return them to the caller. This will block until an event is
      * received, or until the timeout is reached.
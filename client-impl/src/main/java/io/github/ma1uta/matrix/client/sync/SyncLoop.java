@@ -34,6 +34,7 @@ public class SyncLoop implements Runnable {
     private final SyncMethods syncMethods;
     private final BiConsumer<SyncResponse, SyncParams> inboundListener;
     private final SyncParams state = new SyncParams();
+    private final SyncMonitors monitors = new SyncMonitors();
     private SyncParams init = null;
 
     public SyncLoop(SyncMethods syncMethods, BiConsumer<SyncResponse, SyncParams> inboundListener) {
@@ -41,6 +42,24 @@ public class SyncLoop implements Runnable {
         this.inboundListener = inboundListener;
     }
 
+    /**
+     * Add the monitor of the sync iterations.
+     *
+     * @param monitor The monitor.
+     */
+    public void addMonitor(SyncMonitor monitor) {
+        monitors.add(monitor);
+    }
+
+    /**
+     * Remove the monitor of the sync iterations.
+     *
+     * @param monitor The monitor.
+     */
+    public void removeMonitor(SyncMonitor monitor) {
+        monitors.remove(monitor);
+    }
+
     public SyncParams getInit() {
         return init;
     }
@@ -61,19 +80,43 @@ public class SyncLoop implements Runnable {
         LOGGER.info("SyncLoop started");
         while (!(Thread.interrupted() || state.isTerminate())) {
             try {
-                SyncResponse sync = syncMethods.sync(
-                    state.getFilter(),
-                    state.getNextBatch(),
-                    state.isFullState(),
-                    state.getPresence(),
-                    state.getTimeout()
-                );
-                state.setNextBatch(sync.getNextBatch());
-                inboundListener.accept(sync, state);
+                SyncStatistics statistics = monitors.newStatistics();
+                if (statistics != null) {
+                    monitoredIteration(statistics);
+                } else {
+                    SyncResponse sync = syncMethods.sync(
+                        state.getFilter(),
+                        state.getNextBatch(),
+                        state.isFullState(),
+                        state.getPresence(),
+                        state.getTimeout()
+                    );
+                    state.setNextBatch(sync.getNextBatch());
+                    inboundListener.accept(sync, state);
+                }
             } catch (Exception e) {
                 LOGGER.error("Exception: ", e);
             }
         }
         LOGGER.info("SyncLoop stopped");
     }
+
+    private void monitoredIteration(SyncStatistics statistics) {
+        SyncResponse sync = syncMethods.sync(
+            state.getFilter(),
+            state.getNextBatch(),
+            state.isFullState(),
+            state.getPresence(),
+            state.getTimeout(),
+            statistics
+        );
+        state.setNextBatch(sync.getNextBatch());
+        long start = System.nanoTime();
+        try {
+            inboundListener.accept(sync, state);
+        } finally {
+            statistics.setListenerTime(System.nanoTime() - start);
+            monitors.iteration(statistics);
+        }
+    }
 }
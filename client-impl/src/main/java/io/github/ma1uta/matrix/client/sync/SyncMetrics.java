@@ -0,0 +1,147 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.sync;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated sync metrics.
+ * <br>
+ * Add the metrics to the {@link SyncLoop} or to the bot and poll them from the metrics exporter or the health check.
+ */
+public class SyncMetrics implements SyncMonitor {
+
+    private final LongAdder iterations = new LongAdder();
+
+    private final LongAdder events = new LongAdder();
+
+    private final LongAdder payloadBytes = new LongAdder();
+
+    private final LongAdder requestTime = new LongAdder();
+
+    private final LongAdder decodeTime = new LongAdder();
+
+    private final LongAdder listenerTime = new LongAdder();
+
+    private final AtomicLong lastEventAge = new AtomicLong(-1L);
+
+    private final LongAccumulator maxEventAge = new LongAccumulator(Math::max, -1L);
+
+    private volatile SyncStatistics last;
+
+    @Override
+    public void iteration(SyncStatistics statistics) {
+        iterations.increment();
+        events.add(statistics.getEvents());
+        payloadBytes.add(statistics.getPayloadBytes());
+        requestTime.add(statistics.getRequestTime());
+        decodeTime.add(statistics.getDecodeTime());
+        listenerTime.add(statistics.getListenerTime());
+        if (statistics.getNewestEventAge() >= 0L) {
+            lastEventAge.set(statistics.getNewestEventAge());
+            maxEventAge.accumulate(statistics.getNewestEventAge());
+        }
+        last = statistics;
+    }
+
+    public long getIterations() {
+        return iterations.sum();
+    }
+
+    public long getEvents() {
+        return events.sum();
+    }
+
+    public long getPayloadBytes() {
+        return payloadBytes.sum();
+    }
+
+    /**
+     * Total request time.
+     *
+     * @param unit The time unit.
+     * @return The total time of the requests.
+     */
+    public long getRequestTime(TimeUnit unit) {
+        return unit.convert(requestTime.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Total decode time.
+     *
+     * @param unit The time unit.
+     * @return The total time of the body decoding.
+     */
+    public long getDecodeTime(TimeUnit unit) {
+        return unit.convert(decodeTime.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Total listener time.
+     *
+     * @param unit The time unit.
+     * @return The total time of the listener invocations.
+     */
+    public long getListenerTime(TimeUnit unit) {
+        return unit.convert(listenerTime.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sync lag: the age in milliseconds of the newest event of the last batch with timeline events.
+     *
+     * @return The sync lag or -1 if there were no timeline events yet.
+     */
+    public long getLag() {
+        return lastEventAge.get();
+    }
+
+    /**
+     * Maximum sync lag in milliseconds.
+     *
+     * @return The maximum sync lag or -1 if there were no timeline events yet.
+     */
+    public long getMaxLag() {
+        return maxEventAge.get();
+    }
+
+    /**
+     * Statistics of the last iteration.
+     *
+     * @return The last statistics or {@code null} if there were no iterations yet.
+     */
+    public SyncStatistics getLast() {
+        return last;
+    }
+
+    /**
+     * Reset all metrics.
+     */
+    public void reset() {
+        iterations.reset();
+        events.reset();
+        payloadBytes.reset();
+        requestTime.reset();
+        decodeTime.reset();
+        listenerTime.reset();
+        lastEventAge.set(-1L);
+        maxEventAge.reset();
+        last = null;
+    }
+}
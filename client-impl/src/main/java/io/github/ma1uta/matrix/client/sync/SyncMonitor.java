@@ -0,0 +1,50 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.sync;
+
+/**
+ * Monitor of the sync iterations.
+ * <br>
+ * Monitors are discovered with the {@link java.util.ServiceLoader} or are added to the {@link SyncLoop} manually.
+ */
+public interface SyncMonitor {
+
+    /**
+     * Whether the monitor is enabled. Statistics aren't collected when all monitors are disabled.
+     *
+     * @return {@code true} if enabled, else {@code false}.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Whether the monitor requires the raw response body in the {@link SyncStatistics#getPayload()}.
+     *
+     * @return {@code true} to retain the payload, else {@code false}.
+     */
+    default boolean isPayloadRequired() {
+        return false;
+    }
+
+    /**
+     * Handle the finished sync iteration.
+     *
+     * @param statistics The iteration statistics.
+     */
+    void iteration(SyncStatistics statistics);
+}
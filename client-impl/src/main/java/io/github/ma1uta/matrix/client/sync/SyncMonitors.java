@@ -0,0 +1,110 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Set of the sync monitors.
+ * <br>
+ * Contains monitors discovered with the {@link ServiceLoader} and monitors added manually.
+ */
+public class SyncMonitors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyncMonitors.class);
+
+    private final List<SyncMonitor> monitors = new CopyOnWriteArrayList<>();
+
+    public SyncMonitors() {
+        ServiceLoader.load(SyncMonitor.class).iterator().forEachRemaining(monitors::add);
+    }
+
+    /**
+     * Add the monitor.
+     *
+     * @param monitor The monitor.
+     */
+    public void add(SyncMonitor monitor) {
+        monitors.add(Objects.requireNonNull(monitor, "Monitor must be specified."));
+    }
+
+    /**
+     * Remove the monitor.
+     *
+     * @param monitor The monitor.
+     */
+    public void remove(SyncMonitor monitor) {
+        monitors.remove(monitor);
+    }
+
+    /**
+     * Whether any monitor is enabled.
+     *
+     * @return {@code true} if the statistics should be collected, else {@code false}.
+     */
+    public boolean isEnabled() {
+        for (SyncMonitor monitor : monitors) {
+            if (monitor.isEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create a new statistics if any monitor is enabled.
+     *
+     * @return The new statistics or {@code null} if all monitors are disabled.
+     */
+    public SyncStatistics newStatistics() {
+        SyncStatistics statistics = null;
+        for (SyncMonitor monitor : monitors) {
+            if (monitor.isEnabled()) {
+                if (statistics == null) {
+                    statistics = new SyncStatistics();
+                }
+                if (monitor.isPayloadRequired()) {
+                    statistics.setPayloadRequired(true);
+                }
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Pass the statistics to the enabled monitors.
+     *
+     * @param statistics The iteration statistics.
+     */
+    public void iteration(SyncStatistics statistics) {
+        for (SyncMonitor monitor : monitors) {
+            if (monitor.isEnabled()) {
+                try {
+                    monitor.iteration(statistics);
+                } catch (Exception e) {
+                    LOGGER.error("Monitor failed: ", e);
+                }
+            }
+        }
+    }
+}
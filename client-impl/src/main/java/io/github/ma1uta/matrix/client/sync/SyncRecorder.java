@@ -0,0 +1,135 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Monitor which records the raw sync responses with the timings.
+ * <br>
+ * The recording starts with the {@link #MAGIC} and the {@link #VERSION} followed by the records. Each record contains
+ * the time in nanoseconds since the first response was received (8 bytes), the length of the body (4 bytes) and the body.
+ * Recordings are replayed with the {@link SyncReplayer}.
+ * <br>
+ * Usage:
+ * <pre>{@code
+ * try (SyncRecorder recorder = new SyncRecorder(Paths.get("sync.rec"))) {
+ *     syncLoop.addMonitor(recorder);
+ *     syncLoop.run();
+ * }
+ * }</pre>
+ */
+public class SyncRecorder implements SyncMonitor, Closeable {
+
+    /**
+     * Recording signature.
+     */
+    public static final int MAGIC = 0x4A4D5352;
+
+    /**
+     * Recording format version.
+     */
+    public static final int VERSION = 1;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyncRecorder.class);
+
+    private final DataOutputStream output;
+
+    private long origin;
+
+    private boolean started;
+
+    private long records;
+
+    private volatile boolean enabled = true;
+
+    public SyncRecorder(Path file) throws IOException {
+        this(Files.newOutputStream(file));
+    }
+
+    public SyncRecorder(OutputStream output) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(output));
+        this.output.writeInt(MAGIC);
+        this.output.writeInt(VERSION);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isPayloadRequired() {
+        return true;
+    }
+
+    @Override
+    public void iteration(SyncStatistics statistics) {
+        byte[] payload = statistics.getPayload();
+        if (payload == null) {
+            return;
+        }
+        try {
+            record(System.nanoTime() - statistics.getListenerTime() - statistics.getDecodeTime(), payload);
+        } catch (IOException e) {
+            LOGGER.error("Unable to record the sync response, the recording is stopped.", e);
+            enabled = false;
+        }
+    }
+
+    /**
+     * Write the record.
+     *
+     * @param received The time in nanoseconds when the response was received, see {@link System#nanoTime()}.
+     * @param payload  The raw response body.
+     * @throws IOException when unable to write the record.
+     */
+    public synchronized void record(long received, byte[] payload) throws IOException {
+        if (!started) {
+            origin = received;
+            started = true;
+        }
+        output.writeLong(Math.max(received - origin, 0L));
+        output.writeInt(payload.length);
+        output.write(payload);
+        records++;
+    }
+
+    /**
+     * Provides the count of the written records.
+     *
+     * @return The count of the records.
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        enabled = false;
+        output.close();
+    }
+}
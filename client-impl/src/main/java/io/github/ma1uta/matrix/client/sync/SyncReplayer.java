@@ -0,0 +1,176 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.sync;
+
+import io.github.ma1uta.matrix.client.methods.blocked.SyncMethods;
+import io.github.ma1uta.matrix.client.model.sync.SyncResponse;
+import io.github.ma1uta.matrix.common.Page;
+import io.github.ma1uta.matrix.event.Event;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sync methods which replay the responses recorded by the {@link SyncRecorder}.
+ * <br>
+ * The recording is loaded into the memory, so the replay measures only the decoding and the dispatching. The responses are
+ * returned either at the recorded speed or as fast as possible, the request parameters are ignored. The delay of the real-time
+ * replay is waited without the lock, so {@link #isExhausted()} and {@link #reset()} don't block.
+ * <br>
+ * Usage:
+ * <pre>{@code
+ * SyncReplayer replayer = new SyncReplayer(Paths.get("sync.rec"), false);
+ * SyncLoop syncLoop = new SyncLoop(replayer, (syncResponse, syncParams) -> {
+ *     ...
+ *     syncParams.setTerminate(replayer.isExhausted());
+ * });
+ * syncLoop.run();
+ * }</pre>
+ */
+public class SyncReplayer extends SyncMethods {
+
+    private final List<byte[]> payloads = new ArrayList<>();
+
+    private final List<Long> timings = new ArrayList<>();
+
+    private final boolean realTime;
+
+    private int position;
+
+    private long origin;
+
+    private boolean started;
+
+    public SyncReplayer(Path file, boolean realTime) throws IOException {
+        this(Files.newInputStream(file), realTime);
+    }
+
+    public SyncReplayer(InputStream input, boolean realTime) throws IOException {
+        this.realTime = realTime;
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(input))) {
+            if (data.readInt() != SyncRecorder.MAGIC) {
+                throw new IOException("Not a sync recording");
+            }
+            int version = data.readInt();
+            if (version != SyncRecorder.VERSION) {
+                throw new IOException("Unsupported recording version: " + version);
+            }
+            while (true) {
+                long timing;
+                try {
+                    timing = data.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] payload = new byte[data.readInt()];
+                data.readFully(payload);
+                timings.add(timing);
+                payloads.add(payload);
+            }
+        }
+    }
+
+    /**
+     * Provides the count of the recorded responses.
+     *
+     * @return The count of the responses.
+     */
+    public int size() {
+        return payloads.size();
+    }
+
+    /**
+     * Whether all recorded responses have been replayed.
+     *
+     * @return {@code true} if the recording is exhausted, else {@code false}.
+     */
+    public synchronized boolean isExhausted() {
+        return position >= payloads.size();
+    }
+
+    /**
+     * Start the replay from the beginning.
+     */
+    public synchronized void reset() {
+        position = 0;
+        started = false;
+    }
+
+    @Override
+    public SyncResponse sync(String filter, String since, boolean fullState, String presence, Long timeout) {
+        return decode(next(), null);
+    }
+
+    @Override
+    public SyncResponse sync(String filter, String since, boolean fullState, String presence, Long timeout, SyncStatistics statistics) {
+        long start = System.nanoTime();
+        byte[] payload = next();
+        statistics.setRequestTime(System.nanoTime() - start);
+        return decode(payload, statistics);
+    }
+
+    /**
+     * The recording contains only the sync responses, the room events stream isn't replayed.
+     *
+     * @param from    The token to stream from.
+     * @param timeout The maximum time in milliseconds to wait for an event.
+     * @param roomId  The room ID for which events should be returned.
+     * @return Never returns.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public Page<Event> events(String from, Long timeout, String roomId) {
+        throw new UnsupportedOperationException("The sync replayer doesn't replay the room events stream");
+    }
+
+    private byte[] next() {
+        byte[] payload;
+        long delay;
+        synchronized (this) {
+            if (isExhausted()) {
+                throw new IllegalStateException("The recording is exhausted");
+            }
+            delay = 0L;
+            if (realTime) {
+                long now = System.nanoTime();
+                if (!started) {
+                    origin = now - timings.get(position);
+                    started = true;
+                }
+                delay = origin + timings.get(position) - now;
+            }
+            payload = payloads.get(position++);
+        }
+        if (delay > 0L) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("The replay is interrupted", e);
+            }
+        }
+        return payload;
+    }
+}
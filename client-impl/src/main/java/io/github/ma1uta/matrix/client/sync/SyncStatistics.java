@@ -0,0 +1,227 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client.sync;
+
+import io.github.ma1uta.matrix.client.model.sync.InvitedRoom;
+import io.github.ma1uta.matrix.client.model.sync.JoinedRoom;
+import io.github.ma1uta.matrix.client.model.sync.Rooms;
+import io.github.ma1uta.matrix.client.model.sync.SyncResponse;
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.RoomEvent;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Statistics of the one sync iteration.
+ */
+public class SyncStatistics {
+
+    private String nextBatch;
+
+    private long requestTime;
+
+    private long decodeTime;
+
+    private long listenerTime;
+
+    private long payloadBytes;
+
+    private int events;
+
+    private long newestEventAge = -1L;
+
+    private boolean payloadRequired;
+
+    private byte[] payload;
+
+    public String getNextBatch() {
+        return nextBatch;
+    }
+
+    public void setNextBatch(String nextBatch) {
+        this.nextBatch = nextBatch;
+    }
+
+    /**
+     * Time in nanoseconds from the sending the request to the receiving the whole body.
+     *
+     * @return The request time.
+     */
+    public long getRequestTime() {
+        return requestTime;
+    }
+
+    public void setRequestTime(long requestTime) {
+        this.requestTime = requestTime;
+    }
+
+    /**
+     * Time in nanoseconds of the body decoding.
+     *
+     * @return The decode time.
+     */
+    public long getDecodeTime() {
+        return decodeTime;
+    }
+
+    public void setDecodeTime(long decodeTime) {
+        this.decodeTime = decodeTime;
+    }
+
+    /**
+     * Time in nanoseconds of the inbound listener invocation.
+     *
+     * @return The listener time.
+     */
+    public long getListenerTime() {
+        return listenerTime;
+    }
+
+    public void setListenerTime(long listenerTime) {
+        this.listenerTime = listenerTime;
+    }
+
+    public long getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    public void setPayloadBytes(long payloadBytes) {
+        this.payloadBytes = payloadBytes;
+    }
+
+    public int getEvents() {
+        return events;
+    }
+
+    public void setEvents(int events) {
+        this.events = events;
+    }
+
+    /**
+     * Age in milliseconds of the newest timeline event relative to the wall clock at the time the response was received.
+     *
+     * @return The newest event age or -1 if the batch doesn't contain timeline events.
+     */
+    public long getNewestEventAge() {
+        return newestEventAge;
+    }
+
+    public void setNewestEventAge(long newestEventAge) {
+        this.newestEventAge = newestEventAge;
+    }
+
+    /**
+     * Whether the raw response body should be retained in the statistics.
+     *
+     * @return {@code true} if any monitor requires the payload, else {@code false}.
+     */
+    public boolean isPayloadRequired() {
+        return payloadRequired;
+    }
+
+    public void setPayloadRequired(boolean payloadRequired) {
+        this.payloadRequired = payloadRequired;
+    }
+
+    /**
+     * The raw response body.
+     *
+     * @return The response body or {@code null} if the payload isn't required.
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    /**
+     * Collect the statistics of the sync response: count of the account data, presence, invite state, room state and timeline
+     * events and the age of the newest timeline event.
+     *
+     * @param response The sync response.
+     */
+    public void collect(SyncResponse response) {
+        final long now = System.currentTimeMillis();
+        long newestTs = 0L;
+        int count = 0;
+        if (response.getAccountData() != null) {
+            count += size(response.getAccountData().getEvents());
+        }
+        if (response.getPresence() != null) {
+            count += size(response.getPresence().getEvents());
+        }
+        Rooms rooms = response.getRooms();
+        if (rooms != null) {
+            if (rooms.getInvite() != null) {
+                for (InvitedRoom invitedRoom : rooms.getInvite().values()) {
+                    if (invitedRoom != null && invitedRoom.getInviteState() != null) {
+                        count += size(invitedRoom.getInviteState().getEvents());
+                    }
+                }
+            }
+            if (rooms.getJoin() != null) {
+                for (JoinedRoom joinedRoom : rooms.getJoin().values()) {
+                    if (joinedRoom.getState() != null) {
+                        count += size(joinedRoom.getState().getEvents());
+                    }
+                    if (joinedRoom.getTimeline() != null) {
+                        List<Event> timeline = joinedRoom.getTimeline().getEvents();
+                        count += size(timeline);
+                        newestTs = Math.max(newestTs, newestTs(timeline));
+                    }
+                }
+            }
+        }
+        setEvents(count);
+        setNewestEventAge(newestTs > 0L ? Math.max(now - newestTs, 0L) : -1L);
+    }
+
+    private static long newestTs(List<Event> events) {
+        long newest = 0L;
+        if (events != null) {
+            for (Event event : events) {
+                if (event instanceof RoomEvent) {
+                    Long ts = ((RoomEvent<?>) event).getOriginServerTs();
+                    if (ts != null && ts > newest) {
+                        newest = ts;
+                    }
+                }
+            }
+        }
+        return newest;
+    }
+
+    private static int size(Collection<?> collection) {
+        return collection == null ? 0 : collection.size();
+    }
+
+    @Override
+    public String toString() {
+        return "SyncStatistics{"
+            + "nextBatch='" + nextBatch + '\''
+            + ", requestTime=" + requestTime
+            + ", decodeTime=" + decodeTime
+            + ", listenerTime=" + listenerTime
+            + ", payloadBytes=" + payloadBytes
+            + ", events=" + events
+            + ", newestEventAge=" + newestEventAge
+            + '}';
+    }
+}
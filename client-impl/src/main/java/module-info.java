@@ -1,11 +1,14 @@
 module matrix.client.impl {
     uses io.github.ma1uta.matrix.impl.Deserializer;
     uses io.github.ma1uta.matrix.impl.RestClientBuilderConfigurer;
+    uses io.github.ma1uta.matrix.client.sync.SyncMonitor;
 
     exports io.github.ma1uta.matrix.client;
     exports io.github.ma1uta.matrix.client.methods.blocked;
     exports io.github.ma1uta.matrix.client.methods.async;
     exports io.github.ma1uta.matrix.client.sync;
+    exports io.github.ma1uta.matrix.client.export;
+    exports io.github.ma1uta.matrix.client.media;
 
     requires transitive matrix.client.api;
     requires transitive matrix.common.impl;
@@ -0,0 +1,127 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.notFound;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.ma1uta.matrix.client.filter.ErrorFilter;
+import io.github.ma1uta.matrix.client.methods.async.BulkResult;
+import io.github.ma1uta.matrix.client.model.profile.Profile;
+import io.github.ma1uta.matrix.common.RateLimitedErrorResponse;
+import io.github.ma1uta.matrix.impl.exception.MatrixException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.ws.rs.core.MediaType;
+
+class BulkAsyncMethodsTest extends MockServer {
+
+    private static final long PAUSE = 200L;
+
+    private static final long SLOW = 50L;
+
+    @Test
+    public void profiles() {
+        String profile = "{\"avatar_url\": \"mxc://matrix.org/SDGdghriugerRg\", \"displayname\": \"Alice Margatroid\"}";
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/client/r0/profile/@alice:example.com"))
+            .willReturn(okJson(profile)));
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/client/r0/profile/@bob:example.com"))
+            .inScenario("rate limit")
+            .whenScenarioStateIs(STARTED)
+            .willReturn(aResponse()
+                .withStatus(429)
+                .withHeader("Content-Type", MediaType.APPLICATION_JSON)
+                .withBody("{\"errcode\": \"M_LIMIT_EXCEEDED\", \"error\": \"Too many requests\", \"retry_after_ms\": 10}"))
+            .willSetStateTo("retry"));
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/client/r0/profile/@bob:example.com"))
+            .inScenario("rate limit")
+            .whenScenarioStateIs("retry")
+            .willReturn(okJson(profile)));
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/client/r0/profile/@carol:example.com"))
+            .willReturn(notFound()
+                .withHeader("Content-Type", MediaType.APPLICATION_JSON)
+                .withBody("{\"errcode\": \"M_NOT_FOUND\", \"error\": \"Profile not found\"}")));
+
+        AtomicInteger completed = new AtomicInteger();
+        List<BulkResult<String, Profile>> results = getMatrixClient().bulkAsync().withLimits(2, 3)
+            .profiles(Arrays.asList("@alice:example.com", "@bob:example.com", "@carol:example.com"), result -> completed.incrementAndGet())
+            .join();
+
+        assertEquals(3, completed.get());
+        assertEquals(3, results.size());
+        assertEquals("@alice:example.com", results.get(0).getItem());
+        assertTrue(results.get(0).isSuccess());
+        assertNotNull(results.get(0).getValue());
+        assertTrue(results.get(1).isSuccess());
+        assertNotNull(results.get(1).getValue());
+        assertFalse(results.get(2).isSuccess());
+        assertNotNull(results.get(2).getError());
+        wireMockServer.verify(2, getRequestedFor(urlPathEqualTo("/_matrix/client/r0/profile/@bob:example.com")));
+    }
+
+    @Test
+    public void rateLimitPausesBatch() {
+        RateLimitedErrorResponse response = new RateLimitedErrorResponse();
+        response.setErrcode("M_LIMIT_EXCEEDED");
+        response.setRetryAfterMs(PAUSE);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicLong limitedAt = new AtomicLong();
+        AtomicLong startedAt = new AtomicLong();
+        Function<String, CompletionStage<String>> action = item -> {
+            switch (item) {
+                case "limited":
+                    if (attempts.getAndIncrement() == 0) {
+                        limitedAt.set(System.nanoTime());
+                        return CompletableFuture.failedFuture(new MatrixException("Too many requests", response,
+                            ErrorFilter.RATE_LIMIT_RESPONSE_STATUS));
+                    }
+                    return CompletableFuture.completedFuture(item);
+                case "slow":
+                    return CompletableFuture.supplyAsync(() -> item, CompletableFuture.delayedExecutor(SLOW, TimeUnit.MILLISECONDS));
+                default:
+                    startedAt.set(System.nanoTime());
+                    return CompletableFuture.completedFuture(item);
+            }
+        };
+
+        List<BulkResult<String, String>> results = getMatrixClient().bulkAsync().withLimits(2, 3)
+            .execute(Arrays.asList("limited", "slow", "next"), action, null)
+            .join();
+
+        assertTrue(results.stream().allMatch(BulkResult::isSuccess));
+        assertEquals(2, attempts.get());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(startedAt.get() - limitedAt.get()) >= PAUSE,
+            "The next item must be started after the pause requested by the rate-limited response");
+    }
+}
@@ -16,6 +16,8 @@
 
 package io.github.ma1uta.matrix.client;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.binaryEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
@@ -26,7 +28,12 @@ import io.github.ma1uta.matrix.client.model.content.ContentUri;
 import org.junit.jupiter.api.Test;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.ws.rs.core.MediaType;
 
 class ContentAsyncMethodsTest extends MockServer {
@@ -48,4 +55,40 @@ class ContentAsyncMethodsTest extends MockServer {
             assertEquals("mxc://example.com/AQwafuaFswefuhsfAFAgsw", uri);
         }
     }
+
+    @Test
+    void uploadFile() throws Exception {
+        byte[] content = "file content".getBytes(StandardCharsets.UTF_8);
+        wireMockServer.stubFor(post(urlPathMatching("/_matrix/media/r0/upload"))
+            .withHeader("Content-Type", equalTo(MediaType.TEXT_PLAIN))
+            .withHeader("Content-Length", equalTo(String.valueOf(content.length)))
+            .withHeader("Transfer-Encoding", absent())
+            .withQueryParam("filename", equalTo("file.txt"))
+            .withRequestBody(binaryEqualTo(content))
+            .willReturn(okJson("{\"content_uri\":\"mxc://example.com/file\"}")
+            )
+        );
+
+        Path file = Files.createTempFile("upload", ".txt");
+        try {
+            Files.write(file, content);
+            getMatrixClient().getConnectionInfo().setAccessToken(ACCESS_TOKEN);
+            AtomicLong transferred = new AtomicLong();
+            String uri = getMatrixClient().contentAsync().upload(file, "file.txt", "text/plain", (count, total) -> {
+                assertEquals(content.length, total);
+                transferred.set(count);
+            }).thenApply(ContentUri::getContentUri).get(1000, TimeUnit.MILLISECONDS);
+            assertEquals("mxc://example.com/file", uri);
+            assertEquals(content.length, transferred.get());
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(content.length + 2);
+            buffer.put((byte) 0).put(content).flip().position(1);
+            uri = getMatrixClient().contentAsync().upload(buffer, "file.txt", "text/plain", null)
+                .thenApply(ContentUri::getContentUri).get(1000, TimeUnit.MILLISECONDS);
+            assertEquals("mxc://example.com/file", uri);
+            assertEquals(1, buffer.position());
+        } finally {
+            Files.delete(file);
+        }
+    }
 }
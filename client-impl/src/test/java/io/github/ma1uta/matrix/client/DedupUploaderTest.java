@@ -0,0 +1,103 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.ma1uta.matrix.client.media.DedupUploader;
+import io.github.ma1uta.matrix.client.model.content.ContentUri;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+class DedupUploaderTest extends MockServer {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void dedup() throws Exception {
+        wireMockServer.stubFor(post(urlPathEqualTo("/_matrix/media/r0/upload"))
+            .willReturn(okJson("{\"content_uri\":\"mxc://example.com/logo\"}")));
+        ByteBuffer logo = ByteBuffer.wrap("logo".getBytes(StandardCharsets.UTF_8));
+        Path index = directory.resolve("uploads.idx");
+
+        try (DedupUploader uploader = new DedupUploader(getMatrixClient().contentAsync(), index)) {
+            assertEquals("mxc://example.com/logo", uploader.upload(logo, "logo.png", "image/png", null)
+                .thenApply(ContentUri::getContentUri).join());
+            assertEquals("mxc://example.com/logo", uploader.upload(logo, "logo.png", "image/png", null)
+                .thenApply(ContentUri::getContentUri).join());
+            assertEquals(1, uploader.getUploads());
+            assertEquals(1, uploader.getHits());
+        }
+
+        try (DedupUploader uploader = new DedupUploader(getMatrixClient().contentAsync(), index)) {
+            assertEquals("mxc://example.com/logo", uploader.upload(logo, "logo.png", "image/png", null)
+                .thenApply(ContentUri::getContentUri).join());
+            assertEquals(0, uploader.getUploads());
+        }
+        wireMockServer.verify(1, postRequestedFor(urlPathEqualTo("/_matrix/media/r0/upload")));
+    }
+
+    @Test
+    public void dedupFiles() throws Exception {
+        wireMockServer.stubFor(post(urlPathEqualTo("/_matrix/media/r0/upload"))
+            .willReturn(okJson("{\"content_uri\":\"mxc://example.com/logo\"}")));
+        Path first = Files.write(directory.resolve("first.png"), "logo".getBytes(StandardCharsets.UTF_8));
+        Path second = Files.write(directory.resolve("second.png"), "logo".getBytes(StandardCharsets.UTF_8));
+
+        try (DedupUploader uploader = new DedupUploader(getMatrixClient().contentAsync(), directory.resolve("uploads.idx"))) {
+            assertEquals("mxc://example.com/logo", uploader.upload(first, "first.png", "image/png", null)
+                .thenApply(ContentUri::getContentUri).join());
+            assertEquals("mxc://example.com/logo", uploader.upload(second, "second.png", "image/png", null)
+                .thenApply(ContentUri::getContentUri).join());
+            assertEquals(1, uploader.getUploads());
+            assertEquals(1, uploader.getHits());
+            assertEquals(Optional.of("mxc://example.com/logo"),
+                uploader.find("3598ce6f965b2481fe26316c06b30950c46ac7f8e7229f104aa78f579997668d"));
+        }
+        wireMockServer.verify(1, postRequestedFor(urlPathEqualTo("/_matrix/media/r0/upload")));
+    }
+
+    @Test
+    public void malformedIndex() throws Exception {
+        Path index = Files.write(directory.resolve("uploads.idx"), String.join("\n",
+            "valid mxc://example.com/valid 4",
+            "truncated mxc://example.com/truncated",
+            "unsized mxc://example.com/unsized size",
+            "unknown https://example.com/unknown 4",
+            "",
+            "extra mxc://example.com/extra 4 5").getBytes(StandardCharsets.UTF_8));
+
+        try (DedupUploader uploader = new DedupUploader(getMatrixClient().contentAsync(), index)) {
+            assertEquals(Optional.of("mxc://example.com/valid"), uploader.find("valid"));
+            assertEquals(Optional.empty(), uploader.find("truncated"));
+            assertEquals(Optional.empty(), uploader.find("unsized"));
+            assertEquals(Optional.empty(), uploader.find("unknown"));
+            assertEquals(Optional.empty(), uploader.find("extra"));
+        }
+    }
+}
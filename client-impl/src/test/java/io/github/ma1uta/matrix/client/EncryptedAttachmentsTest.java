@@ -0,0 +1,74 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.ma1uta.matrix.client.media.EncryptedAttachments;
+import io.github.ma1uta.matrix.event.nested.EncryptedFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import javax.ws.rs.core.HttpHeaders;
+
+class EncryptedAttachmentsTest extends MockServer {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void roundTrip() throws Exception {
+        wireMockServer.stubFor(post(urlPathEqualTo("/_matrix/media/r0/upload"))
+            .willReturn(okJson("{\"content_uri\":\"mxc://example.com/secret\"}")));
+        byte[] content = new byte[100_000];
+        new Random(1).nextBytes(content);
+        EncryptedAttachments attachments = new EncryptedAttachments(getMatrixClient().contentAsync());
+
+        EncryptedFile file = attachments.upload(new ByteArrayInputStream(content)).join();
+        assertEquals("mxc://example.com/secret", file.getUrl());
+        assertEquals(EncryptedAttachments.VERSION, file.getVersion());
+
+        byte[] ciphertext = wireMockServer.findAll(postRequestedFor(urlPathEqualTo("/_matrix/media/r0/upload"))).get(0).getBody();
+        assertEquals(content.length, ciphertext.length);
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/media/r0/download/example.com/secret"))
+            .willReturn(aResponse().withHeader(HttpHeaders.CONTENT_DISPOSITION, "secret").withBody(ciphertext)));
+
+        try (InputStream inputStream = attachments.download(file, true).join()) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+
+        file.getHashes().put(EncryptedAttachments.SHA256, "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+        Path target = directory.resolve("secret");
+        assertThrows(CompletionException.class, () -> attachments.download(file, true, target).join());
+        assertFalse(Files.exists(target));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import io.github.ma1uta.matrix.client.media.CachedMedia;
+import io.github.ma1uta.matrix.client.media.MediaCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+class MediaCacheTest extends MockServer {
+
+    @TempDir
+    Path directory;
+
+    private void stub(String mediaId, String body) {
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/media/r0/download/example.com/" + mediaId))
+            .willReturn(aResponse()
+                .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN)
+                .withHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=" + mediaId + ".txt")
+                .withFixedDelay(100)
+                .withBody(body)));
+    }
+
+    @Test
+    public void cache() throws Exception {
+        stub("first", "first content");
+        stub("second", "second content");
+        MediaCache cache = MediaCache.builder()
+            .methods(getMatrixClient().contentAsync())
+            .directory(directory)
+            .maxEntries(1)
+            .build();
+
+        CompletableFuture<CachedMedia> first = cache.download("mxc://example.com/first", true);
+        CompletableFuture<CachedMedia> concurrent = cache.download("mxc://example.com/first", true);
+        CachedMedia media = first.join();
+        assertEquals(media.getPath(), concurrent.join().getPath());
+        assertEquals("first content", new String(Files.readAllBytes(media.getPath()), StandardCharsets.UTF_8));
+        assertEquals(MediaType.TEXT_PLAIN, media.getContentType());
+
+        assertEquals(media.getPath(), cache.download("mxc://example.com/first", true).join().getPath());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getCoalesced());
+        wireMockServer.verify(1, getRequestedFor(urlPathEqualTo("/_matrix/media/r0/download/example.com/first")));
+
+        CachedMedia second = cache.download("mxc://example.com/second", true).join();
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.getEntries());
+        assertEquals(second.getSize(), cache.getSize());
+        assertFalse(Files.exists(media.getPath()));
+
+        MediaCache restored = MediaCache.builder()
+            .methods(getMatrixClient().contentAsync())
+            .directory(directory)
+            .build();
+        assertEquals(1, restored.getEntries());
+        assertEquals(second.getPath(), restored.download("mxc://example.com/second", true).join().getPath());
+        assertEquals(1, restored.getHits());
+    }
+
+    @Test
+    public void storeOnExecutor() throws Exception {
+        stub("third", "third content");
+        AtomicInteger stores = new AtomicInteger();
+        MediaCache cache = MediaCache.builder()
+            .methods(getMatrixClient().contentAsync())
+            .directory(directory)
+            .executor(command -> {
+                stores.incrementAndGet();
+                new Thread(command).start();
+            })
+            .build();
+
+        CachedMedia media = cache.download("mxc://example.com/third", true).join();
+
+        assertEquals("third content", new String(Files.readAllBytes(media.getPath()), StandardCharsets.UTF_8));
+        assertEquals(1, stores.get(), "The content must be written on the supplied executor");
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.ma1uta.matrix.client.methods.async.PrefetchIterator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class PrefetchIteratorTest {
+
+    private static final long TIMEOUT = 5L;
+
+    private static final Map<String, List<String>> PAGES = new HashMap<>();
+
+    private static final Map<String, String> NEXT = new HashMap<>();
+
+    static {
+        PAGES.put("t0", Arrays.asList("a", "b"));
+        NEXT.put("t0", "t1");
+        PAGES.put("t1", Arrays.asList("c", "d"));
+        NEXT.put("t1", "t2");
+        PAGES.put("t2", Collections.singletonList("e"));
+    }
+
+    private static CompletableFuture<String> fetch(String token) {
+        return CompletableFuture.supplyAsync(() -> token);
+    }
+
+    @Test
+    public void followTokens() {
+        AtomicInteger requests = new AtomicInteger();
+        List<String> items;
+        try (Stream<String> stream = PrefetchIterator.stream("t0", token -> {
+            requests.incrementAndGet();
+            return fetch(token);
+        }, PAGES::get, NEXT::get, 2)) {
+            items = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), items);
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void prefetchDepth() {
+        Map<String, CompletableFuture<String>> requested = new LinkedHashMap<>();
+        PrefetchIterator<String, String> iterator = new PrefetchIterator<>("t0", token -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            requested.put(token, future);
+            return future;
+        }, PAGES::get, NEXT::get, 1);
+
+        assertEquals(Collections.singletonList("t0"), new ArrayList<>(requested.keySet()));
+
+        requested.get("t0").complete("t0");
+        assertEquals(1, requested.size(), "The next page must wait for the consumer when the prefetch depth is reached");
+
+        assertEquals("a", iterator.next());
+        assertEquals(Arrays.asList("t0", "t1"), new ArrayList<>(requested.keySet()));
+
+        assertEquals("b", iterator.next());
+        requested.get("t1").complete("t1");
+        assertEquals(2, requested.size());
+
+        assertEquals("c", iterator.next());
+        assertEquals(Arrays.asList("t0", "t1", "t2"), new ArrayList<>(requested.keySet()));
+        iterator.close();
+    }
+
+    @Test
+    public void prefetchAhead() {
+        Map<String, CompletableFuture<String>> requested = new LinkedHashMap<>();
+        PrefetchIterator<String, String> iterator = new PrefetchIterator<>("t0", token -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            requested.put(token, future);
+            return future;
+        }, PAGES::get, NEXT::get, 2);
+
+        requested.get("t0").complete("t0");
+        assertEquals(Arrays.asList("t0", "t1"), new ArrayList<>(requested.keySet()),
+            "The second page must be requested before the consumer takes the first one");
+
+        requested.get("t1").complete("t1");
+        assertEquals(2, requested.size());
+
+        assertEquals("a", iterator.next());
+        assertEquals(Arrays.asList("t0", "t1", "t2"), new ArrayList<>(requested.keySet()));
+        iterator.close();
+    }
+
+    @Test
+    public void failure() {
+        PrefetchIterator<String, String> iterator = new PrefetchIterator<>("t0", token -> "t1".equals(token)
+            ? CompletableFuture.failedFuture(new IllegalStateException("failed"))
+            : fetch(token), PAGES::get, NEXT::get, 2);
+
+        assertEquals("a", iterator.next());
+        assertEquals("b", iterator.next());
+        CompletionException exception = assertThrows(CompletionException.class, iterator::hasNext);
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void failedCallback() {
+        PrefetchIterator<String, String> iterator = new PrefetchIterator<>("t0", PrefetchIteratorTest::fetch, PAGES::get, page -> {
+            throw new IllegalStateException("broken page");
+        }, 2);
+
+        CompletionException exception = assertThrows(CompletionException.class, iterator::hasNext,
+            "The exception of the page callback must reach the consumer");
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void closeWakesConsumer() throws Exception {
+        CompletableFuture<String> never = new CompletableFuture<>();
+        PrefetchIterator<String, String> iterator = new PrefetchIterator<>("t0", token -> never, PAGES::get, NEXT::get, 2);
+        CountDownLatch waiting = new CountDownLatch(1);
+        CompletableFuture<Boolean> consumer = CompletableFuture.supplyAsync(() -> {
+            waiting.countDown();
+            return iterator.hasNext();
+        });
+
+        assertTrue(waiting.await(TIMEOUT, TimeUnit.SECONDS));
+        iterator.close();
+
+        assertFalse(consumer.get(TIMEOUT, TimeUnit.SECONDS), "The closed iterator must release the waiting consumer");
+    }
+}
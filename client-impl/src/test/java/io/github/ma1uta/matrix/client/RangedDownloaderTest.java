@@ -0,0 +1,108 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.ma1uta.matrix.client.media.RangedDownloader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RangedDownloaderTest extends MockServer {
+
+    private static final String CONTENT = "0123456789abcdefghijklmno";
+
+    @TempDir
+    Path directory;
+
+    private void stubRange(int from, int to) {
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/media/r0/download/example.com/video"))
+            .withHeader("Range", equalTo(String.format("bytes=%d-%d", from, to)))
+            .willReturn(aResponse()
+                .withStatus(206)
+                .withHeader("Content-Range", String.format("bytes %d-%d/%d", from, to, CONTENT.length()))
+                .withBody(CONTENT.substring(from, to + 1))));
+    }
+
+    @Test
+    public void ranges() throws Exception {
+        stubRange(0, 9);
+        stubRange(10, 19);
+        stubRange(20, 24);
+
+        Path target = directory.resolve("video");
+        AtomicInteger writes = new AtomicInteger();
+        Executor executor = command -> {
+            writes.incrementAndGet();
+            new Thread(command).start();
+        };
+        new RangedDownloader(getMatrixClient().contentAsync(), 2, 10, executor).download("mxc://example.com/video", true, target).join();
+
+        assertEquals(CONTENT, new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        assertEquals(1, writes.get(), "The probe body must be written on the executor");
+    }
+
+    @Test
+    public void singleStream() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/media/r0/download/example.com/archive"))
+            .willReturn(aResponse().withBody(CONTENT)));
+
+        Path target = directory.resolve("archive");
+        new RangedDownloader(getMatrixClient().contentAsync(), 2, 10).download("mxc://example.com/archive", true, target).join();
+
+        assertEquals(CONTENT, new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void emptyContent() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/media/r0/download/example.com/empty"))
+            .willReturn(aResponse().withBody("")));
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/media/r0/download/example.com/empty"))
+            .withHeader("Range", matching("bytes=.*"))
+            .willReturn(aResponse().withStatus(416).withHeader("Content-Range", "bytes */0")));
+
+        Path target = directory.resolve("empty");
+        new RangedDownloader(getMatrixClient().contentAsync(), 2, 10).download("mxc://example.com/empty", true, target).join();
+
+        assertEquals(0L, Files.size(target));
+    }
+
+    @Test
+    public void missingContentRange() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/media/r0/download/example.com/image"))
+            .willReturn(aResponse().withBody(CONTENT)));
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/media/r0/download/example.com/image"))
+            .withHeader("Range", matching("bytes=.*"))
+            .willReturn(aResponse().withStatus(206).withBody(CONTENT.substring(0, 10))));
+
+        Path target = directory.resolve("image");
+        new RangedDownloader(getMatrixClient().contentAsync(), 2, 10).download("mxc://example.com/image", true, target).join();
+
+        assertEquals(CONTENT, new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    }
+}
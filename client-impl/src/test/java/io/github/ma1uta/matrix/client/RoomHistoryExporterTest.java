@@ -0,0 +1,139 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.ma1uta.matrix.client.export.RoomHistoryExporter;
+import io.github.ma1uta.matrix.client.methods.async.BulkResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class RoomHistoryExporterTest extends MockServer {
+
+    private static final String ROOM = "!room:example.com";
+
+    private static final String OTHER_ROOM = "!other:example.com";
+
+    private static final int HTTP_BAD_REQUEST = 400;
+
+    @TempDir
+    Path output;
+
+    @Test
+    public void export() throws Exception {
+        String path = messages(ROOM);
+        wireMockServer.stubFor(get(urlPathEqualTo(path)).withQueryParam("from", equalTo("t1"))
+            .willReturn(okJson("{\"start\": \"t1\", \"end\": \"t2\", \"chunk\": ["
+                + "{\"type\": \"m.room.message\", \"content\": {\"body\": \"a [\\\"}\"}}, {\"type\": \"m.room.message\", \"content\": {}}]}")));
+        wireMockServer.stubFor(get(urlPathEqualTo(path)).withQueryParam("from", equalTo("t2"))
+            .willReturn(okJson("{\"start\": \"t2\", \"end\": \"t2\", \"chunk\": []}")));
+        wireMockServer.stubFor(get(urlPathEqualTo(messages(OTHER_ROOM))).withQueryParam("from", equalTo("o1"))
+            .willReturn(okJson("{\"chunk\": [{\"type\": \"m.room.name\", \"content\": {\"name\": \"\u00e9\"}}], \"end\": \"o1\"}")));
+
+        Map<String, String> rooms = new HashMap<>();
+        rooms.put(ROOM, "t1");
+        rooms.put(OTHER_ROOM, "o1");
+        Map<String, Long> results = export(rooms);
+
+        assertEquals(2L, results.get(ROOM));
+        assertEquals(1L, results.get(OTHER_ROOM));
+        List<String> lines = Files.readAllLines(output.resolve(fileName(ROOM, 0)), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertEquals("{\"type\": \"m.room.message\", \"content\": {\"body\": \"a [\\\"}\"}}", lines.get(0));
+        assertEquals("{\"type\": \"m.room.message\", \"content\": {}}", lines.get(1));
+        assertEquals(Collections.singletonList("{\"type\": \"m.room.name\", \"content\": {\"name\": \"\u00e9\"}}"),
+            Files.readAllLines(output.resolve(fileName(OTHER_ROOM, 0)), StandardCharsets.UTF_8));
+
+        results = export(rooms);
+        assertEquals(0L, results.get(ROOM));
+        assertEquals(0L, results.get(OTHER_ROOM));
+        assertFalse(Files.exists(output.resolve(fileName(ROOM, 1))));
+    }
+
+    @Test
+    public void resume() throws Exception {
+        String path = messages(ROOM);
+        wireMockServer.stubFor(get(urlPathEqualTo(path)).withQueryParam("from", equalTo("t1"))
+            .willReturn(okJson("{\"end\": \"t2\", \"chunk\": [{\"type\": \"m.room.message\", \"content\": {}}]}")));
+        wireMockServer.stubFor(get(urlPathEqualTo(path)).withQueryParam("from", equalTo("t2"))
+            .willReturn(aResponse().withStatus(HTTP_BAD_REQUEST)
+                .withBody("{\"errcode\": \"M_UNKNOWN\", \"error\": \"failed\"}")));
+
+        Map<String, Long> results = export(Collections.singletonMap(ROOM, "t1"));
+        assertFalse(results.containsKey(ROOM));
+        assertEquals(1, Files.readAllLines(output.resolve(fileName(ROOM, 0)), StandardCharsets.UTF_8).size());
+
+        wireMockServer.stubFor(get(urlPathEqualTo(path)).withQueryParam("from", equalTo("t2"))
+            .willReturn(okJson("{\"end\": \"t3\", \"chunk\": [{\"type\": \"m.room.topic\", \"content\": {}}]}")));
+        wireMockServer.stubFor(get(urlPathEqualTo(path)).withQueryParam("from", equalTo("t3"))
+            .willReturn(okJson("{\"end\": \"t3\", \"chunk\": []}")));
+
+        results = export(Collections.singletonMap(ROOM, "t1"));
+        assertEquals(1L, results.get(ROOM));
+        assertEquals(Collections.singletonList("{\"type\": \"m.room.topic\", \"content\": {}}"),
+            Files.readAllLines(output.resolve(fileName(ROOM, 1)), StandardCharsets.UTF_8));
+        assertEquals(1, Files.readAllLines(output.resolve(fileName(ROOM, 0)), StandardCharsets.UTF_8).size());
+    }
+
+    private Map<String, Long> export(Map<String, String> rooms) throws Exception {
+        MatrixClient client = getMatrixClient();
+        List<BulkResult<String, Long>> results;
+        try (RoomHistoryExporter exporter = RoomHistoryExporter.builder()
+            .methods(client.eventAsync(), client.bulkAsync())
+            .output(output)
+            .maxRetries(0)
+            .build()) {
+            results = exporter.export(rooms, null).join();
+        }
+        assertEquals(rooms.size(), results.size());
+        Map<String, Long> counts = new HashMap<>();
+        for (BulkResult<String, Long> result : results) {
+            if (result.isSuccess()) {
+                counts.put(result.getItem(), result.getValue());
+            } else {
+                assertTrue(result.getError() != null);
+            }
+        }
+        return counts;
+    }
+
+    private static String messages(String roomId) {
+        return "/_matrix/client/r0/rooms/" + roomId + "/messages";
+    }
+
+    private static String fileName(String roomId, int index) {
+        String room = Base64.getUrlEncoder().withoutPadding().encodeToString(roomId.getBytes(StandardCharsets.UTF_8));
+        return String.format("history-%s-%06d.ndjson", room, index);
+    }
+}
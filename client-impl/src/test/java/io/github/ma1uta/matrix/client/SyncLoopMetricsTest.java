@@ -0,0 +1,85 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.ma1uta.matrix.client.sync.SyncLoop;
+import io.github.ma1uta.matrix.client.sync.SyncMetrics;
+import io.github.ma1uta.matrix.client.sync.SyncParams;
+import io.github.ma1uta.matrix.client.sync.SyncStatistics;
+import org.junit.jupiter.api.Test;
+
+class SyncLoopMetricsTest extends MockServer {
+
+    @Test
+    public void metrics() {
+        long ts = System.currentTimeMillis() - 5000L;
+        String body = "{\n" +
+            "  \"next_batch\": \"s72595_4483_1934\",\n" +
+            "  \"rooms\": {\n" +
+            "    \"join\": {\n" +
+            "      \"!726s6s6q:example.com\": {\n" +
+            "        \"timeline\": {\n" +
+            "          \"events\": [\n" +
+            "            {\n" +
+            "              \"content\": {\"body\": \"first\", \"msgtype\": \"m.text\"},\n" +
+            "              \"type\": \"m.room.message\",\n" +
+            "              \"event_id\": \"$143273582443PhrSn:example.org\",\n" +
+            "              \"sender\": \"@example:example.org\",\n" +
+            "              \"origin_server_ts\": " + (ts - 1000L) + "\n" +
+            "            },\n" +
+            "            {\n" +
+            "              \"content\": {\"body\": \"second\", \"msgtype\": \"m.text\"},\n" +
+            "              \"type\": \"m.room.message\",\n" +
+            "              \"event_id\": \"$143273582444PhrSn:example.org\",\n" +
+            "              \"sender\": \"@example:example.org\",\n" +
+            "              \"origin_server_ts\": " + ts + "\n" +
+            "            }\n" +
+            "          ]\n" +
+            "        }\n" +
+            "      }\n" +
+            "    }\n" +
+            "  }\n" +
+            "}";
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/client/r0/sync")).willReturn(okJson(body)));
+        getMatrixClient().getConnectionInfo().setAccessToken(ACCESS_TOKEN);
+
+        SyncMetrics metrics = new SyncMetrics();
+        SyncLoop syncLoop = new SyncLoop(getMatrixClient().sync(), (syncResponse, syncParams) -> syncParams.setTerminate(true));
+        syncLoop.addMonitor(metrics);
+        syncLoop.setInit(SyncParams.builder().timeout(0L).build());
+        syncLoop.run();
+
+        assertEquals(1L, metrics.getIterations());
+        assertEquals(2L, metrics.getEvents());
+        assertEquals(body.length(), metrics.getPayloadBytes());
+        assertTrue(metrics.getLag() >= 5000L);
+        assertEquals(metrics.getLag(), metrics.getMaxLag());
+
+        SyncStatistics last = metrics.getLast();
+        assertNotNull(last);
+        assertEquals("s72595_4483_1934", last.getNextBatch());
+        assertTrue(last.getRequestTime() > 0L);
+        assertTrue(last.getDecodeTime() > 0L);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.ma1uta.matrix.client.sync.SyncLoop;
+import io.github.ma1uta.matrix.client.sync.SyncMetrics;
+import io.github.ma1uta.matrix.client.sync.SyncParams;
+import io.github.ma1uta.matrix.client.sync.SyncRecorder;
+import io.github.ma1uta.matrix.client.sync.SyncReplayer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+class SyncRecorderTest extends MockServer {
+
+    private static final String BODY = "{\n" +
+        "  \"next_batch\": \"s72595_4483_1934\",\n" +
+        "  \"rooms\": {\n" +
+        "    \"join\": {\n" +
+        "      \"!726s6s6q:example.com\": {\n" +
+        "        \"timeline\": {\n" +
+        "          \"events\": [\n" +
+        "            {\n" +
+        "              \"content\": {\"body\": \"first\", \"msgtype\": \"m.text\"},\n" +
+        "              \"type\": \"m.room.message\",\n" +
+        "              \"event_id\": \"$143273582443PhrSn:example.org\",\n" +
+        "              \"sender\": \"@example:example.org\",\n" +
+        "              \"origin_server_ts\": 1432735824653\n" +
+        "            }\n" +
+        "          ]\n" +
+        "        }\n" +
+        "      }\n" +
+        "    }\n" +
+        "  }\n" +
+        "}";
+
+    @Test
+    public void recordAndReplay() throws IOException {
+        wireMockServer.stubFor(get(urlPathEqualTo("/_matrix/client/r0/sync")).willReturn(okJson(BODY)));
+        getMatrixClient().getConnectionInfo().setAccessToken(ACCESS_TOKEN);
+
+        ByteArrayOutputStream recording = new ByteArrayOutputStream();
+        try (SyncRecorder recorder = new SyncRecorder(recording)) {
+            int[] counter = new int[1];
+            SyncLoop syncLoop = new SyncLoop(getMatrixClient().sync(), (syncResponse, syncParams) -> {
+                syncParams.setTerminate(++counter[0] == 3);
+            });
+            syncLoop.addMonitor(recorder);
+            syncLoop.setInit(SyncParams.builder().timeout(0L).build());
+            syncLoop.run();
+
+            assertEquals(3L, recorder.getRecords());
+        }
+
+        SyncReplayer replayer = new SyncReplayer(new ByteArrayInputStream(recording.toByteArray()), false);
+        assertEquals(3, replayer.size());
+
+        List<String> batches = new ArrayList<>();
+        SyncMetrics metrics = new SyncMetrics();
+        SyncLoop replay = new SyncLoop(replayer, (syncResponse, syncParams) -> {
+            batches.add(syncResponse.getNextBatch());
+            syncParams.setTerminate(replayer.isExhausted());
+        });
+        replay.addMonitor(metrics);
+        replay.run();
+
+        assertEquals(3, batches.size());
+        assertTrue(batches.stream().allMatch("s72595_4483_1934"::equals));
+        assertEquals(3L, metrics.getEvents());
+        assertEquals(3L * BODY.length(), metrics.getPayloadBytes());
+        assertThrows(IllegalStateException.class, () -> replayer.sync(null, null, false, null, 0L));
+
+        replayer.reset();
+        assertEquals("s72595_4483_1934", replayer.sync(null, null, false, null, 0L).getNextBatch());
+        assertThrows(UnsupportedOperationException.class, () -> replayer.events(null, 0L, null));
+    }
+
+    @Test
+    public void invalidRecording() {
+        assertThrows(IOException.class, () -> new SyncReplayer(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 0, 0, 0, 1}), false));
+    }
+}
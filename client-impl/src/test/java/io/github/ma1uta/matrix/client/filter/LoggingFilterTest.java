@@ -0,0 +1,152 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.client.filter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.ws.rs.client.ClientRequestContext;
+
+class LoggingFilterTest {
+
+    private static final int LIMIT = 16;
+
+    private static final int BODY_LENGTH = 10_000;
+
+    private static final int SAMPLE = 3;
+
+    @Test
+    public void responseCaptureLimit() throws IOException {
+        byte[] body = body(BODY_LENGTH);
+        LoggingFilter.LoggingInputStream stream = new LoggingFilter.LoggingInputStream(new ByteArrayInputStream(body), LIMIT);
+
+        assertArrayEquals(body, stream.readAllBytes(), "The whole body must be passed to the consumer");
+        assertEquals(LIMIT, stream.prefix().length());
+        assertEquals(BODY_LENGTH, stream.prefix().total());
+        assertEquals(new String(body, 0, LIMIT, StandardCharsets.UTF_8), stream.prefix().toString());
+    }
+
+    @Test
+    public void requestCaptureLimit() throws IOException {
+        byte[] body = body(BODY_LENGTH);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LoggingFilter.LoggingOutputStream stream = new LoggingFilter.LoggingOutputStream(out, LIMIT);
+
+        stream.write(body[0]);
+        stream.write(body, 1, body.length - 1);
+        stream.close();
+
+        assertArrayEquals(body, out.toByteArray(), "The whole body must be passed to the server");
+        assertEquals(LIMIT, stream.prefix().length());
+        assertEquals(BODY_LENGTH, stream.prefix().total());
+    }
+
+    @Test
+    public void shortBody() throws IOException {
+        byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+        LoggingFilter.LoggingInputStream stream = new LoggingFilter.LoggingInputStream(new ByteArrayInputStream(body), LIMIT);
+
+        stream.readAllBytes();
+
+        assertEquals("{}", stream.prefix().toString());
+        assertEquals(body.length, stream.prefix().total());
+    }
+
+    @Test
+    public void sampling() {
+        LoggingFilter filter = new LoggingFilter(LIMIT, SAMPLE, request -> true);
+        List<Boolean> captured = new ArrayList<>();
+        for (int i = 0; i < 2 * SAMPLE; i++) {
+            captured.add(filter.shouldCapture(request("GET", "/_matrix/client/r0/sync")));
+        }
+
+        assertEquals(Arrays.asList(true, false, false, true, false, false), captured, "Only every 3rd body must be captured");
+    }
+
+    @Test
+    public void bodyFilter() {
+        LoggingFilter filter = new LoggingFilter(LIMIT, 1, request -> !"GET".equals(request.getMethod()));
+
+        assertFalse(filter.shouldCapture(request("GET", "/_matrix/client/r0/sync")));
+        assertTrue(filter.shouldCapture(request("PUT", "/_matrix/client/r0/rooms/!room/send/m.room.message/1")));
+    }
+
+    @Test
+    public void disabledCapture() {
+        assertFalse(new LoggingFilter(0, 1, request -> true).shouldCapture(request("GET", "/_matrix/client/r0/sync")),
+            "The zero limit must disable the capture");
+        assertFalse(new LoggingFilter(LIMIT, 1, request -> true).shouldCapture(request("GET", "/_matrix/media/r0/download/a/b")),
+            "The media bodies must not be captured");
+    }
+
+    @Test
+    public void readPrefix() throws IOException {
+        byte[] body = body(BODY_LENGTH);
+        List<String> ended = new ArrayList<>();
+        PrefixInputStream stream = new PrefixInputStream(new ByteArrayInputStream(body), LIMIT) {
+            @Override
+            protected void end() {
+                ended.add("end");
+            }
+        };
+
+        stream.read();
+        assertEquals(new String(body, 0, LIMIT, StandardCharsets.UTF_8), stream.readPrefix(),
+            "The rest of the prefix must be read when the consumer stopped before it");
+        stream.close();
+        stream.close();
+
+        assertEquals(1, ended.size(), "The end must be reported once");
+    }
+
+    private static byte[] body(int length) {
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) ('a' + i % ('z' - 'a' + 1));
+        }
+        return body;
+    }
+
+    private static ClientRequestContext request(String method, String path) {
+        URI uri = URI.create("https://example.org" + path);
+        return (ClientRequestContext) Proxy.newProxyInstance(LoggingFilterTest.class.getClassLoader(),
+            new Class<?>[] {ClientRequestContext.class}, (proxy, invoked, args) -> {
+                switch (invoked.getName()) {
+                    case "getMethod":
+                        return method;
+                    case "getUri":
+                        return uri;
+                    default:
+                        throw new UnsupportedOperationException(invoked.getName());
+                }
+            });
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.impl;
+
+import io.github.ma1uta.matrix.event.CallAnswer;
+import io.github.ma1uta.matrix.event.CallCandidates;
+import io.github.ma1uta.matrix.event.CallHangup;
+import io.github.ma1uta.matrix.event.CallInvite;
+import io.github.ma1uta.matrix.event.Direct;
+import io.github.ma1uta.matrix.event.Dummy;
+import io.github.ma1uta.matrix.event.ForwardedRoomKey;
+import io.github.ma1uta.matrix.event.FullyRead;
+import io.github.ma1uta.matrix.event.IgnoredUserList;
+import io.github.ma1uta.matrix.event.KeyVerificationAccept;
+import io.github.ma1uta.matrix.event.KeyVerificationCancel;
+import io.github.ma1uta.matrix.event.KeyVerificationKey;
+import io.github.ma1uta.matrix.event.KeyVerificationMac;
+import io.github.ma1uta.matrix.event.KeyVerificationRequest;
+import io.github.ma1uta.matrix.event.KeyVerificationStart;
+import io.github.ma1uta.matrix.event.PolicyRuleRoom;
+import io.github.ma1uta.matrix.event.PolicyRuleServer;
+import io.github.ma1uta.matrix.event.PolicyRuleUser;
+import io.github.ma1uta.matrix.event.Presence;
+import io.github.ma1uta.matrix.event.PushRules;
+import io.github.ma1uta.matrix.event.Receipt;
+import io.github.ma1uta.matrix.event.RoomAliases;
+import io.github.ma1uta.matrix.event.RoomAvatar;
+import io.github.ma1uta.matrix.event.RoomCanonicalAlias;
+import io.github.ma1uta.matrix.event.RoomCreate;
+import io.github.ma1uta.matrix.event.RoomEncrypted;
+import io.github.ma1uta.matrix.event.RoomEncryption;
+import io.github.ma1uta.matrix.event.RoomGuestAccess;
+import io.github.ma1uta.matrix.event.RoomHistoryVisibility;
+import io.github.ma1uta.matrix.event.RoomJoinRules;
+import io.github.ma1uta.matrix.event.RoomKey;
+import io.github.ma1uta.matrix.event.RoomKeyRequest;
+import io.github.ma1uta.matrix.event.RoomMember;
+import io.github.ma1uta.matrix.event.RoomMessage;
+import io.github.ma1uta.matrix.event.RoomMessageFeedback;
+import io.github.ma1uta.matrix.event.RoomName;
+import io.github.ma1uta.matrix.event.RoomPinned;
+import io.github.ma1uta.matrix.event.RoomPowerLevels;
+import io.github.ma1uta.matrix.event.RoomRedaction;
+import io.github.ma1uta.matrix.event.RoomServerAcl;
+import io.github.ma1uta.matrix.event.RoomThirdPartyInvite;
+import io.github.ma1uta.matrix.event.RoomTombstone;
+import io.github.ma1uta.matrix.event.RoomTopic;
+import io.github.ma1uta.matrix.event.Sticker;
+import io.github.ma1uta.matrix.event.Tag;
+import io.github.ma1uta.matrix.event.Typing;
+import io.github.ma1uta.matrix.event.content.CallAnswerContent;
+import io.github.ma1uta.matrix.event.content.CallCandidatesContent;
+import io.github.ma1uta.matrix.event.content.CallHangupContent;
+import io.github.ma1uta.matrix.event.content.CallInviteContent;
+import io.github.ma1uta.matrix.event.content.DirectContent;
+import io.github.ma1uta.matrix.event.content.DummyContent;
+import io.github.ma1uta.matrix.event.content.ForwardedRoomKeyContent;
+import io.github.ma1uta.matrix.event.content.FullyReadContent;
+import io.github.ma1uta.matrix.event.content.IgnoredUserListContent;
+import io.github.ma1uta.matrix.event.content.KeyVerificationAcceptContent;
+import io.github.ma1uta.matrix.event.content.KeyVerificationCancelContent;
+import io.github.ma1uta.matrix.event.content.KeyVerificationKeyContent;
+import io.github.ma1uta.matrix.event.content.KeyVerificationMacContent;
+import io.github.ma1uta.matrix.event.content.KeyVerificationRequestContent;
+import io.github.ma1uta.matrix.event.content.KeyVerificationStartContent;
+import io.github.ma1uta.matrix.event.content.PolicyRuleRoomContent;
+import io.github.ma1uta.matrix.event.content.PolicyRuleServerContent;
+import io.github.ma1uta.matrix.event.content.PolicyRuleUserContent;
+import io.github.ma1uta.matrix.event.content.PresenceContent;
+import io.github.ma1uta.matrix.event.content.PushRulesContent;
+import io.github.ma1uta.matrix.event.content.ReceiptContent;
+import io.github.ma1uta.matrix.event.content.RoomAliasesContent;
+import io.github.ma1uta.matrix.event.content.RoomAvatarContent;
+import io.github.ma1uta.matrix.event.content.RoomCanonicalAliasContent;
+import io.github.ma1uta.matrix.event.content.RoomCreateContent;
+import io.github.ma1uta.matrix.event.content.RoomEncryptedContent;
+import io.github.ma1uta.matrix.event.content.RoomEncryptionContent;
+import io.github.ma1uta.matrix.event.content.RoomGuestAccessContent;
+import io.github.ma1uta.matrix.event.content.RoomHistoryVisibilityContent;
+import io.github.ma1uta.matrix.event.content.RoomJoinRulesContent;
+import io.github.ma1uta.matrix.event.content.RoomKeyContent;
+import io.github.ma1uta.matrix.event.content.RoomKeyRequestContent;
+import io.github.ma1uta.matrix.event.content.RoomMemberContent;
+import io.github.ma1uta.matrix.event.content.RoomMessageContent;
+import io.github.ma1uta.matrix.event.content.RoomMessageFeedbackContent;
+import io.github.ma1uta.matrix.event.content.RoomNameContent;
+import io.github.ma1uta.matrix.event.content.RoomPinnedContent;
+import io.github.ma1uta.matrix.event.content.RoomPowerLevelsContent;
+import io.github.ma1uta.matrix.event.content.RoomRedactionContent;
+import io.github.ma1uta.matrix.event.content.RoomServerAclContent;
+import io.github.ma1uta.matrix.event.content.RoomThirdPartyInviteContent;
+import io.github.ma1uta.matrix.event.content.RoomTopicContent;
+import io.github.ma1uta.matrix.event.content.StickerContent;
+import io.github.ma1uta.matrix.event.content.TagContent;
+import io.github.ma1uta.matrix.event.content.TombstoneContent;
+import io.github.ma1uta.matrix.event.content.TypingContent;
+import io.github.ma1uta.matrix.event.message.Audio;
+import io.github.ma1uta.matrix.event.message.Emote;
+import io.github.ma1uta.matrix.event.message.File;
+import io.github.ma1uta.matrix.event.message.Image;
+import io.github.ma1uta.matrix.event.message.Location;
+import io.github.ma1uta.matrix.event.message.Notice;
+import io.github.ma1uta.matrix.event.message.ServerNotice;
+import io.github.ma1uta.matrix.event.message.Text;
+import io.github.ma1uta.matrix.event.message.Video;
+
+/**
+ * The event types of the specification.
+ */
+final class DefaultEventTypeProvider implements EventTypeProvider {
+
+    @Override
+    public void register(EventTypeRegistry registry) {
+        registry.register(CallAnswer.TYPE, CallAnswer.class, CallAnswerContent.class);
+        registry.register(CallCandidates.TYPE, CallCandidates.class, CallCandidatesContent.class);
+        registry.register(CallHangup.TYPE, CallHangup.class, CallHangupContent.class);
+        registry.register(CallInvite.TYPE, CallInvite.class, CallInviteContent.class);
+        registry.register(Direct.TYPE, Direct.class, DirectContent.class);
+        registry.register(ForwardedRoomKey.TYPE, ForwardedRoomKey.class, ForwardedRoomKeyContent.class);
+        registry.register(FullyRead.TYPE, FullyRead.class, FullyReadContent.class);
+        registry.register(IgnoredUserList.TYPE, IgnoredUserList.class, IgnoredUserListContent.class);
+        registry.register(Presence.TYPE, Presence.class, PresenceContent.class);
+        registry.register(Receipt.TYPE, Receipt.class, ReceiptContent.class);
+        registry.register(RoomAliases.TYPE, RoomAliases.class, RoomAliasesContent.class);
+        registry.register(RoomAvatar.TYPE, RoomAvatar.class, RoomAvatarContent.class);
+        registry.register(RoomCanonicalAlias.TYPE, RoomCanonicalAlias.class, RoomCanonicalAliasContent.class);
+        registry.register(RoomCreate.TYPE, RoomCreate.class, RoomCreateContent.class);
+        registry.register(RoomGuestAccess.TYPE, RoomGuestAccess.class, RoomGuestAccessContent.class);
+        registry.register(RoomEncryption.TYPE, RoomEncryption.class, RoomEncryptionContent.class);
+        registry.register(RoomEncrypted.TYPE, RoomEncrypted.class, RoomEncryptedContent.class);
+        registry.register(RoomHistoryVisibility.TYPE, RoomHistoryVisibility.class, RoomHistoryVisibilityContent.class);
+        registry.register(RoomJoinRules.TYPE, RoomJoinRules.class, RoomJoinRulesContent.class);
+        registry.register(RoomKey.TYPE, RoomKey.class, RoomKeyContent.class);
+        registry.register(RoomKeyRequest.TYPE, RoomKeyRequest.class, RoomKeyRequestContent.class);
+        registry.register(RoomMember.TYPE, RoomMember.class, RoomMemberContent.class);
+        registry.register(RoomMessage.TYPE, RoomMessage.class, RoomMessageContent.class);
+        registry.register(RoomMessageFeedback.TYPE, RoomMessageFeedback.class, RoomMessageFeedbackContent.class);
+        registry.register(RoomName.TYPE, RoomName.class, RoomNameContent.class);
+        registry.register(RoomPinned.TYPE, RoomPinned.class, RoomPinnedContent.class);
+        registry.register(RoomPowerLevels.TYPE, RoomPowerLevels.class, RoomPowerLevelsContent.class);
+        registry.register(RoomRedaction.TYPE, RoomRedaction.class, RoomRedactionContent.class);
+        registry.register(RoomThirdPartyInvite.TYPE, RoomThirdPartyInvite.class, RoomThirdPartyInviteContent.class);
+        registry.register(RoomTopic.TYPE, RoomTopic.class, RoomTopicContent.class);
+        registry.register(Sticker.TYPE, Sticker.class, StickerContent.class);
+        registry.register(Tag.TYPE, Tag.class, TagContent.class);
+        registry.register(Typing.TYPE, Typing.class, TypingContent.class);
+        registry.register(RoomServerAcl.TYPE, RoomServerAcl.class, RoomServerAclContent.class);
+        registry.register(PushRules.TYPE, PushRules.class, PushRulesContent.class);
+        registry.register(RoomTombstone.TYPE, RoomTombstone.class, TombstoneContent.class);
+        registry.register(Dummy.TYPE, Dummy.class, DummyContent.class);
+        registry.register(KeyVerificationAccept.TYPE, KeyVerificationAccept.class, KeyVerificationAcceptContent.class);
+        registry.register(KeyVerificationCancel.TYPE, KeyVerificationCancel.class, KeyVerificationCancelContent.class);
+        registry.register(KeyVerificationKey.TYPE, KeyVerificationKey.class, KeyVerificationKeyContent.class);
+        registry.register(KeyVerificationMac.TYPE, KeyVerificationMac.class, KeyVerificationMacContent.class);
+        registry.register(KeyVerificationRequest.TYPE, KeyVerificationRequest.class, KeyVerificationRequestContent.class);
+        registry.register(KeyVerificationStart.TYPE, KeyVerificationStart.class, KeyVerificationStartContent.class);
+        registry.register(PolicyRuleRoom.TYPE, PolicyRuleRoom.class, PolicyRuleRoomContent.class);
+        registry.register(PolicyRuleUser.TYPE, PolicyRuleUser.class, PolicyRuleUserContent.class);
+        registry.register(PolicyRuleServer.TYPE, PolicyRuleServer.class, PolicyRuleServerContent.class);
+
+        registry.registerMessage(Audio.MSGTYPE, Audio.class);
+        registry.registerMessage(Emote.MSGTYPE, Emote.class);
+        registry.registerMessage(File.MSGTYPE, File.class);
+        registry.registerMessage(Image.MSGTYPE, Image.class);
+        registry.registerMessage(Location.MSGTYPE, Location.class);
+        registry.registerMessage(Notice.MSGTYPE, Notice.class);
+        registry.registerMessage(Text.MSGTYPE, Text.class);
+        registry.registerMessage(Video.MSGTYPE, Video.class);
+        registry.registerMessage(ServerNotice.MSGTYPE, ServerNotice.class);
+    }
+}
@@ -19,9 +19,17 @@ package io.github.ma1uta.matrix.impl;
 import io.github.ma1uta.matrix.event.content.EventContent;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * Deserializer.
+ * <br>
+ * The stream overloads are implemented natively by the providers. The default buffer and channel overloads adapt the source
+ * to the stream without copying it, which is the native path for the channels because neither Jackson nor JSON-B has
+ * a channel source. The providers override the buffer overloads to read the heap buffers in place.
  */
 public interface Deserializer {
 
@@ -36,6 +44,45 @@ public interface Deserializer {
      */
     <T> T deserialize(byte[] bytes, Class<T> clazz) throws IOException;
 
+    /**
+     * Deserialize the stream to class. The stream may be closed by the provider.
+     *
+     * @param inputStream instance content.
+     * @param clazz       class name.
+     * @param <T>         class type.
+     * @return deserialized object.
+     * @throws IOException when unable to deserialize object.
+     */
+    default <T> T deserialize(InputStream inputStream, Class<T> clazz) throws IOException {
+        return deserialize(inputStream.readAllBytes(), clazz);
+    }
+
+    /**
+     * Deserialize the remaining bytes of the buffer to class. The position of the buffer isn't changed.
+     *
+     * @param buffer instance content.
+     * @param clazz  class name.
+     * @param <T>    class type.
+     * @return deserialized object.
+     * @throws IOException when unable to deserialize object.
+     */
+    default <T> T deserialize(ByteBuffer buffer, Class<T> clazz) throws IOException {
+        return deserialize(new ByteBufferInputStream(buffer), clazz);
+    }
+
+    /**
+     * Deserialize the channel content to class. The channel may be closed by the provider.
+     *
+     * @param channel instance content.
+     * @param clazz   class name.
+     * @param <T>     class type.
+     * @return deserialized object.
+     * @throws IOException when unable to deserialize object.
+     */
+    default <T> T deserialize(ReadableByteChannel channel, Class<T> clazz) throws IOException {
+        return deserialize(Channels.newInputStream(channel), clazz);
+    }
+
     /**
      * Deserialize bytes to {@link io.github.ma1uta.matrix.event.content.EventContent}.
      *
@@ -45,4 +92,42 @@ public interface Deserializer {
      * @throws IOException when unable to deserialize object.
      */
     EventContent deserializeEventContent(byte[] bytes, String eventType) throws IOException;
+
+    /**
+     * Deserialize the stream to {@link io.github.ma1uta.matrix.event.content.EventContent}. The stream may be closed by the provider.
+     *
+     * @param inputStream instance content.
+     * @param eventType   event type.
+     * @return event content.
+     * @throws IOException when unable to deserialize object.
+     */
+    default EventContent deserializeEventContent(InputStream inputStream, String eventType) throws IOException {
+        return deserializeEventContent(inputStream.readAllBytes(), eventType);
+    }
+
+    /**
+     * Deserialize the remaining bytes of the buffer to {@link io.github.ma1uta.matrix.event.content.EventContent}.
+     * The position of the buffer isn't changed.
+     *
+     * @param buffer    instance content.
+     * @param eventType event type.
+     * @return event content.
+     * @throws IOException when unable to deserialize object.
+     */
+    default EventContent deserializeEventContent(ByteBuffer buffer, String eventType) throws IOException {
+        return deserializeEventContent(new ByteBufferInputStream(buffer), eventType);
+    }
+
+    /**
+     * Deserialize the channel content to {@link io.github.ma1uta.matrix.event.content.EventContent}.
+     * The channel may be closed by the provider.
+     *
+     * @param channel   instance content.
+     * @param eventType event type.
+     * @return event content.
+     * @throws IOException when unable to deserialize object.
+     */
+    default EventContent deserializeEventContent(ReadableByteChannel channel, String eventType) throws IOException {
+        return deserializeEventContent(Channels.newInputStream(channel), eventType);
+    }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.impl;
+
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.content.EventContent;
+
+import java.util.Objects;
+
+/**
+ * The binding of the event type to the event class and the event content class.
+ * <br>
+ * The binding is shared by the whole application, so the serialization providers keep the readers precomputed for the binding
+ * in their own caches. This way the readers are released together with the provider which created them.
+ */
+public final class EventBinding {
+
+    private final String type;
+
+    private final Class<? extends Event> eventClass;
+
+    private final Class<? extends EventContent> contentClass;
+
+    EventBinding(String type, Class<? extends Event> eventClass, Class<? extends EventContent> contentClass) {
+        this.type = Objects.requireNonNull(type, "Type must be specified.");
+        this.eventClass = Objects.requireNonNull(eventClass, "Event class must be specified.");
+        this.contentClass = Objects.requireNonNull(contentClass, "Content class must be specified.");
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Class<? extends Event> getEventClass() {
+        return eventClass;
+    }
+
+    public Class<? extends EventContent> getContentClass() {
+        return contentClass;
+    }
+}
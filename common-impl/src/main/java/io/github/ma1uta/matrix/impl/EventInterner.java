@@ -0,0 +1,131 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.impl;
+
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.FullyRead;
+import io.github.ma1uta.matrix.event.Presence;
+import io.github.ma1uta.matrix.event.RawEvent;
+import io.github.ma1uta.matrix.event.Receipt;
+import io.github.ma1uta.matrix.event.RoomEvent;
+import io.github.ma1uta.matrix.event.RoomMember;
+import io.github.ma1uta.matrix.event.StateEvent;
+import io.github.ma1uta.matrix.event.Typing;
+import io.github.ma1uta.matrix.event.content.RoomMemberContent;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Replaces the repeated identifiers of the decoded events with the canonical strings of the {@link StringPool}.
+ * <br>
+ * The room id, the sender and the state key of the events and the membership of the member events are pooled.
+ * The same identifiers of the raw events are pooled in the properties of the event.
+ * The event ids are unique, so they aren't pooled.
+ */
+public final class EventInterner {
+
+    private static volatile EventInterner instance;
+
+    private final StringPool pool;
+
+    public EventInterner(StringPool pool) {
+        this.pool = Objects.requireNonNull(pool, "Pool must be specified.");
+    }
+
+    /**
+     * The interner of the shared pool.
+     *
+     * @return The interner.
+     */
+    public static EventInterner getInstance() {
+        if (instance == null) {
+            synchronized (EventInterner.class) {
+                if (instance == null) {
+                    instance = new EventInterner(StringPool.getInstance());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public StringPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Get the canonical instance of the string.
+     *
+     * @param value The string.
+     * @return The canonical string.
+     */
+    public String intern(String value) {
+        return pool.intern(value);
+    }
+
+    /**
+     * Replace the identifiers of the event with the canonical strings.
+     *
+     * @param event The event.
+     * @param <E>   The event class.
+     * @return The same event.
+     */
+    public <E extends Event> E intern(E event) {
+        if (event instanceof RoomEvent) {
+            RoomEvent<?> roomEvent = (RoomEvent<?>) event;
+            roomEvent.setRoomId(pool.intern(roomEvent.getRoomId()));
+            roomEvent.setSender(pool.intern(roomEvent.getSender()));
+            if (event instanceof StateEvent) {
+                StateEvent<?> stateEvent = (StateEvent<?>) event;
+                stateEvent.setStateKey(pool.intern(stateEvent.getStateKey()));
+            }
+            if (event instanceof RoomMember) {
+                intern(((RoomMember) event).getContent());
+                intern(((RoomMember) event).getPrevContent());
+            }
+        } else if (event instanceof FullyRead) {
+            ((FullyRead) event).setRoomId(pool.intern(((FullyRead) event).getRoomId()));
+        } else if (event instanceof Receipt) {
+            ((Receipt) event).setRoomId(pool.intern(((Receipt) event).getRoomId()));
+        } else if (event instanceof Typing) {
+            ((Typing) event).setRoomId(pool.intern(((Typing) event).getRoomId()));
+        } else if (event instanceof Presence) {
+            ((Presence) event).setSender(pool.intern(((Presence) event).getSender()));
+        } else if (event instanceof RawEvent) {
+            Map<String, Object> properties = ((RawEvent) event).getProperties();
+            if (properties != null) {
+                intern(properties, "room_id");
+                intern(properties, "sender");
+                intern(properties, "state_key");
+            }
+        }
+        return event;
+    }
+
+    private void intern(Map<String, Object> properties, String key) {
+        Object value = properties.get(key);
+        if (value instanceof String) {
+            properties.put(key, pool.intern((String) value));
+        }
+    }
+
+    private void intern(RoomMemberContent content) {
+        if (content != null) {
+            content.setMembership(pool.intern(content.getMembership()));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.impl;
+
+/**
+ * Provider of the event types.
+ * <br>
+ * Register the custom event types and message types to decode them as the typed events instead of the raw events.
+ * Providers are loaded with the {@link java.util.ServiceLoader} after the event types of the specification,
+ * so the provider can override the class of the standard type.
+ */
+public interface EventTypeProvider {
+
+    /**
+     * Register the event types.
+     *
+     * @param registry The registry.
+     */
+    void register(EventTypeRegistry registry);
+}
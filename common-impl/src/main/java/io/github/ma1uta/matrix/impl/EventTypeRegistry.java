@@ -0,0 +1,118 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.impl;
+
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.content.EventContent;
+import io.github.ma1uta.matrix.event.content.RoomMessageContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the event types and the message types.
+ * <br>
+ * The shared instance contains the event types of the specification and the event types of the {@link EventTypeProvider}s.
+ */
+public final class EventTypeRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventTypeRegistry.class);
+
+    private static volatile EventTypeRegistry instance;
+
+    private final Map<String, EventBinding> events = new ConcurrentHashMap<>();
+
+    private final Map<String, Class<? extends RoomMessageContent>> messages = new ConcurrentHashMap<>();
+
+    /**
+     * Create the empty registry.
+     */
+    public EventTypeRegistry() {
+    }
+
+    /**
+     * The shared registry.
+     *
+     * @return The registry with the event types of the specification and the registered providers.
+     */
+    public static EventTypeRegistry getInstance() {
+        if (instance == null) {
+            synchronized (EventTypeRegistry.class) {
+                if (instance == null) {
+                    EventTypeRegistry registry = new EventTypeRegistry();
+                    new DefaultEventTypeProvider().register(registry);
+                    for (EventTypeProvider provider : ServiceLoader.load(EventTypeProvider.class)) {
+                        LOGGER.debug("Register event types of {}", provider.getClass().getName());
+                        provider.register(registry);
+                    }
+                    instance = registry;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Register the event type.
+     *
+     * @param type         The event type.
+     * @param eventClass   The event class.
+     * @param contentClass The event content class.
+     * @return The new binding.
+     */
+    public EventBinding register(String type, Class<? extends Event> eventClass, Class<? extends EventContent> contentClass) {
+        EventBinding binding = new EventBinding(type, eventClass, contentClass);
+        events.put(type, binding);
+        return binding;
+    }
+
+    /**
+     * Register the message type of the room message.
+     *
+     * @param msgtype      The message type.
+     * @param contentClass The message content class.
+     */
+    public void registerMessage(String msgtype, Class<? extends RoomMessageContent> contentClass) {
+        Objects.requireNonNull(msgtype, "Message type must be specified.");
+        Objects.requireNonNull(contentClass, "Content class must be specified.");
+        messages.put(msgtype, contentClass);
+    }
+
+    /**
+     * Find the event type.
+     *
+     * @param type The event type.
+     * @return The binding or {@code null} if the type isn't registered.
+     */
+    public EventBinding find(String type) {
+        return type == null ? null : events.get(type);
+    }
+
+    /**
+     * Find the message type.
+     *
+     * @param msgtype The message type.
+     * @return The message content class or {@code null} if the message type isn't registered.
+     */
+    public Class<? extends RoomMessageContent> findMessage(String msgtype) {
+        return msgtype == null ? null : messages.get(msgtype);
+    }
+}
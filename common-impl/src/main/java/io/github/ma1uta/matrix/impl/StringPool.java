@@ -0,0 +1,133 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.impl;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The bounded pool of the canonical strings.
+ * <br>
+ * The pool is the direct-mapped table: every string has the single slot chosen by its hash and the new string replaces
+ * the string in the occupied slot. So the pool never grows over its capacity, doesn't lock and keeps the most recent
+ * strings. The pool is intended for the identifiers which repeat over the events: room ids, user ids, event types,
+ * message types and memberships.
+ */
+public final class StringPool {
+
+    /**
+     * System property to specify the capacity of the shared pool.
+     */
+    public static final String CAPACITY = "jmsdk.intern.capacity";
+
+    /**
+     * Default capacity of the shared pool.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * Strings longer than this aren't pooled.
+     */
+    public static final int MAX_LENGTH = 255;
+
+    private static final int MAX_CAPACITY = Integer.highestOneBit(Integer.MAX_VALUE);
+
+    private static final int HASH_SHIFT = 16;
+
+    private static volatile StringPool instance;
+
+    private final AtomicReferenceArray<String> table;
+
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create the pool.
+     *
+     * @param capacity The maximum count of the pooled strings, rounded up to the power of two.
+     */
+    public StringPool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        int size = capacity >= MAX_CAPACITY ? MAX_CAPACITY : Integer.highestOneBit(capacity - 1) << 1;
+        this.table = new AtomicReferenceArray<>(Math.max(size, 1));
+        this.mask = table.length() - 1;
+    }
+
+    /**
+     * The shared pool.
+     *
+     * @return The pool with the capacity from the {@link #CAPACITY} system property.
+     */
+    public static StringPool getInstance() {
+        if (instance == null) {
+            synchronized (StringPool.class) {
+                if (instance == null) {
+                    instance = new StringPool(Integer.getInteger(CAPACITY, DEFAULT_CAPACITY));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get the canonical instance of the string.
+     *
+     * @param value The string.
+     * @return The pooled equal string or the same string.
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        int hash = value.hashCode();
+        int index = (hash ^ (hash >>> HASH_SHIFT)) & mask;
+        String pooled = table.get(index);
+        if (value.equals(pooled)) {
+            hits.increment();
+            return pooled;
+        }
+        misses.increment();
+        if (pooled != null) {
+            evictions.increment();
+        }
+        table.set(index, value);
+        return value;
+    }
+
+    public int getCapacity() {
+        return table.length();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+}
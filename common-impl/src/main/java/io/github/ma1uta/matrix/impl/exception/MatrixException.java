@@ -62,4 +62,21 @@ public class MatrixException extends RuntimeException {
     public void setStatus(Integer status) {
         this.status = status;
     }
+
+    /**
+     * Find the matrix exception in the cause chain, for example of the {@link java.util.concurrent.CompletionException}.
+     *
+     * @param error The error.
+     * @return The first matrix exception in the chain or {@code null}.
+     */
+    public static MatrixException find(Throwable error) {
+        Throwable cause = error;
+        while (cause != null) {
+            if (cause instanceof MatrixException) {
+                return (MatrixException) cause;
+            }
+            cause = cause.getCause();
+        }
+        return null;
+    }
 }
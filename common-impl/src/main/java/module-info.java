@@ -1,4 +1,6 @@
 module matrix.common.impl {
+    uses io.github.ma1uta.matrix.impl.EventTypeProvider;
+
     exports io.github.ma1uta.matrix.impl;
     exports io.github.ma1uta.matrix.impl.exception;
 
@@ -0,0 +1,76 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.impl;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.github.ma1uta.matrix.event.RawEvent;
+import io.github.ma1uta.matrix.event.RoomMember;
+import io.github.ma1uta.matrix.event.content.RoomMemberContent;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class EventInternerTest {
+
+    private static final int CAPACITY = 64;
+
+    @Test
+    public void roomMember() {
+        EventInterner interner = new EventInterner(new StringPool(CAPACITY));
+        RoomMember first = interner.intern(member());
+        RoomMember second = interner.intern(member());
+
+        assertSame(first.getRoomId(), second.getRoomId());
+        assertSame(first.getSender(), second.getSender());
+        assertSame(first.getStateKey(), second.getStateKey());
+        assertSame(first.getContent().getMembership(), second.getContent().getMembership());
+    }
+
+    @Test
+    public void rawEvent() {
+        EventInterner interner = new EventInterner(new StringPool(CAPACITY));
+        RawEvent first = interner.intern(raw());
+        RawEvent second = interner.intern(raw());
+
+        assertSame(first.getProperties().get("room_id"), second.getProperties().get("room_id"));
+        assertSame(first.getProperties().get("sender"), second.getProperties().get("sender"));
+        assertSame(first.getProperties().get("state_key"), second.getProperties().get("state_key"));
+    }
+
+    private static RoomMember member() {
+        RoomMemberContent content = new RoomMemberContent();
+        content.setMembership(new String("join"));
+        RoomMember event = new RoomMember();
+        event.setRoomId(new String("!r:b"));
+        event.setSender(new String("@a:b"));
+        event.setStateKey(new String("@a:b"));
+        event.setContent(content);
+        return event;
+    }
+
+    private static RawEvent raw() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("room_id", new String("!r:b"));
+        properties.put("sender", new String("@a:b"));
+        properties.put("state_key", new String(""));
+        properties.put("type", "org.example.custom");
+        return new RawEvent(properties, "org.example.custom");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class StringPoolTest {
+
+    private static final int CAPACITY = 16;
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "1;1",
+        "2;2",
+        "3;4",
+        "4;4",
+        "5;8",
+        "1000;1024",
+        "8192;8192"
+    }, delimiter = ';')
+    public void capacity(int capacity, int expected) {
+        assertEquals(expected, new StringPool(capacity).getCapacity());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1})
+    public void invalidCapacity(int capacity) {
+        assertThrows(IllegalArgumentException.class, () -> new StringPool(capacity));
+    }
+
+    @Test
+    public void canonical() {
+        StringPool pool = new StringPool(CAPACITY);
+        String first = new String("@a:b");
+        String second = new String("@a:b");
+
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertEquals(1L, pool.getHits());
+        assertEquals(1L, pool.getMisses());
+        assertEquals(0L, pool.getEvictions());
+    }
+
+    @Test
+    public void eviction() {
+        StringPool pool = new StringPool(1);
+        String first = new String("@a:b");
+        String second = new String("!r:b");
+        String third = new String("@a:b");
+
+        assertSame(first, pool.intern(first));
+        assertSame(second, pool.intern(second));
+        assertSame(third, pool.intern(third));
+        assertSame(third, pool.intern(new String("@a:b")));
+        assertEquals(1L, pool.getHits());
+        assertEquals(3L, pool.getMisses());
+        assertEquals(2L, pool.getEvictions());
+    }
+
+    @Test
+    public void maxLength() {
+        StringPool pool = new StringPool(CAPACITY);
+        String tooLong = "a".repeat(StringPool.MAX_LENGTH + 1);
+
+        assertSame(tooLong, pool.intern(tooLong));
+        assertNotSame(tooLong, pool.intern(new String(tooLong)));
+        assertEquals(0L, pool.getHits());
+        assertEquals(0L, pool.getMisses());
+
+        String longest = "a".repeat(StringPool.MAX_LENGTH);
+        assertSame(longest, pool.intern(longest));
+        assertSame(longest, pool.intern(new String(longest)));
+        assertEquals(1L, pool.getHits());
+        assertEquals(1L, pool.getMisses());
+    }
+
+    @Test
+    public void nullValue() {
+        StringPool pool = new StringPool(CAPACITY);
+
+        assertNull(pool.intern(null));
+        assertEquals(0L, pool.getHits());
+        assertEquals(0L, pool.getMisses());
+        assertEquals(0L, pool.getEvictions());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.support.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+
+/**
+ * Deserializer of the polymorphic objects with the string discriminator property (for example, "type" or "msgtype").
+ * <br>
+ * The object is copied as tokens to the buffer and the buffer is bound directly to the target class. The buffered tokens keep
+ * the original payload, so the object which can't be bound is passed to the {@link #failed} as the tree. The tree is built only
+ * for the objects without the discriminator, with the unknown discriminator or which can't be bound.
+ *
+ * @param <T> The base type.
+ */
+public abstract class DiscriminatorDeserializer<T> extends JsonDeserializer<T> {
+
+    private final String property;
+
+    protected DiscriminatorDeserializer(String property) {
+        this.property = property;
+    }
+
+    /**
+     * Find the class of the discriminator.
+     *
+     * @param discriminator The discriminator value.
+     * @return The target class or {@code null} if the discriminator is unknown.
+     */
+    protected abstract Class<? extends T> resolve(String discriminator);
+
+    /**
+     * Parse the object without the discriminator or with the unknown discriminator.
+     *
+     * @param node          The object.
+     * @param parser        The parser.
+     * @param ctxt          The deserialization context.
+     * @param discriminator The discriminator value or {@code null} if the object doesn't have it.
+     * @return The parsed object.
+     * @throws IOException when unable to parse the object.
+     */
+    protected abstract T fallback(JsonNode node, JsonParser parser, DeserializationContext ctxt, String discriminator) throws IOException;
+
+    /**
+     * Handle the object which can't be bound to the target class.
+     * <br>
+     * Rethrows the exception by default.
+     *
+     * @param exception     The binding exception.
+     * @param node          The whole object.
+     * @param parser        The parser.
+     * @param ctxt          The deserialization context.
+     * @param discriminator The discriminator value.
+     * @return The parsed object.
+     * @throws IOException when the object must not be skipped.
+     */
+    protected T failed(Exception exception, JsonNode node, JsonParser parser, DeserializationContext ctxt, String discriminator)
+        throws IOException {
+        if (exception instanceof IOException) {
+            throw (IOException) exception;
+        }
+        throw (RuntimeException) exception;
+    }
+
+    @Override
+    public T deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = parser.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            return fallback(ctxt.readTree(parser), parser, ctxt, null);
+        }
+
+        TokenBuffer buffer = new TokenBuffer(parser, ctxt);
+        buffer.writeStartObject();
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String name = parser.getCurrentName();
+            token = parser.nextToken();
+            buffer.writeFieldName(name);
+            if (token == JsonToken.VALUE_STRING && property.equals(name)) {
+                String discriminator = parser.getText();
+                buffer.writeString(discriminator);
+                return bind(buffer, parser, ctxt, discriminator);
+            }
+            buffer.copyCurrentStructure(parser);
+        }
+        buffer.writeEndObject();
+
+        JsonParser buffered = buffer.asParser(parser);
+        buffered.nextToken();
+        return fallback(ctxt.readTree(buffered), parser, ctxt, null);
+    }
+
+    private T bind(TokenBuffer buffer, JsonParser parser, DeserializationContext ctxt, String discriminator) throws IOException {
+        Class<? extends T> target = resolve(discriminator);
+        if (target == null) {
+            parser.clearCurrentToken();
+            JsonParser sequence = JsonParserSequence.createFlattened(false, buffer.asParser(parser), parser);
+            sequence.nextToken();
+            return fallback(ctxt.readTree(sequence), parser, ctxt, discriminator);
+        }
+
+        for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            buffer.writeFieldName(parser.getCurrentName());
+            parser.nextToken();
+            buffer.copyCurrentStructure(parser);
+        }
+        buffer.writeEndObject();
+
+        JsonParser buffered = buffer.asParser(parser);
+        buffered.nextToken();
+        try {
+            return ctxt.readValue(buffered, target);
+        } catch (IOException | RuntimeException e) {
+            JsonParser source = buffer.asParser(parser);
+            source.nextToken();
+            return failed(e, ctxt.readTree(source), parser, ctxt, discriminator);
+        }
+    }
+}
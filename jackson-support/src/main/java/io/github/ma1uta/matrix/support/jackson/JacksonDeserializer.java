@@ -18,9 +18,12 @@ package io.github.ma1uta.matrix.support.jackson;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.ma1uta.matrix.event.content.EventContent;
+import io.github.ma1uta.matrix.impl.ByteBufferInputStream;
 import io.github.ma1uta.matrix.impl.Deserializer;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Matrix Jackson-based deserializer.
@@ -35,8 +38,36 @@ public class JacksonDeserializer implements Deserializer {
         return mapper.readValue(bytes, clazz);
     }
 
+    @Override
+    public <T> T deserialize(InputStream inputStream, Class<T> clazz) throws IOException {
+        return mapper.readValue(inputStream, clazz);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuffer buffer, Class<T> clazz) throws IOException {
+        if (buffer.hasArray()) {
+            return mapper.readValue(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), clazz);
+        }
+        return mapper.readValue(new ByteBufferInputStream(buffer), clazz);
+    }
+
     @Override
     public EventContent deserializeEventContent(byte[] bytes, String eventType) throws IOException {
         return eventContentDeserializer.deserialize(bytes, eventType, mapper);
     }
+
+    @Override
+    public EventContent deserializeEventContent(InputStream inputStream, String eventType) throws IOException {
+        return eventContentDeserializer.deserialize(mapper.getFactory().createParser(inputStream), eventType, mapper);
+    }
+
+    @Override
+    public EventContent deserializeEventContent(ByteBuffer buffer, String eventType) throws IOException {
+        if (buffer.hasArray()) {
+            return eventContentDeserializer.deserialize(
+                mapper.getFactory().createParser(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()),
+                eventType, mapper);
+        }
+        return deserializeEventContent(new ByteBufferInputStream(buffer), eventType);
+    }
 }
@@ -19,41 +19,38 @@ package io.github.ma1uta.matrix.support.jackson;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
 import io.github.ma1uta.matrix.event.content.RoomEncryptedContent;
 import io.github.ma1uta.matrix.event.encrypted.MegolmEncryptedContent;
 import io.github.ma1uta.matrix.event.encrypted.OlmEncryptedContent;
 import io.github.ma1uta.matrix.event.encrypted.RawEncryptedContent;
 
-import java.io.IOException;
-
 /**
  * RoomEncryptedContent deserializer.
  */
-public class RoomEncryptedContentDeserializer extends JsonDeserializer<RoomEncryptedContent> {
-
-    @Override
-    public RoomEncryptedContent deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
-        ObjectCodec codec = parser.getCodec();
-        JsonNode node = codec.readTree(parser);
+public class RoomEncryptedContentDeserializer extends DiscriminatorDeserializer<RoomEncryptedContent> {
 
-        JsonNode algorithmNode = node.get("algorithm");
-        if (algorithmNode == null || !algorithmNode.isTextual()) {
-            return parse(node, ctxt, codec, null);
-        }
-        String algorithm = algorithmNode.asText();
+    public RoomEncryptedContentDeserializer() {
+        super("algorithm");
+    }
 
+    @Override
+    protected Class<? extends RoomEncryptedContent> resolve(String algorithm) {
         switch (algorithm) {
             case MegolmEncryptedContent.ALGORITHM:
-                return codec.treeToValue(node, MegolmEncryptedContent.class);
+                return MegolmEncryptedContent.class;
             case OlmEncryptedContent.ALGORITHM:
-                return codec.treeToValue(node, OlmEncryptedContent.class);
+                return OlmEncryptedContent.class;
             default:
-                return parse(node, ctxt, codec, algorithm);
+                return null;
         }
     }
 
+    @Override
+    protected RoomEncryptedContent fallback(JsonNode node, JsonParser parser, DeserializationContext ctxt, String algorithm) {
+        return parse(node, ctxt, parser.getCodec(), algorithm);
+    }
+
     protected RoomEncryptedContent parse(JsonNode jsonNode, DeserializationContext ctxt, ObjectCodec codec, String algorithm) {
         return new RawEncryptedContent(jsonNode, algorithm);
     }
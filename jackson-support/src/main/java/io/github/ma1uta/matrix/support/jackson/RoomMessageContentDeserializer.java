@@ -19,63 +19,39 @@ package io.github.ma1uta.matrix.support.jackson;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
 import io.github.ma1uta.matrix.event.content.RoomMessageContent;
-import io.github.ma1uta.matrix.event.message.Audio;
-import io.github.ma1uta.matrix.event.message.Emote;
-import io.github.ma1uta.matrix.event.message.File;
-import io.github.ma1uta.matrix.event.message.Image;
-import io.github.ma1uta.matrix.event.message.Location;
-import io.github.ma1uta.matrix.event.message.Notice;
 import io.github.ma1uta.matrix.event.message.RawMessageContent;
-import io.github.ma1uta.matrix.event.message.ServerNotice;
-import io.github.ma1uta.matrix.event.message.Text;
-import io.github.ma1uta.matrix.event.message.Video;
-
-import java.io.IOException;
+import io.github.ma1uta.matrix.impl.EventInterner;
+import io.github.ma1uta.matrix.impl.EventTypeRegistry;
 
 /**
  * The room message deserializer.
  */
-public class RoomMessageContentDeserializer extends JsonDeserializer<RoomMessageContent> {
+public class RoomMessageContentDeserializer extends DiscriminatorDeserializer<RoomMessageContent> {
+
+    private final EventTypeRegistry registry;
+
+    public RoomMessageContentDeserializer() {
+        this(EventTypeRegistry.getInstance());
+    }
+
+    public RoomMessageContentDeserializer(EventTypeRegistry registry) {
+        super("msgtype");
+        this.registry = registry;
+    }
 
     @Override
-    public RoomMessageContent deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
-        ObjectCodec codec = parser.getCodec();
-        JsonNode node = codec.readTree(parser);
+    protected Class<? extends RoomMessageContent> resolve(String msgtype) {
+        return registry.findMessage(msgtype);
+    }
 
+    @Override
+    protected RoomMessageContent fallback(JsonNode node, JsonParser parser, DeserializationContext ctxt, String msgtype) {
         if (node == null) {
             return null;
         }
-
-        JsonNode typeNode = node.get("msgtype");
-        if (typeNode == null || !typeNode.isTextual()) {
-            return parse(node, ctxt, codec, null);
-        }
-        String msgtype = typeNode.asText();
-        switch (msgtype) {
-            case Audio.MSGTYPE:
-                return codec.treeToValue(node, Audio.class);
-            case Emote.MSGTYPE:
-                return codec.treeToValue(node, Emote.class);
-            case File.MSGTYPE:
-                return codec.treeToValue(node, File.class);
-            case Image.MSGTYPE:
-                return codec.treeToValue(node, Image.class);
-            case Location.MSGTYPE:
-                return codec.treeToValue(node, Location.class);
-            case Notice.MSGTYPE:
-                return codec.treeToValue(node, Notice.class);
-            case Text.MSGTYPE:
-                return codec.treeToValue(node, Text.class);
-            case Video.MSGTYPE:
-                return codec.treeToValue(node, Video.class);
-            case ServerNotice.MSGTYPE:
-                return codec.treeToValue(node, ServerNotice.class);
-            default:
-                return parse(node, ctxt, codec, msgtype);
-        }
+        return parse(node, ctxt, parser.getCodec(), EventInterner.getInstance().intern(msgtype));
     }
 
     protected RoomMessageContent parse(JsonNode jsonNode, DeserializationContext ctxt, ObjectCodec codec, String msgtype) {
@@ -18,12 +18,14 @@ package io.github.ma1uta.matrix.support.jackson;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.RawEvent;
 import io.github.ma1uta.matrix.event.RoomMessage;
 import io.github.ma1uta.matrix.event.RoomName;
 import io.github.ma1uta.matrix.event.RoomTopic;
@@ -35,13 +37,18 @@ import io.github.ma1uta.matrix.event.content.RoomTopicContent;
 import io.github.ma1uta.matrix.event.message.Notice;
 import io.github.ma1uta.matrix.event.message.RawMessageContent;
 import io.github.ma1uta.matrix.event.message.Text;
+import io.github.ma1uta.matrix.impl.EventTypeRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 
 public class RoomMessageContentDeserializerTest {
 
@@ -143,5 +150,103 @@ public class RoomMessageContentDeserializerTest {
         Text text = (Text) content;
         assertEquals(body, text.getBody());
     }
-}
 
+    @ParameterizedTest
+    @CsvSource(value = {
+        "{\"content\":{\"body\":\"test\",\"msgtype\":\"m.text\"},\"sender\":\"@a:b\",\"type\":\"m.room.message\"};test",
+        "{\"content\":{\"body\":\"test\",\"msgtype\":\"m.text\"},\"type\":\"m.room.message\",\"sender\":\"@a:b\"};test"
+    }, delimiter = ';')
+    public void typeAfterContent(String eventArg, String body) throws IOException {
+        Event[] events = mapper.readValue("[" + eventArg + "," + eventArg + "]", Event[].class);
+        assertEquals(2, events.length);
+        for (Event event : events) {
+            assertTrue(event instanceof RoomMessage);
+            RoomMessage roomMessage = (RoomMessage) event;
+            assertEquals("@a:b", roomMessage.getSender());
+            assertEquals(body, ((Text) roomMessage.getContent()).getBody());
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "{\"content\":{\"custom\":[1,{\"a\":2}]},\"type\":\"org.example.custom\"};org.example.custom",
+        "{\"content\":{\"custom\":true}};"
+    }, delimiter = ';')
+    public void rawEvent(String eventArg, String type) throws IOException {
+        Event event = mapper.readValue(eventArg, Event.class);
+        assertTrue(event instanceof RawEvent);
+        assertEquals(type, event.getType());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "{\"type\":\"m.room.topic\",\"content\":{\"topic\":{\"nested\":[1,2]}},\"sender\":\"@a:b\"}",
+        "{\"content\":{\"topic\":{\"nested\":[1,2]}},\"type\":\"m.room.topic\",\"sender\":\"@a:b\"}"
+    })
+    public void unboundEventKeepsPayload(String eventArg) throws IOException {
+        Event[] events = mapper.readValue("[" + eventArg + ",{\"type\":\"m.room.topic\",\"content\":{\"topic\":\"next\"}}]",
+            Event[].class);
+        assertEquals(2, events.length);
+
+        assertTrue(events[0] instanceof RawEvent);
+        assertEquals(RoomTopic.TYPE, events[0].getType());
+        Map<String, Object> properties = ((RawEvent) events[0]).getProperties();
+        assertEquals("@a:b", properties.get("sender"));
+        assertEquals(Collections.singletonMap("topic", Collections.singletonMap("nested", Arrays.asList(1, 2))),
+            properties.get("content"));
+
+        assertTrue(events[1] instanceof RoomTopic);
+        assertEquals("next", ((RoomTopic) events[1]).getContent().getTopic());
+    }
+
+    @Test
+    public void registeredTypes() throws IOException {
+        EventTypeRegistry registry = new EventTypeRegistry();
+        registry.register("org.example.topic", RoomTopic.class, RoomTopicContent.class);
+        registry.registerMessage("org.example.notice", Notice.class);
+
+        ObjectMapper custom = new ObjectMapper();
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(Event.class, new EventDeserializer(registry));
+        module.addDeserializer(RoomMessageContent.class, new RoomMessageContentDeserializer(registry));
+        custom.registerModule(module);
+        custom.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        Event event = custom.readValue("{\"content\":{\"topic\":\"test\"},\"type\":\"org.example.topic\"}", Event.class);
+        assertTrue(event instanceof RoomTopic);
+        assertEquals("test", ((RoomTopic) event).getContent().getTopic());
+
+        RoomMessageContent content = custom.readValue("{\"body\":\"test\",\"msgtype\":\"org.example.notice\"}",
+            RoomMessageContent.class);
+        assertTrue(content instanceof Notice);
+        assertEquals("test", content.getBody());
+
+        Event builtin = custom.readValue("{\"content\":{\"name\":\"test\"},\"type\":\"m.room.name\"}", Event.class);
+        assertTrue(builtin instanceof RawEvent);
+    }
+
+    @Test
+    public void internedIdentifiers() throws IOException {
+        String event = "{\"content\":{\"body\":\"test\",\"msgtype\":\"m.text\"},\"room_id\":\"!r:b\",\"sender\":\"@a:b\","
+            + "\"type\":\"m.room.message\"}";
+        Event[] events = mapper.readValue("[" + event + "," + event + "]", Event[].class);
+
+        RoomMessage first = (RoomMessage) events[0];
+        RoomMessage second = (RoomMessage) events[1];
+        assertEquals("@a:b", first.getSender());
+        assertSame(first.getSender(), second.getSender());
+        assertSame(first.getRoomId(), second.getRoomId());
+    }
+
+    @Test
+    public void internedRawIdentifiers() throws IOException {
+        String event = "{\"content\":{\"custom\":true},\"room_id\":\"!r:b\",\"sender\":\"@a:b\",\"type\":\"org.example.custom\"}";
+        Event[] events = mapper.readValue("[" + event + "," + event + "]", Event[].class);
+
+        RawEvent first = (RawEvent) events[0];
+        RawEvent second = (RawEvent) events[1];
+        assertEquals("@a:b", first.getProperties().get("sender"));
+        assertSame(first.getProperties().get("sender"), second.getProperties().get("sender"));
+        assertSame(first.getProperties().get("room_id"), second.getProperties().get("room_id"));
+    }
+}
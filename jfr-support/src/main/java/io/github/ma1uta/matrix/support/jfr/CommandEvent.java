@@ -0,0 +1,66 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Invocation of the bot command.
+ */
+@Name(CommandEvent.NAME)
+@Label("Matrix Bot Command")
+@Category({"Matrix", "Bot"})
+@Description("Invocation of the bot command")
+public class CommandEvent extends Event {
+
+    /**
+     * Event name.
+     */
+    public static final String NAME = "io.github.ma1uta.matrix.Command";
+
+    @Label("Command")
+    private String command;
+
+    @Label("Room")
+    private String roomId;
+
+    @Label("Invoked")
+    private boolean invoked;
+
+    @Label("Error")
+    private String error;
+
+    public void setCommand(String command) {
+        this.command = command;
+    }
+
+    public void setRoomId(String roomId) {
+        this.roomId = roomId;
+    }
+
+    public void setInvoked(boolean invoked) {
+        this.invoked = invoked;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * REST call to the homeserver.
+ */
+@Name(HttpEvent.NAME)
+@Label("Matrix HTTP Call")
+@Category({"Matrix", "HTTP"})
+@Description("REST call to the homeserver")
+@StackTrace(false)
+public class HttpEvent extends Event {
+
+    /**
+     * Event name.
+     */
+    public static final String NAME = "io.github.ma1uta.matrix.Http";
+
+    @Label("Method")
+    private String method;
+
+    @Label("Endpoint")
+    @Description("Request path without the query")
+    private String endpoint;
+
+    @Label("Status")
+    private int status;
+
+    @Label("Response Bytes")
+    @Description("Content length of the response or -1 if unknown")
+    @DataAmount
+    private long responseBytes;
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public void setResponseBytes(long responseBytes) {
+        this.responseBytes = responseBytes;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.support.jfr;
+
+import io.github.ma1uta.matrix.bot.CommandMonitor;
+import jdk.jfr.EventType;
+
+/**
+ * Records {@link CommandEvent} for each bot command invocation.
+ * <br>
+ * The bot-impl is the optional dependency. The monitor is loaded only by the bots through the {@link java.util.ServiceLoader},
+ * so the clients without the bot-impl never load this class.
+ */
+public class JfrCommandMonitor implements CommandMonitor {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(CommandEvent.class);
+
+    @Override
+    public boolean isEnabled() {
+        return EVENT_TYPE.isEnabled();
+    }
+
+    @Override
+    public Trace start(String command, String roomId) {
+        CommandEvent event = new CommandEvent();
+        event.setCommand(command);
+        event.setRoomId(roomId);
+        event.begin();
+        return (invoked, error) -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setInvoked(invoked);
+                event.setError(error == null ? null : error.getClass().getName());
+                event.commit();
+            }
+        };
+    }
+}
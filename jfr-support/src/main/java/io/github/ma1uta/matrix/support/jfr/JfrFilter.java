@@ -0,0 +1,59 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.support.jfr;
+
+import java.io.IOException;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+
+/**
+ * Records {@link HttpEvent} for each REST call.
+ */
+public class JfrFilter implements ClientRequestFilter, ClientResponseFilter {
+
+    private static final String EVENT_PROPERTY = HttpEvent.class.getName();
+
+    @Override
+    public void filter(ClientRequestContext requestContext) throws IOException {
+        HttpEvent event = new HttpEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.begin();
+        event.setMethod(requestContext.getMethod());
+        event.setEndpoint(requestContext.getUri().getPath());
+        requestContext.setProperty(EVENT_PROPERTY, event);
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
+        Object property = requestContext.getProperty(EVENT_PROPERTY);
+        if (!(property instanceof HttpEvent)) {
+            return;
+        }
+        requestContext.removeProperty(EVENT_PROPERTY);
+        HttpEvent event = (HttpEvent) property;
+        event.end();
+        if (event.shouldCommit()) {
+            event.setStatus(responseContext.getStatus());
+            event.setResponseBytes(responseContext.getLength());
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.support.jfr;
+
+import io.github.ma1uta.matrix.impl.RestClientBuilderConfigurer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+
+import javax.ws.rs.Priorities;
+
+/**
+ * Registers the {@link JfrFilter}.
+ */
+public class JfrRestClientBuilderConfigurer implements RestClientBuilderConfigurer {
+
+    /**
+     * The response filters are invoked in the reverse order, so the filter records the response before the error filter throws.
+     */
+    private static final int JFR_FILTER_PRIORITY = Priorities.USER + 1000;
+
+    @Override
+    public void configure(RestClientBuilder builder) {
+        builder.register(new JfrFilter(), JFR_FILTER_PRIORITY);
+    }
+}
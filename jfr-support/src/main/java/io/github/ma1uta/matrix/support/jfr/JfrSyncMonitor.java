@@ -0,0 +1,48 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.support.jfr;
+
+import io.github.ma1uta.matrix.client.sync.SyncMonitor;
+import io.github.ma1uta.matrix.client.sync.SyncStatistics;
+import jdk.jfr.EventType;
+
+/**
+ * Records {@link SyncEvent} for each sync iteration.
+ */
+public class JfrSyncMonitor implements SyncMonitor {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(SyncEvent.class);
+
+    @Override
+    public boolean isEnabled() {
+        return EVENT_TYPE.isEnabled();
+    }
+
+    @Override
+    public void iteration(SyncStatistics statistics) {
+        SyncEvent event = new SyncEvent();
+        if (event.shouldCommit()) {
+            event.setEvents(statistics.getEvents());
+            event.setPayloadBytes(statistics.getPayloadBytes());
+            event.setRequestTime(statistics.getRequestTime());
+            event.setDecodeTime(statistics.getDecodeTime());
+            event.setListenerTime(statistics.getListenerTime());
+            event.setNewestEventAge(statistics.getNewestEventAge());
+            event.commit();
+        }
+    }
+}
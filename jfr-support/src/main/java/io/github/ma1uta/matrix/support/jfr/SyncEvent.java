@@ -0,0 +1,92 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.support.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Iteration of the sync loop.
+ */
+@Name(SyncEvent.NAME)
+@Label("Matrix Sync Iteration")
+@Category({"Matrix", "Sync"})
+@Description("Iteration of the sync loop")
+@StackTrace(false)
+public class SyncEvent extends Event {
+
+    /**
+     * Event name.
+     */
+    public static final String NAME = "io.github.ma1uta.matrix.Sync";
+
+    @Label("Events")
+    @Description("Count of the events in the batch")
+    private int events;
+
+    @Label("Payload")
+    @DataAmount
+    private long payloadBytes;
+
+    @Label("Request Time")
+    @Description("Time from the sending the request to the receiving the whole body")
+    @Timespan
+    private long requestTime;
+
+    @Label("Decode Time")
+    @Timespan
+    private long decodeTime;
+
+    @Label("Listener Time")
+    @Timespan
+    private long listenerTime;
+
+    @Label("Newest Event Age")
+    @Description("Age of the newest timeline event or -1 if the batch doesn't contain timeline events")
+    @Timespan(Timespan.MILLISECONDS)
+    private long newestEventAge;
+
+    public void setEvents(int events) {
+        this.events = events;
+    }
+
+    public void setPayloadBytes(long payloadBytes) {
+        this.payloadBytes = payloadBytes;
+    }
+
+    public void setRequestTime(long requestTime) {
+        this.requestTime = requestTime;
+    }
+
+    public void setDecodeTime(long decodeTime) {
+        this.decodeTime = decodeTime;
+    }
+
+    public void setListenerTime(long listenerTime) {
+        this.listenerTime = listenerTime;
+    }
+
+    public void setNewestEventAge(long newestEventAge) {
+        this.newestEventAge = newestEventAge;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.github.ma1uta.matrix.bot.CommandMonitor;
+import io.github.ma1uta.matrix.client.sync.SyncMonitor;
+import io.github.ma1uta.matrix.impl.RestClientBuilderConfigurer;
+import io.github.ma1uta.matrix.support.jfr.JfrCommandMonitor;
+import io.github.ma1uta.matrix.support.jfr.JfrRestClientBuilderConfigurer;
+import io.github.ma1uta.matrix.support.jfr.JfrSyncMonitor;
+
+module matrix.support.jfr {
+    exports io.github.ma1uta.matrix.support.jfr;
+
+    requires transitive matrix.client.impl;
+    requires static matrix.bot;
+    requires jdk.jfr;
+
+    provides RestClientBuilderConfigurer with JfrRestClientBuilderConfigurer;
+    provides SyncMonitor with JfrSyncMonitor;
+    provides CommandMonitor with JfrCommandMonitor;
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.support.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.ma1uta.matrix.client.sync.SyncStatistics;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class JfrSyncMonitorTest {
+
+    @Test
+    public void recordSyncIteration() throws Exception {
+        JfrSyncMonitor monitor = new JfrSyncMonitor();
+        Path file = Files.createTempFile("sync", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(SyncEvent.NAME);
+            recording.start();
+
+            SyncStatistics statistics = new SyncStatistics();
+            statistics.setEvents(3);
+            statistics.setPayloadBytes(1024L);
+            statistics.setDecodeTime(Duration.ofMillis(2).toNanos());
+            monitor.iteration(statistics);
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> SyncEvent.NAME.equals(event.getEventType().getName()))
+                .collect(Collectors.toList());
+            assertEquals(1, events.size());
+            assertEquals(3, events.get(0).getInt("events"));
+            assertEquals(1024L, events.get(0).getLong("payloadBytes"));
+            assertEquals(Duration.ofMillis(2), events.get(0).getDuration("decodeTime"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Meter of the bytes allocated by the current thread.
+ * <br>
+ * Uses the {@link ThreadMXBean#getThreadAllocatedBytes(long)}, so it doesn't need the JMH and can be run in the unit tests
+ * as the guard against the allocation regressions of the hot paths. The operation is warmed up before the measurement,
+ * then the minimal value of the {@link #ROUNDS} rounds is returned to filter out the allocations of the JIT and the class
+ * loading.
+ */
+public final class AllocationMeter {
+
+    /**
+     * Count of the measurement rounds.
+     */
+    public static final int ROUNDS = 5;
+
+    private static final java.lang.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private AllocationMeter() {
+        // singleton.
+    }
+
+    /**
+     * Whether the JVM supports the allocation measurement.
+     *
+     * @return {@code true} if supported, else {@code false}.
+     */
+    public static boolean isSupported() {
+        if (!(THREADS instanceof ThreadMXBean)) {
+            return false;
+        }
+        ThreadMXBean threads = (ThreadMXBean) THREADS;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return false;
+        }
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Measure the bytes allocated per the operation.
+     *
+     * @param warmup     Count of the warm-up invocations.
+     * @param operations Count of the operations per the invocation, for example the count of the decoded events.
+     * @param invocation Count of the measured invocations per the round.
+     * @param operation  The operation.
+     * @return The allocated bytes per the operation.
+     * @throws Exception when the operation failed.
+     */
+    public static long bytesPerOperation(int warmup, int operations, int invocation, Operation operation) throws Exception {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("The thread allocated memory measurement isn't supported");
+        }
+        ThreadMXBean threads = (ThreadMXBean) THREADS;
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+        long min = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < invocation; i++) {
+                operation.run();
+            }
+            long allocated = threads.getThreadAllocatedBytes(threadId) - start;
+            min = Math.min(min, allocated / ((long) operations * invocation));
+        }
+        return min;
+    }
+
+    /**
+     * The measured operation.
+     */
+    @FunctionalInterface
+    public interface Operation {
+
+        /**
+         * Run the operation.
+         *
+         * @throws Exception when the operation failed.
+         */
+        void run() throws Exception;
+    }
+}
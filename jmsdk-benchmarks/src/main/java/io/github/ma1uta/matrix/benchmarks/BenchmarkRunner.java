@@ -0,0 +1,60 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Runs the benchmarks with the GC profiler, so every suite reports the allocation rate along with the throughput.
+ * <br>
+ * Accepts the regular JMH command line options, for example: {@code java -jar benchmarks.jar Deserializer -p corpus=large}.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        // singleton.
+    }
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args The JMH command line options.
+     * @throws CommandLineOptionException when the options are wrong.
+     * @throws RunnerException            when the benchmarks failed.
+     * @throws IOException                when unable to print the help.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        Options options = new OptionsBuilder()
+            .parent(commandLine)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import io.github.ma1uta.matrix.bot.Bot;
+import io.github.ma1uta.matrix.bot.BotConfig;
+import io.github.ma1uta.matrix.bot.BotDao;
+import io.github.ma1uta.matrix.bot.Command;
+import io.github.ma1uta.matrix.bot.Context;
+import io.github.ma1uta.matrix.bot.PersistentService;
+import io.github.ma1uta.matrix.event.RoomEvent;
+import io.github.ma1uta.matrix.event.RoomMessage;
+import io.github.ma1uta.matrix.event.message.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The routing of the message to the bot command: the prefix handling, the argument splitting and the command lookup.
+ * <br>
+ * The commands don't call the server, so only the routing is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("VisibilityModifier")
+public class BotRoutingBenchmark {
+
+    /**
+     * The message body.
+     */
+    @Param( {"!ping", "!echo hello matrix world", "hello default command"})
+    public String body;
+
+    private RoutingBot bot;
+
+    private RoomMessage message;
+
+    /**
+     * Prepare the bot and the message.
+     */
+    @Setup
+    public void setup() {
+        BotConfig config = new BotConfig();
+        config.setUserId("@bot:example.org");
+        config.setDisplayName("bot");
+        config.setDefaultCommand("echo");
+
+        bot = new RoutingBot(config, List.of(PingCommand.class, EchoCommand.class, NoopCommand.class));
+
+        Text text = new Text();
+        text.setBody(body);
+        message = new RoomMessage();
+        message.setRoomId("!room:example.org");
+        message.setSender("@user:example.org");
+        message.setContent(text);
+    }
+
+    /**
+     * Route the message.
+     *
+     * @return {@code true} if the command was invoked.
+     */
+    @Benchmark
+    public boolean route() {
+        return bot.route(message.getRoomId(), message, body);
+    }
+
+    /**
+     * The bot without the matrix client.
+     */
+    static final class RoutingBot extends Bot<BotConfig, RoutingDao, RoutingService, Object> {
+
+        RoutingBot(BotConfig config, List<Class<? extends Command<BotConfig, RoutingDao, RoutingService, Object>>> commands) {
+            super(null, false, config, null, commands);
+        }
+
+        @Override
+        protected Context<BotConfig, RoutingDao, RoutingService, Object> init(String asToken, BotConfig config, RoutingService service) {
+            Context<BotConfig, RoutingDao, RoutingService, Object> context = new Context<>(null, service, this);
+            context.setConfig(config);
+            return context;
+        }
+
+        boolean route(String roomId, RoomEvent event, String content) {
+            return processAction(roomId, event, content);
+        }
+    }
+
+    /**
+     * The bot dao.
+     */
+    interface RoutingDao extends BotDao<BotConfig> {
+    }
+
+    /**
+     * The bot service.
+     */
+    static final class RoutingService extends PersistentService<RoutingDao> {
+
+        RoutingService(RoutingDao dao) {
+            super(dao);
+        }
+    }
+
+    /**
+     * The command without arguments.
+     */
+    public static class PingCommand extends BenchmarkCommand {
+
+        @Override
+        public String name() {
+            return "ping";
+        }
+    }
+
+    /**
+     * The command with arguments.
+     */
+    public static class EchoCommand extends BenchmarkCommand {
+
+        @Override
+        public String name() {
+            return "echo";
+        }
+
+        @Override
+        public boolean invoke(Context<BotConfig, RoutingDao, RoutingService, Object> context, String roomId,
+                              RoomEvent event, String arguments) {
+            return !arguments.isEmpty();
+        }
+    }
+
+    /**
+     * The command which is never invoked.
+     */
+    public static class NoopCommand extends BenchmarkCommand {
+
+        @Override
+        public String name() {
+            return "noop";
+        }
+    }
+
+    /**
+     * The base class of the benchmark commands.
+     */
+    public abstract static class BenchmarkCommand
+        implements Command<BotConfig, RoutingDao, RoutingService, Object> {
+
+        @Override
+        public boolean invoke(Context<BotConfig, RoutingDao, RoutingService, Object> context, String roomId,
+                              RoomEvent event, String arguments) {
+            return true;
+        }
+
+        @Override
+        public String help() {
+            return name();
+        }
+
+        @Override
+        public String usage() {
+            return name();
+        }
+    }
+}
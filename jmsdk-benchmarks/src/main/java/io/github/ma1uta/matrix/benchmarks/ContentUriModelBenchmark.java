@@ -0,0 +1,81 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import io.github.ma1uta.matrix.client.ContentUriModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and formatting of the content URIs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("VisibilityModifier")
+public class ContentUriModelBenchmark {
+
+    /**
+     * The content URI.
+     */
+    @Param( {"mxc://example.org/SEsfnsuifSDFSSEF", "mxc://matrix.example.org:8448/aBcDeFgHiJkLmNoPqRsTuVwXyZ0123456789"})
+    public String uri;
+
+    private ContentUriModel model;
+
+    /**
+     * Parse the URI once for the formatting benchmark.
+     */
+    @Setup
+    public void setup() {
+        model = ContentUriModel.valueOf(uri);
+    }
+
+    /**
+     * Parse the URI.
+     *
+     * @return The model.
+     */
+    @Benchmark
+    public ContentUriModel parse() {
+        return ContentUriModel.valueOf(uri);
+    }
+
+    /**
+     * Format the URI.
+     *
+     * @return The URI.
+     */
+    @Benchmark
+    public String format() {
+        return model.toString();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The synthetic corpora of the sync responses and the events.
+ * <br>
+ * The corpora are generated deterministically and mimic the recorded sync responses: the mix of the text messages,
+ * the member events, the state events, the receipts, the typing notifications and the custom events.
+ */
+public enum Corpus {
+
+    /**
+     * One room with the short timeline, the incremental sync.
+     */
+    SMALL(1, 10),
+
+    /**
+     * Ten rooms with the regular timelines.
+     */
+    MEDIUM(10, 50),
+
+    /**
+     * Fifty rooms with the long timelines, the initial sync of the busy account.
+     */
+    LARGE(50, 200);
+
+    private static final int KINDS = 6;
+
+    private static final int USERS = 20;
+
+    private static final long TIMESTAMP = 1_600_000_000_000L;
+
+    private final int rooms;
+
+    private final int events;
+
+    Corpus(int rooms, int events) {
+        this.rooms = rooms;
+        this.events = events;
+    }
+
+    public int getRooms() {
+        return rooms;
+    }
+
+    public int getEvents() {
+        return events;
+    }
+
+    /**
+     * Get the corpus by the name of the benchmark parameter.
+     *
+     * @param name The corpus name.
+     * @return The corpus.
+     */
+    public static Corpus of(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Generate the sync response.
+     *
+     * @return The sync response in the UTF-8.
+     */
+    public byte[] syncResponse() {
+        StringBuilder sb = new StringBuilder("{\"next_batch\":\"s").append(rooms).append('_').append(events)
+            .append("\",\"rooms\":{\"join\":{");
+        for (int room = 0; room < rooms; room++) {
+            if (room > 0) {
+                sb.append(',');
+            }
+            String roomId = roomId(room);
+            sb.append('"').append(roomId).append("\":{\"timeline\":{\"limited\":false,\"prev_batch\":\"p").append(room)
+                .append("\",\"events\":[");
+            for (int event = 0; event < events; event++) {
+                if (event > 0) {
+                    sb.append(',');
+                }
+                appendTimelineEvent(sb, room, event);
+            }
+            sb.append("]},\"state\":{\"events\":[]},\"ephemeral\":{\"events\":[");
+            appendReceipt(sb, room);
+            sb.append(",{\"type\":\"m.typing\",\"content\":{\"user_ids\":[\"").append(userId(room)).append("\"]}}");
+            sb.append("]},\"account_data\":{\"events\":[]}}");
+        }
+        sb.append("}},\"presence\":{\"events\":[]}}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generate the separate timeline events of the corpus.
+     *
+     * @return The events in the UTF-8.
+     */
+    public List<byte[]> events() {
+        List<byte[]> result = new ArrayList<>(rooms * events);
+        StringBuilder sb = new StringBuilder();
+        for (int room = 0; room < rooms; room++) {
+            for (int event = 0; event < events; event++) {
+                sb.setLength(0);
+                appendTimelineEvent(sb, room, event);
+                result.add(sb.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Generate the content of the event.
+     *
+     * @param type The event type.
+     * @return The content in the UTF-8.
+     */
+    public static byte[] content(String type) {
+        String content;
+        switch (type) {
+            case "m.room.message":
+                content = "{\"msgtype\":\"m.text\",\"body\":\"Hello, world!\",\"format\":\"org.matrix.custom.html\","
+                    + "\"formatted_body\":\"<b>Hello</b>, world!\"}";
+                break;
+            case "m.room.member":
+                content = "{\"membership\":\"join\",\"displayname\":\"Alice\",\"avatar_url\":\"mxc://example.org/avatar\"}";
+                break;
+            case "m.room.power_levels":
+                content = "{\"ban\":50,\"events\":{\"m.room.name\":100,\"m.room.power_levels\":100},\"events_default\":0,"
+                    + "\"invite\":50,\"kick\":50,\"redact\":50,\"state_default\":50,\"users\":{\"@alice:example.org\":100,"
+                    + "\"@bob:example.org\":50},\"users_default\":0,\"notifications\":{\"room\":50}}";
+                break;
+            case "m.room.topic":
+                content = "{\"topic\":\"The benchmark room\"}";
+                break;
+            case "m.receipt":
+                content = "{\"$event:example.org\":{\"m.read\":{\"@alice:example.org\":{\"ts\":1436451550453}}}}";
+                break;
+            default:
+                content = "{\"custom\":[1,2,3],\"nested\":{\"key\":\"value\"}}";
+        }
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendTimelineEvent(StringBuilder sb, int room, int event) {
+        String sender = userId(room + event);
+        sb.append("{\"event_id\":\"$").append(room).append('_').append(event).append(":example.org\",\"sender\":\"").append(sender)
+            .append("\",\"origin_server_ts\":").append(TIMESTAMP + event).append(",\"unsigned\":{\"age\":").append(event)
+            .append("},");
+        switch (event % KINDS) {
+            case 0:
+                sb.append("\"type\":\"m.room.member\",\"state_key\":\"").append(sender)
+                    .append("\",\"content\":{\"membership\":\"join\",\"displayname\":\"User ").append(event).append("\"}}");
+                break;
+            case 1:
+                sb.append("\"type\":\"m.room.topic\",\"state_key\":\"\",\"content\":{\"topic\":\"Topic ").append(event)
+                    .append("\"},\"prev_content\":{\"topic\":\"Old topic\"}}");
+                break;
+            case 2:
+                sb.append("\"content\":{\"custom\":[").append(event).append(",{\"a\":true}]},\"type\":\"org.example.custom\"}");
+                break;
+            default:
+                sb.append("\"type\":\"m.room.message\",\"content\":{\"msgtype\":\"m.text\",\"body\":\"Message number ").append(event)
+                    .append(" in the room\"}}");
+        }
+    }
+
+    private static void appendReceipt(StringBuilder sb, int room) {
+        sb.append("{\"type\":\"m.receipt\",\"content\":{\"$").append(room).append("_0:example.org\":{\"m.read\":{\"")
+            .append(userId(room)).append("\":{\"ts\":1600000000000}}}}}");
+    }
+
+    private static String roomId(int room) {
+        return "!room" + room + ":example.org";
+    }
+
+    private static String userId(int index) {
+        return "@user" + (index % USERS) + ":example.org";
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import io.github.ma1uta.matrix.client.model.sync.SyncResponse;
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.impl.Deserializer;
+import io.github.ma1uta.matrix.support.jackson.JacksonDeserializer;
+import io.github.ma1uta.matrix.support.jsonb.JsonbDeserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the sync responses and the events by the Jackson and the JSON-B deserializers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("VisibilityModifier")
+public class DeserializerBenchmark {
+
+    /**
+     * The deserializer.
+     */
+    @Param( {"jackson", "jsonb"})
+    public String provider;
+
+    /**
+     * The corpus.
+     */
+    @Param( {"small", "medium", "large"})
+    public String corpus;
+
+    private Deserializer deserializer;
+
+    private byte[] syncResponse;
+
+    private List<byte[]> events;
+
+    /**
+     * Prepare the deserializer and the corpus.
+     */
+    @Setup
+    public void setup() {
+        deserializer = Providers.deserializer(provider);
+        Corpus source = Corpus.of(corpus);
+        syncResponse = source.syncResponse();
+        events = source.events();
+    }
+
+    /**
+     * Decode the whole sync response.
+     *
+     * @return The sync response.
+     * @throws IOException when unable to decode.
+     */
+    @Benchmark
+    public SyncResponse syncResponse() throws IOException {
+        return deserializer.deserialize(syncResponse, SyncResponse.class);
+    }
+
+    /**
+     * Decode the events one by one.
+     *
+     * @param blackhole The blackhole.
+     * @throws IOException when unable to decode.
+     */
+    @Benchmark
+    public void events(Blackhole blackhole) throws IOException {
+        for (byte[] event : events) {
+            blackhole.consume(deserializer.deserialize(event, Event.class));
+        }
+    }
+
+    /**
+     * The deserializers.
+     */
+    static final class Providers {
+
+        private Providers() {
+            // singleton.
+        }
+
+        static Deserializer deserializer(String provider) {
+            switch (provider) {
+                case "jackson":
+                    return new JacksonDeserializer();
+                case "jsonb":
+                    return new JsonbDeserializer();
+                default:
+                    throw new IllegalArgumentException("Unknown deserializer: " + provider);
+            }
+        }
+    }
+}
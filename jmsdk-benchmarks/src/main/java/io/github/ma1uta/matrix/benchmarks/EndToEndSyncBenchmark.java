@@ -0,0 +1,102 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import io.github.ma1uta.matrix.benchmarks.homeserver.SyntheticHomeserver;
+import io.github.ma1uta.matrix.client.StandaloneClient;
+import io.github.ma1uta.matrix.client.model.sync.SyncResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The end-to-end sync: the request, the transport and the decoding of the responses served by the synthetic homeserver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djmsdk.resolver.homeserver.verification.disable=true")
+@SuppressWarnings("VisibilityModifier")
+public class EndToEndSyncBenchmark {
+
+    /**
+     * Count of the events in the single sync response.
+     */
+    @Param( {"10", "100", "500"})
+    public int eventsPerSync;
+
+    /**
+     * Fraction of the state events.
+     */
+    @Param( {"0.0", "0.2"})
+    public double stateChurn;
+
+    private SyntheticHomeserver server;
+
+    private StandaloneClient client;
+
+    private String since;
+
+    /**
+     * Start the server and make the initial sync.
+     *
+     * @throws IOException when unable to start the server.
+     */
+    @Setup
+    public void setup() throws IOException {
+        server = SyntheticHomeserver.builder().rooms(Corpus.LARGE.getRooms()).maxEventsPerSync(eventsPerSync).stateChurn(stateChurn)
+            .start();
+        client = new StandaloneClient(server.getUrl());
+        client.getConnectionInfo().setAccessToken("synthetic");
+        since = client.sync().sync(null, null, false, null, 0L).getNextBatch();
+    }
+
+    /**
+     * Stop the client and the server.
+     */
+    @TearDown
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    /**
+     * Make the incremental sync.
+     *
+     * @return The sync response.
+     */
+    @Benchmark
+    public SyncResponse sync() {
+        SyncResponse response = client.sync().sync(null, since, false, null, 0L);
+        since = response.getNextBatch();
+        return response;
+    }
+}
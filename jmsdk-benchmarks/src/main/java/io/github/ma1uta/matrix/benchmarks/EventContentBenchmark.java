@@ -0,0 +1,83 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import io.github.ma1uta.matrix.event.content.EventContent;
+import io.github.ma1uta.matrix.impl.Deserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the event content of the every type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("VisibilityModifier")
+public class EventContentBenchmark {
+
+    /**
+     * The deserializer.
+     */
+    @Param( {"jackson", "jsonb"})
+    public String provider;
+
+    /**
+     * The event type.
+     */
+    @Param( {"m.room.message", "m.room.member", "m.room.power_levels", "m.room.topic", "m.receipt", "org.example.custom"})
+    public String type;
+
+    private Deserializer deserializer;
+
+    private byte[] content;
+
+    /**
+     * Prepare the deserializer and the content.
+     */
+    @Setup
+    public void setup() {
+        deserializer = DeserializerBenchmark.Providers.deserializer(provider);
+        content = Corpus.content(type);
+    }
+
+    /**
+     * Decode the content.
+     *
+     * @return The content.
+     * @throws IOException when unable to decode.
+     */
+    @Benchmark
+    public EventContent content() throws IOException {
+        return deserializer.deserializeEventContent(content, type);
+    }
+}
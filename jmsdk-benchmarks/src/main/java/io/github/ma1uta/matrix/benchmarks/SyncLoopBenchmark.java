@@ -0,0 +1,143 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import io.github.ma1uta.matrix.client.methods.blocked.SyncMethods;
+import io.github.ma1uta.matrix.client.model.sync.JoinedRoom;
+import io.github.ma1uta.matrix.client.model.sync.SyncResponse;
+import io.github.ma1uta.matrix.client.sync.SyncLoop;
+import io.github.ma1uta.matrix.client.sync.SyncStatistics;
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.support.jackson.JacksonDeserializer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overhead of the sync loop: the iteration bookkeeping, the statistics and the dispatch to the listener.
+ * <br>
+ * The sync methods return the prepared response, so no network and no decoding is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("VisibilityModifier")
+public class SyncLoopBenchmark {
+
+    /**
+     * Sync iterations per the benchmark invocation.
+     */
+    public static final int ITERATIONS = 100;
+
+    /**
+     * The corpus.
+     */
+    @Param( {"small", "medium", "large"})
+    public String corpus;
+
+    /**
+     * Whether the sync monitor is registered.
+     */
+    @Param( {"false", "true"})
+    public boolean monitored;
+
+    private SyncMethods syncMethods;
+
+    /**
+     * Decode the response.
+     *
+     * @throws IOException when unable to decode.
+     */
+    @Setup
+    public void setup() throws IOException {
+        SyncResponse response = new JacksonDeserializer().deserialize(Corpus.of(corpus).syncResponse(), SyncResponse.class);
+        syncMethods = new PreparedSyncMethods(response);
+    }
+
+    /**
+     * Run the sync loop for the {@link #ITERATIONS} iterations.
+     *
+     * @param blackhole The blackhole.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ITERATIONS)
+    public void dispatch(Blackhole blackhole) {
+        int[] counter = new int[1];
+        SyncLoop loop = new SyncLoop(syncMethods, (sync, params) -> {
+            dispatch(sync, blackhole);
+            if (++counter[0] >= ITERATIONS) {
+                params.setTerminate(true);
+            }
+        });
+        if (monitored) {
+            loop.addMonitor(blackhole::consume);
+        }
+        loop.run();
+    }
+
+    private static void dispatch(SyncResponse sync, Blackhole blackhole) {
+        for (Map.Entry<String, JoinedRoom> entry : sync.getRooms().getJoin().entrySet()) {
+            for (Event event : entry.getValue().getTimeline().getEvents()) {
+                blackhole.consume(event);
+            }
+        }
+    }
+
+    /**
+     * The sync methods which return the prepared response.
+     */
+    static final class PreparedSyncMethods extends SyncMethods {
+
+        private final SyncResponse response;
+
+        PreparedSyncMethods(SyncResponse response) {
+            super(RestClientBuilder.newBuilder().baseUri(URI.create("http://localhost")));
+            this.response = response;
+        }
+
+        @Override
+        public SyncResponse sync(String filter, String since, boolean fullState, String presence, Long timeout) {
+            return response;
+        }
+
+        @Override
+        public SyncResponse sync(String filter, String since, boolean fullState, String presence, Long timeout, SyncStatistics statistics) {
+            statistics.setNextBatch(response.getNextBatch());
+            statistics.collect(response);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import io.github.ma1uta.matrix.client.model.sync.JoinedRoom;
+import io.github.ma1uta.matrix.client.sync.SyncLoop;
+import io.github.ma1uta.matrix.client.sync.SyncRecorder;
+import io.github.ma1uta.matrix.client.sync.SyncReplayer;
+import io.github.ma1uta.matrix.event.Event;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The replay of the recorded sync stream through the decoding and the sync loop dispatch.
+ * <br>
+ * Pass the recording made with the {@link SyncRecorder} with the {@code -p recording=/path/to/sync.rec} option,
+ * the synthetic recording of the {@link #RESPONSES} copies of the corpus response is used otherwise.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("VisibilityModifier")
+public class SyncReplayBenchmark {
+
+    /**
+     * Count of the responses in the synthetic recording.
+     */
+    public static final int RESPONSES = 20;
+
+    /**
+     * Path to the recording, the empty value to use the synthetic recording.
+     */
+    @Param( {""})
+    public String recording;
+
+    /**
+     * The corpus of the synthetic recording.
+     */
+    @Param( {"small", "medium", "large"})
+    public String corpus;
+
+    private SyncReplayer replayer;
+
+    /**
+     * Load the recording.
+     *
+     * @throws IOException when unable to read the recording.
+     */
+    @Setup
+    public void setup() throws IOException {
+        if (recording.isEmpty()) {
+            byte[] response = Corpus.of(corpus).syncResponse();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (SyncRecorder recorder = new SyncRecorder(output)) {
+                for (int i = 0; i < RESPONSES; i++) {
+                    recorder.record(i, response);
+                }
+            }
+            replayer = new SyncReplayer(new ByteArrayInputStream(output.toByteArray()), false);
+        } else {
+            replayer = new SyncReplayer(Paths.get(recording), false);
+        }
+    }
+
+    /**
+     * Replay the whole recording as fast as possible.
+     *
+     * @param blackhole The blackhole.
+     */
+    @Benchmark
+    public void replay(Blackhole blackhole) {
+        replayer.reset();
+        SyncLoop loop = new SyncLoop(replayer, (sync, params) -> {
+            if (sync.getRooms() != null && sync.getRooms().getJoin() != null) {
+                for (JoinedRoom room : sync.getRooms().getJoin().values()) {
+                    if (room.getTimeline() != null && room.getTimeline().getEvents() != null) {
+                        for (Event event : room.getTimeline().getEvents()) {
+                            blackhole.consume(event);
+                        }
+                    }
+                }
+            }
+            params.setTerminate(replayer.isExhausted());
+        });
+        loop.run();
+    }
+}
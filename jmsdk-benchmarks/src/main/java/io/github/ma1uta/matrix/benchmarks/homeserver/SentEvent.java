@@ -0,0 +1,71 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks.homeserver;
+
+/**
+ * The event sent by the client to the synthetic homeserver.
+ */
+public class SentEvent {
+
+    private final String roomId;
+
+    private final String type;
+
+    private final String eventId;
+
+    private final String content;
+
+    private final long receivedNanos;
+
+    public SentEvent(String roomId, String type, String eventId, String content, long receivedNanos) {
+        this.roomId = roomId;
+        this.type = type;
+        this.eventId = eventId;
+        this.content = content;
+        this.receivedNanos = receivedNanos;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    /**
+     * Provides the raw json content of the event.
+     *
+     * @return The json content.
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * Provides the moment when the server received the event.
+     *
+     * @return The {@link System#nanoTime()} value.
+     */
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks.homeserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The deterministic stream of the generated events.
+ * <br>
+ * The event with the index {@code i} depends only on the seed and the index, so the same configuration produces
+ * the same stream regardless of the timing and the batching of the sync requests.
+ */
+final class SyncStream {
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    private static final long SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private static final int CONTROL_CHARS = 0x20;
+
+    private static final int ENVELOPE_SIZE = 256;
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ";
+
+    private final SyntheticHomeserver.Builder config;
+
+    private final long startMillis;
+
+    SyncStream(SyntheticHomeserver.Builder config, long startMillis) {
+        this.config = config;
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * The count of the events generated to the moment.
+     *
+     * @param nowMillis The moment.
+     * @return The count of the events, {@link Long#MAX_VALUE} when the rate isn't limited.
+     */
+    long available(long nowMillis) {
+        if (config.getEventsPerSecond() <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(nowMillis - startMillis, 0L) * config.getEventsPerSecond() / MILLIS_PER_SECOND;
+    }
+
+    /**
+     * The moment when the event will be generated.
+     *
+     * @param index The event index.
+     * @return The moment in milliseconds.
+     */
+    long scheduled(long index) {
+        if (config.getEventsPerSecond() <= 0) {
+            return startMillis;
+        }
+        return startMillis + (index * MILLIS_PER_SECOND + config.getEventsPerSecond() - 1) / config.getEventsPerSecond();
+    }
+
+    String roomId(int room) {
+        return "!room" + room + ":" + config.getServerName();
+    }
+
+    int room(long index) {
+        return (int) (index % config.getRooms());
+    }
+
+    /**
+     * Generate the event.
+     *
+     * @param index     The event index.
+     * @param nowMillis The current time used for the unlimited rate.
+     * @return The event json.
+     */
+    String event(long index, long nowMillis) {
+        Random random = new Random(config.getSeed() ^ (index * SEED_MULTIPLIER));
+        String sender = "@user" + random.nextInt(config.getUsers()) + ":" + config.getServerName();
+        long ts = config.getEventsPerSecond() <= 0 ? nowMillis : scheduled(index);
+        StringBuilder sb = new StringBuilder(config.getMessageSize() + ENVELOPE_SIZE);
+        sb.append("{\"event_id\":\"$g").append(index).append(':').append(config.getServerName()).append("\",\"sender\":")
+            .append(quote(sender)).append(",\"origin_server_ts\":").append(ts).append(",\"unsigned\":{\"age\":")
+            .append(Math.max(nowMillis - ts, 0L)).append("},");
+        if (random.nextDouble() < config.getStateChurn()) {
+            if (random.nextBoolean()) {
+                sb.append("\"type\":\"m.room.member\",\"state_key\":").append(quote(sender))
+                    .append(",\"content\":{\"membership\":\"").append(random.nextBoolean() ? "join" : "leave").append("\"}}");
+            } else {
+                sb.append("\"type\":\"m.room.topic\",\"state_key\":\"\",\"content\":{\"topic\":")
+                    .append(quote("Topic " + index)).append("}}");
+            }
+        } else {
+            String body = random.nextDouble() < config.getCommandRatio() ? config.getCommand() : text(random);
+            sb.append("\"type\":\"m.room.message\",\"content\":{\"msgtype\":\"m.text\",\"body\":").append(quote(body)).append("}}");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The initial state of the room.
+     *
+     * @param room   The room.
+     * @param userId The user of the sync.
+     * @param now    The current time.
+     * @return The state events.
+     */
+    List<String> state(int room, String userId, long now) {
+        List<String> state = new ArrayList<>();
+        String creator = "@user0:" + config.getServerName();
+        state.add(stateEvent(room, "m.room.create", "", creator, "{\"creator\":" + quote(creator) + "}", now));
+        state.add(stateEvent(room, "m.room.name", "", creator, "{\"name\":" + quote("Room " + room) + "}", now));
+        state.add(stateEvent(room, "m.room.member", userId, userId, "{\"membership\":\"join\"}", now));
+        return Collections.unmodifiableList(state);
+    }
+
+    /**
+     * The stripped state of the invite.
+     *
+     * @param room   The room.
+     * @param userId The invited user.
+     * @return The state events.
+     */
+    List<String> inviteState(int room, String userId) {
+        String inviter = "@user0:" + config.getServerName();
+        List<String> state = new ArrayList<>();
+        state.add("{\"type\":\"m.room.name\",\"state_key\":\"\",\"sender\":" + quote(inviter) + ",\"content\":{\"name\":"
+            + quote("Room " + room) + "}}");
+        state.add("{\"type\":\"m.room.member\",\"state_key\":" + quote(userId) + ",\"sender\":" + quote(inviter)
+            + ",\"content\":{\"membership\":\"invite\"}}");
+        return state;
+    }
+
+    private String stateEvent(int room, String type, String stateKey, String sender, String content, long now) {
+        return "{\"event_id\":\"$state_" + room + "_" + type + ":" + config.getServerName() + "\",\"type\":" + quote(type)
+            + ",\"state_key\":" + quote(stateKey) + ",\"sender\":" + quote(sender) + ",\"origin_server_ts\":" + now
+            + ",\"content\":" + content + "}";
+    }
+
+    private String text(Random random) {
+        StringBuilder sb = new StringBuilder(config.getMessageSize());
+        for (int i = 0; i < config.getMessageSize(); i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Quote the string as the json string.
+     *
+     * @param value The string.
+     * @return The json string.
+     */
+    static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (ch < CONTROL_CHARS) {
+                        sb.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,974 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks.homeserver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Local synthetic homeserver.
+ * <br>
+ * Serves the generated sync stream with the configurable room count, event rate, state churn and response size and accepts
+ * the sends, uploads and receipts in order to measure the sync loop and the bots throughput offline and reproducibly.
+ * <br>
+ * The sync token has the format {@code s<generated>_<injected>} where the {@code generated} is the count of the consumed
+ * generated events and the {@code injected} is the count of the consumed events sent by the clients. Generated events are
+ * distributed across the rooms in round-robin order, the events of the rooms which the user hasn't joined are skipped.
+ * Only the last {@link Builder#maxRetainedEvents(int)} sent events and transaction ids are kept, the client which lags
+ * behind them receives the limited timeline without the dropped events.
+ * <br>
+ * Usage:
+ * <pre>{@code
+ * try (SyntheticHomeserver server = SyntheticHomeserver.builder().rooms(100).eventsPerSecond(1000).start()) {
+ *     StandaloneClient client = new StandaloneClient(server.getUrl());
+ *     ...
+ * }
+ * }</pre>
+ * The client should disable the homeserver verification with the {@code jmsdk.resolver.homeserver.verification.disable}
+ * system property because the server doesn't serve the {@code .well-known} resources.
+ */
+public class SyntheticHomeserver implements Closeable {
+
+    private static final String CLIENT = "/_matrix/client";
+
+    private static final String CLIENT_R0 = CLIENT + "/r0/";
+
+    private static final String MEDIA_R0 = "/_matrix/media/r0/";
+
+    private static final String EMPTY = "{}";
+
+    // the path segments after the /_matrix/client/r0/{rooms|user}/{id}/ prefix.
+    private static final int ACTION = 2;
+
+    private static final int EVENT_TYPE = 3;
+
+    private static final int EVENT_KEY = 4;
+
+    private final Builder config;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final SyncStream stream;
+
+    private final Object monitor = new Object();
+
+    private final List<Injected> injected = new ArrayList<>();
+
+    // the position of the first kept sent event.
+    private int injectedBase;
+
+    private final Set<Integer> joined = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, String> transactions;
+
+    private final List<Consumer<SentEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private final LongAdder syncs = new LongAdder();
+
+    private final LongAdder deliveredEvents = new LongAdder();
+
+    private final LongAdder sends = new LongAdder();
+
+    private final LongAdder uploads = new LongAdder();
+
+    private final LongAdder uploadedBytes = new LongAdder();
+
+    private final LongAdder receipts = new LongAdder();
+
+    private final LongAdder responseBytes = new LongAdder();
+
+    private volatile boolean closed;
+
+    protected SyntheticHomeserver(Builder config) throws IOException {
+        this.config = config;
+        this.stream = new SyncStream(config, System.currentTimeMillis());
+        this.transactions = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > config.getMaxRetainedEvents();
+            }
+        };
+        if (!config.isInvited()) {
+            for (int i = 0; i < config.getRooms(); i++) {
+                joined.add(i);
+            }
+        }
+        this.server = HttpServer.create(new InetSocketAddress(config.getHost(), config.getPort()), 0);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "synthetic-homeserver-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * Create a new builder.
+     *
+     * @return The builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Provides the base url of the server.
+     *
+     * @return The url like {@code http://localhost:port}.
+     */
+    public String getUrl() {
+        return "http://" + config.getHost() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Provides the server configuration.
+     *
+     * @return The configuration.
+     */
+    public Builder getConfig() {
+        return config;
+    }
+
+    /**
+     * Provides the room id.
+     *
+     * @param room The room index.
+     * @return The room id.
+     */
+    public String getRoomId(int room) {
+        return stream.roomId(room);
+    }
+
+    /**
+     * Provides the count of the served sync requests.
+     *
+     * @return The count of the sync requests.
+     */
+    public long getSyncs() {
+        return syncs.sum();
+    }
+
+    /**
+     * Provides the count of the events delivered in the sync responses.
+     *
+     * @return The count of the events.
+     */
+    public long getDeliveredEvents() {
+        return deliveredEvents.sum();
+    }
+
+    /**
+     * Provides the count of the sent message and state events.
+     *
+     * @return The count of the sent events.
+     */
+    public long getSends() {
+        return sends.sum();
+    }
+
+    /**
+     * Provides the count of the uploads.
+     *
+     * @return The count of the uploads.
+     */
+    public long getUploads() {
+        return uploads.sum();
+    }
+
+    /**
+     * Provides the size of the uploaded content.
+     *
+     * @return The size in bytes.
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes.sum();
+    }
+
+    /**
+     * Provides the count of the receipts.
+     *
+     * @return The count of the receipts.
+     */
+    public long getReceipts() {
+        return receipts.sum();
+    }
+
+    /**
+     * Provides the size of the sync responses.
+     *
+     * @return The size in bytes.
+     */
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    /**
+     * Add the listener of the sent events.
+     *
+     * @param listener The listener, invoked on the server thread.
+     */
+    public void addListener(Consumer<SentEvent> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Wait until the clients send the specified count of the events.
+     *
+     * @param count   The expected count of the sent events.
+     * @param timeout The wait timeout.
+     * @return {@code true} if the events have been sent, else {@code false}.
+     * @throws InterruptedException when the current thread is interrupted.
+     */
+    public boolean awaitSends(long count, Duration timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        synchronized (monitor) {
+            long remaining = deadline - System.currentTimeMillis();
+            while (sends.sum() < count && remaining > 0) {
+                monitor.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+        return sends.sum() >= count;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    protected void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getRawPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals(CLIENT + "/versions")) {
+                respond(exchange, HttpURLConnection.HTTP_OK, "{\"versions\":[\"r0.5.0\",\"r0.6.0\"]}");
+            } else if (path.startsWith(CLIENT_R0)) {
+                client(exchange, method, segments(path.substring(CLIENT_R0.length())));
+            } else if (path.startsWith(MEDIA_R0) && "POST".equals(method) && path.endsWith("/upload")) {
+                upload(exchange);
+            } else {
+                unrecognized(exchange);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    protected void client(HttpExchange exchange, String method, List<String> path) throws IOException, InterruptedException {
+        String first = path.get(0);
+        switch (first) {
+            case "sync":
+                sync(exchange);
+                return;
+            case "login":
+            case "register":
+                readBody(exchange);
+                respond(exchange, HttpURLConnection.HTTP_OK, "{\"user_id\":" + SyncStream.quote(config.getUserId())
+                    + ",\"access_token\":\"synthetic\",\"device_id\":\"SYNTHETIC\",\"home_server\":"
+                    + SyncStream.quote(config.getServerName()) + "}");
+                return;
+            case "account":
+                respond(exchange, HttpURLConnection.HTTP_OK, "{\"user_id\":" + SyncStream.quote(config.getUserId()) + "}");
+                return;
+            case "joined_rooms":
+                joinedRooms(exchange);
+                return;
+            case "join":
+                if (path.size() == 2) {
+                    readBody(exchange);
+                    join(exchange, path.get(1));
+                    return;
+                }
+                break;
+            case "user":
+                if (path.size() == ACTION + 1 && "filter".equals(path.get(ACTION))) {
+                    readBody(exchange);
+                    respond(exchange, HttpURLConnection.HTTP_OK, "{\"filter_id\":\"0\"}");
+                    return;
+                }
+                break;
+            case "logout":
+            case "profile":
+                readBody(exchange);
+                respond(exchange, HttpURLConnection.HTTP_OK, EMPTY);
+                return;
+            case "rooms":
+                if (path.size() > ACTION) {
+                    room(exchange, method, path);
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        unrecognized(exchange);
+    }
+
+    protected void room(HttpExchange exchange, String method, List<String> path) throws IOException {
+        String roomId = path.get(1);
+        switch (path.get(ACTION)) {
+            case "send":
+                if (path.size() == EVENT_KEY + 1 && "PUT".equals(method)) {
+                    send(exchange, roomId, path.get(EVENT_TYPE), null, path.get(EVENT_KEY));
+                    return;
+                }
+                break;
+            case "state":
+                if (path.size() > EVENT_TYPE && "PUT".equals(method)) {
+                    send(exchange, roomId, path.get(EVENT_TYPE), path.size() > EVENT_KEY ? path.get(EVENT_KEY) : "", null);
+                    return;
+                }
+                break;
+            case "receipt":
+                readBody(exchange);
+                receipts.increment();
+                respond(exchange, HttpURLConnection.HTTP_OK, EMPTY);
+                return;
+            case "join":
+                readBody(exchange);
+                join(exchange, roomId);
+                return;
+            case "leave":
+                readBody(exchange);
+                int room = roomIndex(roomId);
+                if (room >= 0) {
+                    joined.remove(room);
+                }
+                respond(exchange, HttpURLConnection.HTTP_OK, EMPTY);
+                return;
+            default:
+                break;
+        }
+        unrecognized(exchange);
+    }
+
+    protected void sync(HttpExchange exchange) throws IOException, InterruptedException {
+        syncs.increment();
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        String since = query.get("since");
+        long now = System.currentTimeMillis();
+        String response;
+        if (since == null) {
+            response = initialSync(now);
+        } else {
+            long generated;
+            int consumed;
+            try {
+                int separator = since.indexOf('_');
+                generated = Long.parseLong(since.substring(1, separator));
+                consumed = Integer.parseInt(since.substring(separator + 1));
+            } catch (RuntimeException e) {
+                respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST, "{\"errcode\":\"M_INVALID_PARAM\",\"error\":\"Invalid since\"}");
+                return;
+            }
+            response = incrementalSync(generated, consumed, timeout(query.get("timeout")));
+        }
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        responseBytes.add(bytes.length);
+        respond(exchange, HttpURLConnection.HTTP_OK, bytes);
+    }
+
+    protected String initialSync(long now) {
+        long generated = config.getEventsPerSecond() > 0 ? stream.available(now) : 0L;
+        int consumed;
+        synchronized (monitor) {
+            consumed = injectedEnd();
+        }
+        StringBuilder join = new StringBuilder();
+        StringBuilder invite = new StringBuilder();
+        for (int room = 0; room < config.getRooms(); room++) {
+            String roomId = SyncStream.quote(stream.roomId(room));
+            if (joined.contains(room)) {
+                appendSeparator(join).append(roomId).append(":{\"state\":{\"events\":[")
+                    .append(String.join(",", stream.state(room, config.getUserId(), now)))
+                    .append("]},\"timeline\":{\"events\":[],\"limited\":false}}");
+            } else {
+                appendSeparator(invite).append(roomId).append(":{\"invite_state\":{\"events\":[")
+                    .append(String.join(",", stream.inviteState(room, config.getUserId()))).append("]}}");
+            }
+        }
+        return "{\"next_batch\":\"s" + generated + "_" + consumed + "\",\"rooms\":{\"join\":{" + join + "},\"invite\":{" + invite
+            + "},\"leave\":{}}}";
+    }
+
+    protected String incrementalSync(long since, int consumed, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long generated;
+        int position;
+        boolean limited;
+        List<Injected> sent;
+        synchronized (monitor) {
+            while (true) {
+                long now = System.currentTimeMillis();
+                generated = Math.min(stream.available(now), since + config.getMaxEventsPerSync());
+                if (generated > since || injectedEnd() > consumed || closed || now >= deadline) {
+                    break;
+                }
+                long wakeUp = Math.min(deadline, config.getEventsPerSecond() > 0 ? stream.scheduled(since + 1) : deadline);
+                monitor.wait(Math.max(wakeUp - now, 1L));
+            }
+            // the events sent by the clients go first so that the generated flood can't starve them.
+            int end = injectedEnd();
+            int from = Math.max(Math.min(consumed, end), injectedBase);
+            limited = from > consumed;
+            position = Math.min(end, from + config.getMaxEventsPerSync());
+            sent = new ArrayList<>(injected.subList(from - injectedBase, position - injectedBase));
+            generated = Math.min(generated, since + config.getMaxEventsPerSync() - sent.size());
+        }
+        long now = System.currentTimeMillis();
+        Map<Integer, List<String>> timelines = new TreeMap<>();
+        long delivered = 0;
+        for (long index = since; index < generated; index++) {
+            int room = stream.room(index);
+            if (joined.contains(room)) {
+                timelines.computeIfAbsent(room, r -> new ArrayList<>()).add(stream.event(index, now));
+                delivered++;
+            }
+        }
+        for (Injected event : sent) {
+            if (joined.contains(event.room)) {
+                timelines.computeIfAbsent(event.room, r -> new ArrayList<>()).add(event.json);
+                delivered++;
+            }
+        }
+        deliveredEvents.add(delivered);
+        StringBuilder join = new StringBuilder();
+        for (Map.Entry<Integer, List<String>> entry : timelines.entrySet()) {
+            appendSeparator(join).append(SyncStream.quote(stream.roomId(entry.getKey()))).append(":{\"timeline\":{\"events\":[")
+                .append(String.join(",", entry.getValue())).append("],\"limited\":").append(limited).append(",\"prev_batch\":\"s")
+                .append(since)
+                .append("_").append(consumed).append("\"}}");
+        }
+        return "{\"next_batch\":\"s" + generated + "_" + position + "\",\"rooms\":{\"join\":{" + join + "},\"invite\":{},\"leave\":{}}}";
+    }
+
+    protected void send(HttpExchange exchange, String roomId, String type, String stateKey, String txnId) throws IOException {
+        String content = new String(readBody(exchange), StandardCharsets.UTF_8);
+        int room = roomIndex(roomId);
+        if (room < 0) {
+            respond(exchange, HttpURLConnection.HTTP_NOT_FOUND, "{\"errcode\":\"M_NOT_FOUND\",\"error\":\"Unknown room\"}");
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String eventId;
+        boolean duplicate;
+        synchronized (monitor) {
+            String previous = txnId == null ? null : transactions.get(txnId);
+            duplicate = previous != null;
+            if (duplicate) {
+                eventId = previous;
+            } else {
+                eventId = "$s" + injectedEnd() + ":" + config.getServerName();
+                StringBuilder json = new StringBuilder().append("{\"event_id\":").append(SyncStream.quote(eventId)).append(",\"type\":")
+                    .append(SyncStream.quote(type)).append(",\"sender\":").append(SyncStream.quote(config.getUserId()))
+                    .append(",\"origin_server_ts\":").append(now).append(",\"room_id\":").append(SyncStream.quote(roomId));
+                if (stateKey != null) {
+                    json.append(",\"state_key\":").append(SyncStream.quote(stateKey));
+                }
+                json.append(",\"content\":").append(content.isBlank() ? EMPTY : content).append("}");
+                injected.add(new Injected(room, json.toString()));
+                trimInjected();
+                if (txnId != null) {
+                    transactions.put(txnId, eventId);
+                }
+                sends.increment();
+                monitor.notifyAll();
+            }
+        }
+        if (!duplicate) {
+            SentEvent sent = new SentEvent(roomId, type, eventId, content, System.nanoTime());
+            for (Consumer<SentEvent> listener : listeners) {
+                listener.accept(sent);
+            }
+        }
+        respond(exchange, HttpURLConnection.HTTP_OK, "{\"event_id\":" + SyncStream.quote(eventId) + "}");
+    }
+
+    protected void upload(HttpExchange exchange) throws IOException {
+        long size = readBody(exchange).length;
+        uploads.increment();
+        uploadedBytes.add(size);
+        respond(exchange, HttpURLConnection.HTTP_OK, "{\"content_uri\":\"mxc://" + config.getServerName() + "/u" + uploads.sum() + "\"}");
+    }
+
+    protected void join(HttpExchange exchange, String roomIdOrAlias) throws IOException {
+        int room = roomIndex(roomIdOrAlias);
+        if (room < 0) {
+            respond(exchange, HttpURLConnection.HTTP_NOT_FOUND, "{\"errcode\":\"M_NOT_FOUND\",\"error\":\"Unknown room\"}");
+            return;
+        }
+        joined.add(room);
+        respond(exchange, HttpURLConnection.HTTP_OK, "{\"room_id\":" + SyncStream.quote(stream.roomId(room)) + "}");
+    }
+
+    protected void joinedRooms(HttpExchange exchange) throws IOException {
+        List<String> rooms = new ArrayList<>();
+        for (int room = 0; room < config.getRooms(); room++) {
+            if (joined.contains(room)) {
+                rooms.add(SyncStream.quote(stream.roomId(room)));
+            }
+        }
+        respond(exchange, HttpURLConnection.HTTP_OK, "{\"joined_rooms\":[" + String.join(",", rooms) + "]}");
+    }
+
+    protected void unrecognized(HttpExchange exchange) throws IOException {
+        readBody(exchange);
+        respond(exchange, HttpURLConnection.HTTP_NOT_FOUND, "{\"errcode\":\"M_UNRECOGNIZED\",\"error\":\"Unrecognized request\"}");
+    }
+
+    private int injectedEnd() {
+        return injectedBase + injected.size();
+    }
+
+    // drop the oldest sent events in chunks so that the list isn't shifted on each send.
+    private void trimInjected() {
+        int retained = config.getMaxRetainedEvents();
+        if (injected.size() >= 2 * retained) {
+            int dropped = injected.size() - retained;
+            injected.subList(0, dropped).clear();
+            injectedBase += dropped;
+        }
+    }
+
+    private int roomIndex(String roomId) {
+        for (int room = 0; room < config.getRooms(); room++) {
+            if (stream.roomId(room).equals(roomId)) {
+                return room;
+            }
+        }
+        return -1;
+    }
+
+    private long timeout(String value) {
+        if (value == null) {
+            return 0L;
+        }
+        try {
+            return Math.min(Math.max(Long.parseLong(value), 0L), config.getMaxTimeout());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static StringBuilder appendSeparator(StringBuilder sb) {
+        if (sb.length() > 0) {
+            sb.append(',');
+        }
+        return sb;
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            segments.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+        }
+        return segments;
+    }
+
+    private static Map<String, String> query(String query) {
+        if (query == null || query.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> params = new HashMap<>();
+        for (String param : query.split("&")) {
+            int separator = param.indexOf('=');
+            if (separator > 0) {
+                params.put(URLDecoder.decode(param.substring(0, separator), StandardCharsets.UTF_8),
+                    URLDecoder.decode(param.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            return body.readAllBytes();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        respond(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    /**
+     * The server configuration.
+     */
+    public static class Builder {
+
+        private static final int DEFAULT_ROOMS = 10;
+
+        private static final int DEFAULT_USERS = 20;
+
+        private static final double DEFAULT_STATE_CHURN = 0.1D;
+
+        private static final int DEFAULT_MESSAGE_SIZE = 64;
+
+        private static final int DEFAULT_MAX_EVENTS = 100;
+
+        private static final long DEFAULT_SEED = 42L;
+
+        private static final long DEFAULT_MAX_TIMEOUT = 30_000L;
+
+        private static final int DEFAULT_MAX_RETAINED = 10_000;
+
+        private String host = "localhost";
+
+        private int port = 0;
+
+        private String serverName = "localhost";
+
+        private String userId = "@bot:localhost";
+
+        private int rooms = DEFAULT_ROOMS;
+
+        private int users = DEFAULT_USERS;
+
+        private long eventsPerSecond = 0L;
+
+        private double stateChurn = DEFAULT_STATE_CHURN;
+
+        private int messageSize = DEFAULT_MESSAGE_SIZE;
+
+        private int maxEventsPerSync = DEFAULT_MAX_EVENTS;
+
+        private double commandRatio = 0D;
+
+        private String command = "!ping";
+
+        private boolean invited = false;
+
+        private long seed = DEFAULT_SEED;
+
+        private long maxTimeout = DEFAULT_MAX_TIMEOUT;
+
+        private int maxRetainedEvents = DEFAULT_MAX_RETAINED;
+
+        /**
+         * Set the host name to bind.
+         *
+         * @param host The new value.
+         * @return This builder.
+         */
+        public Builder host(String host) {
+            this.host = host;
+            return this;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * Set the port to bind, {@code 0} to bind an ephemeral port.
+         *
+         * @param port The new value.
+         * @return This builder.
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        /**
+         * Set the server name used in the identifiers.
+         *
+         * @param serverName The new value.
+         * @return This builder.
+         */
+        public Builder serverName(String serverName) {
+            this.serverName = serverName;
+            return this;
+        }
+
+        public String getServerName() {
+            return serverName;
+        }
+
+        /**
+         * Set the user id returned by the login and the registration.
+         *
+         * @param userId The new value.
+         * @return This builder.
+         */
+        public Builder userId(String userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        /**
+         * Set the count of the rooms.
+         *
+         * @param rooms The new value.
+         * @return This builder.
+         */
+        public Builder rooms(int rooms) {
+            this.rooms = rooms;
+            return this;
+        }
+
+        public int getRooms() {
+            return rooms;
+        }
+
+        /**
+         * Set the count of the users which send the generated events.
+         *
+         * @param users The new value.
+         * @return This builder.
+         */
+        public Builder users(int users) {
+            this.users = users;
+            return this;
+        }
+
+        public int getUsers() {
+            return users;
+        }
+
+        /**
+         * Set the rate of the generated events, {@code 0} to generate the events without a limit.
+         *
+         * @param eventsPerSecond The new value.
+         * @return This builder.
+         */
+        public Builder eventsPerSecond(long eventsPerSecond) {
+            this.eventsPerSecond = eventsPerSecond;
+            return this;
+        }
+
+        public long getEventsPerSecond() {
+            return eventsPerSecond;
+        }
+
+        /**
+         * Set the fraction of the state events (membership and topic changes) in the generated stream.
+         *
+         * @param stateChurn The new value.
+         * @return This builder.
+         */
+        public Builder stateChurn(double stateChurn) {
+            this.stateChurn = stateChurn;
+            return this;
+        }
+
+        public double getStateChurn() {
+            return stateChurn;
+        }
+
+        /**
+         * Set the length of the generated message bodies.
+         *
+         * @param messageSize The new value.
+         * @return This builder.
+         */
+        public Builder messageSize(int messageSize) {
+            this.messageSize = messageSize;
+            return this;
+        }
+
+        public int getMessageSize() {
+            return messageSize;
+        }
+
+        /**
+         * Set the maximum count of the events in the single sync response.
+         *
+         * @param maxEventsPerSync The new value.
+         * @return This builder.
+         */
+        public Builder maxEventsPerSync(int maxEventsPerSync) {
+            this.maxEventsPerSync = maxEventsPerSync;
+            return this;
+        }
+
+        public int getMaxEventsPerSync() {
+            return maxEventsPerSync;
+        }
+
+        /**
+         * Set the fraction of the generated messages which contain the command.
+         *
+         * @param commandRatio The new value.
+         * @return This builder.
+         */
+        public Builder commandRatio(double commandRatio) {
+            this.commandRatio = commandRatio;
+            return this;
+        }
+
+        public double getCommandRatio() {
+            return commandRatio;
+        }
+
+        /**
+         * Set the command body.
+         *
+         * @param command The new value.
+         * @return This builder.
+         */
+        public Builder command(String command) {
+            this.command = command;
+            return this;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        /**
+         * Set the whether the rooms start as the invites instead of the joined rooms.
+         *
+         * @param invited The new value.
+         * @return This builder.
+         */
+        public Builder invited(boolean invited) {
+            this.invited = invited;
+            return this;
+        }
+
+        public boolean isInvited() {
+            return invited;
+        }
+
+        /**
+         * Set the seed of the generated stream.
+         *
+         * @param seed The new value.
+         * @return This builder.
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Set the upper bound of the long-polling timeout in milliseconds.
+         *
+         * @param maxTimeout The new value.
+         * @return This builder.
+         */
+        public Builder maxTimeout(long maxTimeout) {
+            this.maxTimeout = maxTimeout;
+            return this;
+        }
+
+        public long getMaxTimeout() {
+            return maxTimeout;
+        }
+
+        /**
+         * Set the count of the last sent events and transaction ids which are kept for the syncs and the deduplication.
+         *
+         * @param maxRetainedEvents The new value.
+         * @return This builder.
+         */
+        public Builder maxRetainedEvents(int maxRetainedEvents) {
+            this.maxRetainedEvents = maxRetainedEvents;
+            return this;
+        }
+
+        public int getMaxRetainedEvents() {
+            return maxRetainedEvents;
+        }
+
+        /**
+         * Start the server.
+         *
+         * @return The started server.
+         * @throws IOException when the server cannot bind the address.
+         */
+        public SyntheticHomeserver start() throws IOException {
+            if (rooms <= 0 || users <= 0 || maxEventsPerSync <= 0 || maxRetainedEvents <= 0) {
+                throw new IllegalArgumentException("Rooms, users, max events per sync and max retained events should be positive");
+            }
+            return new SyntheticHomeserver(this);
+        }
+    }
+
+    /**
+     * The event sent by the client.
+     */
+    private static final class Injected {
+
+        private final int room;
+
+        private final String json;
+
+        private Injected(int room, String json) {
+            this.room = room;
+            this.json = json;
+        }
+    }
+}
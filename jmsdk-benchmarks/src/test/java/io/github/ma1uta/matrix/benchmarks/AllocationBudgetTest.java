@@ -0,0 +1,208 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import io.github.ma1uta.matrix.benchmarks.BotRoutingBenchmark.EchoCommand;
+import io.github.ma1uta.matrix.benchmarks.BotRoutingBenchmark.NoopCommand;
+import io.github.ma1uta.matrix.benchmarks.BotRoutingBenchmark.PingCommand;
+import io.github.ma1uta.matrix.benchmarks.BotRoutingBenchmark.RoutingDao;
+import io.github.ma1uta.matrix.benchmarks.BotRoutingBenchmark.RoutingService;
+import io.github.ma1uta.matrix.bot.Bot;
+import io.github.ma1uta.matrix.bot.BotConfig;
+import io.github.ma1uta.matrix.bot.Command;
+import io.github.ma1uta.matrix.bot.Context;
+import io.github.ma1uta.matrix.client.StandaloneClient;
+import io.github.ma1uta.matrix.client.methods.blocked.SyncMethods;
+import io.github.ma1uta.matrix.client.model.sync.JoinedRoom;
+import io.github.ma1uta.matrix.client.model.sync.SyncResponse;
+import io.github.ma1uta.matrix.client.sync.SyncLoop;
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.RoomMessage;
+import io.github.ma1uta.matrix.event.message.Text;
+import io.github.ma1uta.matrix.impl.Deserializer;
+import io.github.ma1uta.matrix.support.jackson.JacksonDeserializer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Allocation budgets of the hot paths on the fixed corpora.
+ * <br>
+ * The budgets are stored in the {@code allocation-budgets.properties}. Each check logs the measured value and the budget
+ * calibrated from it. The check without the budget is skipped, so the guard fails only on the measured budgets.
+ */
+class AllocationBudgetTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AllocationBudgetTest.class);
+
+    private static final Properties BUDGETS = new Properties();
+
+    private static volatile Object sink;
+
+    @BeforeAll
+    public static void budgets() throws IOException {
+        assumeTrue(AllocationMeter.isSupported(), "The thread allocated memory measurement isn't supported");
+        System.setProperty("jmsdk.resolver.homeserver.verification.disable", "true");
+        try (InputStream input = AllocationBudgetTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+            BUDGETS.load(input);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jackson", "jsonb"})
+    public void decodeEvent(String provider) throws Exception {
+        Deserializer deserializer = DeserializerBenchmark.Providers.deserializer(provider);
+        List<byte[]> events = Corpus.MEDIUM.events();
+
+        long allocated = AllocationMeter.bytesPerOperation(20, events.size(), 5, () -> {
+            for (byte[] event : events) {
+                sink = deserializer.deserialize(event, Event.class);
+            }
+        });
+
+        check("decode.event." + provider, allocated);
+    }
+
+    @Test
+    public void syncIteration() throws Exception {
+        SyncResponse response = new JacksonDeserializer().deserialize(Corpus.MEDIUM.syncResponse(), SyncResponse.class);
+        SyncMethods syncMethods = new SyncLoopBenchmark.PreparedSyncMethods(response);
+
+        long allocated = AllocationMeter.bytesPerOperation(20, SyncLoopBenchmark.ITERATIONS, 5, () -> {
+            int[] counter = new int[1];
+            SyncLoop loop = new SyncLoop(syncMethods, (sync, params) -> {
+                for (JoinedRoom room : sync.getRooms().getJoin().values()) {
+                    for (Event event : room.getTimeline().getEvents()) {
+                        sink = event;
+                    }
+                }
+                if (++counter[0] >= SyncLoopBenchmark.ITERATIONS) {
+                    params.setTerminate(true);
+                }
+            });
+            loop.run();
+        });
+
+        check("sync.iteration", allocated);
+    }
+
+    @Test
+    public void processEvent() throws Exception {
+        BotConfig config = new BotConfig();
+        config.setUserId("@bot:example.org");
+        config.setDisplayName("bot");
+        ProcessingBot bot = new ProcessingBot(config, List.of(PingCommand.class, EchoCommand.class, NoopCommand.class));
+
+        Text text = new Text();
+        text.setBody("!echo hello matrix world");
+        RoomMessage message = new RoomMessage();
+        message.setRoomId("!room:example.org");
+        message.setSender("@user:example.org");
+        message.setContent(text);
+
+        try {
+            long allocated = AllocationMeter.bytesPerOperation(10_000, 1, 1_000, () -> {
+                sink = bot.process(message.getRoomId(), message);
+            });
+
+            check("bot.processEvent", allocated);
+        } finally {
+            ((StandaloneClient) bot.getContext().getMatrixClient()).close();
+        }
+    }
+
+    private static void check(String name, long allocated) {
+        String value = System.getProperty("jmsdk.allocation.budget." + name, BUDGETS.getProperty(name));
+        LOGGER.info("Allocation {}: {} bytes/op, budget {} bytes/op, calibrated budget {} bytes/op", name, allocated, value,
+            calibrated(allocated));
+        assumeTrue(value != null && !value.isEmpty(), String.format("%s isn't calibrated, the calibrated budget is %s=%d", name, name,
+            calibrated(allocated)));
+        long budget = Long.parseLong(value);
+        assertTrue(allocated <= budget, String.format("%s allocates %d bytes/op, the budget is %d bytes/op", name, allocated, budget));
+    }
+
+    /**
+     * The budget derived from the measurement: the measured value with the 50% margin rounded up to the power of two.
+     *
+     * @param allocated The measured bytes per the operation.
+     * @return The budget.
+     */
+    static long calibrated(long allocated) {
+        long margin = allocated + allocated / 2;
+        return margin <= 1L ? 1L : Long.highestOneBit(margin - 1L) << 1;
+    }
+
+    /**
+     * The bot which processes the events without the server.
+     */
+    static final class ProcessingBot extends Bot<BotConfig, RoutingDao, RoutingService, Object> {
+
+        ProcessingBot(BotConfig config, List<Class<? extends Command<BotConfig, RoutingDao, RoutingService, Object>>> commands) {
+            super(null, false, config, new RoutingService(new MemoryDao()), commands);
+        }
+
+        @Override
+        protected Context<BotConfig, RoutingDao, RoutingService, Object> init(String asToken, BotConfig config, RoutingService service) {
+            StandaloneClient matrixClient = new StandaloneClient("http://localhost");
+            matrixClient.getConnectionInfo().setUserId(config.getUserId());
+            Context<BotConfig, RoutingDao, RoutingService, Object> context = new Context<>(matrixClient, service, this);
+            context.setConfig(config);
+            return context;
+        }
+
+        boolean process(String roomId, Event event) {
+            return processEvent(roomId, event);
+        }
+    }
+
+    /**
+     * The dao which doesn't store anything.
+     */
+    static final class MemoryDao implements RoutingDao {
+
+        @Override
+        public List<BotConfig> findAll() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean user(String userId) {
+            return false;
+        }
+
+        @Override
+        public BotConfig save(BotConfig data) {
+            return data;
+        }
+
+        @Override
+        public void delete(BotConfig data) {
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.RawEvent;
+import io.github.ma1uta.matrix.event.RoomEvent;
+import io.github.ma1uta.matrix.impl.Deserializer;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The retained heap of the identifiers of the decoded events.
+ * <br>
+ * The senders of the retained events should share the canonical strings, so the count of the sender instances is close to
+ * the count of the users and doesn't grow with the count of the events. The saved heap is estimated with the size of the
+ * compact Latin-1 string on the 64-bit JVM with the compressed oops.
+ */
+class RetainedIdentifiersTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetainedIdentifiersTest.class);
+
+    /**
+     * The string header with the hash and the coder, and the header of its byte array.
+     */
+    private static final int STRING_OVERHEAD = 40;
+
+    /**
+     * The allowed share of the events with their own sender instance, the pool slots may be shared by the other identifiers.
+     */
+    private static final int MAX_SHARE = 10;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jackson", "jsonb"})
+    public void senders(String provider) throws Exception {
+        Deserializer deserializer = DeserializerBenchmark.Providers.deserializer(provider);
+        List<byte[]> events = Corpus.LARGE.events();
+
+        List<Event> retained = new ArrayList<>(events.size());
+        for (byte[] event : events) {
+            retained.add(deserializer.deserialize(event, Event.class));
+        }
+
+        Set<String> values = new HashSet<>();
+        Set<String> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        long saved = 0L;
+        for (Event event : retained) {
+            String sender = sender(event);
+            if (sender != null) {
+                values.add(sender);
+                if (!instances.add(sender)) {
+                    saved += STRING_OVERHEAD + sender.length();
+                }
+            }
+        }
+
+        LOGGER.info("Senders {}: {} events, {} values, {} instances, about {} bytes saved", provider, retained.size(), values.size(),
+            instances.size(), saved);
+        assertTrue(instances.size() * MAX_SHARE <= retained.size(), String.format(
+            "%s retains %d sender instances of %d values for %d events", provider, instances.size(), values.size(), retained.size()));
+    }
+
+    private static String sender(Event event) {
+        if (event instanceof RoomEvent) {
+            return ((RoomEvent<?>) event).getSender();
+        }
+        if (event instanceof RawEvent) {
+            Object sender = ((RawEvent) event).getProperties().get("sender");
+            return sender instanceof String ? (String) sender : null;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.benchmarks.homeserver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.ma1uta.matrix.client.StandaloneClient;
+import io.github.ma1uta.matrix.client.model.sync.JoinedRoom;
+import io.github.ma1uta.matrix.client.sync.SyncLoop;
+import io.github.ma1uta.matrix.client.sync.SyncParams;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+class SyntheticHomeserverTest {
+
+    @BeforeEach
+    public void setUp() {
+        System.setProperty("jmsdk.resolver.homeserver.verification.disable", "true");
+    }
+
+    @Test
+    public void syncStream() throws Exception {
+        try (SyntheticHomeserver server = SyntheticHomeserver.builder().rooms(5).maxEventsPerSync(20).stateChurn(0.2D).start()) {
+            StandaloneClient client = new StandaloneClient(server.getUrl());
+            client.getConnectionInfo().setAccessToken("synthetic");
+            LongAdder events = new LongAdder();
+            AtomicInteger iterations = new AtomicInteger();
+            SyncLoop syncLoop = new SyncLoop(client.sync(), (syncResponse, syncParams) -> {
+                for (JoinedRoom room : syncResponse.getRooms().getJoin().values()) {
+                    if (room.getTimeline() != null && room.getTimeline().getEvents() != null) {
+                        events.add(room.getTimeline().getEvents().size());
+                    }
+                }
+                syncParams.setTerminate(iterations.incrementAndGet() == 4);
+            });
+            syncLoop.setInit(SyncParams.builder().timeout(0L).build());
+            syncLoop.run();
+            client.close();
+
+            assertEquals(4L, server.getSyncs());
+            assertEquals(60L, events.sum());
+            assertEquals(60L, server.getDeliveredEvents());
+        }
+    }
+
+    @Test
+    public void sendsAndReceipts() throws Exception {
+        try (SyntheticHomeserver server = SyntheticHomeserver.builder().rooms(2).start()) {
+            StandaloneClient client = new StandaloneClient(server.getUrl());
+            client.getConnectionInfo().setAccessToken("synthetic");
+            List<SentEvent> sent = new ArrayList<>();
+            server.addListener(sent::add);
+
+            String eventId = client.event().sendMessage(server.getRoomId(1), "hello").getEventId();
+            client.receipt().sendReceipt(server.getRoomId(1), eventId);
+            client.close();
+
+            assertTrue(server.awaitSends(1L, Duration.ofSeconds(1L)));
+            assertEquals(1L, server.getReceipts());
+            assertEquals(1, sent.size());
+            assertEquals(eventId, sent.get(0).getEventId());
+            assertEquals(server.getRoomId(1), sent.get(0).getRoomId());
+            assertNotNull(sent.get(0).getContent());
+        }
+    }
+
+    @Test
+    public void retainedSends() throws Exception {
+        try (SyntheticHomeserver server = SyntheticHomeserver.builder().rooms(1).maxEventsPerSync(3).maxRetainedEvents(2).start()) {
+            StandaloneClient client = new StandaloneClient(server.getUrl());
+            client.getConnectionInfo().setAccessToken("synthetic");
+            for (int i = 0; i < 5; i++) {
+                client.event().sendMessage(server.getRoomId(0), "message " + i);
+            }
+            client.close();
+
+            String lagging = server.incrementalSync(0L, 0, 0L);
+            assertTrue(lagging.contains("\"limited\":true"), "The client behind the kept events must receive the limited timeline");
+            assertFalse(lagging.contains("\"$s0:"), "The dropped events must not be served");
+            assertTrue(lagging.contains("\"$s4:"));
+            assertTrue(lagging.contains("\"next_batch\":\"s0_5\""));
+
+            String current = server.incrementalSync(0L, 4, 0L);
+            assertTrue(current.contains("\"limited\":false"));
+        }
+    }
+
+    @Test
+    public void deterministicStream() throws Exception {
+        SyntheticHomeserver.Builder config = SyntheticHomeserver.builder().seed(7L).stateChurn(0.5D);
+        SyncStream first = new SyncStream(config, 0L);
+        SyncStream second = new SyncStream(config, 0L);
+        for (long i = 0; i < 100; i++) {
+            assertEquals(first.event(i, 0L), second.event(i, 0L));
+        }
+    }
+}
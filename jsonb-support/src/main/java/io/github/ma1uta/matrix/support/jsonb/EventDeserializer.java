@@ -16,8 +16,6 @@
 
 package io.github.ma1uta.matrix.support.jsonb;
 
-import static io.github.ma1uta.matrix.support.jsonb.mapper.EventMapper.INSTANCE;
-
 import io.github.ma1uta.matrix.event.Event;
 
 import java.lang.reflect.Type;
@@ -30,8 +28,10 @@ import javax.json.stream.JsonParser;
  */
 public class EventDeserializer implements JsonbDeserializer<Event> {
 
+    private final EventStreamDecoder decoder = new EventStreamDecoder();
+
     @Override
     public Event deserialize(JsonParser parser, DeserializationContext ctx, Type rtType) {
-        return INSTANCE.deserialize(parser.getObject());
+        return decoder.decode(parser);
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.support.jsonb;
+
+import static io.github.ma1uta.matrix.support.jsonb.mapper.EventMapper.INSTANCE;
+import static io.github.ma1uta.matrix.support.jsonb.mapper.EventMapper.UTIL;
+
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.RawEvent;
+import io.github.ma1uta.matrix.impl.EventBinding;
+import io.github.ma1uta.matrix.impl.EventInterner;
+import io.github.ma1uta.matrix.impl.EventTypeRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.json.Json;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+
+/**
+ * Streaming decoder of the events.
+ * <br>
+ * Reads the event envelope directly from the parser events. The events of the unknown types are read directly to the raw event,
+ * so they are never materialized as the json tree.
+ * <br>
+ * The events of the known types are built by the {@link io.github.ma1uta.matrix.support.jsonb.mapper.EventMapper} from the
+ * collected properties, so the streaming and the tree decoding produce the same events. The properties which come before
+ * the type are collected to the json values because the type isn't known yet. Only the events of the unknown types with
+ * such order pay for the conversion of these values to the raw form.
+ */
+final class EventStreamDecoder {
+
+    private static final JsonBuilderFactory BUILDERS = Json.createBuilderFactory(Collections.emptyMap());
+
+    private final EventTypeRegistry registry;
+
+    private final EventInterner interner;
+
+    EventStreamDecoder() {
+        this(EventTypeRegistry.getInstance(), EventInterner.getInstance());
+    }
+
+    EventStreamDecoder(EventTypeRegistry registry, EventInterner interner) {
+        this.registry = registry;
+        this.interner = interner;
+    }
+
+    /**
+     * Decode the event.
+     *
+     * @param parser The parser positioned at the start of the event object.
+     * @return The event.
+     */
+    Event decode(JsonParser parser) {
+        Envelope envelope = new Envelope();
+        while (parser.hasNext()) {
+            JsonParser.Event token = parser.next();
+            if (token == JsonParser.Event.END_OBJECT) {
+                break;
+            }
+            String key = parser.getString();
+            JsonParser.Event value = parser.next();
+            if ("type".equals(key) && value == JsonParser.Event.VALUE_STRING) {
+                envelope.type = interner.intern(parser.getString());
+                envelope.binding = registry.find(envelope.type);
+            } else if (envelope.type != null && envelope.binding == null) {
+                envelope.raw.put(key, read(parser, value));
+            } else {
+                envelope.values.put(key, value(parser, value));
+            }
+        }
+
+        return interner.intern(envelope.binding == null ? raw(envelope) : typed(envelope));
+    }
+
+    private Event typed(Envelope envelope) {
+        JsonObjectBuilder builder = BUILDERS.createObjectBuilder();
+        for (Map.Entry<String, JsonValue> entry : envelope.values.entrySet()) {
+            builder.add(entry.getKey(), entry.getValue());
+        }
+        return INSTANCE.deserialize(builder.add("type", envelope.type).build());
+    }
+
+    private RawEvent raw(Envelope envelope) {
+        Map<String, Object> props = envelope.raw;
+        for (Map.Entry<String, JsonValue> entry : envelope.values.entrySet()) {
+            props.put(entry.getKey(), UTIL.parse(entry.getValue()));
+        }
+        put(props, "type", envelope.type);
+        return new RawEvent(props, envelope.type);
+    }
+
+    private void put(Map<String, Object> props, String key, Object value) {
+        if (value != null) {
+            props.put(key, value);
+        }
+    }
+
+    private JsonValue value(JsonParser parser, JsonParser.Event token) {
+        switch (token) {
+            case START_OBJECT:
+                return parser.getObject();
+            case START_ARRAY:
+                return parser.getArray();
+            default:
+                return parser.getValue();
+        }
+    }
+
+    // Read the raw value in the same way as the EventMapper.Util.
+    private Object read(JsonParser parser, JsonParser.Event token) {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getString();
+            case VALUE_NUMBER:
+                return parser.getLong();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case START_ARRAY:
+                List<Object> list = new ArrayList<>();
+                JsonParser.Event item = parser.next();
+                while (item != JsonParser.Event.END_ARRAY) {
+                    list.add(read(parser, item));
+                    item = parser.next();
+                }
+                return list;
+            case START_OBJECT:
+                Map<String, Object> props = new HashMap<>();
+                while (parser.next() != JsonParser.Event.END_OBJECT) {
+                    String key = parser.getString();
+                    props.put(key, read(parser, parser.next()));
+                }
+                Object type = props.get("type");
+                return new RawEvent(props, type instanceof String ? (String) type : null);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The collected event properties.
+     */
+    private static class Envelope {
+
+        private final Map<String, Object> raw = new HashMap<>();
+
+        private final Map<String, JsonValue> values = new LinkedHashMap<>();
+
+        private String type;
+
+        private EventBinding binding;
+    }
+}
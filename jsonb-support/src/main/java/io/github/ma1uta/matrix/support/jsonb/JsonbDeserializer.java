@@ -17,28 +17,70 @@
 package io.github.ma1uta.matrix.support.jsonb;
 
 import io.github.ma1uta.matrix.event.content.EventContent;
+import io.github.ma1uta.matrix.impl.ByteBufferInputStream;
 import io.github.ma1uta.matrix.impl.Deserializer;
 import io.github.ma1uta.matrix.support.jsonb.mapper.EventMapper;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import javax.json.JsonObject;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import javax.json.Json;
 import javax.json.bind.Jsonb;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
 
 /**
  * Matrix Jsonb-based deserializer.
+ * <br>
+ * The heap buffers are read in place from the backing array, the direct buffers and the channels are read as the streams
+ * because JSON-B has no buffer or channel source.
  */
 public class JsonbDeserializer implements Deserializer {
 
     private final Jsonb jsonb = JsonbProvider.getInstance().get();
 
+    private final JsonParserFactory parserFactory = Json.createParserFactory(null);
+
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clazz) throws IOException {
-        return jsonb.fromJson(new ByteArrayInputStream(bytes), clazz);
+        return deserialize(new ByteArrayInputStream(bytes), clazz);
+    }
+
+    @Override
+    public <T> T deserialize(InputStream inputStream, Class<T> clazz) throws IOException {
+        return jsonb.fromJson(inputStream, clazz);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuffer buffer, Class<T> clazz) throws IOException {
+        return deserialize(inputStream(buffer), clazz);
     }
 
     @Override
     public EventContent deserializeEventContent(byte[] bytes, String eventType) throws IOException {
-        return EventMapper.INSTANCE.deserializeEventContent(jsonb.fromJson(new ByteArrayInputStream(bytes), JsonObject.class), eventType);
+        return deserializeEventContent(new ByteArrayInputStream(bytes), eventType);
+    }
+
+    @Override
+    public EventContent deserializeEventContent(InputStream inputStream, String eventType) throws IOException {
+        try (JsonParser parser = parserFactory.createParser(inputStream)) {
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_OBJECT) {
+                return null;
+            }
+            return EventMapper.INSTANCE.deserializeEventContent(parser.getObject(), eventType);
+        }
+    }
+
+    @Override
+    public EventContent deserializeEventContent(ByteBuffer buffer, String eventType) throws IOException {
+        return deserializeEventContent(inputStream(buffer), eventType);
+    }
+
+    private InputStream inputStream(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return new ByteBufferInputStream(buffer);
     }
 }
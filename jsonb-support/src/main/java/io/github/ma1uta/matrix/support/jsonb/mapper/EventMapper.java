@@ -155,6 +155,9 @@ import io.github.ma1uta.matrix.event.nested.Ruleset;
 import io.github.ma1uta.matrix.event.nested.TagInfo;
 import io.github.ma1uta.matrix.event.nested.ThumbnailInfo;
 import io.github.ma1uta.matrix.event.nested.VideoInfo;
+import io.github.ma1uta.matrix.impl.EventBinding;
+import io.github.ma1uta.matrix.impl.EventInterner;
+import io.github.ma1uta.matrix.impl.EventTypeRegistry;
 import org.mapstruct.InheritConfiguration;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -164,14 +167,17 @@ import org.mapstruct.factory.Mappers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.StringReader;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
+import javax.json.JsonReader;
 import javax.json.JsonString;
 import javax.json.JsonValue;
 import javax.json.bind.Jsonb;
@@ -298,7 +304,7 @@ public interface EventMapper {
                     return policyRuleServer(jsonObject);
 
                 default:
-                    return UTIL.parse(jsonObject);
+                    return registeredEvent(jsonObject, type);
             }
         } catch (Exception e) {
             LOGGER.error("Unable to parse event", e);
@@ -399,10 +405,54 @@ public interface EventMapper {
                 return (T) roomTopicContent(jsonObject);
 
             default:
-                return (T) new RawEventContent(toRawMap(jsonObject));
+                return (T) registeredEventContent(jsonObject, type);
         }
     }
 
+    /**
+     * Parse the event of the type which is registered in the {@link EventTypeRegistry} with JSON-B.
+     *
+     * @param jsonObject The event.
+     * @param type       The event type.
+     * @return The event or the raw event if the type isn't registered.
+     */
+    default Event registeredEvent(JsonObject jsonObject, String type) {
+        EventBinding binding = EventTypeRegistry.getInstance().find(type);
+        if (binding == null) {
+            return UTIL.parse(jsonObject);
+        }
+        return bind(jsonObject, binding.getEventClass());
+    }
+
+    /**
+     * Parse the event content of the type which is registered in the {@link EventTypeRegistry} with JSON-B.
+     *
+     * @param jsonObject The event content.
+     * @param type       The event type.
+     * @return The event content or the raw event content if the type isn't registered.
+     */
+    default EventContent registeredEventContent(JsonObject jsonObject, String type) {
+        EventBinding binding = EventTypeRegistry.getInstance().find(type);
+        if (binding == null) {
+            return new RawEventContent(toRawMap(jsonObject));
+        }
+        return bind(jsonObject, binding.getContentClass());
+    }
+
+    /**
+     * Bind the json object to the class with JSON-B.
+     * <br>
+     * Yasson binds the json object directly when it is present. Other providers receive the serialized object.
+     *
+     * @param jsonObject The json object.
+     * @param type       The target class.
+     * @param <T>        The target type.
+     * @return The bound instance.
+     */
+    default <T> T bind(JsonObject jsonObject, Class<T> type) {
+        return YassonBinder.bind(JSONB, jsonObject, type);
+    }
+
     class Util {
         public Event parse(JsonObject jsonObject) {
             Map<String, Object> props = new HashMap<>();
@@ -988,7 +1038,9 @@ public interface EventMapper {
                     // workaround for https://github.com/matrix-org/synapse/issues/4898
                     String serializedObject = entryValue.toString();
                     String preparedString = serializedObject.substring(1, serializedObject.length() - 1).replaceAll("\\\\", "");
-                    receiptTs = JSONB.fromJson(preparedString, ReceiptTs.class);
+                    try (JsonReader reader = Json.createReader(new StringReader(preparedString))) {
+                        receiptTs = receiptTs(reader.readObject());
+                    }
                 } else {
                     receiptTs = receiptTs(entryValue.asJsonObject());
                 }
@@ -1175,7 +1227,7 @@ public interface EventMapper {
                 roomMessageContent = video(jsonObject);
                 break;
             default:
-                roomMessageContent = rawMessageContent(jsonObject, msgtype);
+                roomMessageContent = registeredMessageContent(jsonObject, msgtype);
         }
 
         roomMessageContent.setBody(toString(jsonObject, "body"));
@@ -1184,8 +1236,23 @@ public interface EventMapper {
         return roomMessageContent;
     }
 
+    /**
+     * Parse the message content of the message type which is registered in the {@link EventTypeRegistry} with JSON-B.
+     *
+     * @param jsonObject The message content.
+     * @param msgtype    The message type.
+     * @return The message content or the raw message content if the message type isn't registered.
+     */
+    default RoomMessageContent registeredMessageContent(JsonObject jsonObject, String msgtype) {
+        Class<? extends RoomMessageContent> contentClass = EventTypeRegistry.getInstance().findMessage(msgtype);
+        if (contentClass == null) {
+            return rawMessageContent(jsonObject, msgtype);
+        }
+        return bind(jsonObject, contentClass);
+    }
+
     default RawMessageContent rawMessageContent(JsonObject jsonObject, String msgtype) {
-        return new RawMessageContent(toRawMap(jsonObject), msgtype);
+        return new RawMessageContent(toRawMap(jsonObject), EventInterner.getInstance().intern(msgtype));
     }
 
     @Mapping(expression = "java(toString(jsonObject, \"format\"))", target = "format")
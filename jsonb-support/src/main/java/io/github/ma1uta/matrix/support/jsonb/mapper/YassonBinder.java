@@ -0,0 +1,63 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ma1uta.matrix.support.jsonb.mapper;
+
+import org.eclipse.yasson.YassonJsonb;
+
+import javax.json.JsonObject;
+import javax.json.bind.Jsonb;
+
+/**
+ * Binder of the json objects.
+ * <br>
+ * Yasson binds the json object directly. Yasson is the optional dependency, so it is used only when it is present, other
+ * providers receive the serialized object.
+ */
+final class YassonBinder {
+
+    private static final boolean YASSON = isYassonPresent();
+
+    private YassonBinder() {
+        // singleton.
+    }
+
+    private static boolean isYassonPresent() {
+        try {
+            Class.forName("org.eclipse.yasson.YassonJsonb", false, YassonBinder.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Bind the json object to the class.
+     *
+     * @param jsonb      The JSON-B.
+     * @param jsonObject The json object.
+     * @param type       The target class.
+     * @param <T>        The target type.
+     * @return The bound instance.
+     */
+    static <T> T bind(Jsonb jsonb, JsonObject jsonObject, Class<T> type) {
+        if (YASSON && jsonb instanceof YassonJsonb) {
+            return ((YassonJsonb) jsonb).fromJsonStructure(jsonObject, type);
+        }
+        return jsonb.fromJson(jsonObject.toString(), type);
+    }
+}
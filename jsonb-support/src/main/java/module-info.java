@@ -27,6 +27,7 @@ module matrix.support.jsonb {
     requires transitive matrix.common.api;
     requires transitive matrix.common.impl;
     requires transitive java.json;
+    requires static org.eclipse.yasson;
     requires org.mapstruct;
     requires java.annotation;
     requires java.sql;
@@ -0,0 +1,78 @@
+/*
+ * Copyright Anatoliy Sablin tolya@sablin.xyz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ma1uta.matrix.support.jsonb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.RoomTopic;
+import io.github.ma1uta.matrix.event.content.EventContent;
+import io.github.ma1uta.matrix.event.content.RoomTopicContent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+public class JsonbDeserializerTest {
+
+    private static final byte[] EVENT = "{\"type\":\"m.room.topic\",\"content\":{\"topic\":\"test\"}}".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] CONTENT = "{\"topic\":\"test\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final JsonbDeserializer deserializer = new JsonbDeserializer();
+
+    @Test
+    public void inputStream() throws IOException {
+        RoomTopic event = (RoomTopic) deserializer.deserialize(new ByteArrayInputStream(EVENT), Event.class);
+        assertEquals("test", event.getContent().getTopic());
+
+        EventContent content = deserializer.deserializeEventContent(new ByteArrayInputStream(CONTENT), RoomTopic.TYPE);
+        assertTrue(content instanceof RoomTopicContent);
+        assertEquals("test", ((RoomTopicContent) content).getTopic());
+    }
+
+    @Test
+    public void byteBuffer() throws IOException {
+        ByteBuffer heap = ByteBuffer.allocate(CONTENT.length + 2);
+        heap.put((byte) ' ').put(CONTENT).flip().position(1);
+        ByteBuffer direct = ByteBuffer.allocateDirect(CONTENT.length);
+        direct.put(CONTENT).flip();
+
+        for (ByteBuffer buffer : new ByteBuffer[] {heap, direct}) {
+            int position = buffer.position();
+            EventContent content = deserializer.deserializeEventContent(buffer, RoomTopic.TYPE);
+            assertEquals("test", ((RoomTopicContent) content).getTopic());
+            assertEquals(position, buffer.position());
+        }
+
+        RoomTopic event = (RoomTopic) deserializer.deserialize(ByteBuffer.wrap(EVENT), Event.class);
+        assertEquals("test", event.getContent().getTopic());
+    }
+
+    @Test
+    public void channel() throws IOException {
+        RoomTopic event = (RoomTopic) deserializer.deserialize(Channels.newChannel(new ByteArrayInputStream(EVENT)), Event.class);
+        assertEquals("test", event.getContent().getTopic());
+
+        EventContent content = deserializer.deserializeEventContent(Channels.newChannel(new ByteArrayInputStream(CONTENT)), RoomTopic.TYPE);
+        assertEquals("test", ((RoomTopicContent) content).getTopic());
+    }
+}
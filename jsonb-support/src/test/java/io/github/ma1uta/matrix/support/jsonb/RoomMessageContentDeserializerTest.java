@@ -18,10 +18,13 @@ package io.github.ma1uta.matrix.support.jsonb;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import io.github.ma1uta.matrix.event.CallCandidates;
 import io.github.ma1uta.matrix.event.Event;
+import io.github.ma1uta.matrix.event.RawEvent;
+import io.github.ma1uta.matrix.event.RoomMessage;
 import io.github.ma1uta.matrix.event.RoomName;
 import io.github.ma1uta.matrix.event.RoomTopic;
 import io.github.ma1uta.matrix.event.content.CallCandidatesContent;
@@ -32,12 +35,17 @@ import io.github.ma1uta.matrix.event.message.Notice;
 import io.github.ma1uta.matrix.event.message.RawMessageContent;
 import io.github.ma1uta.matrix.event.message.Text;
 import io.github.ma1uta.matrix.event.nested.Candidate;
+import io.github.ma1uta.matrix.support.jsonb.mapper.EventMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.io.StringReader;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
 import javax.json.bind.Jsonb;
 import javax.json.bind.JsonbBuilder;
 import javax.json.bind.JsonbConfig;
@@ -155,4 +163,102 @@ public class RoomMessageContentDeserializerTest {
         assertEquals("sdpMin-2", candidate.getSdpMid());
         assertEquals(2L, candidate.getSdpMLineIndex());
     }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "{\"content\":{\"body\":\"test\",\"msgtype\":\"m.text\"},\"event_id\":\"$1\",\"origin_server_ts\":10,\"sender\":\"@a:b\",\"type\":\"m.room.message\",\"unsigned\":{\"age\":5}}",
+        "{\"unsigned\":{\"age\":5},\"type\":\"m.room.message\",\"sender\":\"@a:b\",\"origin_server_ts\":10,\"event_id\":\"$1\",\"content\":{\"msgtype\":\"m.text\",\"body\":\"test\"}}"
+    }, delimiter = ';')
+    public void envelope(String eventArg) {
+        Event event = mapper.fromJson(eventArg, Event.class);
+
+        assertTrue(event instanceof RoomMessage);
+        RoomMessage roomMessage = (RoomMessage) event;
+        assertEquals("$1", roomMessage.getEventId());
+        assertEquals("@a:b", roomMessage.getSender());
+        assertEquals(10L, roomMessage.getOriginServerTs());
+        assertEquals(5L, roomMessage.getUnsigned().getAge());
+        assertEquals("test", ((Text) roomMessage.getContent()).getBody());
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "{\"content\":{\"custom\":[1,{\"a\":2}]},\"type\":\"org.example.custom\"};org.example.custom",
+        "{\"type\":\"org.example.custom\",\"content\":{\"custom\":[1,{\"a\":2}]}};org.example.custom",
+        "{\"content\":{\"custom\":true}};"
+    }, delimiter = ';')
+    public void rawEvent(String eventArg, String type) {
+        Event event = mapper.fromJson(eventArg, Event.class);
+
+        assertTrue(event instanceof RawEvent);
+        assertEquals(type, event.getType());
+        assertNotNull(((RawEvent) event).getProperties().get("content"));
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "{\"content\":{\"topic\":\"first\"},\"prev_content\":{\"topic\":\"zero\"},\"state_key\":\"\",\"type\":\"m.room.topic\"}",
+        "{\"type\":\"m.room.topic\",\"state_key\":\"\",\"prev_content\":{\"topic\":\"zero\"},\"content\":{\"topic\":\"first\"}}"
+    }, delimiter = ';')
+    public void contentBeforeType(String eventArg) {
+        Event event = mapper.fromJson(eventArg, Event.class);
+
+        assertTrue(event instanceof RoomTopic);
+        RoomTopic roomTopic = (RoomTopic) event;
+        assertEquals("first", roomTopic.getContent().getTopic());
+        assertEquals("zero", roomTopic.getPrevContent().getTopic());
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+        "{\"type\":\"m.dummy\"}",
+        "{\"type\":\"m.typing\",\"room_id\":\"!r:b\",\"content\":{\"user_ids\":[\"@a:b\"]}}",
+        "{\"room_id\":\"!r:b\",\"type\":\"m.receipt\",\"content\":{\"$1\":{\"m.read\":{\"@a:b\":{\"ts\":10}}}}}",
+        "{\"type\":\"m.presence\",\"sender\":\"@a:b\",\"content\":{\"presence\":\"online\",\"last_active_ago\":5}}",
+        "{\"type\":\"m.room.message\",\"event_id\":\"$1\",\"room_id\":\"!r:b\",\"sender\":\"@a:b\",\"origin_server_ts\":10,\"content\":{\"msgtype\":\"m.notice\",\"body\":\"hi\"},\"unsigned\":{\"age\":5,\"transaction_id\":\"t1\"}}",
+        "{\"content\":{},\"redacts\":\"$0\",\"type\":\"m.room.redaction\",\"event_id\":\"$1\",\"sender\":\"@a:b\",\"origin_server_ts\":10}",
+        "{\"type\":\"m.room.member\",\"state_key\":\"@a:b\",\"sender\":\"@a:b\",\"content\":{\"membership\":\"join\"},\"unsigned\":{\"prev_content\":{\"membership\":\"invite\"}}}",
+        "{\"prev_content\":{\"topic\":\"zero\"},\"type\":\"m.room.topic\",\"state_key\":\"\",\"content\":{\"topic\":\"first\"}}",
+        "{\"type\":\"m.room.topic\",\"event_id\":7,\"content\":{\"topic\":\"broken\"}}",
+        "{\"type\":\"org.example.custom\",\"room_id\":\"!r:b\",\"content\":{\"custom\":[1,{\"a\":2}]}}"
+    }, delimiter = ';')
+    public void streamMatchesTree(String eventArg) {
+        Event streamed = mapper.fromJson(eventArg, Event.class);
+        Event tree;
+        try (JsonReader reader = Json.createReader(new StringReader(eventArg))) {
+            tree = EventMapper.INSTANCE.deserialize(reader.readObject());
+        }
+
+        assertEquals(tree.getClass(), streamed.getClass());
+        assertEquals(toJson(tree), toJson(streamed), "The streaming decoder must build the same event as the mapper");
+    }
+
+    @Test
+    public void internedIdentifiers() {
+        String event = "{\"content\":{\"body\":\"test\",\"msgtype\":\"m.text\"},\"room_id\":\"!r:b\",\"sender\":\"@a:b\","
+            + "\"type\":\"m.room.message\"}";
+        RoomMessage first = (RoomMessage) mapper.fromJson(event, Event.class);
+        RoomMessage second = (RoomMessage) mapper.fromJson(event, Event.class);
+
+        assertEquals("@a:b", first.getSender());
+        assertSame(first.getSender(), second.getSender());
+        assertSame(first.getRoomId(), second.getRoomId());
+    }
+
+    @Test
+    public void internedRawIdentifiers() {
+        String event = "{\"content\":{\"custom\":true},\"room_id\":\"!r:b\",\"sender\":\"@a:b\",\"type\":\"org.example.custom\"}";
+        RawEvent first = (RawEvent) mapper.fromJson(event, Event.class);
+        RawEvent second = (RawEvent) mapper.fromJson(event, Event.class);
+
+        assertEquals("@a:b", first.getProperties().get("sender"));
+        assertSame(first.getProperties().get("sender"), second.getProperties().get("sender"));
+        assertSame(first.getProperties().get("room_id"), second.getProperties().get("room_id"));
+    }
+
+    private static JsonObject toJson(Event event) {
+        try (JsonReader reader = Json.createReader(new StringReader(JsonbBuilder.create().toJson(event)))) {
+            return reader.readObject();
+        }
+    }
 }